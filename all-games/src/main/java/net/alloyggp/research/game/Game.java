@@ -1,5 +1,7 @@
 package net.alloyggp.research.game;
 
+import java.nio.ByteBuffer;
+
 import net.alloyggp.research.GameState;
 import net.alloyggp.research.GameTreeProvider;
 import net.alloyggp.research.game.impl.SheepAndWolf;
@@ -17,25 +19,32 @@ import net.alloyggp.research.game.impl.SheepAndWolf;
 public enum Game {
     BIDDING_TIC_TAC_TOE("Bidding tic-tac-toe", GGPBaseGame.usingSanchoEngine("biddingTicTacToe"), Simultaneous.YES),
     BLOCKER("Blocker", GGPBaseGame.usingSanchoEngine("blocker"), Simultaneous.YES),
+    // TODO: Switch these to the native Breakthrough once GameImplementationCorrectnessTest passes for them
     BREAKTHROUGH("Breakthrough", GGPBaseGame.usingSanchoEngine("breakthrough"), Simultaneous.NO),
     BREAKTHROUGH_6x6("Breakthrough (6x6)", GGPBaseGame.usingSanchoEngine("breakthroughSmall"), Simultaneous.NO),
     CEPHALOPOD_3x3("Cephalopod (3x3)", GGPBaseGame.usingSanchoEngine("cephalopodMicro"), Simultaneous.NO),
+    // TODO: Switch these to the native ConnectFour once GameImplementationCorrectnessTest passes for them
     CONNECT_FOUR_8x6("Connect Four (8x6)", GGPBaseGame.usingSanchoEngine("connectFour"), Simultaneous.NO),
     CONNECT_FOUR_9x6("Connect Four (9x6)", GGPBaseGame.usingSanchoEngine("connectFour_9x6"), Simultaneous.NO),
+    // TODO: Switch these to the native DotsAndBoxes once GameImplementationCorrectnessTest passes for them
     DOTS_AND_BOXES("Dots and Boxes (5x5)", GGPBaseGame.usingSanchoEngine("dotsAndBoxes"), Simultaneous.NO),
     DOTS_AND_BOXES_MISERE("Dots and Boxes Misère (5x5)", GGPBaseGame.usingSanchoEngine("dotsAndBoxesSuicide"), Simultaneous.NO),
     ENGLISH_DRAUGHTS("English Draughts", GGPBaseGame.usingSanchoEngine("englishDraughts"), Simultaneous.NO),
+    // TODO: Switch these to the native Gomoku once GameImplementationCorrectnessTest passes for them
     GOMOKU_11x11("Gomoku (11x11)", GGPBaseGame.usingSanchoEngine("gomoku_11x11"), Simultaneous.NO),
     GOMOKU_15x15("Gomoku (15x15)", GGPBaseGame.usingSanchoEngine("gomoku_15x15"), Simultaneous.NO),
     GOMOKU_SWAP2_11x11("Gomoku (Swap2, 11x11)", GGPBaseGame.usingSanchoEngine("gomoku_swap2_11x11"), Simultaneous.NO),
     GOMOKU_SWAP2_15x15("Gomoku (Swap2, 15x15)", GGPBaseGame.usingSanchoEngine("gomoku_swap2_15x15"), Simultaneous.NO),
+    // TODO: Switch these to the native Hex once GameImplementationCorrectnessTest passes for them
     HEX("Hex", GGPBaseGame.usingSanchoEngine("hex"), Simultaneous.NO),
     HEX_PIE("Hex (with pie rule)", GGPBaseGame.usingSanchoEngine("hexPie"), Simultaneous.NO),
     MAJORITIES("Majorities", GGPBaseGame.usingSanchoEngine("majorities"), Simultaneous.NO),
+    // TODO: Switch these to the native Pentago and Quarto once GameImplementationCorrectnessTest passes for them
     PENTAGO("Pentago", GGPBaseGame.usingSanchoEngine("pentago"), Simultaneous.NO),
     PENTAGO_MISERE("Pentago Misère", GGPBaseGame.usingSanchoEngine("pentagoSuicide"), Simultaneous.NO),
     QUARTO("Quarto", GGPBaseGame.usingSanchoEngine("quarto"), Simultaneous.NO),
     QUARTO_MISERE("Quarto Misère", GGPBaseGame.usingSanchoEngine("quartoSuicide"), Simultaneous.NO),
+    // TODO: Switch these to the native Reversi once GameImplementationCorrectnessTest passes for them
     REVERSI("Reversi", GGPBaseGame.usingSanchoEngine("reversi"), Simultaneous.NO),
     REVERSI_MISERE("Reversi Misère", GGPBaseGame.usingSanchoEngine("reversiSuicide"), Simultaneous.NO),
     SHEEP_AND_WOLF("Sheep and Wolf", new SheepAndWolf(), Simultaneous.NO),
@@ -65,6 +74,14 @@ public enum Game {
         return treeProvider.getInitialState();
     }
 
+    public GameState decode(ByteBuffer buffer) {
+        return treeProvider.decode(buffer);
+    }
+
+    public int getEncodingVersion() {
+        return treeProvider.getEncodingVersion();
+    }
+
     public String getId() {
         return this.name();
     }
@@ -16,6 +16,14 @@ import com.google.common.collect.Lists;
 import net.alloyggp.research.GameState;
 import net.alloyggp.research.GameTreeProvider;
 import net.alloyggp.research.Move;
+import net.alloyggp.research.game.impl.Breakthrough;
+import net.alloyggp.research.game.impl.ConnectFour;
+import net.alloyggp.research.game.impl.DotsAndBoxes;
+import net.alloyggp.research.game.impl.Gomoku;
+import net.alloyggp.research.game.impl.Hex;
+import net.alloyggp.research.game.impl.Pentago;
+import net.alloyggp.research.game.impl.Quarto;
+import net.alloyggp.research.game.impl.Reversi;
 import net.alloyggp.research.game.impl.SheepAndWolf;
 
 public class GameImplementationCorrectnessTest {
@@ -27,6 +35,150 @@ public class GameImplementationCorrectnessTest {
                 10000);
     }
 
+    @Ignore("Intended to be run manually")
+    @Test
+    public void testBreakthrough() {
+        testGameDescriptionsEqual(GGPBaseGame.usingSanchoEngine("breakthrough"),
+                new Breakthrough(8),
+                10000);
+    }
+
+    @Ignore("Intended to be run manually")
+    @Test
+    public void testBreakthrough6x6() {
+        testGameDescriptionsEqual(GGPBaseGame.usingSanchoEngine("breakthroughSmall"),
+                new Breakthrough(6),
+                10000);
+    }
+
+    @Ignore("Intended to be run manually")
+    @Test
+    public void testConnectFour() {
+        testGameDescriptionsEqual(GGPBaseGame.usingSanchoEngine("connectFour"),
+                new ConnectFour(8, 6),
+                10000);
+    }
+
+    @Ignore("Intended to be run manually")
+    @Test
+    public void testConnectFour9x6() {
+        testGameDescriptionsEqual(GGPBaseGame.usingSanchoEngine("connectFour_9x6"),
+                new ConnectFour(9, 6),
+                10000);
+    }
+
+    @Ignore("Intended to be run manually")
+    @Test
+    public void testHex() {
+        testGameDescriptionsEqual(GGPBaseGame.usingSanchoEngine("hex"),
+                new Hex(9, false),
+                10000);
+    }
+
+    @Ignore("Intended to be run manually")
+    @Test
+    public void testHexPie() {
+        testGameDescriptionsEqual(GGPBaseGame.usingSanchoEngine("hexPie"),
+                new Hex(9, true),
+                10000);
+    }
+
+    @Ignore("Intended to be run manually")
+    @Test
+    public void testDotsAndBoxes() {
+        testGameDescriptionsEqual(GGPBaseGame.usingSanchoEngine("dotsAndBoxes"),
+                new DotsAndBoxes(6, false),
+                10000);
+    }
+
+    @Ignore("Intended to be run manually")
+    @Test
+    public void testDotsAndBoxesMisere() {
+        testGameDescriptionsEqual(GGPBaseGame.usingSanchoEngine("dotsAndBoxesSuicide"),
+                new DotsAndBoxes(6, true),
+                10000);
+    }
+
+    @Ignore("Intended to be run manually")
+    @Test
+    public void testGomoku11x11() {
+        testGameDescriptionsEqual(GGPBaseGame.usingSanchoEngine("gomoku_11x11"),
+                new Gomoku(11, false),
+                10000);
+    }
+
+    @Ignore("Intended to be run manually")
+    @Test
+    public void testGomoku15x15() {
+        testGameDescriptionsEqual(GGPBaseGame.usingSanchoEngine("gomoku_15x15"),
+                new Gomoku(15, false),
+                10000);
+    }
+
+    @Ignore("Intended to be run manually")
+    @Test
+    public void testGomokuSwap2_11x11() {
+        testGameDescriptionsEqual(GGPBaseGame.usingSanchoEngine("gomoku_swap2_11x11"),
+                new Gomoku(11, true),
+                10000);
+    }
+
+    @Ignore("Intended to be run manually")
+    @Test
+    public void testGomokuSwap2_15x15() {
+        testGameDescriptionsEqual(GGPBaseGame.usingSanchoEngine("gomoku_swap2_15x15"),
+                new Gomoku(15, true),
+                10000);
+    }
+
+    @Ignore("Intended to be run manually")
+    @Test
+    public void testPentago() {
+        testGameDescriptionsEqual(GGPBaseGame.usingSanchoEngine("pentago"),
+                new Pentago(false),
+                10000);
+    }
+
+    @Ignore("Intended to be run manually")
+    @Test
+    public void testPentagoMisere() {
+        testGameDescriptionsEqual(GGPBaseGame.usingSanchoEngine("pentagoSuicide"),
+                new Pentago(true),
+                10000);
+    }
+
+    @Ignore("Intended to be run manually")
+    @Test
+    public void testQuarto() {
+        testGameDescriptionsEqual(GGPBaseGame.usingSanchoEngine("quarto"),
+                new Quarto(false),
+                10000);
+    }
+
+    @Ignore("Intended to be run manually")
+    @Test
+    public void testQuartoMisere() {
+        testGameDescriptionsEqual(GGPBaseGame.usingSanchoEngine("quartoSuicide"),
+                new Quarto(true),
+                10000);
+    }
+
+    @Ignore("Intended to be run manually")
+    @Test
+    public void testReversi() {
+        testGameDescriptionsEqual(GGPBaseGame.usingSanchoEngine("reversi"),
+                new Reversi(false),
+                10000);
+    }
+
+    @Ignore("Intended to be run manually")
+    @Test
+    public void testReversiMisere() {
+        testGameDescriptionsEqual(GGPBaseGame.usingSanchoEngine("reversiSuicide"),
+                new Reversi(true),
+                10000);
+    }
+
     private void testGameDescriptionsEqual(GameTreeProvider reference, GameTreeProvider candidate, int numTests) {
         for (int i = 0; i < numTests; i++) {
             Random random = new RandomAdaptor(new MersenneTwister(i));
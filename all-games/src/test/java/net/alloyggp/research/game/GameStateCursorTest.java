@@ -0,0 +1,136 @@
+package net.alloyggp.research.game;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.apache.commons.math3.random.MersenneTwister;
+import org.apache.commons.math3.random.RandomAdaptor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import net.alloyggp.research.GameState;
+import net.alloyggp.research.GameStateCursor;
+import net.alloyggp.research.GameTreeProvider;
+import net.alloyggp.research.game.impl.Breakthrough;
+import net.alloyggp.research.game.impl.ConnectFour;
+import net.alloyggp.research.game.impl.DotsAndBoxes;
+import net.alloyggp.research.game.impl.Gomoku;
+import net.alloyggp.research.game.impl.Pentago;
+import net.alloyggp.research.game.impl.Quarto;
+import net.alloyggp.research.game.impl.Reversi;
+import net.alloyggp.research.game.impl.SheepAndWolf;
+
+public class GameStateCursorTest {
+    @Test
+    public void testWrappedCursor() {
+        GameTreeProvider game = new SheepAndWolf();
+        testApplyAndUndo(game, GameStateCursor::wrap, 100);
+    }
+
+    @Test
+    public void testSheepAndWolf() {
+        testApplyAndUndo(new SheepAndWolf(), GameState::createCursor, 100);
+    }
+
+    @Test
+    public void testConnectFour() {
+        testApplyAndUndo(new ConnectFour(8, 6), GameState::createCursor, 100);
+    }
+
+    @Test
+    public void testBreakthrough() {
+        testApplyAndUndo(new Breakthrough(8), GameState::createCursor, 100);
+    }
+
+    @Test
+    public void testDotsAndBoxes() {
+        testApplyAndUndo(new DotsAndBoxes(6, false), GameState::createCursor, 100);
+    }
+
+    @Test
+    public void testGomoku() {
+        testApplyAndUndo(new Gomoku(11, true), GameState::createCursor, 100);
+    }
+
+    @Test
+    public void testPentago() {
+        testApplyAndUndo(new Pentago(false), GameState::createCursor, 100);
+    }
+
+    @Test
+    public void testQuarto() {
+        testApplyAndUndo(new Quarto(false), GameState::createCursor, 100);
+    }
+
+    @Test
+    public void testReversi() {
+        testApplyAndUndo(new Reversi(false), GameState::createCursor, 100);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUndoAtStartFails() {
+        new SheepAndWolf().getInitialState().createCursor().undoMoves();
+    }
+
+    /*
+     * Plays random games on a cursor alongside immutable states, then undoes the moves one
+     * at a time. At every depth, on the way down and back up, the cursor must match the
+     * state there exactly. Along the way, some moves are undone and replayed, and random
+     * playouts are run, which should leave the cursor where it was.
+     */
+    private void testApplyAndUndo(GameTreeProvider game, Function<GameState, GameStateCursor> cursorFactory, int numTests) {
+        for (int i = 0; i < numTests; i++) {
+            Random random = new RandomAdaptor(new MersenneTwister(i));
+            GameState state = game.getInitialState();
+            GameStateCursor cursor = cursorFactory.apply(state);
+            List<GameState> statesByDepth = Lists.newArrayList(state);
+            assertCursorMatches(state, 0, cursor);
+
+            while (!state.isTerminal()) {
+                int[] moveIndices = new int[state.getNumRoles()];
+                for (int r = 0; r < state.getNumRoles(); r++) {
+                    moveIndices[r] = random.nextInt(state.getNumPossibleMovesForRole(r));
+                }
+                cursor.applyMoves(moveIndices);
+                if (random.nextInt(4) == 0) {
+                    cursor.undoMoves();
+                    assertCursorMatches(state, statesByDepth.size() - 1, cursor);
+                    cursor.applyMoves(moveIndices);
+                }
+                state = state.getNextStateFromMoveIndices(moveIndices);
+                statesByDepth.add(state);
+                assertCursorMatches(state, statesByDepth.size() - 1, cursor);
+
+                if (!state.isTerminal() && random.nextInt(4) == 0) {
+                    List<Double> outcomes = cursor.playoutToTerminal(random);
+                    Assert.assertEquals(state.getNumRoles(), outcomes.size());
+                    assertCursorMatches(state, statesByDepth.size() - 1, cursor);
+                }
+            }
+            Assert.assertEquals(state.getOutcomes(), cursor.getOutcomes());
+
+            for (int depth = statesByDepth.size() - 2; depth >= 0; depth--) {
+                cursor.undoMoves();
+                assertCursorMatches(statesByDepth.get(depth), depth, cursor);
+            }
+        }
+    }
+
+    private void assertCursorMatches(GameState expected, int expectedDepth, GameStateCursor cursor) {
+        Assert.assertEquals(expectedDepth, cursor.getDepth());
+        Assert.assertEquals(expected.getStateHash(), cursor.getStateHash());
+        GameState currentState = cursor.getCurrentState();
+        Assert.assertEquals(expected.getStateKey(), currentState.getStateKey());
+        Assert.assertEquals(expected.getStateHash(), currentState.getStateHash());
+        Assert.assertEquals(expected.isTerminal(), cursor.isTerminal());
+        for (int r = 0; r < expected.getNumRoles(); r++) {
+            Assert.assertEquals(expected.getNumPossibleMovesForRole(r), cursor.getNumPossibleMovesForRole(r));
+            for (int m = 0; m < expected.getNumPossibleMovesForRole(r); m++) {
+                Assert.assertEquals(expected.getPossibleMoveForRole(r, m), cursor.getPossibleMoveForRole(r, m));
+            }
+        }
+    }
+}
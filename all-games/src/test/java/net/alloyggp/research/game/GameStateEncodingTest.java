@@ -0,0 +1,126 @@
+package net.alloyggp.research.game;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.commons.math3.random.MersenneTwister;
+import org.apache.commons.math3.random.RandomAdaptor;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import net.alloyggp.research.GameState;
+import net.alloyggp.research.GameTreeProvider;
+import net.alloyggp.research.game.impl.Breakthrough;
+import net.alloyggp.research.game.impl.ConnectFour;
+import net.alloyggp.research.game.impl.DotsAndBoxes;
+import net.alloyggp.research.game.impl.Gomoku;
+import net.alloyggp.research.game.impl.Pentago;
+import net.alloyggp.research.game.impl.Quarto;
+import net.alloyggp.research.game.impl.Hex;
+import net.alloyggp.research.game.impl.Reversi;
+
+public class GameStateEncodingTest {
+    @Test
+    public void testSheepAndWolf() {
+        testEncodingRoundTrips(Game.SHEEP_AND_WOLF, 1000);
+    }
+
+    @Test
+    public void testConnectFour() {
+        testEncodingRoundTrips(new ConnectFour(8, 6), 1000);
+        testEncodingRoundTrips(new ConnectFour(9, 6), 1000);
+    }
+
+    @Test
+    public void testHex() {
+        testEncodingRoundTrips(new Hex(9, false), 100);
+        testEncodingRoundTrips(new Hex(9, true), 100);
+    }
+
+    @Test
+    public void testBreakthrough() {
+        testEncodingRoundTrips(new Breakthrough(8), 100);
+        testEncodingRoundTrips(new Breakthrough(6), 100);
+    }
+
+    @Test
+    public void testDotsAndBoxes() {
+        testEncodingRoundTrips(new DotsAndBoxes(6, false), 100);
+        testEncodingRoundTrips(new DotsAndBoxes(6, true), 100);
+    }
+
+    @Test
+    public void testGomoku() {
+        testEncodingRoundTrips(new Gomoku(11, false), 100);
+        testEncodingRoundTrips(new Gomoku(11, true), 100);
+    }
+
+    @Test
+    public void testPentago() {
+        testEncodingRoundTrips(new Pentago(false), 100);
+        testEncodingRoundTrips(new Pentago(true), 100);
+    }
+
+    @Test
+    public void testQuarto() {
+        testEncodingRoundTrips(new Quarto(false), 100);
+        testEncodingRoundTrips(new Quarto(true), 100);
+    }
+
+    @Test
+    public void testReversi() {
+        testEncodingRoundTrips(new Reversi(false), 100);
+        testEncodingRoundTrips(new Reversi(true), 100);
+    }
+
+    // This just takes a while due to game engine startup time
+    @Ignore("Intended to be run manually")
+    @Test
+    public void testAllGames() {
+        for (Game game : Game.values()) {
+            testEncodingRoundTrips(game, 10);
+        }
+    }
+
+    private void testEncodingRoundTrips(Game game, int numTests) {
+        testEncodingRoundTrips(game::getInitialState, game::decode, numTests);
+    }
+
+    // Game entries may use GGP-Base until the native versions are verified, so those are tested directly
+    private void testEncodingRoundTrips(GameTreeProvider game, int numTests) {
+        testEncodingRoundTrips(game::getInitialState, game::decode, numTests);
+    }
+
+    private void testEncodingRoundTrips(Supplier<GameState> initialStateSupplier, Function<ByteBuffer, GameState> decoder, int numTests) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        for (int i = 0; i < numTests; i++) {
+            Random random = new RandomAdaptor(new MersenneTwister(i));
+            GameState state = initialStateSupplier.get();
+            while (true) {
+                buffer.clear();
+                state.encode(buffer);
+                buffer.flip();
+                GameState decodedState = decoder.apply(buffer);
+
+                Assert.assertFalse(buffer.hasRemaining());
+                Assert.assertEquals(state.getStateKey(), decodedState.getStateKey());
+                Assert.assertEquals(state.getStateHash(), decodedState.getStateHash());
+                for (int r = 0; r < state.getNumRoles(); r++) {
+                    Assert.assertEquals(state.getPossibleMovesForRole(r), decodedState.getPossibleMovesForRole(r));
+                }
+
+                if (state.isTerminal()) {
+                    break;
+                }
+                int[] moveIndices = new int[state.getNumRoles()];
+                for (int r = 0; r < state.getNumRoles(); r++) {
+                    moveIndices[r] = random.nextInt(state.getNumPossibleMovesForRole(r));
+                }
+                state = state.getNextStateFromMoveIndices(moveIndices);
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package net.alloyggp.research.strategy;
 
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalLong;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
@@ -26,6 +27,12 @@ public class StrategyRegistry {
         add(strategyProviders, new MemorylessUCTRecordAllNodesStrategyProvider());
         add(strategyProviders, new MemorylessUCTOneNodeExpansionStrategyProvider());
         add(strategyProviders, new MemorylessUCTWinsFirstStrategyProvider());
+        add(strategyProviders, new UCTTreeReuseStrategyProvider());
+        add(strategyProviders, new AnytimeNPlyLookaheadStrategyProvider());
+        add(strategyProviders, new AnytimeUCTRecordAllNodesStrategyProvider());
+        add(strategyProviders, new AnytimeUCTOneNodeExpansionStrategyProvider());
+        add(strategyProviders, new AnytimeUCTWinsFirstStrategyProvider());
+        add(strategyProviders, new AnytimeUCTTreeReuseStrategyProvider());
 
         return strategyProviders;
     }
@@ -83,10 +90,27 @@ public class StrategyRegistry {
     }
 
     public static Strategy fromId(String strategyId) {
+        StrategyProvider strategyProvider = getStrategyProvider(strategyId);
+        return strategyProvider.get(parseParameters(strategyProvider, strategyId));
+    }
+
+    /**
+     * Returns the estimate of the heap used by a player with this strategy, as declared by
+     * its StrategyProvider. See {@link StrategyProvider#getMemoryEstimate(StrategyParameters)}.
+     */
+    public static OptionalLong getMemoryEstimate(String strategyId) {
+        StrategyProvider strategyProvider = getStrategyProvider(strategyId);
+        return strategyProvider.getMemoryEstimate(parseParameters(strategyProvider, strategyId));
+    }
+
+    private static StrategyProvider getStrategyProvider(String strategyId) {
+        String strategyName = strategyId.split(":")[0];
+        return collectStrategyProviders().get(strategyName);
+    }
+
+    private static StrategyParameters parseParameters(StrategyProvider strategyProvider, String strategyId) {
         String[] components = strategyId.split(":");
 
-        String strategyName = components[0];
-        StrategyProvider strategyProvider = collectStrategyProviders().get(strategyName);
         Map<String, StrategyParameterDescription<?>> parameterTypes = index(strategyProvider.getParameters());
         StrategyParameters.Builder builder = StrategyParameters.builder();
         for (int i = 1; i < components.length; i++) {
@@ -101,8 +125,7 @@ public class StrategyRegistry {
             String valueString = parts[1];
             builder.parseAndPut(parameterDescription, valueString);
         }
-        StrategyParameters parameters = builder.build();
-        return strategyProvider.get(parameters);
+        return builder.build();
     }
 
     private static Map<String, StrategyParameterDescription<?>> index(
@@ -1,12 +1,22 @@
 package net.alloyggp.research.applications;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multiset;
-import com.google.common.collect.Queues;
 
 import net.alloyggp.research.Experiment;
 import net.alloyggp.research.MatchResult;
@@ -17,93 +27,166 @@ import net.alloyggp.research.MatchSpec;
  *
  */
 public class ExperimentMatchRunner {
+    /*
+     * Threads keep playing the same game where they can, to avoid rebuilding rule engines,
+     * but don't get more than this many matches ahead of the order they were enqueued in.
+     */
+    private static final long FAIRNESS_WINDOW = 1000;
+    /*
+     * The fraction of the maximum heap that the estimated memory use of matches running at
+     * once may add up to. The rest is left for rule engines and estimates that run low. This
+     * can be set with the "gameAiResearch.matchMemoryFraction" system property.
+     */
+    private static final String DEFAULT_MEMORY_FRACTION = "0.75";
+
     public static void main(String[] args) throws IOException, InterruptedException {
         final int numThreads;
         if (args.length > 0) {
             numThreads = Integer.parseInt(args[0]);
         } else {
-            numThreads = 1;
+            numThreads = Runtime.getRuntime().availableProcessors();
         }
         System.out.println("Running with a thread count of " + numThreads + ".");
 
-        BlockingQueue<WorkItem> workQueue = Queues.newArrayBlockingQueue(100);
-        for (int i = 0; i < numThreads; i++) {
-            new Thread(() -> {
-                while (true) {
-                    WorkItem work;
-                    try {
-                        work = workQueue.take();
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                        break;
-                    }
-                    if (work.shouldStop) {
-                        // No more work to do
-                        break;
-                    }
-                    MatchSpec spec = work.matchSpec;
-                    System.out.println("Running a match of " + spec.getGameId() + " for experiment " + spec.getExperimentName());
-                    try {
-                        MatchRunner.runAndSaveResult(spec);
-                    } catch (IOException e) {
-                        // TODO: We should really record errors, which might indicate invalid results
-                        e.printStackTrace();
-                    }
+        double memoryFraction = Double.parseDouble(System.getProperty("gameAiResearch.matchMemoryFraction", DEFAULT_MEMORY_FRACTION));
+        MemoryBudget memoryBudget = MemoryBudget.forFractionOfMaxHeap(memoryFraction);
+        System.out.println("Limiting the estimated memory use of concurrent matches to " + (memoryBudget.getCapacityBytes() >> 20) + " MB.");
+
+        // Syncing each batch of results to disk is off by default; set "gameAiResearch.syncResults" to enable it
+        ResultSink resultSink = new ResultSink(Boolean.getBoolean("gameAiResearch.syncResults"));
+        MatchExecutor executor = new MatchExecutor(numThreads, FAIRNESS_WINDOW, memoryBudget, resultSink);
+        // When the process is stopped, let the matches in progress finish so their results are saved
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            executor.cancelPending();
+            try {
+                while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    System.out.println("Waiting for the matches in progress to finish...");
                 }
-            }).start();
-        }
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            resultSink.close();
+        }));
 
         List<Experiment> allExperiments = ExperimentRegistry.getExperiments();
+        Map<Experiment, List<MatchResult>> existingResultsByExperiment = Maps.newLinkedHashMap();
+        List<MatchResult> allResults = Lists.newArrayList();
         for (Experiment experiment : allExperiments) {
-            enqueueMatchesForExperiment(experiment, workQueue);
-        }
-        for (int i = 0; i < numThreads; i++) {
-            workQueue.put(WorkItem.stopper());
+            List<MatchResult> existingResults = MatchResults.loadAllResults(experiment.getName());
+            existingResultsByExperiment.put(experiment, existingResults);
+            allResults.addAll(existingResults);
         }
-    }
-
-    private static class WorkItem {
-        public final boolean shouldStop;
-        public final MatchSpec matchSpec;
 
-        private WorkItem(boolean shouldStop, MatchSpec matchSpec) {
-            this.shouldStop = shouldStop;
-            this.matchSpec = matchSpec;
-        }
+        MatchCostModel costModel = MatchCostModel.fit(allResults);
+        List<MatchSpec> pendingMatches = planMatches(allExperiments, existingResultsByExperiment, costModel, numThreads);
 
-        public static WorkItem of(MatchSpec spec) {
-            return new WorkItem(false, spec);
+        for (MatchSpec spec : pendingMatches) {
+            executor.submit(spec);
         }
+        executor.shutdown();
+        // The pool's threads are daemon threads, so wait here for the matches to finish
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        resultSink.close();
+    }
 
-        public static WorkItem stopper() {
-            return new WorkItem(true, null);
+    /*
+     * Returns the matches to run, in the order to submit them, and prints a prediction of
+     * how long they will take.
+     */
+    static List<MatchSpec> planMatches(List<Experiment> allExperiments, Map<Experiment, List<MatchResult>> existingResultsByExperiment,
+            MatchCostModel costModel, int numThreads) {
+        // Fitting an estimate isn't free, and each spec is looked up many times while sorting
+        Map<MatchSpec, OptionalDouble> estimates = Maps.newHashMap();
+        Function<MatchSpec, OptionalDouble> estimateFunction = spec -> estimates.computeIfAbsent(spec, costModel::estimateMilliseconds);
+        List<MatchSpec> pendingMatches = Lists.newArrayList();
+        for (Experiment experiment : allExperiments) {
+            pendingMatches.addAll(getPendingMatchesForExperiment(experiment,
+                    existingResultsByExperiment.get(experiment), estimateFunction));
         }
+        printPrediction(pendingMatches, estimateFunction, numThreads);
+        return pendingMatches;
     }
 
-    private static void enqueueMatchesForExperiment(Experiment experiment, BlockingQueue<WorkItem> workQueue) throws IOException, InterruptedException {
+    private static List<MatchSpec> getPendingMatchesForExperiment(Experiment experiment, List<MatchResult> existingResults,
+            Function<MatchSpec, OptionalDouble> estimateMilliseconds) {
         Multiset<MatchSpec> desiredSpecCounts = experiment.getMatchesToRun();
 
-        List<MatchResult> existingResults = MatchResults.loadAllResults(experiment.getName());
         Multiset<MatchSpec> existingSpecCounts = existingResults.stream()
                 .filter(result -> !result.hadError())
                 .map(result -> result.getSpec())
                 .collect(ImmutableMultiset.toImmutableMultiset());
 
-        System.out.println("Starting to enqueue matches for experiment " + experiment.getName() + ".");
+        System.out.println("Looking for matches to run for experiment " + experiment.getName() + ".");
         System.out.println("Number of matches already done for this experiment: " + existingSpecCounts.size());
 
-        // We note that partial results are often more interesting to look at when
-        // iterations are spread evenly across different possibilities, as opposed to
-        // collecting all at once.
-        int maxDesiredCount = desiredSpecCounts.entrySet().stream().mapToInt(Multiset.Entry::getCount).max().getAsInt();
+        return orderPendingMatches(desiredSpecCounts, existingSpecCounts, estimateMilliseconds);
+    }
+
+    /*
+     * We note that partial results are often more interesting to look at when
+     * iterations are spread evenly across different possibilities, as opposed to
+     * collecting all at once. So matches are run in rounds: round i has one match of each
+     * spec that wants more than i matches but has no more than i already. Within a round,
+     * the longest expected matches go first, so the run doesn't end with one thread
+     * working through a long match while the others sit idle. Matches with no prediction go
+     * first of all, since they could be arbitrarily long. The sort is stable, so matches
+     * with the same prediction keep their order within the round.
+     */
+    static List<MatchSpec> orderPendingMatches(Multiset<MatchSpec> desiredSpecCounts, Multiset<MatchSpec> existingSpecCounts,
+            Function<MatchSpec, OptionalDouble> estimateMilliseconds) {
+        Comparator<MatchSpec> longestFirst = Comparator.comparingDouble(
+                (MatchSpec spec) -> estimateMilliseconds.apply(spec).orElse(Double.POSITIVE_INFINITY)).reversed();
+        List<MatchSpec> pendingMatches = Lists.newArrayList();
+        int maxDesiredCount = desiredSpecCounts.entrySet().stream().mapToInt(Multiset.Entry::getCount).max().orElse(0);
         for (int i = 0; i < maxDesiredCount; i++) {
+            List<MatchSpec> round = Lists.newArrayList();
             for (MatchSpec spec : desiredSpecCounts.elementSet()) {
                 int desiredCount = desiredSpecCounts.count(spec);
                 int existingCount = existingSpecCounts.count(spec);
                 if (existingCount <= i && desiredCount > i) {
-                    workQueue.put(WorkItem.of(spec));
+                    round.add(spec);
                 }
             }
+            round.sort(longestFirst);
+            pendingMatches.addAll(round);
+        }
+        return pendingMatches;
+    }
+
+    /*
+     * Predicts when the matches will be done by simulating the threads taking them in order,
+     * each starting its next match as soon as it's done with the last one. This leaves out
+     * the time spent building rule engines, so it's a lower bound for GGP-Base games.
+     */
+    private static void printPrediction(List<MatchSpec> pendingMatches, Function<MatchSpec, OptionalDouble> estimateMilliseconds,
+            int numThreads) {
+        PriorityQueue<Double> threadFinishTimes = new PriorityQueue<>();
+        for (int i = 0; i < numThreads; i++) {
+            threadFinishTimes.add(0.0);
+        }
+        int numUnpredicted = 0;
+        for (MatchSpec spec : pendingMatches) {
+            OptionalDouble estimate = estimateMilliseconds.apply(spec);
+            if (estimate.isPresent()) {
+                threadFinishTimes.add(threadFinishTimes.poll() + estimate.getAsDouble());
+            } else {
+                numUnpredicted++;
+            }
+        }
+        long makespanMillis = (long) Collections.max(threadFinishTimes).doubleValue();
+
+        System.out.println("Number of matches to run: " + pendingMatches.size());
+        System.out.println("Predicted time to finish: " + formatDuration(makespanMillis)
+                + " (ETA " + LocalDateTime.now().plus(makespanMillis, ChronoUnit.MILLIS).format(ETA_FORMAT) + ")");
+        if (numUnpredicted > 0) {
+            System.out.println("This doesn't include " + numUnpredicted + " matches of games with no results yet.");
         }
     }
+
+    private static final DateTimeFormatter ETA_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private static String formatDuration(long millis) {
+        long seconds = millis / 1000;
+        return String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+    }
 }
@@ -62,10 +62,8 @@ public class ExperimentRegistry {
                         .build(),
 
                 // Sample A/B test experiment
-                new ABTestExperiment(
-                        "TestTicTacToeABExperiment",
-                        ImmutableList.of(
-                                "UCTRecordAllNodes:iterationCount=20",
+                ABTestExperiment.build("TestTicTacToeABExperiment")
+                        .addStrategyIds("UCTRecordAllNodes:iterationCount=20",
                                 "UCTRecordAllNodes:iterationCount=200",
                                 "UCTOneNodeExpansion:iterationCount=20",
                                 "UCTOneNodeExpansion:iterationCount=200",
@@ -76,44 +74,37 @@ public class ExperimentRegistry {
                                 "Random",
                                 "NPlyLookahead:defaultOutcome=0.5:pliesToLookAhead=1",
                                 "NPlyLookahead:defaultOutcome=0.5:pliesToLookAhead=5",
-                                "NPlyLookahead:defaultOutcome=0.5:pliesToLookAhead=6"
-                                ),
-                        ImmutableList.of(Game.TIC_TAC_TOE),
-                        100),
-
-                new ABTestExperiment(
-                        "IterationCountAffectsCpComparisonsA",
-                        ImmutableList.of(
-                                "UCTOneNodeExpansion:iterationCount=200:c_p=0.176777",
+                                "NPlyLookahead:defaultOutcome=0.5:pliesToLookAhead=6")
+                        .addGames(Game.TIC_TAC_TOE)
+                        .iterationsPerConfiguration(100)
+                        .build(),
+
+                ABTestExperiment.build("IterationCountAffectsCpComparisonsA")
+                        .addStrategyIds("UCTOneNodeExpansion:iterationCount=200:c_p=0.176777",
                                 "UCTOneNodeExpansion:iterationCount=200:c_p=0.707107",
                                 "UCTOneNodeExpansion:iterationCount=2000:c_p=0.176777",
-                                "UCTOneNodeExpansion:iterationCount=2000:c_p=0.707107"
-                                ),
-                        ImmutableList.of(Game.BREAKTHROUGH),
-                        250),
-
-                new ABTestExperiment(
-                        "IterationCountAffectsCpComparisonsB",
-                        ImmutableList.of(
-                                "UCTOneNodeExpansion:iterationCount=200:c_p=0.176777",
+                                "UCTOneNodeExpansion:iterationCount=2000:c_p=0.707107")
+                        .addGames(Game.BREAKTHROUGH)
+                        .iterationsPerConfiguration(250)
+                        .build(),
+
+                ABTestExperiment.build("IterationCountAffectsCpComparisonsB")
+                        .addStrategyIds("UCTOneNodeExpansion:iterationCount=200:c_p=0.176777",
                                 "UCTOneNodeExpansion:iterationCount=200:c_p=2.828427",
                                 "UCTOneNodeExpansion:iterationCount=2000:c_p=0.176777",
-                                "UCTOneNodeExpansion:iterationCount=2000:c_p=2.828427"
-                                ),
-                        ImmutableList.of(Game.CONNECT_FOUR_9x6),
-                        250),
+                                "UCTOneNodeExpansion:iterationCount=2000:c_p=2.828427")
+                        .addGames(Game.CONNECT_FOUR_9x6)
+                        .iterationsPerConfiguration(250)
+                        .build(),
 
                 // Sample A/B test experiment
-                new ABTestExperiment(
-                        "TestUCT200CpExperiment",
-                        ImmutableList.of(
-                                "UCTOneNodeExpansion:iterationCount=200:c_p=0.176777",
+                ABTestExperiment.build("TestUCT200CpExperiment")
+                        .addStrategyIds("UCTOneNodeExpansion:iterationCount=200:c_p=0.176777",
                                 "UCTOneNodeExpansion:iterationCount=200:c_p=0.353553",
                                 "UCTOneNodeExpansion:iterationCount=200:c_p=0.707107",
                                 "UCTOneNodeExpansion:iterationCount=200:c_p=1.414214",
-                                "UCTOneNodeExpansion:iterationCount=200:c_p=2.828427"
-                                ),
-                        ImmutableList.of(Game.TIC_TAC_TOE,
+                                "UCTOneNodeExpansion:iterationCount=200:c_p=2.828427")
+                        .addGames(Game.TIC_TAC_TOE,
                                 Game.BREAKTHROUGH,
                                 Game.DOTS_AND_BOXES,
                                 Game.DOTS_AND_BOXES_MISERE,
@@ -122,20 +113,18 @@ public class ExperimentRegistry {
                                 Game.CONNECT_FOUR_9x6,
                                 Game.PENTAGO,
                                 Game.REVERSI,
-                                Game.CEPHALOPOD_3x3),
-                        250),
+                                Game.CEPHALOPOD_3x3)
+                        .iterationsPerConfiguration(250)
+                        .build(),
 
                 // Sample A/B test experiment
-                new ABTestExperiment(
-                        "TestUCT2000CpExperiment",
-                        ImmutableList.of(
-                                "UCTOneNodeExpansion:iterationCount=2000:c_p=0.176777",
+                ABTestExperiment.build("TestUCT2000CpExperiment")
+                        .addStrategyIds("UCTOneNodeExpansion:iterationCount=2000:c_p=0.176777",
                                 "UCTOneNodeExpansion:iterationCount=2000:c_p=0.353553",
                                 "UCTOneNodeExpansion:iterationCount=2000:c_p=0.707107",
                                 "UCTOneNodeExpansion:iterationCount=2000:c_p=1.414214",
-                                "UCTOneNodeExpansion:iterationCount=2000:c_p=2.828427"
-                                ),
-                        ImmutableList.of(Game.TIC_TAC_TOE,
+                                "UCTOneNodeExpansion:iterationCount=2000:c_p=2.828427")
+                        .addGames(Game.TIC_TAC_TOE,
                                 Game.BREAKTHROUGH,
                                 Game.DOTS_AND_BOXES,
                                 Game.DOTS_AND_BOXES_MISERE,
@@ -144,20 +133,18 @@ public class ExperimentRegistry {
                                 Game.CONNECT_FOUR_9x6,
                                 Game.PENTAGO,
                                 Game.REVERSI,
-                                Game.CEPHALOPOD_3x3),
-                        250),
+                                Game.CEPHALOPOD_3x3)
+                        .iterationsPerConfiguration(250)
+                        .build(),
 
                 // Sample A/B test experiment
-                new ABTestExperiment(
-                        "TestUCTWinsFirst200CpExperiment",
-                        ImmutableList.of(
-                                "UCTWinsFirst:iterationCount=200:c_p=0.176777",
+                ABTestExperiment.build("TestUCTWinsFirst200CpExperiment")
+                        .addStrategyIds("UCTWinsFirst:iterationCount=200:c_p=0.176777",
                                 "UCTWinsFirst:iterationCount=200:c_p=0.353553",
                                 "UCTWinsFirst:iterationCount=200:c_p=0.707107",
                                 "UCTWinsFirst:iterationCount=200:c_p=1.414214",
-                                "UCTWinsFirst:iterationCount=200:c_p=2.828427"
-                                ),
-                        ImmutableList.of(Game.TIC_TAC_TOE,
+                                "UCTWinsFirst:iterationCount=200:c_p=2.828427")
+                        .addGames(Game.TIC_TAC_TOE,
                                 Game.BREAKTHROUGH,
                                 Game.DOTS_AND_BOXES,
                                 Game.DOTS_AND_BOXES_MISERE,
@@ -166,20 +153,18 @@ public class ExperimentRegistry {
                                 Game.CONNECT_FOUR_9x6,
                                 Game.PENTAGO,
                                 Game.REVERSI,
-                                Game.CEPHALOPOD_3x3),
-                        250),
+                                Game.CEPHALOPOD_3x3)
+                        .iterationsPerConfiguration(250)
+                        .build(),
 
                 // Sample A/B test experiment
-                new ABTestExperiment(
-                        "TestUCTWinsFirst2000CpExperiment",
-                        ImmutableList.of(
-                                "UCTWinsFirst:iterationCount=2000:c_p=0.176777",
+                ABTestExperiment.build("TestUCTWinsFirst2000CpExperiment")
+                        .addStrategyIds("UCTWinsFirst:iterationCount=2000:c_p=0.176777",
                                 "UCTWinsFirst:iterationCount=2000:c_p=0.353553",
                                 "UCTWinsFirst:iterationCount=2000:c_p=0.707107",
                                 "UCTWinsFirst:iterationCount=2000:c_p=1.414214",
-                                "UCTWinsFirst:iterationCount=2000:c_p=2.828427"
-                                ),
-                        ImmutableList.of(Game.TIC_TAC_TOE,
+                                "UCTWinsFirst:iterationCount=2000:c_p=2.828427")
+                        .addGames(Game.TIC_TAC_TOE,
                                 Game.BREAKTHROUGH,
                                 Game.DOTS_AND_BOXES,
                                 Game.DOTS_AND_BOXES_MISERE,
@@ -188,14 +173,13 @@ public class ExperimentRegistry {
                                 Game.CONNECT_FOUR_9x6,
                                 Game.PENTAGO,
                                 Game.REVERSI,
-                                Game.CEPHALOPOD_3x3),
-                        250),
+                                Game.CEPHALOPOD_3x3)
+                        .iterationsPerConfiguration(250)
+                        .build(),
 
                 // Sample A/B test experiment
-                new ABTestExperiment(
-                        "TestUCTWinsFirstABExperiment",
-                        ImmutableList.of(
-                                "UCTRecordAllNodes:iterationCount=20",
+                ABTestExperiment.build("TestUCTWinsFirstABExperiment")
+                        .addStrategyIds("UCTRecordAllNodes:iterationCount=20",
                                 "UCTRecordAllNodes:iterationCount=200",
                                 "UCTOneNodeExpansion:iterationCount=20",
                                 "UCTOneNodeExpansion:iterationCount=200",
@@ -206,9 +190,8 @@ public class ExperimentRegistry {
                                 "UCTWinsFirst:iterationCount=2000:c_p=2.828427",
                                 "UCTWinsFirst:iterationCount=2000:c_p=0.707107",
                                 "UCTWinsFirst:iterationCount=2000:c_p=0.353553",
-                                "Random"
-                                ),
-                        ImmutableList.of(Game.TIC_TAC_TOE,
+                                "Random")
+                        .addGames(Game.TIC_TAC_TOE,
                                 Game.BREAKTHROUGH,
                                 Game.DOTS_AND_BOXES,
                                 Game.ENGLISH_DRAUGHTS,
@@ -216,8 +199,9 @@ public class ExperimentRegistry {
                                 Game.CONNECT_FOUR_9x6,
                                 Game.PENTAGO,
                                 Game.REVERSI,
-                                Game.CEPHALOPOD_3x3),
-                        500)
+                                Game.CEPHALOPOD_3x3)
+                        .iterationsPerConfiguration(500)
+                        .build()
 
         );
     }
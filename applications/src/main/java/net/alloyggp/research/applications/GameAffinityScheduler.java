@@ -0,0 +1,128 @@
+package net.alloyggp.research.applications;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+
+/**
+ * Chooses which pending match each worker runs next, grouping matches by game. Building a
+ * GGP-Base rule engine for a game takes seconds, and each thread keeps using the engine it
+ * built for as long as it plays the same game, so a worker keeps taking matches of its
+ * current game where it can instead of following the submission order exactly.
+ *
+ * <p>Matches of each game are still taken in the order they were submitted. A worker
+ * switches games when its game has no pending matches left, or when it has gotten too far
+ * ahead of the oldest pending match overall: the submission order spreads matches across
+ * the possibilities in an experiment, and partial results are more interesting when that
+ * spread is roughly kept. When switching, a worker prefers the game with the oldest
+ * pending match among those no other worker is playing.
+ *
+ * <p>Engines are handed between threads when they switch games, but a thread doesn't
+ * share its engine while using it. Every worker playing the same game at once holds its
+ * own engine, so having several workers on a game costs memory for as many engines.
+ * Preferring games no one else is playing keeps that down, but once the workers outnumber
+ * the games with pending matches, they double up.
+ */
+final class GameAffinityScheduler<T> {
+    private static final class PendingMatch<T> {
+        private final long sequenceNumber;
+        private final T match;
+
+        private PendingMatch(long sequenceNumber, T match) {
+            this.sequenceNumber = sequenceNumber;
+            this.match = match;
+        }
+    }
+
+    // How many submissions a worker's game may be ahead of the oldest pending match
+    private final long fairnessWindow;
+    // Only games with pending matches have an entry
+    private final Map<String, Deque<PendingMatch<T>>> pendingMatchesByGame = Maps.newHashMap();
+    private final Multiset<String> workersByGame = HashMultiset.create();
+    private long nextSequenceNumber = 0;
+
+    GameAffinityScheduler(long fairnessWindow) {
+        if (fairnessWindow < 0) {
+            throw new IllegalArgumentException("The fairness window can't be negative: " + fairnessWindow);
+        }
+        this.fairnessWindow = fairnessWindow;
+    }
+
+    synchronized void submit(String gameId, T match) {
+        pendingMatchesByGame.computeIfAbsent(gameId, key -> new ArrayDeque<>())
+                .addLast(new PendingMatch<>(nextSequenceNumber, match));
+        nextSequenceNumber++;
+    }
+
+    /**
+     * Takes the next match for a worker whose last match was of the given game (or null if
+     * it hasn't run one yet). Returns null if there are no pending matches.
+     */
+    synchronized @Nullable T poll(@Nullable String previousGameId) {
+        if (previousGameId != null) {
+            workersByGame.remove(previousGameId);
+        }
+        if (pendingMatchesByGame.isEmpty()) {
+            return null;
+        }
+        String gameId = chooseGame(previousGameId);
+        Deque<PendingMatch<T>> pendingMatches = pendingMatchesByGame.get(gameId);
+        PendingMatch<T> match = pendingMatches.removeFirst();
+        if (pendingMatches.isEmpty()) {
+            pendingMatchesByGame.remove(gameId);
+        }
+        workersByGame.add(gameId);
+        return match.match;
+    }
+
+    /**
+     * Removes and returns all the pending matches, in submission order within each game.
+     */
+    synchronized List<T> drainPending() {
+        List<T> matches = Lists.newArrayList();
+        for (Deque<PendingMatch<T>> pendingMatches : pendingMatchesByGame.values()) {
+            for (PendingMatch<T> match : pendingMatches) {
+                matches.add(match.match);
+            }
+        }
+        pendingMatchesByGame.clear();
+        return matches;
+    }
+
+    private String chooseGame(@Nullable String previousGameId) {
+        String oldestGameId = null;
+        long oldestSequenceNumber = Long.MAX_VALUE;
+        String oldestUnclaimedGameId = null;
+        long oldestUnclaimedSequenceNumber = Long.MAX_VALUE;
+        for (Map.Entry<String, Deque<PendingMatch<T>>> entry : pendingMatchesByGame.entrySet()) {
+            long sequenceNumber = entry.getValue().getFirst().sequenceNumber;
+            if (sequenceNumber < oldestSequenceNumber) {
+                oldestGameId = entry.getKey();
+                oldestSequenceNumber = sequenceNumber;
+            }
+            if (sequenceNumber < oldestUnclaimedSequenceNumber && !workersByGame.contains(entry.getKey())) {
+                oldestUnclaimedGameId = entry.getKey();
+                oldestUnclaimedSequenceNumber = sequenceNumber;
+            }
+        }
+
+        Deque<PendingMatch<T>> previousGameMatches = (previousGameId == null) ? null : pendingMatchesByGame.get(previousGameId);
+        if (previousGameMatches != null
+                && previousGameMatches.getFirst().sequenceNumber - oldestSequenceNumber <= fairnessWindow) {
+            return previousGameId;
+        }
+        if (oldestUnclaimedGameId != null) {
+            return oldestUnclaimedGameId;
+        }
+        // Every game with pending matches is being played, so join the one that's furthest behind
+        return oldestGameId;
+    }
+}
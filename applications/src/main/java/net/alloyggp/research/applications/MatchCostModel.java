@@ -0,0 +1,257 @@
+package net.alloyggp.research.applications;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.SortedMap;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import net.alloyggp.research.MatchResult;
+import net.alloyggp.research.MatchSpec;
+import net.alloyggp.research.strategy.StrategyRegistry;
+
+/**
+ * Predicts how long matches will take, based on the durations of matches already run.
+ *
+ * <p>A match that has been run before is predicted to take its average duration. Otherwise,
+ * if matches of the same game and strategies have been run with different values of a
+ * single numeric parameter (such as iterationCount), the duration is interpolated from
+ * those, on log-log scales. Failing that, the prediction is the average duration of
+ * matches of the same game. There's no prediction for games with no results at all.
+ */
+final class MatchCostModel {
+    /*
+     * A match spec with the values of its strategies' numeric parameters taken out, so
+     * specs that only differ in those values have the same shape.
+     */
+    private static final class SpecShape {
+        private final String gameId;
+        private final ImmutableList<String> strategyShapes;
+
+        private SpecShape(String gameId, ImmutableList<String> strategyShapes) {
+            this.gameId = gameId;
+            this.strategyShapes = strategyShapes;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(gameId, strategyShapes);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null)
+                return false;
+            if (getClass() != obj.getClass())
+                return false;
+            SpecShape other = (SpecShape) obj;
+            return gameId.equals(other.gameId) && strategyShapes.equals(other.strategyShapes);
+        }
+    }
+
+    private static final class Observation {
+        // Keyed by role index and parameter name
+        private final SortedMap<String, Double> numericParameters;
+        private final double averageMilliseconds;
+
+        private Observation(SortedMap<String, Double> numericParameters, double averageMilliseconds) {
+            this.numericParameters = numericParameters;
+            this.averageMilliseconds = averageMilliseconds;
+        }
+    }
+
+    private final Map<List<Object>, Double> averageMillisecondsBySpec;
+    private final ListMultimap<SpecShape, Observation> observationsByShape;
+    private final Map<String, Double> averageMillisecondsByGame;
+
+    private MatchCostModel(Map<List<Object>, Double> averageMillisecondsBySpec,
+            ListMultimap<SpecShape, Observation> observationsByShape,
+            Map<String, Double> averageMillisecondsByGame) {
+        this.averageMillisecondsBySpec = averageMillisecondsBySpec;
+        this.observationsByShape = observationsByShape;
+        this.averageMillisecondsByGame = averageMillisecondsByGame;
+    }
+
+    // The time control doesn't change which strategies play, but does change how long they take
+    private static List<Object> getKey(MatchSpec spec) {
+        return ImmutableList.of(spec.getGameId(), spec.getStrategyIds(), spec.getTimeControl(), spec.ponderingEnabled());
+    }
+
+    /**
+     * Fits a model to the given results. Results of matches that had errors are ignored.
+     */
+    static MatchCostModel fit(List<MatchResult> results) {
+        Map<List<Object>, MatchSpec> specsByKey = Maps.newHashMap();
+        Map<List<Object>, double[]> totalsByKey = Maps.newHashMap();
+        Map<String, double[]> totalsByGame = Maps.newHashMap();
+        for (MatchResult result : results) {
+            if (result.hadError()) {
+                continue;
+            }
+            MatchSpec spec = result.getSpec();
+            List<Object> key = getKey(spec);
+            specsByKey.putIfAbsent(key, spec);
+            addToTotal(totalsByKey.computeIfAbsent(key, k -> new double[2]), result.getMillisecondsElapsed());
+            addToTotal(totalsByGame.computeIfAbsent(spec.getGameId(), k -> new double[2]), result.getMillisecondsElapsed());
+        }
+
+        Map<List<Object>, Double> averageMillisecondsBySpec = Maps.newHashMap();
+        ListMultimap<SpecShape, Observation> observationsByShape = ArrayListMultimap.create();
+        for (Map.Entry<List<Object>, double[]> entry : totalsByKey.entrySet()) {
+            double average = entry.getValue()[0] / entry.getValue()[1];
+            averageMillisecondsBySpec.put(entry.getKey(), average);
+            MatchSpec spec = specsByKey.get(entry.getKey());
+            // Only untimed matches scale with their parameters in a predictable way
+            if (!spec.getTimeControl().isPresent()) {
+                observationsByShape.put(getShape(spec), new Observation(getNumericParameters(spec), average));
+            }
+        }
+        Map<String, Double> averageMillisecondsByGame = Maps.newHashMap();
+        for (Map.Entry<String, double[]> entry : totalsByGame.entrySet()) {
+            averageMillisecondsByGame.put(entry.getKey(), entry.getValue()[0] / entry.getValue()[1]);
+        }
+        return new MatchCostModel(averageMillisecondsBySpec, observationsByShape, averageMillisecondsByGame);
+    }
+
+    private static void addToTotal(double[] total, long milliseconds) {
+        total[0] += milliseconds;
+        total[1]++;
+    }
+
+    private static SpecShape getShape(MatchSpec spec) {
+        ImmutableList.Builder<String> strategyShapes = ImmutableList.builder();
+        for (String strategyId : spec.getStrategyIds()) {
+            StringBuilder sb = new StringBuilder(strategyId.split(":")[0]);
+            for (Map.Entry<String, String> parameter : ImmutableSortedMap.copyOf(StrategyRegistry.getParametersFromId(strategyId)).entrySet()) {
+                sb.append(":").append(parameter.getKey());
+                if (parseNumber(parameter.getValue()) == null) {
+                    sb.append("=").append(parameter.getValue());
+                }
+            }
+            strategyShapes.add(sb.toString());
+        }
+        return new SpecShape(spec.getGameId(), strategyShapes.build());
+    }
+
+    private static SortedMap<String, Double> getNumericParameters(MatchSpec spec) {
+        SortedMap<String, Double> numericParameters = Maps.newTreeMap();
+        List<String> strategyIds = spec.getStrategyIds();
+        for (int role = 0; role < strategyIds.size(); role++) {
+            for (Map.Entry<String, String> parameter : StrategyRegistry.getParametersFromId(strategyIds.get(role)).entrySet()) {
+                Double value = parseNumber(parameter.getValue());
+                if (value != null) {
+                    numericParameters.put(role + "/" + parameter.getKey(), value);
+                }
+            }
+        }
+        return numericParameters;
+    }
+
+    // Returns null if the value isn't a number
+    private static Double parseNumber(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the predicted duration of the match in milliseconds, or an empty OptionalDouble
+     * if there are no results for its game.
+     */
+    OptionalDouble estimateMilliseconds(MatchSpec spec) {
+        Double average = averageMillisecondsBySpec.get(getKey(spec));
+        if (average != null) {
+            return OptionalDouble.of(average);
+        }
+        if (!spec.getTimeControl().isPresent()) {
+            OptionalDouble interpolated = interpolate(observationsByShape.get(getShape(spec)), getNumericParameters(spec));
+            if (interpolated.isPresent()) {
+                return interpolated;
+            }
+        }
+        Double gameAverage = averageMillisecondsByGame.get(spec.getGameId());
+        if (gameAverage != null) {
+            return OptionalDouble.of(gameAverage);
+        }
+        return OptionalDouble.empty();
+    }
+
+    /*
+     * For each parameter, looks for observations that match the target in every other
+     * parameter and interpolates along that one; the estimates for the different
+     * parameters are averaged.
+     */
+    private static OptionalDouble interpolate(List<Observation> observations, SortedMap<String, Double> target) {
+        double logTotal = 0;
+        int numEstimates = 0;
+        for (String parameter : target.keySet()) {
+            List<double[]> points = Lists.newArrayList();
+            for (Observation observation : observations) {
+                if (matchesExcept(observation.numericParameters, target, parameter)) {
+                    points.add(new double[] {
+                            toLogScale(observation.numericParameters.get(parameter)),
+                            toLogScale(observation.averageMilliseconds) });
+                }
+            }
+            if (!points.isEmpty()) {
+                points.sort(Comparator.comparingDouble(point -> point[0]));
+                logTotal += interpolateLinearly(points, toLogScale(target.get(parameter)));
+                numEstimates++;
+            }
+        }
+        if (numEstimates == 0) {
+            return OptionalDouble.empty();
+        }
+        return OptionalDouble.of(Math.max(0, Math.expm1(logTotal / numEstimates)));
+    }
+
+    private static boolean matchesExcept(SortedMap<String, Double> parameters, SortedMap<String, Double> target, String exception) {
+        Set<String> allParameters = Sets.union(parameters.keySet(), target.keySet());
+        for (String parameter : allParameters) {
+            if (!parameter.equals(exception) && !Objects.equals(parameters.get(parameter), target.get(parameter))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Durations can be 0 ms, and parameters can be 0, so this shifts them before taking logs
+    private static double toLogScale(double value) {
+        return Math.log1p(Math.max(0, value));
+    }
+
+    /*
+     * Interpolates between the neighboring points, or extrapolates from the two nearest
+     * points when the target is outside their range. The points are sorted by x.
+     */
+    private static double interpolateLinearly(List<double[]> points, double x) {
+        if (points.size() == 1) {
+            return points.get(0)[1];
+        }
+        int upperIndex = 1;
+        while (upperIndex < points.size() - 1 && points.get(upperIndex)[0] < x) {
+            upperIndex++;
+        }
+        double[] lower = points.get(upperIndex - 1);
+        double[] upper = points.get(upperIndex);
+        if (upper[0] == lower[0]) {
+            return (lower[1] + upper[1]) / 2;
+        }
+        double slope = (upper[1] - lower[1]) / (upper[0] - lower[0]);
+        return lower[1] + slope * (x - lower[0]);
+    }
+}
@@ -0,0 +1,172 @@
+package net.alloyggp.research.applications;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.alloyggp.research.MatchResult;
+import net.alloyggp.research.MatchSpec;
+import net.alloyggp.research.strategy.StrategyRegistry;
+
+/**
+ * Runs matches on a work-stealing ForkJoinPool, with a future for each match's result.
+ *
+ * <p>Each submitted match queues one task with the pool, but tasks aren't tied to a
+ * particular match: when a worker runs a task, the {@link GameAffinityScheduler} picks
+ * the pending match for it based on the game that worker last played. The pool keeps a
+ * deque of tasks per worker and idle workers steal from the others, so every worker stays
+ * busy no matter how unevenly match durations are spread across the tasks.
+ *
+ * <p>Results are saved through a {@link ResultSink}, so workers don't wait on the disk.
+ * Before starting a match, a worker waits for its estimated memory use to fit in the
+ * {@link MemoryBudget}, based on the estimates its strategies' providers declare.
+ */
+final class MatchExecutor {
+    private static final class QueuedMatch {
+        private final MatchSpec spec;
+        private final long memoryEstimate;
+        private final CompletableFuture<MatchResult> future = new CompletableFuture<>();
+
+        private QueuedMatch(MatchSpec spec, long memoryEstimate) {
+            this.spec = spec;
+            this.memoryEstimate = memoryEstimate;
+        }
+    }
+
+    /*
+     * Used for strategies that don't declare a memory estimate. This errs on the high side,
+     * since running too few matches at once costs time but running too many can run out of
+     * heap and lose every match in progress.
+     */
+    private static final long DEFAULT_MEMORY_ESTIMATE_BYTES = 256L << 20;
+
+    private final ForkJoinPool pool;
+    private final GameAffinityScheduler<QueuedMatch> scheduler;
+    // The game each worker thread last played
+    private final ThreadLocal<String> lastGameIds = new ThreadLocal<>();
+    private final AtomicInteger numSubmitted = new AtomicInteger();
+    private final AtomicInteger numFinished = new AtomicInteger();
+    private final MemoryBudget memoryBudget;
+    private final ResultSink resultSink;
+    private final ConcurrentMap<String, Long> memoryEstimatesByStrategyId = new ConcurrentHashMap<>();
+    private volatile boolean pendingMatchesCancelled = false;
+
+    MatchExecutor(int numWorkers, long fairnessWindow, MemoryBudget memoryBudget, ResultSink resultSink) {
+        // Tasks are never joined, so FIFO mode suits them better than the default
+        this.pool = new ForkJoinPool(numWorkers, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        this.scheduler = new GameAffinityScheduler<>(fairnessWindow);
+        this.memoryBudget = memoryBudget;
+        this.resultSink = resultSink;
+    }
+
+    /**
+     * Queues a match to be run and saved. The future completes once the result has been
+     * written by the result sink. Throws a RejectedExecutionException once the executor has
+     * been shut down.
+     */
+    CompletableFuture<MatchResult> submit(MatchSpec spec) {
+        QueuedMatch match = new QueuedMatch(spec, getMemoryEstimate(spec));
+        scheduler.submit(spec.getGameId(), match);
+        numSubmitted.incrementAndGet();
+        pool.execute(this::runNextMatch);
+        return match.future;
+    }
+
+    private long getMemoryEstimate(MatchSpec spec) {
+        long total = 0;
+        for (String strategyId : spec.getStrategyIds()) {
+            total += memoryEstimatesByStrategyId.computeIfAbsent(strategyId,
+                    id -> StrategyRegistry.getMemoryEstimate(id).orElse(DEFAULT_MEMORY_ESTIMATE_BYTES));
+        }
+        return total;
+    }
+
+    private void runNextMatch() {
+        QueuedMatch match = scheduler.poll(lastGameIds.get());
+        if (match == null) {
+            // The pending matches were cancelled
+            return;
+        }
+        MatchSpec spec = match.spec;
+        lastGameIds.set(spec.getGameId());
+        try {
+            /*
+             * This blocks the worker without a ForkJoinPool.ManagedBlocker on purpose. A
+             * managed block would let the pool start a compensation thread, which would take
+             * the next match and run it beyond the requested thread count whenever that
+             * match fits in the budget. Workers only wait here while running matches hold
+             * the memory, and those matches release it when they finish, so nothing
+             * deadlocks for want of another thread.
+             */
+            memoryBudget.acquire(match.memoryEstimate);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            match.future.completeExceptionally(e);
+            return;
+        }
+        try {
+            if (pendingMatchesCancelled) {
+                // This was cancelled while waiting for memory, so it never started
+                match.future.cancel(false);
+                return;
+            }
+            System.out.println("Running a match of " + spec.getGameId() + " for experiment " + spec.getExperimentName());
+            MatchResult result = MatchRunner.runWithoutSaving(spec);
+            resultSink.save(result).whenComplete((saved, e) -> {
+                if (e != null) {
+                    e.printStackTrace();
+                    match.future.completeExceptionally(e);
+                } else {
+                    match.future.complete(result);
+                }
+            });
+        } catch (RuntimeException e) {
+            // TODO: We should really record errors, which might indicate invalid results
+            e.printStackTrace();
+            match.future.completeExceptionally(e);
+        } catch (Error e) {
+            // Errors such as OutOfMemoryError can leave the worker in a bad state, so once the
+            // match is accounted for, the worker dies and the pool replaces it
+            match.future.completeExceptionally(e);
+            printProgress();
+            throw e;
+        } finally {
+            memoryBudget.release(match.memoryEstimate);
+        }
+        printProgress();
+    }
+
+    private void printProgress() {
+        System.out.println("Finished " + numFinished.incrementAndGet() + " of " + numSubmitted.get() + " matches submitted so far.");
+    }
+
+    /**
+     * Stops accepting new matches. Matches already submitted still run.
+     */
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Stops accepting new matches and cancels the ones that haven't started. Matches in
+     * progress still run to completion, so their results are saved.
+     */
+    void cancelPending() {
+        pendingMatchesCancelled = true;
+        pool.shutdown();
+        for (QueuedMatch match : scheduler.drainPending()) {
+            match.future.cancel(false);
+        }
+    }
+
+    /**
+     * Waits for the executor to finish all its matches after a shutdown. Returns false if
+     * the timeout elapses first.
+     */
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return pool.awaitTermination(timeout, unit);
+    }
+}
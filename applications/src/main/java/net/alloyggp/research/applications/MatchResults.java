@@ -19,24 +19,39 @@ import com.google.common.collect.Multimaps;
 import net.alloyggp.research.MatchResult;
 
 public class MatchResults {
+    // ObjectMappers are thread-safe once configured, so one is shared by every thread
+    private static final ObjectMapper OBJECT_MAPPER = createObjectMapper();
+
     private MatchResults() {
         // Not instantiable
     }
 
-    public static List<MatchResult> loadAllResults(String experimentName) throws IOException {
+    /*package-private*/ static File getResultsFile(String experimentName) {
         File resultsDirectory = Files.getExperimentResultsDirectory(experimentName);
-        // ...
-        File resultsFile = new File(resultsDirectory, "results");
+        // TODO: Better naming scheme?
+        return new File(resultsDirectory, "results");
+    }
+
+    // Results files have one of these per line
+    /*package-private*/ static String toJson(MatchResult result) throws IOException {
+        return OBJECT_MAPPER.writeValueAsString(result);
+    }
+
+    /*package-private*/ static MatchResult fromJson(String line) throws IOException {
+        return OBJECT_MAPPER.readValue(line, MatchResult.class);
+    }
+
+    public static List<MatchResult> loadAllResults(String experimentName) throws IOException {
+        File resultsFile = getResultsFile(experimentName);
         if (!resultsFile.exists()) {
             return ImmutableList.of();
         }
-        ObjectMapper objectMapper = createObjectMapper();
 
         try (BufferedReader reader = new BufferedReader(new FileReader(resultsFile))) {
             return reader.lines()
                 .map(line -> {
                     try {
-                        return objectMapper.readValue(line, MatchResult.class);
+                        return fromJson(line);
                     } catch (IOException e) {
                         throw new RuntimeException(e);
                     }
@@ -45,15 +60,16 @@ public class MatchResults {
         }
     }
 
-    public static void saveResult(MatchResult result) throws IOException {
-        File resultsDirectory = Files.getExperimentResultsDirectory(result.getSpec().getExperimentName());
-
-        // TODO: Better naming scheme?
-        File resultsFile = new File(resultsDirectory, "results");
-        ObjectMapper objectMapper = createObjectMapper();
+    /**
+     * Appends a single result to its experiment's results file. This is synchronized so
+     * callers on different threads don't interleave their lines, but it opens and closes
+     * the file each time; runners saving many results should use a ResultSink.
+     */
+    public static synchronized void saveResult(MatchResult result) throws IOException {
+        File resultsFile = getResultsFile(result.getSpec().getExperimentName());
 
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(resultsFile, true))) {
-            writer.write(objectMapper.writeValueAsString(result));
+            writer.write(toJson(result));
             writer.newLine();
         }
     }
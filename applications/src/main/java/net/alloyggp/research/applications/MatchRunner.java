@@ -2,6 +2,7 @@ package net.alloyggp.research.applications;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Optional;
 import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
 
@@ -13,6 +14,8 @@ import org.hipparchus.random.RandomAdaptor;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
 
 import net.alloyggp.research.GameState;
 import net.alloyggp.research.ImmutableMatchResult;
@@ -21,6 +24,7 @@ import net.alloyggp.research.MatchSpec;
 import net.alloyggp.research.Move;
 import net.alloyggp.research.Player;
 import net.alloyggp.research.Strategy;
+import net.alloyggp.research.TimeControl;
 import net.alloyggp.research.game.Game;
 import net.alloyggp.research.strategy.StrategyRegistry;
 
@@ -33,10 +37,11 @@ public class MatchRunner {
         this.requestedSeed = requestedSeed;
     }
 
-    public static void runAndSaveResult(MatchSpec matchSpec) throws IOException {
+    public static MatchResult runAndSaveResult(MatchSpec matchSpec) throws IOException {
         MatchResult result = runWithoutSaving(matchSpec);
 
         MatchResults.saveResult(result);
+        return result;
     }
 
     public static MatchResult runWithoutSaving(MatchSpec matchSpec) {
@@ -58,6 +63,9 @@ public class MatchRunner {
         List<Player> players = getPlayers(random);
 
         List<ImmutableList<String>> moveHistory = Lists.newArrayList();
+        long[] millisecondsUsedByRole = new long[players.size()];
+        int[] deadlineOverrunsByRole = new int[players.size()];
+        Optional<TimeControl> timeControl = matchSpec.getTimeControl();
 
         long startTime = -1;
         try {
@@ -68,8 +76,21 @@ public class MatchRunner {
             }
             while (!state.isTerminal()) {
                 List<Move> moves = Lists.newArrayList();
-                for (Player player : players) {
-                    moves.add(player.getMove());
+                for (int role = 0; role < players.size(); role++) {
+                    Player player = players.get(role);
+                    long moveStartTime = System.currentTimeMillis();
+                    if (timeControl.isPresent()) {
+                        long millisecondsLeftInGame = timeControl.get().getMillisecondsPerGame().orElse(0L)
+                                - millisecondsUsedByRole[role];
+                        long deadline = moveStartTime + timeControl.get().getMillisecondsForMove(millisecondsLeftInGame);
+                        moves.add(player.getMove(deadline));
+                        if (System.currentTimeMillis() > deadline) {
+                            deadlineOverrunsByRole[role]++;
+                        }
+                    } else {
+                        moves.add(player.getMove());
+                    }
+                    millisecondsUsedByRole[role] += System.currentTimeMillis() - moveStartTime;
                 }
                 moveHistory.add(moves.stream().map(Move::getName).collect(ImmutableList.toImmutableList()));
                 state = state.getNextState(moves);
@@ -87,6 +108,8 @@ public class MatchRunner {
                 .hadError(false)
                 .outcomes(outcome)
                 .millisecondsElapsed(millisecondsElapsed)
+                .addAllMillisecondsUsedByRole(Longs.asList(millisecondsUsedByRole))
+                .addAllDeadlineOverrunsByRole(getDeadlineOverruns(timeControl, deadlineOverrunsByRole))
                 .build();
         } catch (RuntimeException e) {
             e.printStackTrace();
@@ -104,10 +127,23 @@ public class MatchRunner {
                     .hadError(true)
                     .errorString(errorString)
                     .millisecondsElapsed(millisecondsElapsed)
+                    .addAllMillisecondsUsedByRole(Longs.asList(millisecondsUsedByRole))
+                    .addAllDeadlineOverrunsByRole(getDeadlineOverruns(timeControl, deadlineOverrunsByRole))
                     .build();
+        } finally {
+            for (Player player : players) {
+                player.finishMatch();
+            }
         }
     }
 
+    private static List<Integer> getDeadlineOverruns(Optional<TimeControl> timeControl, int[] deadlineOverrunsByRole) {
+        if (!timeControl.isPresent()) {
+            return ImmutableList.of();
+        }
+        return Ints.asList(deadlineOverrunsByRole);
+    }
+
     private int[] getSeed() {
         if (requestedSeed != null) {
             return requestedSeed.stream().mapToInt(i -> i).toArray();
@@ -120,7 +156,11 @@ public class MatchRunner {
         int roleIndex = 0;
         for (String strategyId : matchSpec.getStrategyIds()) {
             Strategy strategy = StrategyRegistry.fromId(strategyId);
-            players.add(strategy.getPlayer(roleIndex, random));
+            Player player = strategy.getPlayer(roleIndex, random);
+            if (matchSpec.ponderingEnabled()) {
+                player.setPonderingEnabled(true);
+            }
+            players.add(player);
             roleIndex++;
         }
         return players;
@@ -0,0 +1,70 @@
+package net.alloyggp.research.applications;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Admission control for matches, based on estimates of the heap each one uses. A match is
+ * admitted when the estimates of the running matches plus its own add up to no more than
+ * the budget. Matches are admitted in the order they ask: one that doesn't fit waits, and
+ * holds up the ones that asked after it, until enough running matches finish. Otherwise a
+ * stream of small matches could keep a large one waiting forever.
+ *
+ * <p>A match estimated to need more than the whole budget is admitted once nothing else is
+ * running, so it runs alone instead of never.
+ */
+final class MemoryBudget {
+    private final long capacityBytes;
+    private final Deque<Object> waitingMatches = new ArrayDeque<>();
+    private long bytesInUse = 0;
+
+    MemoryBudget(long capacityBytes) {
+        if (capacityBytes < 0) {
+            throw new IllegalArgumentException("The memory budget can't be negative: " + capacityBytes);
+        }
+        this.capacityBytes = capacityBytes;
+    }
+
+    static MemoryBudget forFractionOfMaxHeap(double fraction) {
+        if (fraction <= 0 || fraction > 1) {
+            throw new IllegalArgumentException("The fraction of the heap for matches must be in (0, 1], but was " + fraction);
+        }
+        return new MemoryBudget((long) (Runtime.getRuntime().maxMemory() * fraction));
+    }
+
+    long getCapacityBytes() {
+        return capacityBytes;
+    }
+
+    /**
+     * Waits until a match with the given estimate can be admitted, then counts it against
+     * the budget. Each call must be followed by a call to {@link #release(long)} with the
+     * same estimate once the match is done.
+     */
+    synchronized void acquire(long bytes) throws InterruptedException {
+        Object ticket = new Object();
+        waitingMatches.addLast(ticket);
+        try {
+            while (waitingMatches.peekFirst() != ticket || !fits(bytes)) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            waitingMatches.remove(ticket);
+            // The next match in line may fit now
+            notifyAll();
+            throw e;
+        }
+        waitingMatches.removeFirst();
+        bytesInUse += bytes;
+        notifyAll();
+    }
+
+    private boolean fits(long bytes) {
+        return bytesInUse == 0 || bytesInUse + bytes <= capacityBytes;
+    }
+
+    synchronized void release(long bytes) {
+        bytesInUse -= bytes;
+        notifyAll();
+    }
+}
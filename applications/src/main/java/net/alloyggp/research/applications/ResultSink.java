@@ -0,0 +1,194 @@
+package net.alloyggp.research.applications;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import net.alloyggp.research.MatchResult;
+
+/**
+ * Saves match results for any number of threads through a single writer thread, so lines
+ * from different matches never interleave in a results file. Results are serialized on the
+ * calling threads and queued; the writer takes whatever has queued up since its last batch
+ * and appends it with one buffered write per experiment, followed by one fsync if that's
+ * enabled. The results files stay open between batches.
+ *
+ * <p>Closing the sink waits for every result saved before then to be written.
+ */
+final class ResultSink implements Closeable {
+    private static final class PendingWrite {
+        private final String experimentName;
+        private final String line;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingWrite(String experimentName, String line) {
+            this.experimentName = experimentName;
+            this.line = line;
+        }
+    }
+
+    private static final class ResultsFile {
+        private final FileOutputStream outputStream;
+        private final Writer writer;
+
+        private ResultsFile(FileOutputStream outputStream) {
+            this.outputStream = outputStream;
+            this.writer = new BufferedWriter(new OutputStreamWriter(outputStream));
+        }
+    }
+
+    // Queued by close() to stop the writer thread
+    private static final PendingWrite STOP = new PendingWrite("", "");
+
+    private final Function<String, File> resultsFileForExperiment;
+    private final boolean syncToDisk;
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    // Only used by the writer thread
+    private final Map<String, ResultsFile> openFiles = Maps.newHashMap();
+    private final Thread writerThread;
+    private boolean closed = false;
+
+    ResultSink(boolean syncToDisk) {
+        this(MatchResults::getResultsFile, syncToDisk);
+    }
+
+    // Note: This should only be needed for testing
+    ResultSink(Function<String, File> resultsFileForExperiment, boolean syncToDisk) {
+        this.resultsFileForExperiment = resultsFileForExperiment;
+        this.syncToDisk = syncToDisk;
+        this.writerThread = new Thread(this::writeBatches, "ResultSink writer");
+        // Closing the sink makes sure everything gets written
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queues the result to be appended to its experiment's results file. The future
+     * completes once it has been written (and synced, if that's enabled).
+     */
+    CompletableFuture<Void> save(MatchResult result) {
+        String line;
+        try {
+            line = MatchResults.toJson(result);
+        } catch (IOException e) {
+            CompletableFuture<Void> failure = new CompletableFuture<>();
+            failure.completeExceptionally(e);
+            return failure;
+        }
+        PendingWrite write = new PendingWrite(result.getSpec().getExperimentName(), line);
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Results can't be saved once the sink is closed");
+            }
+            queue.add(write);
+        }
+        return write.future;
+    }
+
+    private void writeBatches() {
+        List<PendingWrite> batch = Lists.newArrayList();
+        boolean stopping = false;
+        while (!stopping) {
+            batch.clear();
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                // Only close() stops the writer, so nothing is left unwritten
+                continue;
+            }
+            queue.drainTo(batch);
+            // Nothing is queued after STOP, so it can only be last
+            if (batch.get(batch.size() - 1) == STOP) {
+                batch.remove(batch.size() - 1);
+                stopping = true;
+            }
+
+            ListMultimap<String, PendingWrite> writesByExperiment = LinkedListMultimap.create();
+            for (PendingWrite write : batch) {
+                writesByExperiment.put(write.experimentName, write);
+            }
+            for (String experimentName : writesByExperiment.keySet()) {
+                writeToFile(experimentName, writesByExperiment.get(experimentName));
+            }
+        }
+        for (String experimentName : Lists.newArrayList(openFiles.keySet())) {
+            closeFile(experimentName);
+        }
+    }
+
+    private void writeToFile(String experimentName, Collection<PendingWrite> writes) {
+        try {
+            ResultsFile file = openFiles.get(experimentName);
+            if (file == null) {
+                file = new ResultsFile(new FileOutputStream(resultsFileForExperiment.apply(experimentName), true));
+                openFiles.put(experimentName, file);
+            }
+            for (PendingWrite write : writes) {
+                file.writer.write(write.line);
+                file.writer.write(System.lineSeparator());
+            }
+            file.writer.flush();
+            if (syncToDisk) {
+                file.outputStream.getFD().sync();
+            }
+        } catch (IOException | RuntimeException e) {
+            for (PendingWrite write : writes) {
+                write.future.completeExceptionally(e);
+            }
+            // Start over with a fresh file handle next time
+            closeFile(experimentName);
+            return;
+        }
+        for (PendingWrite write : writes) {
+            write.future.complete(null);
+        }
+    }
+
+    private void closeFile(String experimentName) {
+        ResultsFile file = openFiles.remove(experimentName);
+        if (file != null) {
+            try {
+                file.writer.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!closed) {
+                closed = true;
+                queue.add(STOP);
+            }
+        }
+        boolean interrupted = false;
+        while (writerThread.isAlive()) {
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -7,9 +7,11 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import org.hipparchus.stat.descriptive.DescriptiveStatistics;
 import org.hipparchus.stat.inference.AlternativeHypothesis;
+import org.immutables.value.Value;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMultiset;
@@ -22,49 +24,52 @@ import net.alloyggp.research.Experiment;
 import net.alloyggp.research.ImmutableMatchSpec;
 import net.alloyggp.research.MatchResult;
 import net.alloyggp.research.MatchSpec;
+import net.alloyggp.research.TimeControl;
 import net.alloyggp.research.applications.MatchResults;
 import net.alloyggp.research.experiments.shared.Colorer;
 import net.alloyggp.research.game.Game;
 
 // TODO: Add information about error counts
-public class ABTestExperiment implements Experiment {
-    private final String experimentName;
-    private final ImmutableList<String> strategyIds;
-    private final ImmutableList<Game> games;
-    private final int iterationsPerConfiguration;
-
-    public ABTestExperiment(String experimentName,
-            ImmutableList<String> strategyIds, ImmutableList<Game> games,
-            int iterationsPerConfiguration) {
-        this.experimentName = experimentName;
-        this.strategyIds = strategyIds;
-        this.games = games;
-        this.iterationsPerConfiguration = iterationsPerConfiguration;
+@Value.Immutable
+public abstract class ABTestExperiment implements Experiment {
+    protected abstract String experimentName();
+    protected abstract ImmutableList<String> strategyIds();
+    protected abstract ImmutableList<Game> games();
+    protected abstract int iterationsPerConfiguration();
+    protected abstract Optional<TimeControl> timeControl();
+
+    @Value.Default
+    protected boolean ponderingEnabled() {
+        return false;
     }
 
     @Override
     public String getName() {
-        return experimentName;
+        return experimentName();
     }
 
     @Override
     public Multiset<MatchSpec> getMatchesToRun() {
         ImmutableMultiset.Builder<MatchSpec> matches = ImmutableMultiset.builder();
-        for (Game game : games) {
-            for (int i = 0; i < strategyIds.size(); i++) {
-                for (int j = i + 1; j < strategyIds.size(); j++) {
+        for (Game game : games()) {
+            for (int i = 0; i < strategyIds().size(); i++) {
+                for (int j = i + 1; j < strategyIds().size(); j++) {
                     matches.addCopies(ImmutableMatchSpec.builder()
-                            .experimentName(experimentName)
-                            .addStrategyIds(strategyIds.get(i), strategyIds.get(j))
+                            .experimentName(experimentName())
+                            .addStrategyIds(strategyIds().get(i), strategyIds().get(j))
                             .gameId(game.getId())
+                            .timeControl(timeControl())
+                            .ponderingEnabled(ponderingEnabled())
                             .build(),
-                            iterationsPerConfiguration);
+                            iterationsPerConfiguration());
                     matches.addCopies(ImmutableMatchSpec.builder()
-                            .experimentName(experimentName)
-                            .addStrategyIds(strategyIds.get(j), strategyIds.get(i))
+                            .experimentName(experimentName())
+                            .addStrategyIds(strategyIds().get(j), strategyIds().get(i))
                             .gameId(game.getId())
+                            .timeControl(timeControl())
+                            .ponderingEnabled(ponderingEnabled())
                             .build(),
-                            iterationsPerConfiguration);
+                            iterationsPerConfiguration());
                 }
             }
         }
@@ -75,7 +80,7 @@ public class ABTestExperiment implements Experiment {
     public String writeHtmlOutput(List<MatchResult> results) {
         StringBuilder sb = new StringBuilder();
 
-        sb.append("<html><head><title>").append(experimentName).append("</title>");
+        sb.append("<html><head><title>").append(experimentName()).append("</title>");
         sb.append("<style>.sig { color: black; } .nonsig { color: gray; }</style></head>\n");
         sb.append("<body>");
 
@@ -92,7 +97,7 @@ public class ABTestExperiment implements Experiment {
         sb.append("<h1>Overall results</h1>\n");
         writeLeaderboardAndComparisonTables(sb, allResults);
 
-        for (Game game : games) {
+        for (Game game : games()) {
             List<MatchResult> resultsForGame = resultsByGameId.get(game.getId());
             sb.append("<h2>Game: " + game.getDisplayName() + "</h2>\n");
             writeLeaderboardAndComparisonTables(sb, resultsForGame);
@@ -112,7 +117,7 @@ public class ABTestExperiment implements Experiment {
         NumberFormat numberFormat = getThreeDigitDecimalFormat();
         sb.append("<p>Average time to run a match of each game:</p>\n");
         sb.append("<table>\n");
-        for (Game game : games) {
+        for (Game game : games()) {
             List<MatchResult> list = resultsByGameId.get(game.getId());
             double averageTime = getAverageTimeSeconds(list);
             sb.append("<tr><td>" + game.getDisplayName() + "</td><td>" + numberFormat.format(averageTime) + " s</td></tr>\n");
@@ -141,9 +146,9 @@ public class ABTestExperiment implements Experiment {
         // Do computations for these tables
         Map<String, DescriptiveStatistics> strategyStats = Maps.newHashMap();
         Map<List<String>, DescriptiveStatistics> matchupStats = Maps.newHashMap();
-        for (String strategyId : strategyIds) {
+        for (String strategyId : strategyIds()) {
             strategyStats.put(strategyId, new DescriptiveStatistics());
-            for (String otherStrategyId : strategyIds) {
+            for (String otherStrategyId : strategyIds()) {
                 if (!strategyId.equals(otherStrategyId)) {
                     matchupStats.put(ImmutableList.of(strategyId, otherStrategyId), new DescriptiveStatistics());
                 }
@@ -154,7 +159,7 @@ public class ABTestExperiment implements Experiment {
             if (result.hadError()) {
                 continue;
             }
-            if (!result.getSpec().getStrategyIds().stream().allMatch(strategyIds::contains)) {
+            if (!result.getSpec().getStrategyIds().stream().allMatch(strategyIds()::contains)) {
                 // We no longer care about a strategy used in this match
                 continue;
             }
@@ -177,7 +182,7 @@ public class ABTestExperiment implements Experiment {
         sb.append(nMatches);
         sb.append(".</p>\n");
 
-        List<String> sortedStrategies = Lists.newArrayList(strategyIds);
+        List<String> sortedStrategies = Lists.newArrayList(strategyIds());
         sortedStrategies.removeIf(strategy -> strategyStats.get(strategy).getN() == 0);
         sortedStrategies.sort(Comparator.comparing(strategy -> strategyStats.get(strategy).getMean()).reversed());
 
@@ -244,8 +249,8 @@ public class ABTestExperiment implements Experiment {
     private MinAndMax getMinAndMaxCountsForMatchups(Map<List<String>, DescriptiveStatistics> matchupStats) {
         long minSeen = Integer.MAX_VALUE;
         long maxSeen = 0;
-        for (String strategy1 : strategyIds) {
-            for (String strategy2 : strategyIds) {
+        for (String strategy1 : strategyIds()) {
+            for (String strategy2 : strategyIds()) {
                 if (!strategy1.equals(strategy2)) {
                     long count = matchupStats.get(ImmutableList.of(strategy1, strategy2)).getN();
                     if (count < minSeen) {
@@ -277,4 +282,8 @@ public class ABTestExperiment implements Experiment {
         }
     }
 
+    public static ImmutableABTestExperiment.Builder build(String experimentName) {
+        return ImmutableABTestExperiment.builder()
+                .experimentName(experimentName);
+    }
 }
@@ -7,6 +7,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.stream.Collectors;
@@ -34,6 +35,7 @@ import net.alloyggp.research.ImmutableMatchSpec;
 import net.alloyggp.research.MatchResult;
 import net.alloyggp.research.MatchSpec;
 import net.alloyggp.research.StrategyProvider;
+import net.alloyggp.research.TimeControl;
 import net.alloyggp.research.experiments.shared.Colorer;
 import net.alloyggp.research.game.Game;
 import net.alloyggp.research.strategy.StrategyRegistry;
@@ -49,6 +51,12 @@ public abstract class ParameterChartExperiment implements Experiment {
     protected abstract StrategyParameterDescription<?> parameterToVary();
     protected abstract ImmutableListMultimap<Game, String> unparsedParameterValuesByGame();
     protected abstract int iterationsPerConfiguration();
+    protected abstract Optional<TimeControl> timeControl();
+
+    @Value.Default
+    protected boolean ponderingEnabled() {
+        return false;
+    }
 
     @Override
     public String getName() {
@@ -75,6 +83,8 @@ public abstract class ParameterChartExperiment implements Experiment {
                         .experimentName(experimentName())
                         .gameId(game.getId())
                         .addStrategyIds(strategyId1, strategyId2)
+                        .timeControl(timeControl())
+                        .ponderingEnabled(ponderingEnabled())
                         .build(),
                         iterationsPerConfiguration());
                 }
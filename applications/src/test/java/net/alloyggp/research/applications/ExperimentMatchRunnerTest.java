@@ -0,0 +1,116 @@
+package net.alloyggp.research.applications;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Multiset;
+
+import net.alloyggp.research.Experiment;
+import net.alloyggp.research.ImmutableMatchResult;
+import net.alloyggp.research.ImmutableMatchSpec;
+import net.alloyggp.research.MatchResult;
+import net.alloyggp.research.MatchSpec;
+
+public class ExperimentMatchRunnerTest {
+    private static MatchSpec spec(String gameId) {
+        return ImmutableMatchSpec.builder()
+                .experimentName("test")
+                .gameId(gameId)
+                .addStrategyIds("Random", "Random")
+                .build();
+    }
+
+    private static final MatchSpec SHORT = spec("Short");
+    private static final MatchSpec MEDIUM = spec("Medium");
+    private static final MatchSpec LONG = spec("Long");
+    private static final MatchSpec UNKNOWN = spec("Unknown");
+
+    private static final Map<MatchSpec, OptionalDouble> ESTIMATES = ImmutableMap.of(
+            SHORT, OptionalDouble.of(10),
+            MEDIUM, OptionalDouble.of(100),
+            LONG, OptionalDouble.of(1000),
+            UNKNOWN, OptionalDouble.empty());
+
+    @Test
+    public void testLongestFirstWithinEachRound() {
+        Multiset<MatchSpec> desired = ImmutableMultiset.<MatchSpec>builder()
+                .addCopies(SHORT, 3)
+                .addCopies(MEDIUM, 2)
+                .addCopies(LONG, 3)
+                .addCopies(UNKNOWN, 1)
+                .build();
+        List<MatchSpec> order = ExperimentMatchRunner.orderPendingMatches(desired, ImmutableMultiset.of(), ESTIMATES::get);
+
+        // Every spec gets its next match before any spec gets the one after
+        assertEquals(ImmutableList.of(
+                UNKNOWN, LONG, MEDIUM, SHORT,
+                LONG, MEDIUM, SHORT,
+                LONG, SHORT),
+                order);
+    }
+
+    @Test
+    public void testExistingResultsCountTowardEarlierRounds() {
+        Multiset<MatchSpec> desired = ImmutableMultiset.<MatchSpec>builder()
+                .addCopies(SHORT, 3)
+                .addCopies(LONG, 3)
+                .build();
+        Multiset<MatchSpec> existing = ImmutableMultiset.<MatchSpec>builder()
+                .addCopies(SHORT, 1)
+                .addCopies(LONG, 2)
+                .build();
+        List<MatchSpec> order = ExperimentMatchRunner.orderPendingMatches(desired, existing, ESTIMATES::get);
+
+        // The short spec catches up before the long one gets its last match
+        assertEquals(ImmutableList.of(SHORT, LONG, SHORT), order);
+    }
+
+    @Test
+    public void testPlanWithSingleSpecRounds() {
+        Experiment mixed = experiment("mixed", ImmutableMultiset.of(SHORT, LONG));
+        // Every round of this experiment holds one spec, so sorting it never looks up an estimate
+        Experiment single = experiment("single", ImmutableMultiset.<MatchSpec>builder().addCopies(MEDIUM, 2).build());
+        MatchCostModel costModel = MatchCostModel.fit(ImmutableList.of(
+                result(SHORT, 10), result(MEDIUM, 100), result(LONG, 1000)));
+        List<MatchSpec> order = ExperimentMatchRunner.planMatches(ImmutableList.of(mixed, single),
+                ImmutableMap.of(mixed, ImmutableList.of(), single, ImmutableList.of()), costModel, 2);
+
+        assertEquals(ImmutableList.of(LONG, SHORT, MEDIUM, MEDIUM), order);
+    }
+
+    private static Experiment experiment(String name, Multiset<MatchSpec> matchesToRun) {
+        return new Experiment() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Multiset<MatchSpec> getMatchesToRun() {
+                return matchesToRun;
+            }
+
+            @Override
+            public String writeHtmlOutput(List<MatchResult> results) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private static MatchResult result(MatchSpec spec, long millisecondsElapsed) {
+        return ImmutableMatchResult.builder()
+                .spec(spec)
+                .addSeed(1, 2, 3, 4)
+                .hadError(false)
+                .millisecondsElapsed(millisecondsElapsed)
+                .build();
+    }
+}
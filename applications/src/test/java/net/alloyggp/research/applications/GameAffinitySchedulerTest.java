@@ -0,0 +1,79 @@
+package net.alloyggp.research.applications;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import net.alloyggp.research.ImmutableMatchSpec;
+import net.alloyggp.research.MatchSpec;
+
+public class GameAffinitySchedulerTest {
+    private static MatchSpec spec(String gameId, String strategyId) {
+        return ImmutableMatchSpec.builder()
+                .experimentName("test")
+                .gameId(gameId)
+                .addStrategyIds(strategyId, strategyId)
+                .build();
+    }
+
+    @Test
+    public void testKeepsPlayingSameGame() {
+        GameAffinityScheduler<MatchSpec> scheduler = new GameAffinityScheduler<>(10);
+        for (int i = 0; i < 3; i++) {
+            scheduler.submit("A", spec("A", "s" + i));
+            scheduler.submit("B", spec("B", "s" + i));
+        }
+
+        assertEquals(spec("A", "s0"), scheduler.poll(null));
+        assertEquals(spec("A", "s1"), scheduler.poll("A"));
+        assertEquals(spec("A", "s2"), scheduler.poll("A"));
+        assertEquals(spec("B", "s0"), scheduler.poll("A"));
+        assertEquals(spec("B", "s1"), scheduler.poll("B"));
+        assertEquals(spec("B", "s2"), scheduler.poll("B"));
+        assertNull(scheduler.poll("B"));
+    }
+
+    @Test
+    public void testSwitchesGamesForFairness() {
+        GameAffinityScheduler<MatchSpec> scheduler = new GameAffinityScheduler<>(2);
+        for (int i = 0; i < 3; i++) {
+            scheduler.submit("A", spec("A", "s" + i));
+            scheduler.submit("B", spec("B", "s" + i));
+        }
+
+        assertEquals(spec("A", "s0"), scheduler.poll(null));
+        assertEquals(spec("A", "s1"), scheduler.poll("A"));
+        // A's next match is three submissions ahead of B's oldest match
+        assertEquals(spec("B", "s0"), scheduler.poll("A"));
+        assertEquals(spec("B", "s1"), scheduler.poll("B"));
+        assertEquals(spec("B", "s2"), scheduler.poll("B"));
+        assertEquals(spec("A", "s2"), scheduler.poll("B"));
+    }
+
+    @Test
+    public void testPrefersGamesNotBeingPlayed() {
+        GameAffinityScheduler<MatchSpec> scheduler = new GameAffinityScheduler<>(10);
+        scheduler.submit("A", spec("A", "s0"));
+        scheduler.submit("A", spec("A", "s1"));
+        scheduler.submit("B", spec("B", "s0"));
+
+        assertEquals(spec("A", "s0"), scheduler.poll(null));
+        assertEquals(spec("B", "s0"), scheduler.poll(null));
+        assertEquals(spec("A", "s1"), scheduler.poll("B"));
+    }
+
+    @Test
+    public void testDrainPending() {
+        GameAffinityScheduler<MatchSpec> scheduler = new GameAffinityScheduler<>(10);
+        scheduler.submit("A", spec("A", "s0"));
+        scheduler.submit("A", spec("A", "s1"));
+        scheduler.submit("B", spec("B", "s0"));
+
+        assertEquals(spec("A", "s0"), scheduler.poll(null));
+        assertEquals(ImmutableSet.of(spec("A", "s1"), spec("B", "s0")), ImmutableSet.copyOf(scheduler.drainPending()));
+        assertNull(scheduler.poll("A"));
+    }
+}
@@ -0,0 +1,65 @@
+package net.alloyggp.research.applications;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import net.alloyggp.research.ImmutableMatchResult;
+import net.alloyggp.research.ImmutableMatchSpec;
+import net.alloyggp.research.MatchResult;
+import net.alloyggp.research.MatchSpec;
+
+public class MatchCostModelTest {
+    private static MatchSpec spec(String gameId, int iterationCount) {
+        return ImmutableMatchSpec.builder()
+                .experimentName("test")
+                .gameId(gameId)
+                .addStrategyIds("UCTOneNodeExpansion:iterationCount=" + iterationCount, "Random")
+                .build();
+    }
+
+    private static MatchResult result(MatchSpec spec, long millisecondsElapsed, boolean hadError) {
+        return ImmutableMatchResult.builder()
+                .spec(spec)
+                .addSeed(1, 2, 3, 4)
+                .hadError(hadError)
+                .millisecondsElapsed(millisecondsElapsed)
+                .build();
+    }
+
+    private static final MatchCostModel MODEL = MatchCostModel.fit(ImmutableList.of(
+            result(spec("A", 100), 99, false),
+            result(spec("A", 100), 101, false),
+            result(spec("A", 100), 100000, true),
+            result(spec("A", 400), 399, false),
+            result(spec("B", 10), 50, false)));
+
+    @Test
+    public void testAverageOfSameSpec() {
+        assertEquals(100.0, MODEL.estimateMilliseconds(spec("A", 100)).getAsDouble(), 1e-9);
+    }
+
+    @Test
+    public void testInterpolatesOverNumericParameter() {
+        // Durations grow linearly with the iteration count, which log-log scales preserve
+        assertEquals(199.0, MODEL.estimateMilliseconds(spec("A", 200)).getAsDouble(), 1.0);
+        assertEquals(799.0, MODEL.estimateMilliseconds(spec("A", 800)).getAsDouble(), 2.0);
+    }
+
+    @Test
+    public void testFallsBackToGameAverage() {
+        MatchSpec otherStrategiesSpec = ImmutableMatchSpec.builder()
+                .from(spec("B", 20))
+                .strategyIds(ImmutableList.of("Random", "Random"))
+                .build();
+        assertEquals(50.0, MODEL.estimateMilliseconds(otherStrategiesSpec).getAsDouble(), 1e-9);
+    }
+
+    @Test
+    public void testNoEstimateForUnknownGame() {
+        assertFalse(MODEL.estimateMilliseconds(spec("C", 100)).isPresent());
+    }
+}
@@ -27,6 +27,7 @@ import net.alloyggp.research.strategy.MemorylessUCTWinsFirstStrategyProvider;
 import net.alloyggp.research.strategy.NPlyLookaheadStrategyProvider;
 import net.alloyggp.research.strategy.RandomStrategyProvider;
 import net.alloyggp.research.strategy.StrategyRegistry;
+import net.alloyggp.research.strategy.UCTTreeReuseStrategyProvider;
 import net.alloyggp.research.strategy.parameter.StrategyParameters;
 
 public class MatchRerunFromSeedTest {
@@ -73,6 +74,10 @@ public class MatchRerunFromSeedTest {
                     StrategyParameters.builder()
                     .put(MemorylessUCTWinsFirstStrategyProvider.getITERATION_COUNT(), 20)
                     .build()));
+            strategyIds.add(StrategyRegistry.getId(new UCTTreeReuseStrategyProvider(),
+                    StrategyParameters.builder()
+                    .put(UCTTreeReuseStrategyProvider.getITERATION_COUNT(), 20)
+                    .build()));
 
             return strategyIds.stream()
                     .map(strategyId -> new Object[] { strategyId })
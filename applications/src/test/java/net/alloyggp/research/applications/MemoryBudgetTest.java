@@ -0,0 +1,82 @@
+package net.alloyggp.research.applications;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class MemoryBudgetTest {
+    private static Thread acquireInBackground(MemoryBudget budget, long bytes, CountDownLatch acquired) {
+        Thread thread = new Thread(() -> {
+            try {
+                budget.acquire(bytes);
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    public void testWaitsUntilMatchFits() throws InterruptedException {
+        MemoryBudget budget = new MemoryBudget(100);
+        budget.acquire(60);
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread thread = acquireInBackground(budget, 60, acquired);
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+
+        budget.release(60);
+        assertTrue(acquired.await(10, TimeUnit.SECONDS));
+        thread.join();
+    }
+
+    @Test
+    public void testAdmitsInOrder() throws InterruptedException {
+        MemoryBudget budget = new MemoryBudget(100);
+        budget.acquire(60);
+
+        CountDownLatch largeAcquired = new CountDownLatch(1);
+        Thread largeThread = acquireInBackground(budget, 80, largeAcquired);
+        // Wait for the large match to get in line
+        Thread.sleep(100);
+        CountDownLatch smallAcquired = new CountDownLatch(1);
+        Thread smallThread = acquireInBackground(budget, 10, smallAcquired);
+        // The small match would fit, but not ahead of the large one
+        assertFalse(smallAcquired.await(100, TimeUnit.MILLISECONDS));
+
+        budget.release(60);
+        assertTrue(largeAcquired.await(10, TimeUnit.SECONDS));
+        assertTrue(smallAcquired.await(10, TimeUnit.SECONDS));
+        largeThread.join();
+        smallThread.join();
+    }
+
+    @Test
+    public void testOversizedMatchRunsAlone() throws InterruptedException {
+        MemoryBudget budget = new MemoryBudget(100);
+        budget.acquire(500);
+        budget.release(500);
+        budget.acquire(10);
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread thread = acquireInBackground(budget, 500, acquired);
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+
+        budget.release(10);
+        assertTrue(acquired.await(10, TimeUnit.SECONDS));
+        thread.join();
+    }
+
+    @Test
+    public void testForFractionOfMaxHeap() {
+        MemoryBudget budget = MemoryBudget.forFractionOfMaxHeap(0.5);
+        assertEquals(Runtime.getRuntime().maxMemory() / 2, budget.getCapacityBytes(), 1);
+    }
+}
@@ -0,0 +1,97 @@
+package net.alloyggp.research.applications;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multiset;
+
+import net.alloyggp.research.ImmutableMatchResult;
+import net.alloyggp.research.ImmutableMatchSpec;
+import net.alloyggp.research.MatchResult;
+
+public class ResultSinkTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static MatchResult result(String experimentName, long millisecondsElapsed) {
+        return ImmutableMatchResult.builder()
+                .spec(ImmutableMatchSpec.builder()
+                        .experimentName(experimentName)
+                        .gameId("TIC_TAC_TOE")
+                        .addStrategyIds("Random", "Random")
+                        .build())
+                .addSeed(1, 2, 3, 4)
+                .hadError(false)
+                .millisecondsElapsed(millisecondsElapsed)
+                .build();
+    }
+
+    private File getResultsFile(String experimentName) {
+        return new File(folder.getRoot(), experimentName);
+    }
+
+    private Multiset<Long> readDurations(String experimentName) throws IOException {
+        List<String> lines = com.google.common.io.Files.readLines(getResultsFile(experimentName), Charset.defaultCharset());
+        ImmutableMultiset.Builder<Long> durations = ImmutableMultiset.builder();
+        for (String line : lines) {
+            MatchResult result = MatchResults.fromJson(line);
+            assertEquals(experimentName, result.getSpec().getExperimentName());
+            durations.add(result.getMillisecondsElapsed());
+        }
+        return durations.build();
+    }
+
+    @Test
+    public void testConcurrentSavesAllWritten() throws Exception {
+        int numThreads = 8;
+        int resultsPerThread = 200;
+        ResultSink sink = new ResultSink(this::getResultsFile, false);
+        List<Thread> threads = Lists.newArrayList();
+        List<CompletableFuture<Void>> futures = Lists.newArrayList();
+        for (int t = 0; t < numThreads; t++) {
+            int threadIndex = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < resultsPerThread; i++) {
+                    CompletableFuture<Void> future = sink.save(result("exp" + (i % 2), threadIndex * resultsPerThread + i));
+                    synchronized (futures) {
+                        futures.add(future);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        sink.close();
+        for (CompletableFuture<Void> future : futures) {
+            future.get();
+        }
+
+        Multiset<Long> allDurations = ImmutableMultiset.<Long>builder()
+                .addAll(readDurations("exp0"))
+                .addAll(readDurations("exp1"))
+                .build();
+        assertEquals(numThreads * resultsPerThread, allDurations.size());
+        assertEquals(numThreads * resultsPerThread, allDurations.elementSet().size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCantSaveAfterClose() {
+        ResultSink sink = new ResultSink(this::getResultsFile, true);
+        sink.close();
+        sink.save(result("exp", 0));
+    }
+}
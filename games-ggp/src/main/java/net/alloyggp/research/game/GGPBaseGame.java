@@ -1,9 +1,19 @@
 package net.alloyggp.research.game;
 
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 import org.ggp.base.util.game.GameRepository;
 import org.ggp.base.util.gdl.factory.GdlFactory;
@@ -14,49 +24,56 @@ import org.ggp.base.util.ruleengine.RuleEngine;
 import org.ggp.base.util.ruleengine.RuleEngineState;
 import org.ggp.base.util.ruleengine.Translator;
 import org.ggp.base.util.ruleengine.prover.ProverRuleEngineFactory;
+import org.ggp.base.util.statemachine.sancho.ForwardDeadReckonInternalMachineState;
 import org.ggp.base.util.statemachine.sancho.ForwardDeadReckonPropnetRuleEngine;
 import org.ggp.base.util.statemachine.sancho.SanchoRuleEngineFactory;
 import org.ggp.base.util.symbol.factory.exceptions.SymbolFormatException;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
 import net.alloyggp.research.GameState;
+import net.alloyggp.research.GameStateCursor;
 import net.alloyggp.research.GameTreeProvider;
 import net.alloyggp.research.Move;
+import net.alloyggp.research.TurnTakingGameState;
 
 public final class GGPBaseGame implements GameTreeProvider {
-    public class GGPBaseMove<M> extends Move {
+    /**
+     * Moves are canonical: each state's legal moves come from a per-rule-engine cache, and
+     * each distinct move in the game has a dense integer ID. Two moves are equal if they
+     * belong to the same game and have the same ID.
+     */
+    public final class GGPBaseMove<M> extends Move {
         public final M move;
-        private final Translator<M, ?> translator;
+        private final String name;
+        private final int id;
 
-        public GGPBaseMove(M move, Translator<M, ?> translator) {
+        private GGPBaseMove(M move, String name, int id) {
             this.move = move;
-            this.translator = translator;
+            this.name = name;
+            this.id = id;
         }
 
-        private transient volatile GdlTerm gdlMove;
-        private GdlTerm getGdlMove() {
-            if (gdlMove == null) {
-                gdlMove = translator.getGdlMove(move);
-            }
-            return gdlMove;
+        public int getId() {
+            return id;
         }
 
         @Override
         public String getName() {
-            return getGdlMove().toString();
+            return name;
         }
 
         @Override
         public String toString() {
-            return getGdlMove().toString();
+            return name;
         }
 
         @Override
         public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + getOuterType().hashCode();
-            result = prime * result + ((getGdlMove() == null) ? 0 : getGdlMove().hashCode());
-            return result;
+            return id;
         }
 
         @Override
@@ -67,15 +84,8 @@ public final class GGPBaseGame implements GameTreeProvider {
                 return false;
             if (getClass() != obj.getClass())
                 return false;
-            GGPBaseMove other = (GGPBaseMove) obj;
-            if (!getOuterType().equals(other.getOuterType()))
-                return false;
-            if (getGdlMove() == null) {
-                if (other.getGdlMove() != null)
-                    return false;
-            } else if (!getGdlMove().equals(other.getGdlMove()))
-                return false;
-            return true;
+            GGPBaseMove<?> other = (GGPBaseMove<?>) obj;
+            return getOuterType() == other.getOuterType() && id == other.id;
         }
 
         private GGPBaseGame getOuterType() {
@@ -83,13 +93,52 @@ public final class GGPBaseGame implements GameTreeProvider {
         }
     }
 
-    public final class GGPBaseGameState<NativeMove, State extends RuleEngineState<NativeMove, State>> implements GameState {
+    /*
+     * Maps one rule engine's native moves to canonical GGPBaseMoves, so each native move is
+     * translated to GDL and looked up in the game's move dictionary only once. Like the rule
+     * engines themselves, this isn't thread-safe; it's shared by all the states descended
+     * from one initial state.
+     */
+    private final class MoveCache<NativeMove> {
+        private final Translator<NativeMove, ?> translator;
+        private final Map<NativeMove, GGPBaseMove<NativeMove>> canonicalMoves = Maps.newHashMap();
+
+        private MoveCache(Translator<NativeMove, ?> translator) {
+            this.translator = translator;
+        }
+
+        private GGPBaseMove<NativeMove> getCanonicalMove(NativeMove nativeMove) {
+            GGPBaseMove<NativeMove> move = canonicalMoves.get(nativeMove);
+            if (move == null) {
+                String name = translator.getGdlMove(nativeMove).toString();
+                move = new GGPBaseMove<>(nativeMove, name, getMoveId(name));
+                canonicalMoves.put(nativeMove, move);
+            }
+            return move;
+        }
+    }
+
+    public final class GGPBaseGameState<NativeMove, State extends RuleEngineState<NativeMove, State>> implements GameState, TurnTakingGameState {
         private final RuleEngine<NativeMove, State> ruleEngine;
+        private final MoveCache<NativeMove> moveCache;
         private final State state;
+        // Sorted legal moves for each role, computed lazily
+        private final List<Move>[] legalMovesByRole;
+        // Computed lazily; -1 until then
+        private int roleToMove = -1;
+
+        @SuppressWarnings("unchecked")
+        private GGPBaseGameState(RuleEngine<NativeMove, State> ruleEngine, MoveCache<NativeMove> moveCache,
+                State state) {
+            this(ruleEngine, moveCache, state, new List[ruleEngine.getNumRoles()]);
+        }
 
-        private GGPBaseGameState(RuleEngine<NativeMove, State> ruleEngine, State state) {
+        private GGPBaseGameState(RuleEngine<NativeMove, State> ruleEngine, MoveCache<NativeMove> moveCache,
+                State state, List<Move>[] legalMovesByRole) {
             this.ruleEngine = ruleEngine;
+            this.moveCache = moveCache;
             this.state = state;
+            this.legalMovesByRole = legalMovesByRole;
         }
 
         @Override
@@ -98,7 +147,7 @@ public final class GGPBaseGame implements GameTreeProvider {
                 GdlTerm term = GdlFactory.createTerm(name);
                 NativeMove nativeMove = ruleEngine.getTranslator().getNativeMove(this.state, roleIndex, term);
 
-                return new GGPBaseMove<>(nativeMove, ruleEngine.getTranslator());
+                return moveCache.getCanonicalMove(nativeMove);
             } catch (SymbolFormatException e) {
                 throw new RuntimeException("Couldn't parse " + name + " as a GDL move", e);
             }
@@ -106,32 +155,94 @@ public final class GGPBaseGame implements GameTreeProvider {
 
         @Override
         public List<Move> getPossibleMovesForRole(int role) {
-            try {
-                return ruleEngine.getLegalMoves(state, role).stream()
-                        .map(nativeMove -> new GGPBaseMove<>(nativeMove, ruleEngine.getTranslator()))
-                        .sorted(Comparator.comparing(move -> move.getName()))
-                        .collect(Collectors.toList());
-            } catch (GameDescriptionException e) {
-                throw new RuntimeException("Error in GGP-Base game " + gameKey, e);
+            List<Move> legalMoves = legalMovesByRole[role];
+            if (legalMoves == null) {
+                legalMoves = getSortedLegalMoves(ruleEngine, moveCache, state, role);
+                legalMovesByRole[role] = legalMoves;
             }
+            return legalMoves;
         }
 
         @Override
-        public GameState getNextState(List<Move> movesTaken) {
+        public GGPBaseGameState<NativeMove, State> getNextState(List<Move> movesTaken) {
+            int[] moveIndices = new int[movesTaken.size()];
+            for (int role = 0; role < moveIndices.length; role++) {
+                moveIndices[role] = getMoveIndex(role, movesTaken.get(role));
+            }
+            return getNextStateFromMoveIndices(moveIndices);
+        }
+
+        private int getMoveIndex(int role, Move move) {
+            int moveIndex = getPossibleMovesForRole(role).indexOf(move);
+            if (moveIndex == -1) {
+                throw new IllegalArgumentException("Move " + move + " is not legal for role " + role + " in GGP-Base game " + gameKey);
+            }
+            return moveIndex;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public GGPBaseGameState<NativeMove, State> getNextStateFromMoveIndices(int[] moveIndices) {
+            List<NativeMove> nativeMoves = Lists.newArrayListWithCapacity(moveIndices.length);
+            for (int role = 0; role < moveIndices.length; role++) {
+                nativeMoves.add(((GGPBaseMove<NativeMove>) getPossibleMovesForRole(role).get(moveIndices[role])).move);
+            }
             try {
-                State nextState = ruleEngine.getNextState(this.state, toNativeMoves(movesTaken));
+                State nextState = ruleEngine.getNextState(this.state, nativeMoves);
 
-                return new GGPBaseGameState<>(ruleEngine, nextState);
+                return new GGPBaseGameState<>(ruleEngine, moveCache, nextState);
             } catch (GameDescriptionException e) {
                 throw new RuntimeException("Error in GGP-Base game " + gameKey, e);
             }
         }
 
-        private List<NativeMove> toNativeMoves(List<Move> moves) {
-            return moves.stream()
-                    .map(move -> (GGPBaseMove<NativeMove>) move)
-                    .map(move -> move.move)
-                    .collect(Collectors.toList());
+        /*
+         * The RuleEngine interface doesn't expose fluents such as "control", so the role to
+         * move comes from the legal moves. Those are cached on the state, so each role's
+         * moves are still generated at most once per state, and the result is cached too.
+         */
+        @Override
+        public int getRoleToMove() {
+            if (roleToMove == -1) {
+                int newRoleToMove = -1;
+                for (int roleIndex = 0; roleIndex < getNumRoles(); roleIndex++) {
+                    if (getPossibleMovesForRole(roleIndex).size() > 1) {
+                        if (newRoleToMove != -1) {
+                            throw new RuntimeException("Multiple roles have legal moves, but we are using a turn-taking strategy!");
+                        }
+                        newRoleToMove = roleIndex;
+                    }
+                }
+                if (newRoleToMove == -1) {
+                    // By convention, if no one has a choice of moves, say it's the first player
+                    newRoleToMove = 0;
+                }
+                roleToMove = newRoleToMove;
+            }
+            return roleToMove;
+        }
+
+        @Override
+        public List<Move> getPossibleMoves() {
+            return getPossibleMovesForRole(getRoleToMove());
+        }
+
+        @Override
+        public GGPBaseGameState<NativeMove, State> getNextState(Move moveTaken) {
+            return getNextStateFromMoveIndex(getMoveIndex(getRoleToMove(), moveTaken));
+        }
+
+        @Override
+        public GGPBaseGameState<NativeMove, State> getNextStateFromMoveIndex(int moveIndex) {
+            // Roles other than the one to move have exactly one move, at index 0
+            int[] moveIndices = new int[getNumRoles()];
+            moveIndices[getRoleToMove()] = moveIndex;
+            return getNextStateFromMoveIndices(moveIndices);
+        }
+
+        @Override
+        public TurnTakingGameState asTurnTakingGameState() {
+            return this;
         }
 
         @Override
@@ -153,6 +264,317 @@ public final class GGPBaseGame implements GameTreeProvider {
         public int getNumRoles() {
             return ruleEngine.getNumRoles();
         }
+
+        @Override
+        public List<Double> getOutcomes() {
+            return GameState.super.getOutcomes();
+        }
+
+        @Override
+        public GameStateCursor createCursor() {
+            return new GGPBaseCursor<>(this);
+        }
+
+        @Override
+        public List<Double> playoutToTerminal(Random random) {
+            return playOutNativeState(ruleEngine, state, random);
+        }
+
+        @Override
+        public long getStateHash() {
+            return hashNativeState(state);
+        }
+
+        @Override
+        public Object getStateKey() {
+            // Native states compare by their set of true fluents
+            return state;
+        }
+
+        @Override
+        public void encode(ByteBuffer buffer) {
+            long[] words = getSanchoFluentWords(state);
+            buffer.putShort((short) words.length);
+            for (long word : words) {
+                buffer.putLong(word);
+            }
+        }
+    }
+
+    /*
+     * Sancho states are bitsets of their true fluents, so they're encoded as the bitset's
+     * words, after a short with the number of words. That number is fixed by the game's
+     * propnet, so every state of a game takes the same space, and states reached by
+     * different move orders are encoded the same way. Decoding needs an engine for the same
+     * rules, to number the fluents the same way, but doesn't replay any moves.
+     *
+     * Other rule engines don't expose their fluents, and none of our games use them, so
+     * their states can't be encoded.
+     */
+    private static final int ENCODING_VERSION = 2;
+
+    private long[] getSanchoFluentWords(RuleEngineState<?, ?> state) {
+        if (!(state instanceof ForwardDeadReckonInternalMachineState)) {
+            throw new UnsupportedOperationException("Only states of GGP-Base games using the Sancho engine can be encoded, but "
+                    + gameKey + " uses " + state.getClass().getSimpleName());
+        }
+        return ((ForwardDeadReckonInternalMachineState) state).getContents().getBits();
+    }
+
+    @Override
+    public GameState decode(ByteBuffer buffer) {
+        return decode(ruleEngineSupplier.get(), buffer);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <M, S extends RuleEngineState<M, S>> GameState decode(RuleEngine<M, S> ruleEngine, ByteBuffer buffer) {
+        S initialState = ruleEngine.getInitialState();
+        long[] initialWords = getSanchoFluentWords(initialState);
+        int numWords = buffer.getShort();
+        if (numWords != initialWords.length) {
+            throw new IllegalArgumentException("Invalid encoded state for GGP-Base game " + gameKey
+                    + ": expected " + initialWords.length + " words of fluents, but found " + numWords);
+        }
+        // Start from a copy of a real state, so the engine's own bookkeeping is set up
+        ForwardDeadReckonInternalMachineState sanchoState =
+                new ForwardDeadReckonInternalMachineState((ForwardDeadReckonInternalMachineState) initialState);
+        sanchoState.clear();
+        for (int word = 0; word < numWords; word++) {
+            for (long bits = buffer.getLong(); bits != 0L; bits &= bits - 1) {
+                sanchoState.getContents().set(word * 64L + Long.numberOfTrailingZeros(bits));
+            }
+        }
+        return new GGPBaseGameState<>(ruleEngine, new MoveCache<>(ruleEngine.getTranslator()), (S) (Object) sanchoState);
+    }
+
+    @Override
+    public int getEncodingVersion() {
+        return ENCODING_VERSION;
+    }
+
+    /**
+     * GGP-Base rule engines work with immutable states, so this keeps a stack of native
+     * states. Compared to the default cursor, this avoids creating wrapper states and
+     * reuses its per-depth bookkeeping as it moves up and down the tree.
+     */
+    private final class GGPBaseCursor<NativeMove, State extends RuleEngineState<NativeMove, State>> implements GameStateCursor {
+        private final RuleEngine<NativeMove, State> ruleEngine;
+        private final MoveCache<NativeMove> moveCache;
+        private final List<State> states = Lists.newArrayList();
+        // Sorted legal moves for each role at each depth, computed lazily
+        private final List<List<Move>[]> legalMovesByDepth = Lists.newArrayList();
+        private final List<NativeMove> jointMove = Lists.newArrayList();
+        private final int[] turnTakingMoveIndices;
+        private int depth = 0;
+
+        private GGPBaseCursor(GGPBaseGameState<NativeMove, State> initialState) {
+            this.ruleEngine = initialState.ruleEngine;
+            this.moveCache = initialState.moveCache;
+            this.states.add(initialState.state);
+            this.legalMovesByDepth.add(initialState.legalMovesByRole.clone());
+            this.turnTakingMoveIndices = new int[ruleEngine.getNumRoles()];
+        }
+
+        @Override
+        public int getNumRoles() {
+            return ruleEngine.getNumRoles();
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return ruleEngine.isTerminal(states.get(depth));
+        }
+
+        @Override
+        public double getOutcomeForRole(int role) {
+            try {
+                int intValue = ruleEngine.getGoal(states.get(depth), role);
+                return intValue / 100.0;
+            } catch (GameDescriptionException e) {
+                throw new RuntimeException("Error in GGP-Base game " + gameKey, e);
+            }
+        }
+
+        private List<Move> getLegalMoves(int role) {
+            List<Move>[] legalMovesByRole = legalMovesByDepth.get(depth);
+            List<Move> legalMoves = legalMovesByRole[role];
+            if (legalMoves == null) {
+                legalMoves = getSortedLegalMoves(ruleEngine, moveCache, states.get(depth), role);
+                legalMovesByRole[role] = legalMoves;
+            }
+            return legalMoves;
+        }
+
+        @Override
+        public int getNumPossibleMovesForRole(int role) {
+            return getLegalMoves(role).size();
+        }
+
+        @Override
+        public Move getPossibleMoveForRole(int role, int moveIndex) {
+            return getLegalMoves(role).get(moveIndex);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void applyMoves(int[] moveIndices) {
+            jointMove.clear();
+            for (int role = 0; role < moveIndices.length; role++) {
+                GGPBaseMove<NativeMove> move = (GGPBaseMove<NativeMove>) getLegalMoves(role).get(moveIndices[role]);
+                jointMove.add(move.move);
+            }
+            State nextState;
+            try {
+                nextState = ruleEngine.getNextState(states.get(depth), jointMove);
+            } catch (GameDescriptionException e) {
+                throw new RuntimeException("Error in GGP-Base game " + gameKey, e);
+            }
+            depth++;
+            if (depth == states.size()) {
+                states.add(nextState);
+                legalMovesByDepth.add(new List[ruleEngine.getNumRoles()]);
+            } else {
+                states.set(depth, nextState);
+                Arrays.fill(legalMovesByDepth.get(depth), null);
+            }
+        }
+
+        @Override
+        public void applyMove(int moveIndex) {
+            int roleToMove = getRoleToMove();
+            turnTakingMoveIndices[roleToMove] = moveIndex;
+            applyMoves(turnTakingMoveIndices);
+            turnTakingMoveIndices[roleToMove] = 0;
+        }
+
+        @Override
+        public void undoMoves() {
+            if (depth == 0) {
+                throw new IllegalStateException("There are no moves to undo");
+            }
+            depth--;
+        }
+
+        @Override
+        public int getDepth() {
+            return depth;
+        }
+
+        // The state gets a copy of the legal moves, since the cursor reuses its arrays
+        @Override
+        public GameState getCurrentState() {
+            return new GGPBaseGameState<>(ruleEngine, moveCache, states.get(depth), legalMovesByDepth.get(depth).clone());
+        }
+
+        @Override
+        public long getStateHash() {
+            return hashNativeState(states.get(depth));
+        }
+
+        @Override
+        public List<Double> playoutToTerminal(Random random) {
+            return playOutNativeState(ruleEngine, states.get(depth), random);
+        }
+    }
+
+    /*
+     * Plays out directly on native states and moves, in the rule engine's own move order,
+     * so no Move wrappers are created and no move lists are sorted by name along the way.
+     */
+    private <NativeMove, State extends RuleEngineState<NativeMove, State>> List<Double> playOutNativeState(
+            RuleEngine<NativeMove, State> ruleEngine, State state, Random random) {
+        int numRoles = ruleEngine.getNumRoles();
+        List<NativeMove> jointMove = Lists.newArrayListWithCapacity(numRoles);
+        try {
+            while (!ruleEngine.isTerminal(state)) {
+                jointMove.clear();
+                for (int role = 0; role < numRoles; role++) {
+                    Collection<NativeMove> legalMoves = ruleEngine.getLegalMoves(state, role);
+                    int numLegalMoves = legalMoves.size();
+                    int moveIndex = (numLegalMoves > 1) ? random.nextInt(numLegalMoves) : 0;
+                    jointMove.add(Iterables.get(legalMoves, moveIndex));
+                }
+                state = ruleEngine.getNextState(state, jointMove);
+            }
+            List<Double> outcomes = Lists.newArrayListWithCapacity(numRoles);
+            for (int role = 0; role < numRoles; role++) {
+                outcomes.add(ruleEngine.getGoal(state, role) / 100.0);
+            }
+            return outcomes;
+        } catch (GameDescriptionException e) {
+            throw new RuntimeException("Error in GGP-Base game " + gameKey, e);
+        }
+    }
+
+    /*
+     * Sancho states are bitsets of their true fluents, so their hashes mix every word of the
+     * bitset into a full 64 bits. The words are taken from the highest down, and all-zero
+     * words leave the hash at zero, so trailing zero words don't matter, as with the
+     * bitset's own equals(). Other rule engines' states only offer their 32-bit hashCode(),
+     * which this spreads across a long with the MurmurHash3 finalizer to avoid clustering in
+     * tables keyed by the low or high bits.
+     */
+    private static long hashNativeState(RuleEngineState<?, ?> state) {
+        long hash;
+        if (state instanceof ForwardDeadReckonInternalMachineState) {
+            ForwardDeadReckonInternalMachineState sanchoState = (ForwardDeadReckonInternalMachineState) state;
+            long[] words = sanchoState.getContents().getBits();
+            int numWords = sanchoState.getContents().getNumWords();
+            hash = 0;
+            for (int i = numWords - 1; i >= 0; i--) {
+                hash = Long.rotateLeft((hash ^ words[i]) * 0x9e3779b97f4a7c15L, 31);
+            }
+        } else {
+            hash = state.hashCode();
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private <NativeMove, State extends RuleEngineState<NativeMove, State>> ImmutableList<Move> getSortedLegalMoves(
+            RuleEngine<NativeMove, State> ruleEngine, MoveCache<NativeMove> moveCache, State state, int role) {
+        List<GGPBaseMove<NativeMove>> legalMoves = Lists.newArrayList();
+        try {
+            for (NativeMove nativeMove : ruleEngine.getLegalMoves(state, role)) {
+                legalMoves.add(moveCache.getCanonicalMove(nativeMove));
+            }
+        } catch (GameDescriptionException e) {
+            throw new RuntimeException("Error in GGP-Base game " + gameKey, e);
+        }
+        // All these moves are already in the dictionary, so this snapshot covers them
+        int[] ranks = moveRanksById;
+        legalMoves.sort(Comparator.comparingInt(move -> ranks[move.id]));
+        return ImmutableList.copyOf(legalMoves);
+    }
+
+    /*
+     * The move dictionary for this game, shared by every rule engine and thread playing it.
+     * Moves get IDs in the order they're first seen. Legal moves are listed in name order,
+     * so the dictionary also tracks each move's rank in that order. The ranks are replaced
+     * as a whole when a move is added, so a sort always sees a consistent ranking.
+     */
+    private final Map<String, Integer> moveIdsByName = Maps.newTreeMap();
+    private volatile int[] moveRanksById = new int[0];
+
+    private synchronized int getMoveId(String name) {
+        Integer existingId = moveIdsByName.get(name);
+        if (existingId != null) {
+            return existingId;
+        }
+        int id = moveIdsByName.size();
+        moveIdsByName.put(name, id);
+        int[] newRanks = new int[id + 1];
+        int rank = 0;
+        for (int idInOrder : moveIdsByName.values()) {
+            newRanks[idInOrder] = rank;
+            rank++;
+        }
+        moveRanksById = newRanks;
+        return id;
     }
 
     private final String gameKey;
@@ -165,34 +587,96 @@ public final class GGPBaseGame implements GameTreeProvider {
     }
 
     public static GameTreeProvider usingProver(String gameKey) {
-        Supplier<RuleEngine<?, ?>> ruleEngineSupplier = () -> {
-            List<Gdl> rules = GameRepository.getDefaultRepository().getGame(gameKey).getRules();
+        return new GGPBaseGame(gameKey,
+                () -> ProverRuleEngineFactory.createNormal().buildEngineForRules(getRules(gameKey)));
+    }
 
-            return ProverRuleEngineFactory.createNormal().buildEngineForRules(rules);
-        };
+    /*
+     * Parsed rules are immutable, so they're fetched once per process and shared by every
+     * thread. Across processes, they're kept in the on-disk cache, so the repository is
+     * only consulted when that's missing or stale, including once an entry has expired.
+     */
+    private static final ConcurrentMap<String, List<Gdl>> RULES_CACHE = new ConcurrentHashMap<>();
+
+    private static List<Gdl> getRules(String gameKey) {
+        return RULES_CACHE.computeIfAbsent(gameKey, key -> {
+            Optional<List<Gdl>> cachedRules = RulesDiskCache.load(key);
+            if (cachedRules.isPresent()) {
+                return cachedRules.get();
+            }
+            List<Gdl> rules = GameRepository.getDefaultRepository().getGame(key).getRules();
+            RulesDiskCache.store(key, rules);
+            return rules;
+        });
+    }
+
+    /*
+     * Building a Sancho engine takes 5+ seconds, so built engines are reused across the
+     * process. The engines aren't thread-safe, so each one is only used by one thread at a
+     * time: a thread keeps its engine for as long as it keeps playing the same game, as
+     * with a plain thread-local cache. When it moves on to another game, it hands the old
+     * engine to a pool of idle engines, where the next thread to play that game picks it
+     * up instead of building its own.
+     *
+     * This saves rebuilding engines when threads switch games, but not memory: each thread
+     * playing a game at the same time still has its own engine for it, so the number of
+     * engines for a game can still reach the thread count. Sharing one engine between
+     * threads would need a way to clone or instance engines, which the RuleEngine
+     * interface doesn't offer. GameAffinityScheduler spreads workers across games where it
+     * can, which keeps this down.
+     *
+     * Idle engines are only softly reachable, so the pool gives up memory when it's needed.
+     */
+    private static final ThreadLocal<SanchoEngineLoan> SANCHO_ENGINE_LOAN = new ThreadLocal<>();
+    private static final ConcurrentMap<String, Queue<SoftReference<ForwardDeadReckonPropnetRuleEngine>>> IDLE_SANCHO_ENGINES =
+            new ConcurrentHashMap<>();
+
+    private static final class SanchoEngineLoan {
+        private final String gameKey;
+        private final ForwardDeadReckonPropnetRuleEngine ruleEngine;
+
+        private SanchoEngineLoan(String gameKey, ForwardDeadReckonPropnetRuleEngine ruleEngine) {
+            this.gameKey = gameKey;
+            this.ruleEngine = ruleEngine;
+        }
+    }
 
-        return new GGPBaseGame(gameKey, ruleEngineSupplier);
+    private static ForwardDeadReckonPropnetRuleEngine getSanchoEngine(String gameKey) {
+        SanchoEngineLoan loan = SANCHO_ENGINE_LOAN.get();
+        if (loan != null && loan.gameKey.equals(gameKey)) {
+            return loan.ruleEngine;
+        }
+        if (loan != null) {
+            getIdleSanchoEngines(loan.gameKey).add(new SoftReference<>(loan.ruleEngine));
+            SANCHO_ENGINE_LOAN.remove();
+        }
+        ForwardDeadReckonPropnetRuleEngine ruleEngine = pollIdleSanchoEngine(gameKey);
+        if (ruleEngine == null) {
+            ruleEngine = SanchoRuleEngineFactory.INSTANCE.buildEngineForRules(getRules(gameKey));
+        }
+        SANCHO_ENGINE_LOAN.set(new SanchoEngineLoan(gameKey, ruleEngine));
+        return ruleEngine;
     }
 
-    private static final ThreadLocal<ForwardDeadReckonPropnetRuleEngine> SANCHO_ENGINE_CACHE = new ThreadLocal<>();
-    private static final ThreadLocal<String> SANCHO_ENGINE_CACHE_KEY = new ThreadLocal<>();
+    private static Queue<SoftReference<ForwardDeadReckonPropnetRuleEngine>> getIdleSanchoEngines(String gameKey) {
+        return IDLE_SANCHO_ENGINES.computeIfAbsent(gameKey, key -> new ConcurrentLinkedQueue<>());
+    }
 
-    public static GameTreeProvider usingSanchoEngine(String gameKey) {
-        Supplier<RuleEngine<?, ?>> ruleEngineSupplier = () -> {
-            if (gameKey.equals(SANCHO_ENGINE_CACHE_KEY.get())) {
-                return SANCHO_ENGINE_CACHE.get();
-            } else {
-                SANCHO_ENGINE_CACHE.remove(); // just in case this reduces memory pressure
-                List<Gdl> rules = GameRepository.getDefaultRepository().getGame(gameKey).getRules();
-                // Note: This takes 5+ seconds.
-                ForwardDeadReckonPropnetRuleEngine ruleEngine = SanchoRuleEngineFactory.INSTANCE.buildEngineForRules(rules);
-                SANCHO_ENGINE_CACHE_KEY.set(gameKey);
-                SANCHO_ENGINE_CACHE.set(ruleEngine);
+    // Returns null if there are no idle engines for the game that haven't been collected
+    private static ForwardDeadReckonPropnetRuleEngine pollIdleSanchoEngine(String gameKey) {
+        Queue<SoftReference<ForwardDeadReckonPropnetRuleEngine>> idleEngines = getIdleSanchoEngines(gameKey);
+        SoftReference<ForwardDeadReckonPropnetRuleEngine> reference;
+        while ((reference = idleEngines.poll()) != null) {
+            ForwardDeadReckonPropnetRuleEngine ruleEngine = reference.get();
+            if (ruleEngine != null) {
                 return ruleEngine;
             }
-        };
+        }
+        return null;
+    }
 
-        return new GGPBaseGame(gameKey, ruleEngineSupplier);
+    public static GameTreeProvider usingSanchoEngine(String gameKey) {
+        return new GGPBaseGame(gameKey, () -> getSanchoEngine(gameKey));
     }
 
     @Override
@@ -202,6 +686,7 @@ public final class GGPBaseGame implements GameTreeProvider {
     }
 
     private <M, S extends RuleEngineState<M, S>> GameState getInitialState(RuleEngine<M, S> ruleEngine) {
-        return new GGPBaseGameState<>(ruleEngine, ruleEngine.getInitialState());
+        return new GGPBaseGameState<>(ruleEngine, new MoveCache<>(ruleEngine.getTranslator()),
+                ruleEngine.getInitialState());
     }
 }
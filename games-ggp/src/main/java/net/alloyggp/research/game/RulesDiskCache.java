@@ -0,0 +1,189 @@
+package net.alloyggp.research.game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.ggp.base.util.game.GameRepository;
+import org.ggp.base.util.gdl.factory.GdlFactory;
+import org.ggp.base.util.gdl.factory.exceptions.GdlFormatException;
+import org.ggp.base.util.gdl.grammar.Gdl;
+import org.ggp.base.util.symbol.factory.exceptions.SymbolFormatException;
+
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+
+/**
+ * Keeps the rules of GGP-Base games on disk between runs, so restarting a runner doesn't
+ * go back to the game repository for every game. Each game's rules are stored in their
+ * own file, one rule per line, behind a header with the format version, the GGP-Base
+ * version that fetched them, when they were fetched, and a SHA-256 hash of the rules.
+ * Files are read through a memory-mapped buffer.
+ *
+ * <p>Finding out whether a game's rules have changed means fetching them from the
+ * repository, which is what the cache is there to avoid. Instead, entries expire: an
+ * entry is stale once it's older than the maximum age, so the rules are fetched again at
+ * least that often, and changed rules replace the old entry. The maximum age is 24 hours
+ * by default, and can be set in hours with the "gameAiResearch.rulesCacheMaxAgeHours"
+ * system property. To pick up changed rules right away, set it to 0 for one run, or
+ * delete the game's entry from the cache directory.
+ *
+ * <p>An entry is also stale if it was written with another format or GGP-Base version,
+ * or if its rules don't match their hash (for example, because a write was cut short).
+ * Stale or missing entries are treated as cache misses, so callers fetch the rules again
+ * and store them, replacing the old entry.
+ *
+ * <p>The cache directory is ~/.game-ai-research/rules-cache by default, and can be set
+ * with the "gameAiResearch.rulesCacheDir" system property.
+ */
+final class RulesDiskCache {
+    private static final int MAGIC = 0x47444C43; // "GDLC"
+    /*
+     * Format: the magic number and this version as ints, then the GGP-Base version as an
+     * int length and UTF-8 bytes, then the time the rules were fetched as a long in
+     * System.currentTimeMillis() terms, then the 32-byte SHA-256 hash of the rules text,
+     * then the rules text as an int length and UTF-8 bytes.
+     */
+    private static final int FORMAT_VERSION = 2;
+    private static final int HASH_LENGTH = 32;
+
+    private static final Path CACHE_DIRECTORY = getCacheDirectory();
+    private static final byte[] GGP_BASE_VERSION = getGgpBaseVersion().getBytes(StandardCharsets.UTF_8);
+    private static final long MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(Long.getLong("gameAiResearch.rulesCacheMaxAgeHours", 24));
+
+    private RulesDiskCache() {
+        // Not instantiable
+    }
+
+    private static Path getCacheDirectory() {
+        String configuredDirectory = System.getProperty("gameAiResearch.rulesCacheDir");
+        if (configuredDirectory != null) {
+            return Paths.get(configuredDirectory);
+        }
+        return Paths.get(System.getProperty("user.home"), ".game-ai-research", "rules-cache");
+    }
+
+    // Another version of the library could print or parse GDL differently
+    private static String getGgpBaseVersion() {
+        String version = GameRepository.class.getPackage().getImplementationVersion();
+        return (version == null) ? "unknown" : version;
+    }
+
+    private static Path getCacheFile(String gameKey) {
+        return CACHE_DIRECTORY.resolve(gameKey + ".gdl.cache");
+    }
+
+    /**
+     * Returns the cached rules for the game, or an empty Optional if they're missing, stale,
+     * or can't be read.
+     */
+    static Optional<List<Gdl>> load(String gameKey) {
+        Path cacheFile = getCacheFile(gameKey);
+        if (!Files.isRegularFile(cacheFile)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return readRules(buffer);
+        } catch (IOException | RuntimeException e) {
+            // Truncated or unreadable entries are misses like any other
+            return Optional.empty();
+        }
+    }
+
+    private static Optional<List<Gdl>> readRules(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+            return Optional.empty();
+        }
+        byte[] ggpBaseVersion = new byte[buffer.getInt()];
+        buffer.get(ggpBaseVersion);
+        if (!Arrays.equals(ggpBaseVersion, GGP_BASE_VERSION)) {
+            return Optional.empty();
+        }
+        long fetchedAtMillis = buffer.getLong();
+        if (System.currentTimeMillis() - fetchedAtMillis >= MAX_AGE_MILLIS) {
+            return Optional.empty();
+        }
+        byte[] expectedHash = new byte[HASH_LENGTH];
+        buffer.get(expectedHash);
+        int rulesLength = buffer.getInt();
+        ByteBuffer rulesBytes = buffer.slice();
+        rulesBytes.limit(rulesLength);
+        String rulesText = StandardCharsets.UTF_8.decode(rulesBytes).toString();
+        if (!Arrays.equals(hash(rulesText), expectedHash)) {
+            return Optional.empty();
+        }
+
+        List<Gdl> rules = Lists.newArrayList();
+        try {
+            for (String rule : rulesText.split("\n")) {
+                rules.add(GdlFactory.create(rule));
+            }
+        } catch (GdlFormatException | SymbolFormatException e) {
+            return Optional.empty();
+        }
+        return Optional.of(rules);
+    }
+
+    /**
+     * Stores the rules for the game, just fetched from the repository, replacing any
+     * existing entry. The cache is only an optimization, so failures to write it are
+     * reported but otherwise ignored.
+     */
+    static void store(String gameKey, List<Gdl> rules) {
+        StringBuilder sb = new StringBuilder();
+        for (Gdl rule : rules) {
+            if (sb.length() > 0) {
+                sb.append('\n');
+            }
+            sb.append(rule);
+        }
+        String rulesText = sb.toString();
+        byte[] rulesBytes = rulesText.getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 4 + GGP_BASE_VERSION.length + 8 + HASH_LENGTH + 4 + rulesBytes.length);
+        buffer.putInt(MAGIC);
+        buffer.putInt(FORMAT_VERSION);
+        buffer.putInt(GGP_BASE_VERSION.length);
+        buffer.put(GGP_BASE_VERSION);
+        buffer.putLong(System.currentTimeMillis());
+        buffer.put(hash(rulesText));
+        buffer.putInt(rulesBytes.length);
+        buffer.put(rulesBytes);
+        buffer.flip();
+
+        try {
+            Files.createDirectories(CACHE_DIRECTORY);
+            // Write to a temporary file first, so concurrent runners never see half an entry
+            Path tempFile = Files.createTempFile(CACHE_DIRECTORY, gameKey, ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+                Files.move(tempFile, getCacheFile(gameKey),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            System.out.println("Couldn't write the cached rules for " + gameKey + ", continuing without them: " + e);
+        }
+    }
+
+    private static byte[] hash(String rulesText) {
+        return Hashing.sha256().hashString(rulesText, StandardCharsets.UTF_8).asBytes();
+    }
+}
@@ -0,0 +1,48 @@
+package net.alloyggp.research.game.impl;
+
+import net.alloyggp.research.GameStateCursor;
+import net.alloyggp.research.Move;
+
+/**
+ * The cursor counterpart of {@link AbstractTurnTakingGameState}. Subclasses only need to
+ * handle the moves of the role to move.
+ */
+/*package-private*/ abstract class AbstractTurnTakingCursor implements GameStateCursor {
+    protected abstract int getNumPossibleMoves();
+
+    protected abstract Move getPossibleMove(int moveIndex);
+
+    @Override
+    public abstract int getRoleToMove();
+
+    @Override
+    public abstract void applyMove(int moveIndex);
+
+    @Override
+    public int getNumRoles() {
+        return 2;
+    }
+
+    @Override
+    public int getNumPossibleMovesForRole(int role) {
+        if (role != getRoleToMove()) {
+            return 1;
+        }
+        return getNumPossibleMoves();
+    }
+
+    @Override
+    public Move getPossibleMoveForRole(int role, int moveIndex) {
+        if (role == getRoleToMove()) {
+            return getPossibleMove(moveIndex);
+        } else if (moveIndex == 0) {
+            return NoopMove.INSTANCE;
+        }
+        throw new IndexOutOfBoundsException("Move index " + moveIndex + " out of bounds for role " + role);
+    }
+
+    @Override
+    public void applyMoves(int[] moveIndices) {
+        applyMove(moveIndices[getRoleToMove()]);
+    }
+}
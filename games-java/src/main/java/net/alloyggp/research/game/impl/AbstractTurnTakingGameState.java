@@ -0,0 +1,111 @@
+package net.alloyggp.research.game.impl;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.alloyggp.research.GameState;
+import net.alloyggp.research.GameStateCursor;
+import net.alloyggp.research.Move;
+import net.alloyggp.research.TurnTakingGameState;
+
+/**
+ * A base class for states of two-player games where one role moves at a time and the other
+ * role's only move is a {@link NoopMove}. Subclasses only need to handle the moves of the
+ * role to move; this fills in the rest of {@link GameState} in terms of those.
+ */
+/*package-private*/ abstract class AbstractTurnTakingGameState implements GameState, TurnTakingGameState {
+    /**
+     * Returns the move of the role to move with the given name. Noops are handled separately.
+     */
+    protected abstract Move parseMove(String name);
+
+    @Override
+    public abstract AbstractTurnTakingGameState getNextState(Move moveTaken);
+
+    @Override
+    public abstract AbstractTurnTakingGameState getNextStateFromMoveIndex(int moveIndex);
+
+    @Override
+    public abstract int getNumPossibleMoves();
+
+    @Override
+    public abstract Move getPossibleMove(int moveIndex);
+
+    @Override
+    public abstract GameStateCursor createCursor();
+
+    @Override
+    public Move getMoveWithName(int roleIndex, String name) {
+        if (name.equals(NoopMove.NAME)) {
+            return NoopMove.INSTANCE;
+        }
+        return parseMove(name);
+    }
+
+    @Override
+    public List<Move> getPossibleMoves() {
+        int numMoves = getNumPossibleMoves();
+        Move[] moves = new Move[numMoves];
+        for (int moveIndex = 0; moveIndex < numMoves; moveIndex++) {
+            moves[moveIndex] = getPossibleMove(moveIndex);
+        }
+        return Arrays.asList(moves);
+    }
+
+    @Override
+    public List<Move> getPossibleMovesForRole(int role) {
+        if (role != getRoleToMove()) {
+            return NoopMove.LIST;
+        }
+        return getPossibleMoves();
+    }
+
+    @Override
+    public int getNumPossibleMovesForRole(int role) {
+        if (role != getRoleToMove()) {
+            return 1;
+        }
+        return getNumPossibleMoves();
+    }
+
+    @Override
+    public Move getPossibleMoveForRole(int role, int moveIndex) {
+        if (role == getRoleToMove()) {
+            return getPossibleMove(moveIndex);
+        } else if (moveIndex == 0) {
+            return NoopMove.INSTANCE;
+        }
+        throw new IndexOutOfBoundsException("Move index " + moveIndex + " out of bounds for role " + role);
+    }
+
+    @Override
+    public AbstractTurnTakingGameState getNextStateFromMoveIndices(int[] moveIndices) {
+        return getNextStateFromMoveIndex(moveIndices[getRoleToMove()]);
+    }
+
+    @Override
+    public AbstractTurnTakingGameState getNextState(List<Move> movesTaken) {
+        return getNextState(movesTaken.get(getRoleToMove()));
+    }
+
+    @Override
+    public TurnTakingGameState asTurnTakingGameState() {
+        return this;
+    }
+
+    @Override
+    public int getNumRoles() {
+        return 2;
+    }
+
+    @Override
+    public List<Double> getOutcomes() {
+        return GameState.super.getOutcomes();
+    }
+
+    @Override
+    public List<Double> playoutToTerminal(Random random) {
+        return createCursor().playoutToTerminal(random);
+    }
+}
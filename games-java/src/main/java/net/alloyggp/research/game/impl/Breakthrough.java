@@ -0,0 +1,578 @@
+package net.alloyggp.research.game.impl;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import net.alloyggp.research.GameState;
+import net.alloyggp.research.GameStateCursor;
+import net.alloyggp.research.GameTreeProvider;
+import net.alloyggp.research.Move;
+
+/*
+ * Each player's pieces are a bitboard, with squares numbered (y - 1) * size + (x - 1) using
+ * the 1-based coordinates from the move names, "( move x1 y1 x2 y2 )". Role 0 moves first,
+ * starts on rows 1 and 2, and moves toward higher y; role 1 starts on the last two rows.
+ *
+ * A piece moves one row forward, either straight ahead into an empty square or diagonally
+ * into a square that isn't held by its own side, capturing any opposing piece there. Moves
+ * are generated for all pieces at once by shifting the bitboard in each of those three
+ * directions. A player wins by reaching the far row or by capturing every opposing piece,
+ * which are both checked with a single mask.
+ *
+ * Moves are listed with all the moves to the left first, then straight ahead, then to the
+ * right, each in order of their destination squares.
+ */
+public class Breakthrough implements GameTreeProvider {
+    private static final ImmutableList<Double> FIRST_PLAYER_WIN_OUTCOMES = ImmutableList.of(1.0, 0.0);
+    private static final ImmutableList<Double> SECOND_PLAYER_WIN_OUTCOMES = ImmutableList.of(0.0, 1.0);
+    // Only seen in non-terminal states
+    private static final ImmutableList<Double> NO_WINNER_OUTCOMES = ImmutableList.of(0.5, 0.5);
+    private static final int NO_WINNER = -1;
+    // Directions of movement, relative to the x coordinate
+    private static final int LEFT = 0;
+    private static final int STRAIGHT = 1;
+    private static final int RIGHT = 2;
+
+    private final int size;
+    private final int numSquares;
+    private final long boardMask;
+    private final long notFirstColumn;
+    private final long notLastColumn;
+    private final long firstRow;
+    private final long lastRow;
+    // Keyed by (role * numSquares + destination) * 3 + direction; null where that isn't a move
+    private final BreakthroughMove[] moves;
+    // Keyed by role * numSquares + square
+    private final long[] hashKeys;
+    private final long secondPlayerToMoveHashKey;
+
+    public Breakthrough(int size) {
+        Preconditions.checkArgument(size >= 4 && size <= 8, "The board must fit in a bitboard, with empty rows between the sides");
+        this.size = size;
+        this.numSquares = size * size;
+        this.boardMask = (numSquares == 64) ? -1L : (1L << numSquares) - 1;
+        long firstColumn = 0L;
+        for (int y = 0; y < size; y++) {
+            firstColumn |= 1L << (y * size);
+        }
+        this.notFirstColumn = boardMask & ~firstColumn;
+        this.notLastColumn = boardMask & ~(firstColumn << (size - 1));
+        this.firstRow = (1L << size) - 1;
+        this.lastRow = firstRow << (numSquares - size);
+        this.moves = new BreakthroughMove[2 * numSquares * 3];
+        for (int role = 0; role < 2; role++) {
+            for (int destination = 0; destination < numSquares; destination++) {
+                for (int direction = LEFT; direction <= RIGHT; direction++) {
+                    int source = getSource(role, destination, direction);
+                    int sourceX = destination % size - (direction - STRAIGHT);
+                    if (source >= 0 && source < numSquares && sourceX >= 0 && sourceX < size) {
+                        int index = (role * numSquares + destination) * 3 + direction;
+                        moves[index] = new BreakthroughMove(destination, direction, index,
+                                getMoveName(source, destination));
+                    }
+                }
+            }
+        }
+        this.hashKeys = ZobristKeys.create(2 * numSquares, 0xB7L);
+        this.secondPlayerToMoveHashKey = ZobristKeys.create(1, 0xB72L)[0];
+    }
+
+    @Override
+    public GameState getInitialState() {
+        long firstPlayerPieces = firstRow | (firstRow << size);
+        long secondPlayerPieces = lastRow | (lastRow >>> size);
+        return new BreakthroughGameState(firstPlayerPieces, secondPlayerPieces, 0,
+                computeStateHash(firstPlayerPieces, secondPlayerPieces, 0));
+    }
+
+    // States are encoded as the two bitboards followed by a byte for the role to move.
+    private static final int ENCODING_VERSION = 1;
+
+    @Override
+    public GameState decode(ByteBuffer buffer) {
+        long firstPlayerPieces = buffer.getLong();
+        long secondPlayerPieces = buffer.getLong();
+        int roleToMove = buffer.get();
+        if ((firstPlayerPieces & secondPlayerPieces) != 0L
+                || ((firstPlayerPieces | secondPlayerPieces) & ~boardMask) != 0L
+                || (roleToMove & ~1) != 0) {
+            throw new IllegalArgumentException("Invalid encoded Breakthrough state");
+        }
+        return new BreakthroughGameState(firstPlayerPieces, secondPlayerPieces, roleToMove,
+                computeStateHash(firstPlayerPieces, secondPlayerPieces, roleToMove));
+    }
+
+    @Override
+    public int getEncodingVersion() {
+        return ENCODING_VERSION;
+    }
+
+    private long computeStateHash(long firstPlayerPieces, long secondPlayerPieces, int roleToMove) {
+        long hash = (roleToMove == 1) ? secondPlayerToMoveHashKey : 0L;
+        for (long remaining = firstPlayerPieces; remaining != 0L; remaining &= remaining - 1) {
+            hash ^= hashKeys[Long.numberOfTrailingZeros(remaining)];
+        }
+        for (long remaining = secondPlayerPieces; remaining != 0L; remaining &= remaining - 1) {
+            hash ^= hashKeys[numSquares + Long.numberOfTrailingZeros(remaining)];
+        }
+        return hash;
+    }
+
+    private int getSource(int role, int destination, int direction) {
+        int forward = (role == 0) ? size : -size;
+        return destination - forward - (direction - STRAIGHT);
+    }
+
+    // Moves every piece one row forward for the given role, in the given direction
+    private long shiftForward(long pieces, int role, int direction) {
+        long forward = (role == 0) ? (pieces << size) : (pieces >>> size);
+        switch (direction) {
+        case LEFT:
+            return (forward >>> 1) & notLastColumn;
+        case STRAIGHT:
+            return forward & boardMask;
+        case RIGHT:
+            return (forward << 1) & notFirstColumn;
+        default:
+            throw new IllegalArgumentException("Invalid direction " + direction);
+        }
+    }
+
+    // Returns the squares the given role's pieces can reach in the given direction
+    private long getDestinations(long playerPieces, long opponentPieces, int role, int direction) {
+        long allowed = (direction == STRAIGHT) ? ~(playerPieces | opponentPieces) : ~playerPieces;
+        return shiftForward(playerPieces, role, direction) & allowed;
+    }
+
+    private int getWinner(long firstPlayerPieces, long secondPlayerPieces) {
+        if ((firstPlayerPieces & lastRow) != 0L || secondPlayerPieces == 0L) {
+            return 0;
+        } else if ((secondPlayerPieces & firstRow) != 0L || firstPlayerPieces == 0L) {
+            return 1;
+        }
+        return NO_WINNER;
+    }
+
+    private static List<Double> getOutcomes(int winner) {
+        if (winner == NO_WINNER) {
+            return NO_WINNER_OUTCOMES;
+        }
+        return (winner == 0) ? FIRST_PLAYER_WIN_OUTCOMES : SECOND_PLAYER_WIN_OUTCOMES;
+    }
+
+    // Returns the square of the set bit with the given index, counting from the lowest
+    private static int selectSquare(long squares, int index) {
+        long remaining = squares;
+        for (int i = 0; i < index; i++) {
+            remaining &= remaining - 1;
+        }
+        return Long.numberOfTrailingZeros(remaining);
+    }
+
+    /*
+     * Returns the move with the given index, given the destinations in each direction for
+     * the role to move.
+     */
+    private BreakthroughMove findMove(long[] destinations, int role, int moveIndex) {
+        int movesLeft = moveIndex;
+        for (int direction = LEFT; direction <= RIGHT; direction++) {
+            int numMoves = Long.bitCount(destinations[direction]);
+            if (movesLeft < numMoves) {
+                int destination = selectSquare(destinations[direction], movesLeft);
+                return moves[(role * numSquares + destination) * 3 + direction];
+            }
+            movesLeft -= numMoves;
+        }
+        throw new IndexOutOfBoundsException("Move index " + moveIndex + " out of bounds");
+    }
+
+    private String getMoveName(int source, int destination) {
+        return "( move " + (source % size + 1) + " " + (source / size + 1)
+                + " " + (destination % size + 1) + " " + (destination / size + 1) + " )";
+    }
+
+    private static class BreakthroughMove extends Move {
+        private final int destination;
+        private final int direction;
+        private final int hashCode;
+        private final String name;
+        private BreakthroughMove(int destination, int direction, int hashCode, String name) {
+            this.destination = destination;
+            this.direction = direction;
+            this.hashCode = hashCode;
+            this.name = name;
+        }
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+        @Override
+        public boolean equals(Object other) {
+            // These are interned per game
+            return other == this;
+        }
+        @Override
+        public String toString() {
+            return "BreakthroughMove [" + name + "]";
+        }
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static final class BreakthroughStateKey {
+        private final long firstPlayerPieces;
+        private final long secondPlayerPieces;
+        private final int roleToMove;
+
+        private BreakthroughStateKey(long firstPlayerPieces, long secondPlayerPieces, int roleToMove) {
+            this.firstPlayerPieces = firstPlayerPieces;
+            this.secondPlayerPieces = secondPlayerPieces;
+            this.roleToMove = roleToMove;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(firstPlayerPieces, secondPlayerPieces, roleToMove);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null)
+                return false;
+            if (getClass() != obj.getClass())
+                return false;
+            BreakthroughStateKey other = (BreakthroughStateKey) obj;
+            return firstPlayerPieces == other.firstPlayerPieces
+                    && secondPlayerPieces == other.secondPlayerPieces
+                    && roleToMove == other.roleToMove;
+        }
+    }
+
+    private class BreakthroughGameState extends AbstractTurnTakingGameState {
+        private final long firstPlayerPieces;
+        private final long secondPlayerPieces;
+        private final int roleToMove;
+        private final long stateHash;
+        private final int winner;
+        // Indexed by direction; empty in terminal states
+        private final long[] destinations = new long[3];
+        private final int numPossibleMoves;
+
+        private BreakthroughGameState(long firstPlayerPieces, long secondPlayerPieces, int roleToMove, long stateHash) {
+            this.firstPlayerPieces = firstPlayerPieces;
+            this.secondPlayerPieces = secondPlayerPieces;
+            this.roleToMove = roleToMove;
+            this.stateHash = stateHash;
+            this.winner = getWinner(firstPlayerPieces, secondPlayerPieces);
+            int numPossibleMoves = 0;
+            if (winner == NO_WINNER) {
+                for (int direction = LEFT; direction <= RIGHT; direction++) {
+                    destinations[direction] = getDestinations(getPieces(roleToMove), getPieces(1 - roleToMove),
+                            roleToMove, direction);
+                    numPossibleMoves += Long.bitCount(destinations[direction]);
+                }
+            }
+            this.numPossibleMoves = numPossibleMoves;
+        }
+
+        private long getPieces(int role) {
+            return (role == 0) ? firstPlayerPieces : secondPlayerPieces;
+        }
+
+        @Override
+        protected Move parseMove(String name) {
+            for (int index = roleToMove * numSquares * 3; index < (roleToMove + 1) * numSquares * 3; index++) {
+                if (moves[index] != null && moves[index].name.equals(name)) {
+                    return moves[index];
+                }
+            }
+            throw new IllegalArgumentException("Not a Breakthrough move: " + name);
+        }
+
+        @Override
+        public int getRoleToMove() {
+            return roleToMove;
+        }
+
+        @Override
+        public int getNumPossibleMoves() {
+            return numPossibleMoves;
+        }
+
+        @Override
+        public Move getPossibleMove(int moveIndex) {
+            return findMove(destinations, roleToMove, moveIndex);
+        }
+
+        @Override
+        public BreakthroughGameState getNextStateFromMoveIndex(int moveIndex) {
+            return getNextState(findMove(destinations, roleToMove, moveIndex));
+        }
+
+        @Override
+        public BreakthroughGameState getNextState(Move moveTaken) {
+            BreakthroughMove move = (BreakthroughMove) moveTaken;
+            int source = getSource(roleToMove, move.destination, move.direction);
+            long sourceSquare = 1L << source;
+            long destinationSquare = 1L << move.destination;
+            long newPlayerPieces = (getPieces(roleToMove) & ~sourceSquare) | destinationSquare;
+            long opponentPieces = getPieces(1 - roleToMove);
+            long newStateHash = stateHash ^ secondPlayerToMoveHashKey
+                    ^ hashKeys[roleToMove * numSquares + source]
+                    ^ hashKeys[roleToMove * numSquares + move.destination];
+            if ((opponentPieces & destinationSquare) != 0L) {
+                opponentPieces &= ~destinationSquare;
+                newStateHash ^= hashKeys[(1 - roleToMove) * numSquares + move.destination];
+            }
+            if (roleToMove == 0) {
+                return new BreakthroughGameState(newPlayerPieces, opponentPieces, 1, newStateHash);
+            } else {
+                return new BreakthroughGameState(opponentPieces, newPlayerPieces, 0, newStateHash);
+            }
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return true;
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return winner != NO_WINNER;
+        }
+
+        @Override
+        public double getOutcomeForRole(int role) {
+            return Breakthrough.getOutcomes(winner).get(role);
+        }
+
+        @Override
+        public List<Double> getOutcomes() {
+            return Breakthrough.getOutcomes(winner);
+        }
+
+        @Override
+        public GameStateCursor createCursor() {
+            return new BreakthroughCursor(this);
+        }
+
+        @Override
+        public long getStateHash() {
+            return stateHash;
+        }
+
+        @Override
+        public Object getStateKey() {
+            return new BreakthroughStateKey(firstPlayerPieces, secondPlayerPieces, roleToMove);
+        }
+
+        @Override
+        public void encode(ByteBuffer buffer) {
+            buffer.putLong(firstPlayerPieces);
+            buffer.putLong(secondPlayerPieces);
+            buffer.put((byte) roleToMove);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("BreakthroughGameState [roleToMove=").append(roleToMove).append('\n');
+            for (int y = size - 1; y >= 0; y--) {
+                for (int x = 0; x < size; x++) {
+                    long square = 1L << (y * size + x);
+                    if ((firstPlayerPieces & square) != 0L) {
+                        sb.append('X');
+                    } else if ((secondPlayerPieces & square) != 0L) {
+                        sb.append('O');
+                    } else {
+                        sb.append('.');
+                    }
+                }
+                sb.append('\n');
+            }
+            return sb.append(']').toString();
+        }
+    }
+
+    /**
+     * Applies moves to the same bitboards the states use. Each applied move pushes the
+     * previous bitboards and hash onto a stack, so undoing one just pops them back.
+     */
+    private class BreakthroughCursor extends AbstractTurnTakingCursor {
+        private long firstPlayerPieces;
+        private long secondPlayerPieces;
+        private int roleToMove;
+        private long stateHash;
+        // Three entries per move: the two bitboards and the hash from before it
+        private long[] undoStack = new long[3 * 64];
+        private int depth = 0;
+        // Scratch space for finding moves by index
+        private final long[] destinations = new long[3];
+
+        private BreakthroughCursor(BreakthroughGameState state) {
+            firstPlayerPieces = state.firstPlayerPieces;
+            secondPlayerPieces = state.secondPlayerPieces;
+            roleToMove = state.roleToMove;
+            stateHash = state.stateHash;
+        }
+
+        private long getPieces(int role) {
+            return (role == 0) ? firstPlayerPieces : secondPlayerPieces;
+        }
+
+        // Fills in destinations for the current position, and returns the number of moves
+        private int computeDestinations() {
+            if (getWinner(firstPlayerPieces, secondPlayerPieces) != NO_WINNER) {
+                return 0;
+            }
+            int numMoves = 0;
+            for (int direction = LEFT; direction <= RIGHT; direction++) {
+                destinations[direction] = getDestinations(getPieces(roleToMove), getPieces(1 - roleToMove),
+                        roleToMove, direction);
+                numMoves += Long.bitCount(destinations[direction]);
+            }
+            return numMoves;
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return getWinner(firstPlayerPieces, secondPlayerPieces) != NO_WINNER;
+        }
+
+        @Override
+        public double getOutcomeForRole(int role) {
+            return getOutcomes().get(role);
+        }
+
+        @Override
+        public List<Double> getOutcomes() {
+            return Breakthrough.getOutcomes(getWinner(firstPlayerPieces, secondPlayerPieces));
+        }
+
+        @Override
+        public int getRoleToMove() {
+            return roleToMove;
+        }
+
+        @Override
+        protected int getNumPossibleMoves() {
+            return computeDestinations();
+        }
+
+        @Override
+        protected Move getPossibleMove(int moveIndex) {
+            computeDestinations();
+            return findMove(destinations, roleToMove, moveIndex);
+        }
+
+        @Override
+        public void applyMove(int moveIndex) {
+            computeDestinations();
+            BreakthroughMove move = findMove(destinations, roleToMove, moveIndex);
+            if (3 * depth == undoStack.length) {
+                undoStack = Arrays.copyOf(undoStack, undoStack.length * 2);
+            }
+            undoStack[3 * depth] = firstPlayerPieces;
+            undoStack[3 * depth + 1] = secondPlayerPieces;
+            undoStack[3 * depth + 2] = stateHash;
+            depth++;
+            int source = getSource(roleToMove, move.destination, move.direction);
+            long sourceSquare = 1L << source;
+            long destinationSquare = 1L << move.destination;
+            stateHash ^= secondPlayerToMoveHashKey
+                    ^ hashKeys[roleToMove * numSquares + source]
+                    ^ hashKeys[roleToMove * numSquares + move.destination];
+            if ((getPieces(1 - roleToMove) & destinationSquare) != 0L) {
+                stateHash ^= hashKeys[(1 - roleToMove) * numSquares + move.destination];
+            }
+            if (roleToMove == 0) {
+                firstPlayerPieces = (firstPlayerPieces & ~sourceSquare) | destinationSquare;
+                secondPlayerPieces &= ~destinationSquare;
+            } else {
+                secondPlayerPieces = (secondPlayerPieces & ~sourceSquare) | destinationSquare;
+                firstPlayerPieces &= ~destinationSquare;
+            }
+            roleToMove = 1 - roleToMove;
+        }
+
+        @Override
+        public void undoMoves() {
+            if (depth == 0) {
+                throw new IllegalStateException("There are no moves to undo");
+            }
+            depth--;
+            firstPlayerPieces = undoStack[3 * depth];
+            secondPlayerPieces = undoStack[3 * depth + 1];
+            stateHash = undoStack[3 * depth + 2];
+            roleToMove = 1 - roleToMove;
+        }
+
+        /*
+         * Works on local copies of the bitboards, so there's nothing to restore afterwards.
+         * Only the mover can have just won, so only their win conditions are checked.
+         */
+        @Override
+        public List<Double> playoutToTerminal(Random random) {
+            int winner = getWinner(firstPlayerPieces, secondPlayerPieces);
+            if (winner != NO_WINNER) {
+                return Breakthrough.getOutcomes(winner);
+            }
+            long[] pieces = {firstPlayerPieces, secondPlayerPieces};
+            int role = roleToMove;
+            while (true) {
+                long playerPieces = pieces[role];
+                long opponentPieces = pieces[1 - role];
+                long left = getDestinations(playerPieces, opponentPieces, role, LEFT);
+                long straight = getDestinations(playerPieces, opponentPieces, role, STRAIGHT);
+                long right = getDestinations(playerPieces, opponentPieces, role, RIGHT);
+                int numLeft = Long.bitCount(left);
+                int numStraight = Long.bitCount(straight);
+                int numMoves = numLeft + numStraight + Long.bitCount(right);
+                int chosenIndex = (numMoves > 1) ? random.nextInt(numMoves) : 0;
+                int destination;
+                int direction;
+                if (chosenIndex < numLeft) {
+                    destination = selectSquare(left, chosenIndex);
+                    direction = LEFT;
+                } else if (chosenIndex < numLeft + numStraight) {
+                    destination = selectSquare(straight, chosenIndex - numLeft);
+                    direction = STRAIGHT;
+                } else {
+                    destination = selectSquare(right, chosenIndex - numLeft - numStraight);
+                    direction = RIGHT;
+                }
+                long destinationSquare = 1L << destination;
+                pieces[role] = (playerPieces & ~(1L << getSource(role, destination, direction))) | destinationSquare;
+                pieces[1 - role] = opponentPieces & ~destinationSquare;
+                if ((destinationSquare & ((role == 0) ? lastRow : firstRow)) != 0L || pieces[1 - role] == 0L) {
+                    return Breakthrough.getOutcomes(role);
+                }
+                role = 1 - role;
+            }
+        }
+
+        @Override
+        public long getStateHash() {
+            return stateHash;
+        }
+
+        @Override
+        public int getDepth() {
+            return depth;
+        }
+
+        @Override
+        public GameState getCurrentState() {
+            return new BreakthroughGameState(firstPlayerPieces, secondPlayerPieces, roleToMove, stateHash);
+        }
+    }
+}
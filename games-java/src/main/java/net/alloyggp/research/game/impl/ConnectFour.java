@@ -0,0 +1,433 @@
+package net.alloyggp.research.game.impl;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import net.alloyggp.research.GameState;
+import net.alloyggp.research.GameStateCursor;
+import net.alloyggp.research.GameTreeProvider;
+import net.alloyggp.research.Move;
+
+/*
+ * The board is stored as bitboards with one bit per cell, column by column from the bottom,
+ * with an extra always-empty bit on top of each column. The extra bits keep lines from
+ * wrapping from one column into the next, so four in a row in any direction can be found
+ * with a few shifts.
+ *
+ * Role 0 moves first. Moves are drops into columns, listed in order of the column, and
+ * named as in the GDL version of the game.
+ */
+public class ConnectFour implements GameTreeProvider {
+    private static final ImmutableList<Double> FIRST_PLAYER_WIN_OUTCOMES = ImmutableList.of(1.0, 0.0);
+    private static final ImmutableList<Double> SECOND_PLAYER_WIN_OUTCOMES = ImmutableList.of(0.0, 1.0);
+    private static final ImmutableList<Double> DRAW_OUTCOMES = ImmutableList.of(0.5, 0.5);
+    private static final int NO_WINNER = -1;
+
+    private final int width;
+    private final int height;
+    private final int bitsPerColumn;
+    // The bottom cell of each column
+    private final long bottomRow;
+    // The top cell of each column, which is filled when the column is full
+    private final long topRow;
+    private final long fullBoard;
+    // The shifts between neighboring cells in each direction: vertical, both diagonals, and horizontal
+    private final int[] lineShifts;
+    private final ConnectFourMove[] moves;
+    // Keyed by role * the number of bits + bit index
+    private final long[] hashKeys;
+    private final long secondPlayerToMoveHashKey;
+
+    public ConnectFour(int width, int height) {
+        Preconditions.checkArgument(width >= 1 && height >= 1 && width * (height + 1) <= 64,
+                "The board must fit in a bitboard with an extra row");
+        this.width = width;
+        this.height = height;
+        this.bitsPerColumn = height + 1;
+        long bottomRow = 0L;
+        long topRow = 0L;
+        for (int column = 0; column < width; column++) {
+            bottomRow |= 1L << (column * bitsPerColumn);
+            topRow |= 1L << (column * bitsPerColumn + height - 1);
+        }
+        this.bottomRow = bottomRow;
+        this.topRow = topRow;
+        this.fullBoard = bottomRow * ((1L << height) - 1);
+        this.lineShifts = new int[] {1, bitsPerColumn - 1, bitsPerColumn, bitsPerColumn + 1};
+        this.moves = new ConnectFourMove[width];
+        for (int column = 0; column < width; column++) {
+            moves[column] = new ConnectFourMove(column);
+        }
+        this.hashKeys = ZobristKeys.create(2 * width * bitsPerColumn, 0xC4L);
+        this.secondPlayerToMoveHashKey = ZobristKeys.create(1, 0xC42L)[0];
+    }
+
+    @Override
+    public GameState getInitialState() {
+        return new ConnectFourGameState(0L, 0L, 0L);
+    }
+
+    /*
+     * States are encoded as the 8-byte state key: each column holds a 1 just above its top
+     * piece, and below that, a 1 for each of the first player's pieces.
+     */
+    private static final int ENCODING_VERSION = 1;
+
+    @Override
+    public GameState decode(ByteBuffer buffer) {
+        long key = buffer.getLong();
+        long filled = 0L;
+        for (int column = 0; column < width; column++) {
+            long columnBits = (key >>> (column * bitsPerColumn)) & ((1L << bitsPerColumn) - 1);
+            if (columnBits == 0L) {
+                throw new IllegalArgumentException("Invalid encoded Connect Four state: " + Long.toHexString(key));
+            }
+            int columnHeight = 63 - Long.numberOfLeadingZeros(columnBits);
+            filled |= ((1L << columnHeight) - 1) << (column * bitsPerColumn);
+        }
+        long firstPlayerPieces = key - filled - bottomRow;
+        long secondPlayerPieces = filled & ~firstPlayerPieces;
+        int pieceCountDifference = Long.bitCount(firstPlayerPieces) - Long.bitCount(secondPlayerPieces);
+        if ((key >>> (width * bitsPerColumn)) != 0L || pieceCountDifference < 0 || pieceCountDifference > 1) {
+            throw new IllegalArgumentException("Invalid encoded Connect Four state: " + Long.toHexString(key));
+        }
+        return new ConnectFourGameState(firstPlayerPieces, filled, computeStateHash(firstPlayerPieces, filled));
+    }
+
+    @Override
+    public int getEncodingVersion() {
+        return ENCODING_VERSION;
+    }
+
+    private long computeStateHash(long firstPlayerPieces, long filled) {
+        long hash = (getRoleToMove(filled) == 1) ? secondPlayerToMoveHashKey : 0L;
+        for (long remaining = filled; remaining != 0L; remaining &= remaining - 1) {
+            int bit = Long.numberOfTrailingZeros(remaining);
+            int role = ((firstPlayerPieces & (1L << bit)) != 0L) ? 0 : 1;
+            hash ^= hashKeys[role * width * bitsPerColumn + bit];
+        }
+        return hash;
+    }
+
+    private static int getRoleToMove(long filled) {
+        return Long.bitCount(filled) & 1;
+    }
+
+    private boolean hasFourInARow(long pieces) {
+        for (int shift : lineShifts) {
+            long pairs = pieces & (pieces >>> shift);
+            if ((pairs & (pairs >>> (2 * shift))) != 0L) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int getNumOpenColumns(long filled) {
+        return width - Long.bitCount(filled & topRow);
+    }
+
+    // Returns the open column with the given index among the open columns
+    private int findOpenColumn(long filled, int moveIndex) {
+        int movesLeft = moveIndex;
+        for (int column = 0; column < width; column++) {
+            if ((filled & (1L << (column * bitsPerColumn + height - 1))) == 0L) {
+                if (movesLeft == 0) {
+                    return column;
+                }
+                movesLeft--;
+            }
+        }
+        throw new IndexOutOfBoundsException("Move index " + moveIndex + " out of bounds");
+    }
+
+    // Returns the cell a piece dropped into the column lands in, as a single bit
+    private long getLandingCell(long filled, int column) {
+        long columnBottom = 1L << (column * bitsPerColumn);
+        return (filled + columnBottom) & ~filled;
+    }
+
+    private int getWinner(long firstPlayerPieces, long filled) {
+        // Only the player who just moved can have completed a line
+        int lastRoleToMove = 1 - getRoleToMove(filled);
+        long lastMoverPieces = (lastRoleToMove == 0) ? firstPlayerPieces : filled & ~firstPlayerPieces;
+        return hasFourInARow(lastMoverPieces) ? lastRoleToMove : NO_WINNER;
+    }
+
+    private static ImmutableList<Double> getOutcomes(int winner) {
+        if (winner == NO_WINNER) {
+            return DRAW_OUTCOMES;
+        }
+        return (winner == 0) ? FIRST_PLAYER_WIN_OUTCOMES : SECOND_PLAYER_WIN_OUTCOMES;
+    }
+
+    private static class ConnectFourMove extends Move {
+        private final int column;
+        private final String name;
+        private ConnectFourMove(int column) {
+            this.column = column;
+            this.name = "( drop " + (column + 1) + " )";
+        }
+        @Override
+        public int hashCode() {
+            return column;
+        }
+        @Override
+        public boolean equals(Object other) {
+            // These are interned per game
+            return other == this;
+        }
+        @Override
+        public String toString() {
+            return "ConnectFourMove [" + name + "]";
+        }
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+
+    private class ConnectFourGameState extends AbstractTurnTakingGameState {
+        private final long firstPlayerPieces;
+        private final long filled;
+        private final long stateHash;
+        private final int winner;
+        private final boolean terminal;
+
+        private ConnectFourGameState(long firstPlayerPieces, long filled, long stateHash) {
+            this.firstPlayerPieces = firstPlayerPieces;
+            this.filled = filled;
+            this.stateHash = stateHash;
+            this.winner = getWinner(firstPlayerPieces, filled);
+            this.terminal = winner != NO_WINNER || filled == fullBoard;
+        }
+
+        @Override
+        protected Move parseMove(String name) {
+            if (name.startsWith("( drop ") && name.endsWith(" )")) {
+                int column = Integer.parseInt(name.substring(7, name.length() - 2)) - 1;
+                if (column >= 0 && column < width) {
+                    return moves[column];
+                }
+            }
+            throw new IllegalArgumentException("Not a Connect Four move: " + name);
+        }
+
+        @Override
+        public int getRoleToMove() {
+            return ConnectFour.getRoleToMove(filled);
+        }
+
+        @Override
+        public int getNumPossibleMoves() {
+            return getNumOpenColumns(filled);
+        }
+
+        @Override
+        public Move getPossibleMove(int moveIndex) {
+            return moves[findOpenColumn(filled, moveIndex)];
+        }
+
+        @Override
+        public ConnectFourGameState getNextStateFromMoveIndex(int moveIndex) {
+            return getNextState(findOpenColumn(filled, moveIndex));
+        }
+
+        @Override
+        public ConnectFourGameState getNextState(Move moveTaken) {
+            return getNextState(((ConnectFourMove) moveTaken).column);
+        }
+
+        private ConnectFourGameState getNextState(int column) {
+            long cell = getLandingCell(filled, column);
+            int role = getRoleToMove();
+            long newFirstPlayerPieces = (role == 0) ? firstPlayerPieces | cell : firstPlayerPieces;
+            long newStateHash = stateHash ^ secondPlayerToMoveHashKey
+                    ^ hashKeys[role * width * bitsPerColumn + Long.numberOfTrailingZeros(cell)];
+            return new ConnectFourGameState(newFirstPlayerPieces, filled | cell, newStateHash);
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return true;
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return terminal;
+        }
+
+        @Override
+        public double getOutcomeForRole(int role) {
+            return ConnectFour.getOutcomes(winner).get(role);
+        }
+
+        @Override
+        public List<Double> getOutcomes() {
+            return ConnectFour.getOutcomes(winner);
+        }
+
+        @Override
+        public GameStateCursor createCursor() {
+            return new ConnectFourCursor(this);
+        }
+
+        @Override
+        public long getStateHash() {
+            return stateHash;
+        }
+
+        @Override
+        public Object getStateKey() {
+            return firstPlayerPieces + filled + bottomRow;
+        }
+
+        @Override
+        public void encode(ByteBuffer buffer) {
+            buffer.putLong(firstPlayerPieces + filled + bottomRow);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("ConnectFourGameState [\n");
+            for (int row = height - 1; row >= 0; row--) {
+                for (int column = 0; column < width; column++) {
+                    long cell = 1L << (column * bitsPerColumn + row);
+                    if ((filled & cell) == 0L) {
+                        sb.append('.');
+                    } else {
+                        sb.append(((firstPlayerPieces & cell) != 0L) ? 'X' : 'O');
+                    }
+                }
+                sb.append('\n');
+            }
+            return sb.append(']').toString();
+        }
+    }
+
+    /**
+     * Applies and undoes moves on the same bitboards the states use, keeping a stack of the
+     * cells filled, so neither allocates.
+     */
+    private class ConnectFourCursor extends AbstractTurnTakingCursor {
+        private long firstPlayerPieces;
+        private long filled;
+        private long stateHash;
+        private long[] undoStack = new long[width * height];
+        private int depth = 0;
+
+        private ConnectFourCursor(ConnectFourGameState state) {
+            firstPlayerPieces = state.firstPlayerPieces;
+            filled = state.filled;
+            stateHash = state.stateHash;
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return getWinner(firstPlayerPieces, filled) != NO_WINNER || filled == fullBoard;
+        }
+
+        @Override
+        public double getOutcomeForRole(int role) {
+            return getOutcomes().get(role);
+        }
+
+        @Override
+        public List<Double> getOutcomes() {
+            return ConnectFour.getOutcomes(getWinner(firstPlayerPieces, filled));
+        }
+
+        @Override
+        public int getRoleToMove() {
+            return ConnectFour.getRoleToMove(filled);
+        }
+
+        @Override
+        protected int getNumPossibleMoves() {
+            return getNumOpenColumns(filled);
+        }
+
+        @Override
+        protected Move getPossibleMove(int moveIndex) {
+            return moves[findOpenColumn(filled, moveIndex)];
+        }
+
+        /*
+         * Works on local copies of the position, so there's nothing to restore afterwards, and
+         * leaves the hash alone. Only the player who just moved needs checking for a line.
+         */
+        @Override
+        public List<Double> playoutToTerminal(Random random) {
+            long firstPlayerPieces = this.firstPlayerPieces;
+            long filled = this.filled;
+            int winner = getWinner(firstPlayerPieces, filled);
+            while (winner == NO_WINNER && filled != fullBoard) {
+                int numOpenColumns = getNumOpenColumns(filled);
+                int column = findOpenColumn(filled, (numOpenColumns > 1) ? random.nextInt(numOpenColumns) : 0);
+                long cell = getLandingCell(filled, column);
+                int role = ConnectFour.getRoleToMove(filled);
+                filled |= cell;
+                if (role == 0) {
+                    firstPlayerPieces |= cell;
+                    if (hasFourInARow(firstPlayerPieces)) {
+                        winner = 0;
+                    }
+                } else if (hasFourInARow(filled & ~firstPlayerPieces)) {
+                    winner = 1;
+                }
+            }
+            return ConnectFour.getOutcomes(winner);
+        }
+
+        @Override
+        public void applyMove(int moveIndex) {
+            long cell = getLandingCell(filled, findOpenColumn(filled, moveIndex));
+            if (depth == undoStack.length) {
+                undoStack = Arrays.copyOf(undoStack, depth * 2);
+            }
+            undoStack[depth] = cell;
+            depth++;
+            toggleCell(cell, getRoleToMove());
+        }
+
+        @Override
+        public void undoMoves() {
+            if (depth == 0) {
+                throw new IllegalStateException("There are no moves to undo");
+            }
+            depth--;
+            long cell = undoStack[depth];
+            // The cell was filled by the role that moved before the current one
+            toggleCell(cell, 1 - getRoleToMove());
+        }
+
+        private void toggleCell(long cell, int role) {
+            filled ^= cell;
+            if (role == 0) {
+                firstPlayerPieces ^= cell;
+            }
+            stateHash ^= secondPlayerToMoveHashKey
+                    ^ hashKeys[role * width * bitsPerColumn + Long.numberOfTrailingZeros(cell)];
+        }
+
+        @Override
+        public long getStateHash() {
+            return stateHash;
+        }
+
+        @Override
+        public int getDepth() {
+            return depth;
+        }
+
+        @Override
+        public GameState getCurrentState() {
+            return new ConnectFourGameState(firstPlayerPieces, filled, stateHash);
+        }
+    }
+}
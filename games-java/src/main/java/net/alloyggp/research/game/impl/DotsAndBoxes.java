@@ -0,0 +1,490 @@
+package net.alloyggp.research.game.impl;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import net.alloyggp.research.GameState;
+import net.alloyggp.research.GameStateCursor;
+import net.alloyggp.research.GameTreeProvider;
+import net.alloyggp.research.Move;
+
+/*
+ * The board is a square grid of dots, and the drawn lines are a bitset over its edges: first
+ * the horizontal edges row by row, then the vertical ones. Moves are named
+ * "( mark x1 y1 x2 y2 )" with the 1-based coordinates of the two dots, lower first. Role 0
+ * moves first.
+ *
+ * A player who completes one or more boxes with a line moves again. Each edge borders one or
+ * two boxes, so a precomputed table of those boxes and a mask of each box's edges is all it
+ * takes to find the boxes a line completes. The game ends when every line is drawn, and the
+ * player with more boxes wins, or with fewer in the misère version.
+ */
+public class DotsAndBoxes implements GameTreeProvider {
+    private static final ImmutableList<Double> FIRST_PLAYER_WIN_OUTCOMES = ImmutableList.of(1.0, 0.0);
+    private static final ImmutableList<Double> SECOND_PLAYER_WIN_OUTCOMES = ImmutableList.of(0.0, 1.0);
+    private static final ImmutableList<Double> DRAW_OUTCOMES = ImmutableList.of(0.5, 0.5);
+
+    private final int dotsPerSide;
+    private final boolean misere;
+    private final int numEdges;
+    private final int numBoxes;
+    private final long allEdges;
+    // Indexed by box
+    private final long[] boxEdgeMasks;
+    // Indexed by edge; the one or two boxes that border it
+    private final int[][] edgeBoxes;
+    private final DotsAndBoxesMove[] moves;
+    private final long[] edgeHashKeys;
+    private final long secondPlayerToMoveHashKey;
+    // Indexed by the number of boxes the first player has
+    private final long[] firstPlayerBoxesHashKeys;
+
+    public DotsAndBoxes(int dotsPerSide, boolean misere) {
+        Preconditions.checkArgument(dotsPerSide >= 2 && dotsPerSide <= 6, "The edges must fit in a bitset");
+        this.dotsPerSide = dotsPerSide;
+        this.misere = misere;
+        int boxesPerSide = dotsPerSide - 1;
+        int numHorizontalEdges = dotsPerSide * boxesPerSide;
+        this.numEdges = 2 * numHorizontalEdges;
+        this.numBoxes = boxesPerSide * boxesPerSide;
+        this.allEdges = (numEdges == 64) ? -1L : (1L << numEdges) - 1;
+        this.moves = new DotsAndBoxesMove[numEdges];
+        for (int y = 0; y < dotsPerSide; y++) {
+            for (int x = 0; x < boxesPerSide; x++) {
+                int edge = y * boxesPerSide + x;
+                moves[edge] = new DotsAndBoxesMove(edge, getMoveName(x, y, x + 1, y));
+            }
+        }
+        for (int y = 0; y < boxesPerSide; y++) {
+            for (int x = 0; x < dotsPerSide; x++) {
+                int edge = numHorizontalEdges + y * dotsPerSide + x;
+                moves[edge] = new DotsAndBoxesMove(edge, getMoveName(x, y, x, y + 1));
+            }
+        }
+        this.boxEdgeMasks = new long[numBoxes];
+        List<List<Integer>> edgeBoxLists = Lists.newArrayList();
+        for (int edge = 0; edge < numEdges; edge++) {
+            edgeBoxLists.add(Lists.newArrayList());
+        }
+        for (int y = 0; y < boxesPerSide; y++) {
+            for (int x = 0; x < boxesPerSide; x++) {
+                int box = y * boxesPerSide + x;
+                int[] boxEdges = {
+                        y * boxesPerSide + x,
+                        (y + 1) * boxesPerSide + x,
+                        numHorizontalEdges + y * dotsPerSide + x,
+                        numHorizontalEdges + y * dotsPerSide + x + 1,
+                };
+                for (int edge : boxEdges) {
+                    boxEdgeMasks[box] |= 1L << edge;
+                    edgeBoxLists.get(edge).add(box);
+                }
+            }
+        }
+        this.edgeBoxes = new int[numEdges][];
+        for (int edge = 0; edge < numEdges; edge++) {
+            edgeBoxes[edge] = edgeBoxLists.get(edge).stream().mapToInt(i -> i).toArray();
+        }
+        this.edgeHashKeys = ZobristKeys.create(numEdges, 0xD07L);
+        this.secondPlayerToMoveHashKey = ZobristKeys.create(1, 0xD072L)[0];
+        long[] firstPlayerBoxesHashKeys = ZobristKeys.create(numBoxes + 1, 0xD073L);
+        // Leave the starting count out of the hash, as with the first player to move
+        firstPlayerBoxesHashKeys[0] = 0L;
+        this.firstPlayerBoxesHashKeys = firstPlayerBoxesHashKeys;
+    }
+
+    private static String getMoveName(int x1, int y1, int x2, int y2) {
+        return "( mark " + (x1 + 1) + " " + (y1 + 1) + " " + (x2 + 1) + " " + (y2 + 1) + " )";
+    }
+
+    @Override
+    public GameState getInitialState() {
+        return new DotsAndBoxesGameState(0L, 0, 0, 0, 0L);
+    }
+
+    /*
+     * States are encoded as the edge bitset, then a byte for the role to move and a byte for
+     * the number of boxes the first player has. The second player's boxes are the rest of
+     * the completed boxes.
+     */
+    private static final int ENCODING_VERSION = 1;
+
+    @Override
+    public GameState decode(ByteBuffer buffer) {
+        long edges = buffer.getLong();
+        int roleToMove = buffer.get();
+        int firstPlayerBoxes = buffer.get();
+        int completedBoxes = countCompletedBoxes(edges);
+        if ((edges & ~allEdges) != 0L || (roleToMove & ~1) != 0
+                || firstPlayerBoxes < 0 || firstPlayerBoxes > completedBoxes) {
+            throw new IllegalArgumentException("Invalid encoded Dots and Boxes state");
+        }
+        return new DotsAndBoxesGameState(edges, roleToMove, firstPlayerBoxes, completedBoxes - firstPlayerBoxes,
+                computeStateHash(edges, roleToMove, firstPlayerBoxes));
+    }
+
+    @Override
+    public int getEncodingVersion() {
+        return ENCODING_VERSION;
+    }
+
+    private long computeStateHash(long edges, int roleToMove, int firstPlayerBoxes) {
+        long hash = (roleToMove == 1) ? secondPlayerToMoveHashKey : 0L;
+        hash ^= firstPlayerBoxesHashKeys[firstPlayerBoxes];
+        for (long remaining = edges; remaining != 0L; remaining &= remaining - 1) {
+            hash ^= edgeHashKeys[Long.numberOfTrailingZeros(remaining)];
+        }
+        return hash;
+    }
+
+    private int countCompletedBoxes(long edges) {
+        int count = 0;
+        for (long boxEdgeMask : boxEdgeMasks) {
+            if ((edges & boxEdgeMask) == boxEdgeMask) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Returns the number of boxes completed by adding the given edge to the others
+    private int countBoxesCompletedBy(int edge, long newEdges) {
+        int count = 0;
+        for (int box : edgeBoxes[edge]) {
+            if ((newEdges & boxEdgeMasks[box]) == boxEdgeMasks[box]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Returns the edge of the undrawn line with the given index, counting from the lowest
+    private static int findMove(long undrawnEdges, int moveIndex) {
+        long remaining = undrawnEdges;
+        for (int i = 0; i < moveIndex; i++) {
+            remaining &= remaining - 1;
+        }
+        if (remaining == 0L) {
+            throw new IndexOutOfBoundsException("Move index " + moveIndex + " out of bounds");
+        }
+        return Long.numberOfTrailingZeros(remaining);
+    }
+
+    private List<Double> getOutcomes(int firstPlayerBoxes, int secondPlayerBoxes) {
+        int boxDifference = firstPlayerBoxes - secondPlayerBoxes;
+        if (misere) {
+            boxDifference = -boxDifference;
+        }
+        if (boxDifference > 0) {
+            return FIRST_PLAYER_WIN_OUTCOMES;
+        } else if (boxDifference < 0) {
+            return SECOND_PLAYER_WIN_OUTCOMES;
+        }
+        return DRAW_OUTCOMES;
+    }
+
+    private static class DotsAndBoxesMove extends Move {
+        private final int edge;
+        private final String name;
+        private DotsAndBoxesMove(int edge, String name) {
+            this.edge = edge;
+            this.name = name;
+        }
+        @Override
+        public int hashCode() {
+            return edge;
+        }
+        @Override
+        public boolean equals(Object other) {
+            // These are interned per game
+            return other == this;
+        }
+        @Override
+        public String toString() {
+            return "DotsAndBoxesMove [" + name + "]";
+        }
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static final class DotsAndBoxesStateKey {
+        private final long edges;
+        private final int roleToMove;
+        private final int firstPlayerBoxes;
+
+        private DotsAndBoxesStateKey(long edges, int roleToMove, int firstPlayerBoxes) {
+            this.edges = edges;
+            this.roleToMove = roleToMove;
+            this.firstPlayerBoxes = firstPlayerBoxes;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(edges, roleToMove, firstPlayerBoxes);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null)
+                return false;
+            if (getClass() != obj.getClass())
+                return false;
+            DotsAndBoxesStateKey other = (DotsAndBoxesStateKey) obj;
+            return edges == other.edges
+                    && roleToMove == other.roleToMove
+                    && firstPlayerBoxes == other.firstPlayerBoxes;
+        }
+    }
+
+    private class DotsAndBoxesGameState extends AbstractTurnTakingGameState {
+        private final long edges;
+        private final int roleToMove;
+        private final int firstPlayerBoxes;
+        private final int secondPlayerBoxes;
+        private final long stateHash;
+
+        private DotsAndBoxesGameState(long edges, int roleToMove, int firstPlayerBoxes, int secondPlayerBoxes,
+                long stateHash) {
+            this.edges = edges;
+            this.roleToMove = roleToMove;
+            this.firstPlayerBoxes = firstPlayerBoxes;
+            this.secondPlayerBoxes = secondPlayerBoxes;
+            this.stateHash = stateHash;
+        }
+
+        @Override
+        protected Move parseMove(String name) {
+            for (DotsAndBoxesMove move : moves) {
+                if (move.name.equals(name)) {
+                    return move;
+                }
+            }
+            throw new IllegalArgumentException("Not a Dots and Boxes move: " + name);
+        }
+
+        @Override
+        public int getRoleToMove() {
+            return roleToMove;
+        }
+
+        @Override
+        public int getNumPossibleMoves() {
+            return numEdges - Long.bitCount(edges);
+        }
+
+        @Override
+        public Move getPossibleMove(int moveIndex) {
+            return moves[findMove(~edges & allEdges, moveIndex)];
+        }
+
+        @Override
+        public DotsAndBoxesGameState getNextStateFromMoveIndex(int moveIndex) {
+            return getNextState(findMove(~edges & allEdges, moveIndex));
+        }
+
+        @Override
+        public DotsAndBoxesGameState getNextState(Move moveTaken) {
+            return getNextState(((DotsAndBoxesMove) moveTaken).edge);
+        }
+
+        private DotsAndBoxesGameState getNextState(int edge) {
+            long newEdges = edges | (1L << edge);
+            long newStateHash = stateHash ^ edgeHashKeys[edge];
+            int completed = countBoxesCompletedBy(edge, newEdges);
+            if (completed == 0) {
+                return new DotsAndBoxesGameState(newEdges, 1 - roleToMove, firstPlayerBoxes, secondPlayerBoxes,
+                        newStateHash ^ secondPlayerToMoveHashKey);
+            } else if (roleToMove == 0) {
+                newStateHash ^= firstPlayerBoxesHashKeys[firstPlayerBoxes]
+                        ^ firstPlayerBoxesHashKeys[firstPlayerBoxes + completed];
+                return new DotsAndBoxesGameState(newEdges, 0, firstPlayerBoxes + completed, secondPlayerBoxes,
+                        newStateHash);
+            } else {
+                return new DotsAndBoxesGameState(newEdges, 1, firstPlayerBoxes, secondPlayerBoxes + completed,
+                        newStateHash);
+            }
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return true;
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return edges == allEdges;
+        }
+
+        @Override
+        public double getOutcomeForRole(int role) {
+            return getOutcomes().get(role);
+        }
+
+        @Override
+        public List<Double> getOutcomes() {
+            return DotsAndBoxes.this.getOutcomes(firstPlayerBoxes, secondPlayerBoxes);
+        }
+
+        @Override
+        public GameStateCursor createCursor() {
+            return new DotsAndBoxesCursor(this);
+        }
+
+        @Override
+        public long getStateHash() {
+            return stateHash;
+        }
+
+        @Override
+        public Object getStateKey() {
+            return new DotsAndBoxesStateKey(edges, roleToMove, firstPlayerBoxes);
+        }
+
+        @Override
+        public void encode(ByteBuffer buffer) {
+            buffer.putLong(edges);
+            buffer.put((byte) roleToMove);
+            buffer.put((byte) firstPlayerBoxes);
+        }
+
+        @Override
+        public String toString() {
+            return "DotsAndBoxesGameState [edges=" + Long.toHexString(edges) + ", roleToMove=" + roleToMove
+                    + ", firstPlayerBoxes=" + firstPlayerBoxes + ", secondPlayerBoxes=" + secondPlayerBoxes + "]";
+        }
+    }
+
+    /**
+     * Applies moves to a single edge bitset. Each applied move pushes the previous edges,
+     * hash, role to move and box counts onto a stack, so undoing one just pops them back.
+     */
+    private class DotsAndBoxesCursor extends AbstractTurnTakingCursor {
+        private long edges;
+        private int roleToMove;
+        private int firstPlayerBoxes;
+        private int secondPlayerBoxes;
+        private long stateHash;
+        // Three entries per move: the edges, the hash, and the role to move and box counts packed together
+        private final long[] undoStack = new long[3 * numEdges];
+        private int depth = 0;
+
+        private DotsAndBoxesCursor(DotsAndBoxesGameState state) {
+            edges = state.edges;
+            roleToMove = state.roleToMove;
+            firstPlayerBoxes = state.firstPlayerBoxes;
+            secondPlayerBoxes = state.secondPlayerBoxes;
+            stateHash = state.stateHash;
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return edges == allEdges;
+        }
+
+        @Override
+        public double getOutcomeForRole(int role) {
+            return getOutcomes().get(role);
+        }
+
+        @Override
+        public List<Double> getOutcomes() {
+            return DotsAndBoxes.this.getOutcomes(firstPlayerBoxes, secondPlayerBoxes);
+        }
+
+        @Override
+        public int getRoleToMove() {
+            return roleToMove;
+        }
+
+        @Override
+        protected int getNumPossibleMoves() {
+            return numEdges - Long.bitCount(edges);
+        }
+
+        @Override
+        protected Move getPossibleMove(int moveIndex) {
+            return moves[findMove(~edges & allEdges, moveIndex)];
+        }
+
+        @Override
+        public void applyMove(int moveIndex) {
+            int edge = findMove(~edges & allEdges, moveIndex);
+            undoStack[3 * depth] = edges;
+            undoStack[3 * depth + 1] = stateHash;
+            undoStack[3 * depth + 2] = roleToMove | (firstPlayerBoxes << 1) | (secondPlayerBoxes << 8);
+            depth++;
+            edges |= 1L << edge;
+            stateHash ^= edgeHashKeys[edge];
+            int completed = countBoxesCompletedBy(edge, edges);
+            if (completed == 0) {
+                roleToMove = 1 - roleToMove;
+                stateHash ^= secondPlayerToMoveHashKey;
+            } else if (roleToMove == 0) {
+                stateHash ^= firstPlayerBoxesHashKeys[firstPlayerBoxes]
+                        ^ firstPlayerBoxesHashKeys[firstPlayerBoxes + completed];
+                firstPlayerBoxes += completed;
+            } else {
+                secondPlayerBoxes += completed;
+            }
+        }
+
+        @Override
+        public void undoMoves() {
+            if (depth == 0) {
+                throw new IllegalStateException("There are no moves to undo");
+            }
+            depth--;
+            edges = undoStack[3 * depth];
+            stateHash = undoStack[3 * depth + 1];
+            int packed = (int) undoStack[3 * depth + 2];
+            roleToMove = packed & 1;
+            firstPlayerBoxes = (packed >> 1) & 0x7F;
+            secondPlayerBoxes = packed >> 8;
+        }
+
+        // Works on local copies, so there's nothing to restore afterwards. The hash is left alone.
+        @Override
+        public List<Double> playoutToTerminal(Random random) {
+            long playoutEdges = edges;
+            int[] boxes = {firstPlayerBoxes, secondPlayerBoxes};
+            int role = roleToMove;
+            while (playoutEdges != allEdges) {
+                int numMoves = numEdges - Long.bitCount(playoutEdges);
+                int edge = findMove(~playoutEdges & allEdges, (numMoves > 1) ? random.nextInt(numMoves) : 0);
+                playoutEdges |= 1L << edge;
+                int completed = countBoxesCompletedBy(edge, playoutEdges);
+                if (completed == 0) {
+                    role = 1 - role;
+                } else {
+                    boxes[role] += completed;
+                }
+            }
+            return DotsAndBoxes.this.getOutcomes(boxes[0], boxes[1]);
+        }
+
+        @Override
+        public long getStateHash() {
+            return stateHash;
+        }
+
+        @Override
+        public int getDepth() {
+            return depth;
+        }
+
+        @Override
+        public GameState getCurrentState() {
+            return new DotsAndBoxesGameState(edges, roleToMove, firstPlayerBoxes, secondPlayerBoxes, stateHash);
+        }
+    }
+}
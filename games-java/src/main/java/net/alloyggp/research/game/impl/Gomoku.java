@@ -0,0 +1,668 @@
+package net.alloyggp.research.game.impl;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import net.alloyggp.research.GameState;
+import net.alloyggp.research.GameStateCursor;
+import net.alloyggp.research.GameTreeProvider;
+import net.alloyggp.research.Move;
+
+/*
+ * Cells are numbered row by row, and named "( mark x y )" with the 1-based column and row.
+ * Black moves first, and five or more stones of one color in a line wins. A full board with
+ * no line of five is a draw. A win can only come from the stone just placed, so instead of
+ * rescanning the board, each move only counts the stones in line with the new one, at most
+ * four in each direction.
+ *
+ * Without Swap2, role 0 is black. With Swap2, the colors aren't settled until after the
+ * opening:
+ * - Role 0 places three stones: black, white, then black.
+ * - Role 1 then either places a white stone, taking white; takes black with "chooseBlack",
+ *   leaving white to role 0, who moves next; or uses "placeTwo" to place a black stone and
+ *   then a white one.
+ * - After placeTwo, role 0 makes the same choice between placing a white stone and taking
+ *   black, but can't place two more.
+ * Play then alternates as usual.
+ */
+public class Gomoku implements GameTreeProvider {
+    private static final String CHOOSE_BLACK_MOVE_NAME = "chooseBlack";
+    private static final String PLACE_TWO_MOVE_NAME = "placeTwo";
+    private static final ImmutableList<Double> FIRST_PLAYER_WIN_OUTCOMES = ImmutableList.of(1.0, 0.0);
+    private static final ImmutableList<Double> SECOND_PLAYER_WIN_OUTCOMES = ImmutableList.of(0.0, 1.0);
+    private static final ImmutableList<Double> DRAW_OUTCOMES = ImmutableList.of(0.5, 0.5);
+    private static final int NO_WINNER = -1;
+    // Cell contents
+    private static final byte EMPTY = 0;
+    private static final byte BLACK = 1;
+    private static final byte WHITE = 2;
+    // Phases of the game; all but PLAYING are only used with Swap2
+    private static final int PLAYING = 0;
+    private static final int OPENING = 1;
+    private static final int FIRST_CHOICE = 2;
+    private static final int EXTENSION = 3;
+    private static final int SECOND_CHOICE = 4;
+    private static final int NUM_PHASES = 5;
+    // Pseudo-cells used by findMove for the moves that don't place a stone
+    private static final int CHOOSE_BLACK = -1;
+    private static final int PLACE_TWO = -2;
+    private static final int[] X_DIFFS = {1, 0, 1, 1};
+    private static final int[] Y_DIFFS = {0, 1, 1, -1};
+
+    private final int size;
+    private final boolean swap2;
+    private final int numCells;
+    private final GomokuMove[] placeMoves;
+    private final GomokuMove chooseBlackMove;
+    private final GomokuMove placeTwoMove;
+    // Keyed by (color - 1) * numCells + cell
+    private final long[] hashKeys;
+    private final long[] phaseHashKeys;
+    private final long secondPlayerBlackHashKey;
+
+    public Gomoku(int size, boolean swap2) {
+        Preconditions.checkArgument(size >= 5, "The board must have room for a line of five");
+        this.size = size;
+        this.swap2 = swap2;
+        this.numCells = size * size;
+        this.placeMoves = new GomokuMove[numCells];
+        for (int cell = 0; cell < numCells; cell++) {
+            placeMoves[cell] = new GomokuMove(cell, "( mark " + (cell % size + 1) + " " + (cell / size + 1) + " )");
+        }
+        this.chooseBlackMove = new GomokuMove(CHOOSE_BLACK, CHOOSE_BLACK_MOVE_NAME);
+        this.placeTwoMove = new GomokuMove(PLACE_TWO, PLACE_TWO_MOVE_NAME);
+        this.hashKeys = ZobristKeys.create(2 * numCells, 0x60E0L);
+        long[] phaseHashKeys = ZobristKeys.create(NUM_PHASES, 0x60E1L);
+        // Leave the usual phase out of the hash, as with the first player to move
+        phaseHashKeys[PLAYING] = 0L;
+        this.phaseHashKeys = phaseHashKeys;
+        this.secondPlayerBlackHashKey = ZobristKeys.create(1, 0x60E2L)[0];
+    }
+
+    @Override
+    public GameState getInitialState() {
+        byte[] cells = new byte[numCells];
+        int phase = swap2 ? OPENING : PLAYING;
+        return new GomokuGameState(cells, phase, 0, NO_WINNER, computeStateHash(cells, phase, 0));
+    }
+
+    /*
+     * States are encoded as one byte for the phase and which role is black, followed by the
+     * cells at 2 bits apiece. Whether there's a winner is worked out again from the cells.
+     */
+    private static final int ENCODING_VERSION = 1;
+
+    @Override
+    public GameState decode(ByteBuffer buffer) {
+        int flags = buffer.get();
+        int phase = flags & 7;
+        int blackRole = (flags >> 3) & 1;
+        if ((flags & ~15) != 0 || phase >= NUM_PHASES || (phase != PLAYING && !swap2)) {
+            throw new IllegalArgumentException("Invalid encoded Gomoku state flags: " + flags);
+        }
+        byte[] cells = new byte[numCells];
+        int packed = 0;
+        for (int cell = 0; cell < numCells; cell++) {
+            if (cell % 4 == 0) {
+                packed = buffer.get();
+            }
+            cells[cell] = (byte) ((packed >> (2 * (cell % 4))) & 3);
+            if (cells[cell] > WHITE) {
+                throw new IllegalArgumentException("Invalid encoded Gomoku cell: " + cells[cell]);
+            }
+        }
+        int winner = NO_WINNER;
+        for (int cell = 0; cell < numCells && winner == NO_WINNER; cell++) {
+            if (cells[cell] != EMPTY && completesLine(cells, cell)) {
+                winner = (cells[cell] == BLACK) ? blackRole : 1 - blackRole;
+            }
+        }
+        return new GomokuGameState(cells, phase, blackRole, winner, computeStateHash(cells, phase, blackRole));
+    }
+
+    @Override
+    public int getEncodingVersion() {
+        return ENCODING_VERSION;
+    }
+
+    private long computeStateHash(byte[] cells, int phase, int blackRole) {
+        long hash = phaseHashKeys[phase] ^ getBlackRoleHash(blackRole);
+        for (int cell = 0; cell < numCells; cell++) {
+            if (cells[cell] != EMPTY) {
+                hash ^= hashKeys[(cells[cell] - 1) * numCells + cell];
+            }
+        }
+        return hash;
+    }
+
+    private long getBlackRoleHash(int blackRole) {
+        return (blackRole == 1) ? secondPlayerBlackHashKey : 0L;
+    }
+
+    /*
+     * Colors alternate with each stone placed, except that placeTwo starts with a black
+     * stone where white would otherwise be next.
+     */
+    private static byte getColorToPlace(int numStones, int phase) {
+        boolean blackToPlace = (numStones % 2 == 0) != (phase == EXTENSION);
+        return blackToPlace ? BLACK : WHITE;
+    }
+
+    private static int getRoleToMove(int phase, int blackRole, byte colorToPlace) {
+        switch (phase) {
+        case PLAYING:
+            return (colorToPlace == BLACK) ? blackRole : 1 - blackRole;
+        case OPENING:
+        case SECOND_CHOICE:
+            return 0;
+        case FIRST_CHOICE:
+        case EXTENSION:
+            return 1;
+        default:
+            throw new IllegalArgumentException("Invalid phase " + phase);
+        }
+    }
+
+    // Returns the phase after a stone is placed, leaving the given number of stones
+    private static int getPhaseAfterPlacing(int phase, int numStones) {
+        if (phase == OPENING && numStones == 3) {
+            return FIRST_CHOICE;
+        } else if (phase == EXTENSION && numStones == 5) {
+            return SECOND_CHOICE;
+        } else if (phase == FIRST_CHOICE || phase == SECOND_CHOICE) {
+            return PLAYING;
+        }
+        return phase;
+    }
+
+    /*
+     * Returns which role is black after a move in the given phase. Placing a stone in a
+     * choice phase takes white, and choosing black takes black.
+     */
+    private static int getBlackRoleAfterMove(int phase, int blackRole, int cell) {
+        if (phase == FIRST_CHOICE || phase == SECOND_CHOICE) {
+            int chooser = (phase == FIRST_CHOICE) ? 1 : 0;
+            if (cell == CHOOSE_BLACK) {
+                return chooser;
+            } else if (cell >= 0) {
+                return 1 - chooser;
+            }
+        }
+        return blackRole;
+    }
+
+    // Returns true if the stone in the given cell is part of a line of five or more
+    private boolean completesLine(byte[] cells, int cell) {
+        byte color = cells[cell];
+        int x = cell % size;
+        int y = cell / size;
+        for (int direction = 0; direction < 4; direction++) {
+            int lineLength = 1
+                    + countInDirection(cells, color, x, y, X_DIFFS[direction], Y_DIFFS[direction])
+                    + countInDirection(cells, color, x, y, -X_DIFFS[direction], -Y_DIFFS[direction]);
+            if (lineLength >= 5) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Counts up to four stones of the given color in a row, starting next to (x, y)
+    private int countInDirection(byte[] cells, byte color, int x, int y, int xDiff, int yDiff) {
+        int count = 0;
+        int curX = x + xDiff;
+        int curY = y + yDiff;
+        while (count < 4 && curX >= 0 && curX < size && curY >= 0 && curY < size
+                && cells[curY * size + curX] == color) {
+            count++;
+            curX += xDiff;
+            curY += yDiff;
+        }
+        return count;
+    }
+
+    private static List<Double> getOutcomes(int winner) {
+        if (winner == NO_WINNER) {
+            return DRAW_OUTCOMES;
+        }
+        return (winner == 0) ? FIRST_PLAYER_WIN_OUTCOMES : SECOND_PLAYER_WIN_OUTCOMES;
+    }
+
+    private static int getNumChoiceMoves(int phase) {
+        if (phase == FIRST_CHOICE) {
+            return 2;
+        } else if (phase == SECOND_CHOICE) {
+            return 1;
+        }
+        return 0;
+    }
+
+    // Returns the move with the given index: first the empty cells in order, then any choices
+    private int findMove(byte[] cells, int phase, int moveIndex) {
+        int movesLeft = moveIndex;
+        for (int cell = 0; cell < numCells; cell++) {
+            if (cells[cell] == EMPTY) {
+                if (movesLeft == 0) {
+                    return cell;
+                }
+                movesLeft--;
+            }
+        }
+        if (movesLeft < getNumChoiceMoves(phase)) {
+            return (movesLeft == 0) ? CHOOSE_BLACK : PLACE_TWO;
+        }
+        throw new IndexOutOfBoundsException("Move index " + moveIndex + " out of bounds");
+    }
+
+    private GomokuMove getMove(int cell) {
+        if (cell == CHOOSE_BLACK) {
+            return chooseBlackMove;
+        } else if (cell == PLACE_TWO) {
+            return placeTwoMove;
+        }
+        return placeMoves[cell];
+    }
+
+    private static class GomokuMove extends Move {
+        // The cell placed in, or CHOOSE_BLACK or PLACE_TWO
+        private final int cell;
+        private final String name;
+        private GomokuMove(int cell, String name) {
+            this.cell = cell;
+            this.name = name;
+        }
+        @Override
+        public int hashCode() {
+            return cell;
+        }
+        @Override
+        public boolean equals(Object other) {
+            // These are interned per game
+            return other == this;
+        }
+        @Override
+        public String toString() {
+            return "GomokuMove [" + name + "]";
+        }
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static final class GomokuStateKey {
+        private final byte[] cells;
+        private final int phase;
+        private final int blackRole;
+
+        private GomokuStateKey(byte[] cells, int phase, int blackRole) {
+            this.cells = cells;
+            this.phase = phase;
+            this.blackRole = blackRole;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(Arrays.hashCode(cells), phase, blackRole);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null)
+                return false;
+            if (getClass() != obj.getClass())
+                return false;
+            GomokuStateKey other = (GomokuStateKey) obj;
+            return phase == other.phase
+                    && blackRole == other.blackRole
+                    && Arrays.equals(cells, other.cells);
+        }
+    }
+
+    /**
+     * The cells are copied for each new state and never modified afterwards, so states can
+     * be shared between threads.
+     */
+    private class GomokuGameState extends AbstractTurnTakingGameState {
+        private final byte[] cells;
+        private final int phase;
+        // Only meaningful once the colors are settled, and 0 until then
+        private final int blackRole;
+        private final long stateHash;
+        private final int winner;
+        private final int numEmptyCells;
+        private final byte colorToPlace;
+        private final int roleToMove;
+
+        private GomokuGameState(byte[] cells, int phase, int blackRole, int winner, long stateHash) {
+            this.cells = cells;
+            this.phase = phase;
+            this.blackRole = blackRole;
+            this.winner = winner;
+            this.stateHash = stateHash;
+            int numEmptyCells = 0;
+            for (byte cell : cells) {
+                if (cell == EMPTY) {
+                    numEmptyCells++;
+                }
+            }
+            this.numEmptyCells = numEmptyCells;
+            this.colorToPlace = getColorToPlace(numCells - numEmptyCells, phase);
+            this.roleToMove = Gomoku.getRoleToMove(phase, blackRole, colorToPlace);
+        }
+
+        @Override
+        protected Move parseMove(String name) {
+            if (swap2 && name.equals(CHOOSE_BLACK_MOVE_NAME)) {
+                return chooseBlackMove;
+            } else if (swap2 && name.equals(PLACE_TWO_MOVE_NAME)) {
+                return placeTwoMove;
+            }
+            for (GomokuMove move : placeMoves) {
+                if (move.name.equals(name)) {
+                    return move;
+                }
+            }
+            throw new IllegalArgumentException("Not a Gomoku move: " + name);
+        }
+
+        @Override
+        public int getRoleToMove() {
+            return roleToMove;
+        }
+
+        @Override
+        public int getNumPossibleMoves() {
+            return numEmptyCells + getNumChoiceMoves(phase);
+        }
+
+        @Override
+        public Move getPossibleMove(int moveIndex) {
+            return getMove(findMove(cells, phase, moveIndex));
+        }
+
+        @Override
+        public List<Move> getPossibleMoves() {
+            List<Move> moves = Lists.newArrayListWithCapacity(getNumPossibleMoves());
+            for (int cell = 0; cell < numCells; cell++) {
+                if (cells[cell] == EMPTY) {
+                    moves.add(placeMoves[cell]);
+                }
+            }
+            int numChoiceMoves = getNumChoiceMoves(phase);
+            if (numChoiceMoves >= 1) {
+                moves.add(chooseBlackMove);
+            }
+            if (numChoiceMoves >= 2) {
+                moves.add(placeTwoMove);
+            }
+            return moves;
+        }
+
+        @Override
+        public GomokuGameState getNextStateFromMoveIndex(int moveIndex) {
+            return getNextState(findMove(cells, phase, moveIndex));
+        }
+
+        @Override
+        public GomokuGameState getNextState(Move moveTaken) {
+            return getNextState(((GomokuMove) moveTaken).cell);
+        }
+
+        private GomokuGameState getNextState(int cell) {
+            int newBlackRole = getBlackRoleAfterMove(phase, blackRole, cell);
+            if (cell < 0) {
+                int newPhase = (cell == PLACE_TWO) ? EXTENSION : PLAYING;
+                long newStateHash = stateHash ^ phaseHashKeys[phase] ^ phaseHashKeys[newPhase]
+                        ^ getBlackRoleHash(blackRole) ^ getBlackRoleHash(newBlackRole);
+                return new GomokuGameState(cells, newPhase, newBlackRole, NO_WINNER, newStateHash);
+            }
+            byte[] newCells = cells.clone();
+            newCells[cell] = colorToPlace;
+            int newPhase = getPhaseAfterPlacing(phase, numCells - numEmptyCells + 1);
+            int newWinner = completesLine(newCells, cell) ? roleToMove : NO_WINNER;
+            long newStateHash = stateHash ^ hashKeys[(colorToPlace - 1) * numCells + cell]
+                    ^ phaseHashKeys[phase] ^ phaseHashKeys[newPhase]
+                    ^ getBlackRoleHash(blackRole) ^ getBlackRoleHash(newBlackRole);
+            return new GomokuGameState(newCells, newPhase, newBlackRole, newWinner, newStateHash);
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return true;
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return winner != NO_WINNER || numEmptyCells == 0;
+        }
+
+        @Override
+        public double getOutcomeForRole(int role) {
+            return Gomoku.getOutcomes(winner).get(role);
+        }
+
+        @Override
+        public List<Double> getOutcomes() {
+            return Gomoku.getOutcomes(winner);
+        }
+
+        @Override
+        public GameStateCursor createCursor() {
+            return new GomokuCursor(this);
+        }
+
+        @Override
+        public long getStateHash() {
+            return stateHash;
+        }
+
+        @Override
+        public Object getStateKey() {
+            return new GomokuStateKey(cells, phase, blackRole);
+        }
+
+        @Override
+        public void encode(ByteBuffer buffer) {
+            buffer.put((byte) (phase | (blackRole << 3)));
+            int packed = 0;
+            for (int cell = 0; cell < numCells; cell++) {
+                packed |= cells[cell] << (2 * (cell % 4));
+                if (cell % 4 == 3 || cell == numCells - 1) {
+                    buffer.put((byte) packed);
+                    packed = 0;
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("GomokuGameState [phase=").append(phase)
+                    .append(", blackRole=").append(blackRole).append('\n');
+            for (int y = size - 1; y >= 0; y--) {
+                for (int x = 0; x < size; x++) {
+                    sb.append(".XO".charAt(cells[y * size + x]));
+                }
+                sb.append('\n');
+            }
+            return sb.append(']').toString();
+        }
+    }
+
+    /**
+     * Keeps one set of cells and modifies it in place. Each move only changes at most one
+     * cell, so undoing one just needs that cell plus the phase and colors from before it.
+     */
+    private class GomokuCursor extends AbstractTurnTakingCursor {
+        private final byte[] cells;
+        private int phase;
+        private int blackRole;
+        private int winner;
+        private long stateHash;
+        private int numEmptyCells;
+        // Triples of (cell, phase, black role) from before each move
+        private final int[] undoStack;
+        private int depth = 0;
+        // Scratch space for playouts
+        private final byte[] playoutCells = new byte[numCells];
+        private final int[] playoutEmptyCells = new int[numCells];
+
+        private GomokuCursor(GomokuGameState state) {
+            cells = state.cells.clone();
+            phase = state.phase;
+            blackRole = state.blackRole;
+            winner = state.winner;
+            stateHash = state.stateHash;
+            numEmptyCells = state.numEmptyCells;
+            // Every move but the two choices fills a cell
+            undoStack = new int[3 * (numEmptyCells + 2)];
+        }
+
+        private byte getCursorColorToPlace() {
+            return getColorToPlace(numCells - numEmptyCells, phase);
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return winner != NO_WINNER || numEmptyCells == 0;
+        }
+
+        @Override
+        public double getOutcomeForRole(int role) {
+            return Gomoku.getOutcomes(winner).get(role);
+        }
+
+        @Override
+        public List<Double> getOutcomes() {
+            return Gomoku.getOutcomes(winner);
+        }
+
+        @Override
+        public int getRoleToMove() {
+            return Gomoku.getRoleToMove(phase, blackRole, getCursorColorToPlace());
+        }
+
+        @Override
+        protected int getNumPossibleMoves() {
+            return numEmptyCells + getNumChoiceMoves(phase);
+        }
+
+        @Override
+        protected Move getPossibleMove(int moveIndex) {
+            return getMove(findMove(cells, phase, moveIndex));
+        }
+
+        @Override
+        public void applyMove(int moveIndex) {
+            int cell = findMove(cells, phase, moveIndex);
+            undoStack[3 * depth] = cell;
+            undoStack[3 * depth + 1] = phase;
+            undoStack[3 * depth + 2] = blackRole;
+            depth++;
+            int newBlackRole = getBlackRoleAfterMove(phase, blackRole, cell);
+            int newPhase;
+            if (cell < 0) {
+                newPhase = (cell == PLACE_TWO) ? EXTENSION : PLAYING;
+            } else {
+                byte color = getCursorColorToPlace();
+                int roleToMove = getRoleToMove();
+                cells[cell] = color;
+                numEmptyCells--;
+                stateHash ^= hashKeys[(color - 1) * numCells + cell];
+                newPhase = getPhaseAfterPlacing(phase, numCells - numEmptyCells);
+                if (completesLine(cells, cell)) {
+                    winner = roleToMove;
+                }
+            }
+            stateHash ^= phaseHashKeys[phase] ^ phaseHashKeys[newPhase]
+                    ^ getBlackRoleHash(blackRole) ^ getBlackRoleHash(newBlackRole);
+            phase = newPhase;
+            blackRole = newBlackRole;
+        }
+
+        @Override
+        public void undoMoves() {
+            if (depth == 0) {
+                throw new IllegalStateException("There are no moves to undo");
+            }
+            depth--;
+            int cell = undoStack[3 * depth];
+            int oldPhase = undoStack[3 * depth + 1];
+            int oldBlackRole = undoStack[3 * depth + 2];
+            stateHash ^= phaseHashKeys[phase] ^ phaseHashKeys[oldPhase]
+                    ^ getBlackRoleHash(blackRole) ^ getBlackRoleHash(oldBlackRole);
+            if (cell >= 0) {
+                stateHash ^= hashKeys[(cells[cell] - 1) * numCells + cell];
+                cells[cell] = EMPTY;
+                numEmptyCells++;
+            }
+            phase = oldPhase;
+            blackRole = oldBlackRole;
+            // Nothing can be played after a win, so there was no winner before this move
+            winner = NO_WINNER;
+        }
+
+        /*
+         * Plays out on scratch copies of the board. Empty cells are kept in an array and
+         * chosen uniformly with swap-remove, rather than by their position in the move list.
+         */
+        @Override
+        public List<Double> playoutToTerminal(Random random) {
+            if (isTerminal()) {
+                return Gomoku.getOutcomes(winner);
+            }
+            if (phase != PLAYING) {
+                // Play the opening through the normal path, so the choices are offered as usual
+                applyMove(random.nextInt(getNumPossibleMoves()));
+                List<Double> outcomes = playoutToTerminal(random);
+                undoMoves();
+                return outcomes;
+            }
+            System.arraycopy(cells, 0, playoutCells, 0, numCells);
+            int numEmpty = 0;
+            for (int cell = 0; cell < numCells; cell++) {
+                if (cells[cell] == EMPTY) {
+                    playoutEmptyCells[numEmpty++] = cell;
+                }
+            }
+            byte color = getCursorColorToPlace();
+            int role = getRoleToMove();
+            while (numEmpty > 0) {
+                int chosenIndex = random.nextInt(numEmpty);
+                int cell = playoutEmptyCells[chosenIndex];
+                playoutEmptyCells[chosenIndex] = playoutEmptyCells[--numEmpty];
+                playoutCells[cell] = color;
+                if (completesLine(playoutCells, cell)) {
+                    return Gomoku.getOutcomes(role);
+                }
+                color = (color == BLACK) ? WHITE : BLACK;
+                role = 1 - role;
+            }
+            return DRAW_OUTCOMES;
+        }
+
+        @Override
+        public long getStateHash() {
+            return stateHash;
+        }
+
+        @Override
+        public int getDepth() {
+            return depth;
+        }
+
+        @Override
+        public GameState getCurrentState() {
+            return new GomokuGameState(cells.clone(), phase, blackRole, winner, stateHash);
+        }
+    }
+}
@@ -0,0 +1,726 @@
+package net.alloyggp.research.game.impl;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import net.alloyggp.research.GameState;
+import net.alloyggp.research.GameStateCursor;
+import net.alloyggp.research.GameTreeProvider;
+import net.alloyggp.research.Move;
+
+/*
+ * Cells are numbered row by row. Rows are lettered and columns numbered in move names, as
+ * in the GDL versions of the game. Role 0 moves first and connects the first and last rows;
+ * role 1 connects the first and last columns. Cell (row, column) borders the cells left and
+ * right of it, the cells above and below it, and the cells at (row - 1, column + 1) and
+ * (row + 1, column - 1).
+ *
+ * With the pie rule, role 1 may answer the first move by swapping, which replaces role 0's
+ * piece with one of its own, mirrored across the long diagonal. That is the same as the
+ * players trading sides, without the roles changing. Role 0 then moves next.
+ *
+ * Connectivity is tracked with a union-find structure over the cells, plus one extra node
+ * for each of the four edges. A player has won once their two edges are in the same set.
+ * There are no draws, since a full board always has exactly one winner.
+ */
+public class Hex implements GameTreeProvider {
+    private static final String SWAP_MOVE_NAME = "swap";
+    private static final ImmutableList<Double> FIRST_PLAYER_WIN_OUTCOMES = ImmutableList.of(1.0, 0.0);
+    private static final ImmutableList<Double> SECOND_PLAYER_WIN_OUTCOMES = ImmutableList.of(0.0, 1.0);
+    // Only seen in non-terminal states
+    private static final ImmutableList<Double> NO_WINNER_OUTCOMES = ImmutableList.of(0.5, 0.5);
+    private static final int NO_WINNER = -1;
+    // Cell contents; a player's piece is their role index plus one
+    private static final byte EMPTY = 0;
+
+    private final int size;
+    private final boolean pieRule;
+    private final int numCells;
+    private final int[][] neighbors;
+    private final HexMove[] placeMoves;
+    private final HexMove swapMove;
+    // Keyed by role * numCells + cell
+    private final long[] hashKeys;
+    private final long secondPlayerToMoveHashKey;
+
+    public Hex(int size, boolean pieRule) {
+        Preconditions.checkArgument(size >= 2 && size <= 26, "Rows are lettered, so there can be at most 26");
+        this.size = size;
+        this.pieRule = pieRule;
+        this.numCells = size * size;
+        this.neighbors = new int[numCells][];
+        this.placeMoves = new HexMove[numCells];
+        int[] rowDiffs = {0, 0, -1, 1, -1, 1};
+        int[] columnDiffs = {-1, 1, 0, 0, 1, -1};
+        for (int cell = 0; cell < numCells; cell++) {
+            int row = cell / size;
+            int column = cell % size;
+            List<Integer> cellNeighbors = Lists.newArrayList();
+            for (int direction = 0; direction < 6; direction++) {
+                int newRow = row + rowDiffs[direction];
+                int newColumn = column + columnDiffs[direction];
+                if (newRow >= 0 && newRow < size && newColumn >= 0 && newColumn < size) {
+                    cellNeighbors.add(newRow * size + newColumn);
+                }
+            }
+            neighbors[cell] = cellNeighbors.stream().mapToInt(i -> i).toArray();
+            placeMoves[cell] = new HexMove(cell, "( place " + (char) ('a' + row) + " " + (column + 1) + " )");
+        }
+        this.swapMove = new HexMove(-1, SWAP_MOVE_NAME);
+        this.hashKeys = ZobristKeys.create(2 * numCells, 0x4E7L);
+        this.secondPlayerToMoveHashKey = ZobristKeys.create(1, 0x4E72L)[0];
+    }
+
+    @Override
+    public GameState getInitialState() {
+        byte[] cells = new byte[numCells];
+        return new HexGameState(cells, createUnionFind(cells), 0, false, 0L);
+    }
+
+    /*
+     * States are encoded as one byte for the role to move and whether the swap is still
+     * available, followed by the cells at 2 bits apiece.
+     */
+    private static final int ENCODING_VERSION = 1;
+
+    @Override
+    public GameState decode(ByteBuffer buffer) {
+        int flags = buffer.get();
+        if ((flags & ~3) != 0) {
+            throw new IllegalArgumentException("Invalid encoded Hex state flags: " + flags);
+        }
+        int roleToMove = flags & 1;
+        boolean swapAvailable = (flags & 2) != 0;
+        byte[] cells = new byte[numCells];
+        int packed = 0;
+        for (int cell = 0; cell < numCells; cell++) {
+            if (cell % 4 == 0) {
+                packed = buffer.get();
+            }
+            cells[cell] = (byte) ((packed >> (2 * (cell % 4))) & 3);
+            if (cells[cell] > 2) {
+                throw new IllegalArgumentException("Invalid encoded Hex cell: " + cells[cell]);
+            }
+        }
+        if (swapAvailable && !pieRule) {
+            throw new IllegalArgumentException("The swap is only available with the pie rule");
+        }
+        return new HexGameState(cells, createUnionFind(cells), roleToMove, swapAvailable,
+                computeStateHash(cells, roleToMove));
+    }
+
+    @Override
+    public int getEncodingVersion() {
+        return ENCODING_VERSION;
+    }
+
+    private long computeStateHash(byte[] cells, int roleToMove) {
+        long hash = (roleToMove == 1) ? secondPlayerToMoveHashKey : 0L;
+        for (int cell = 0; cell < numCells; cell++) {
+            if (cells[cell] != EMPTY) {
+                hash ^= hashKeys[(cells[cell] - 1) * numCells + cell];
+            }
+        }
+        return hash;
+    }
+
+    /*
+     * The union-find structure is an array of parents, with the four edge nodes after the
+     * cells. A node that is its own parent is the root of its set.
+     */
+    private int getEdgeNode(int role, boolean farEdge) {
+        return numCells + 2 * role + (farEdge ? 1 : 0);
+    }
+
+    private int[] createUnionFind(byte[] cells) {
+        int[] parents = new int[numCells + 4];
+        for (int node = 0; node < parents.length; node++) {
+            parents[node] = node;
+        }
+        for (int cell = 0; cell < numCells; cell++) {
+            if (cells[cell] != EMPTY) {
+                connectPiece(cells, parents, cell, cells[cell] - 1);
+            }
+        }
+        return parents;
+    }
+
+    private static int find(int[] parents, int node) {
+        while (parents[node] != node) {
+            // Path halving
+            parents[node] = parents[parents[node]];
+            node = parents[node];
+        }
+        return node;
+    }
+
+    private static void union(int[] parents, int node1, int node2) {
+        int root1 = find(parents, node1);
+        int root2 = find(parents, node2);
+        if (root1 != root2) {
+            parents[root1] = root2;
+        }
+    }
+
+    // Joins a newly placed piece to its edges and to neighboring pieces of the same player
+    private void connectPiece(byte[] cells, int[] parents, int cell, int role) {
+        int lineIndex = (role == 0) ? cell / size : cell % size;
+        if (lineIndex == 0) {
+            union(parents, cell, getEdgeNode(role, false));
+        } else if (lineIndex == size - 1) {
+            union(parents, cell, getEdgeNode(role, true));
+        }
+        for (int neighbor : neighbors[cell]) {
+            if (cells[neighbor] == cells[cell]) {
+                union(parents, cell, neighbor);
+            }
+        }
+    }
+
+    private int getWinner(int[] parents) {
+        for (int role = 0; role < 2; role++) {
+            if (find(parents, getEdgeNode(role, false)) == find(parents, getEdgeNode(role, true))) {
+                return role;
+            }
+        }
+        return NO_WINNER;
+    }
+
+    private int getMirroredCell(int cell) {
+        return (cell % size) * size + cell / size;
+    }
+
+    private static List<Double> getOutcomes(int winner) {
+        if (winner == NO_WINNER) {
+            return NO_WINNER_OUTCOMES;
+        }
+        return (winner == 0) ? FIRST_PLAYER_WIN_OUTCOMES : SECOND_PLAYER_WIN_OUTCOMES;
+    }
+
+    // Returns the move with the given index: first the empty cells in order, then the swap
+    private int findMove(byte[] cells, boolean swapAvailable, int moveIndex) {
+        int movesLeft = moveIndex;
+        for (int cell = 0; cell < numCells; cell++) {
+            if (cells[cell] == EMPTY) {
+                if (movesLeft == 0) {
+                    return cell;
+                }
+                movesLeft--;
+            }
+        }
+        if (swapAvailable && movesLeft == 0) {
+            return -1;
+        }
+        throw new IndexOutOfBoundsException("Move index " + moveIndex + " out of bounds");
+    }
+
+    private static class HexMove extends Move {
+        // The cell placed in, or -1 for the swap
+        private final int cell;
+        private final String name;
+        private HexMove(int cell, String name) {
+            this.cell = cell;
+            this.name = name;
+        }
+        @Override
+        public int hashCode() {
+            return cell;
+        }
+        @Override
+        public boolean equals(Object other) {
+            // These are interned per game
+            return other == this;
+        }
+        @Override
+        public String toString() {
+            return "HexMove [" + name + "]";
+        }
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static final class HexStateKey {
+        private final byte[] cells;
+        private final int roleToMove;
+        private final boolean swapAvailable;
+
+        private HexStateKey(byte[] cells, int roleToMove, boolean swapAvailable) {
+            this.cells = cells;
+            this.roleToMove = roleToMove;
+            this.swapAvailable = swapAvailable;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(Arrays.hashCode(cells), roleToMove, swapAvailable);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null)
+                return false;
+            if (getClass() != obj.getClass())
+                return false;
+            HexStateKey other = (HexStateKey) obj;
+            return roleToMove == other.roleToMove
+                    && swapAvailable == other.swapAvailable
+                    && Arrays.equals(cells, other.cells);
+        }
+    }
+
+    /**
+     * The cells and union-find structure are copied for each new state and never modified
+     * afterwards, so states can be shared between threads.
+     */
+    private class HexGameState extends AbstractTurnTakingGameState {
+        private final byte[] cells;
+        private final int[] parents;
+        private final int roleToMove;
+        private final boolean swapAvailable;
+        private final long stateHash;
+        private final int numEmptyCells;
+        private final int winner;
+
+        private HexGameState(byte[] cells, int[] parents, int roleToMove, boolean swapAvailable, long stateHash) {
+            this.cells = cells;
+            this.parents = parents;
+            this.roleToMove = roleToMove;
+            this.swapAvailable = swapAvailable;
+            this.stateHash = stateHash;
+            int numEmptyCells = 0;
+            for (byte cell : cells) {
+                if (cell == EMPTY) {
+                    numEmptyCells++;
+                }
+            }
+            this.numEmptyCells = numEmptyCells;
+            this.winner = getWinner(parents);
+        }
+
+        @Override
+        protected Move parseMove(String name) {
+            if (name.equals(SWAP_MOVE_NAME) && pieRule) {
+                return swapMove;
+            }
+            for (HexMove move : placeMoves) {
+                if (move.name.equals(name)) {
+                    return move;
+                }
+            }
+            throw new IllegalArgumentException("Not a Hex move: " + name);
+        }
+
+        @Override
+        public int getRoleToMove() {
+            return roleToMove;
+        }
+
+        @Override
+        public int getNumPossibleMoves() {
+            return numEmptyCells + (swapAvailable ? 1 : 0);
+        }
+
+        @Override
+        public Move getPossibleMove(int moveIndex) {
+            int cell = findMove(cells, swapAvailable, moveIndex);
+            return (cell >= 0) ? placeMoves[cell] : swapMove;
+        }
+
+        @Override
+        public List<Move> getPossibleMoves() {
+            List<Move> moves = Lists.newArrayListWithCapacity(getNumPossibleMoves());
+            for (int cell = 0; cell < numCells; cell++) {
+                if (cells[cell] == EMPTY) {
+                    moves.add(placeMoves[cell]);
+                }
+            }
+            if (swapAvailable) {
+                moves.add(swapMove);
+            }
+            return moves;
+        }
+
+        @Override
+        public HexGameState getNextStateFromMoveIndex(int moveIndex) {
+            return getNextState(findMove(cells, swapAvailable, moveIndex));
+        }
+
+        @Override
+        public HexGameState getNextState(Move moveTaken) {
+            return getNextState(((HexMove) moveTaken).cell);
+        }
+
+        private HexGameState getNextState(int cell) {
+            byte[] newCells = cells.clone();
+            int[] newParents;
+            long newStateHash = stateHash ^ secondPlayerToMoveHashKey;
+            if (cell < 0) {
+                // The swap; the only piece on the board is the first player's
+                int oldCell = findOnlyPiece();
+                int newCell = getMirroredCell(oldCell);
+                newCells[oldCell] = EMPTY;
+                newCells[newCell] = (byte) (roleToMove + 1);
+                newParents = createUnionFind(newCells);
+                newStateHash ^= hashKeys[oldCell] ^ hashKeys[roleToMove * numCells + newCell];
+            } else {
+                newCells[cell] = (byte) (roleToMove + 1);
+                newParents = parents.clone();
+                connectPiece(newCells, newParents, cell, roleToMove);
+                newStateHash ^= hashKeys[roleToMove * numCells + cell];
+            }
+            // The swap is only ever available as the second player's first move
+            boolean newSwapAvailable = pieRule && roleToMove == 0 && numEmptyCells == numCells;
+            return new HexGameState(newCells, newParents, 1 - roleToMove, newSwapAvailable, newStateHash);
+        }
+
+        private int findOnlyPiece() {
+            for (int cell = 0; cell < numCells; cell++) {
+                if (cells[cell] != EMPTY) {
+                    return cell;
+                }
+            }
+            throw new IllegalStateException("There is no piece to swap");
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return true;
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return winner != NO_WINNER;
+        }
+
+        @Override
+        public double getOutcomeForRole(int role) {
+            return Hex.getOutcomes(winner).get(role);
+        }
+
+        @Override
+        public List<Double> getOutcomes() {
+            return Hex.getOutcomes(winner);
+        }
+
+        @Override
+        public GameStateCursor createCursor() {
+            return new HexCursor(this);
+        }
+
+        @Override
+        public long getStateHash() {
+            return stateHash;
+        }
+
+        @Override
+        public Object getStateKey() {
+            return new HexStateKey(cells, roleToMove, swapAvailable);
+        }
+
+        @Override
+        public void encode(ByteBuffer buffer) {
+            buffer.put((byte) (roleToMove | (swapAvailable ? 2 : 0)));
+            int packed = 0;
+            for (int cell = 0; cell < numCells; cell++) {
+                packed |= cells[cell] << (2 * (cell % 4));
+                if (cell % 4 == 3 || cell == numCells - 1) {
+                    buffer.put((byte) packed);
+                    packed = 0;
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("HexGameState [\n");
+            for (int row = 0; row < size; row++) {
+                for (int i = 0; i < row; i++) {
+                    sb.append(' ');
+                }
+                for (int column = 0; column < size; column++) {
+                    sb.append(".XO".charAt(cells[row * size + column])).append(' ');
+                }
+                sb.append('\n');
+            }
+            return sb.append(']').toString();
+        }
+    }
+
+    /**
+     * Keeps one set of cells and union-find arrays, and logs every change made to them, so
+     * moves can be undone by replaying the log backwards. The union-find here doesn't
+     * compress paths, which would make for many more changes to log; instead it joins
+     * smaller sets into larger ones, which keeps the trees shallow.
+     */
+    private class HexCursor extends AbstractTurnTakingCursor {
+        private final byte[] cells;
+        private final int[] parents;
+        private final int[] setSizes;
+        private int roleToMove;
+        private boolean swapAvailable;
+        private long stateHash;
+        private int numEmptyCells;
+        // Pairs of (index, old value); indices below numCells + 4 are parents, and the rest are set sizes
+        private int[] changeLog = new int[256];
+        private int changeLogLength = 0;
+        // The change log length and swap availability before each move
+        private int[] undoStack = new int[2 * numCells + 2];
+        private int depth = 0;
+        // Scratch space for playouts
+        private final byte[] playoutCells = new byte[numCells];
+        private final int[] playoutParents = new int[numCells + 4];
+        private final int[] playoutEmptyCells = new int[numCells];
+
+        private HexCursor(HexGameState state) {
+            cells = state.cells.clone();
+            parents = new int[numCells + 4];
+            setSizes = new int[numCells + 4];
+            for (int node = 0; node < parents.length; node++) {
+                parents[node] = node;
+                setSizes[node] = 1;
+            }
+            roleToMove = state.roleToMove;
+            swapAvailable = state.swapAvailable;
+            stateHash = state.stateHash;
+            numEmptyCells = state.numEmptyCells;
+            for (int cell = 0; cell < numCells; cell++) {
+                if (cells[cell] != EMPTY) {
+                    connectLoggedPiece(cell, cells[cell] - 1);
+                }
+            }
+            changeLogLength = 0;
+        }
+
+        private int findRoot(int node) {
+            while (parents[node] != node) {
+                node = parents[node];
+            }
+            return node;
+        }
+
+        private void logChange(int index, int oldValue) {
+            if (changeLogLength == changeLog.length) {
+                changeLog = Arrays.copyOf(changeLog, changeLogLength * 2);
+            }
+            changeLog[changeLogLength++] = index;
+            changeLog[changeLogLength++] = oldValue;
+        }
+
+        private void loggedUnion(int node1, int node2) {
+            int root1 = findRoot(node1);
+            int root2 = findRoot(node2);
+            if (root1 == root2) {
+                return;
+            }
+            if (setSizes[root1] > setSizes[root2]) {
+                int temp = root1;
+                root1 = root2;
+                root2 = temp;
+            }
+            logChange(root1, parents[root1]);
+            parents[root1] = root2;
+            logChange(parents.length + root2, setSizes[root2]);
+            setSizes[root2] += setSizes[root1];
+        }
+
+        private void connectLoggedPiece(int cell, int role) {
+            int lineIndex = (role == 0) ? cell / size : cell % size;
+            if (lineIndex == 0) {
+                loggedUnion(cell, getEdgeNode(role, false));
+            } else if (lineIndex == size - 1) {
+                loggedUnion(cell, getEdgeNode(role, true));
+            }
+            for (int neighbor : neighbors[cell]) {
+                if (cells[neighbor] == cells[cell]) {
+                    loggedUnion(cell, neighbor);
+                }
+            }
+        }
+
+        private int getCursorWinner() {
+            for (int role = 0; role < 2; role++) {
+                if (findRoot(getEdgeNode(role, false)) == findRoot(getEdgeNode(role, true))) {
+                    return role;
+                }
+            }
+            return NO_WINNER;
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return getCursorWinner() != NO_WINNER;
+        }
+
+        @Override
+        public double getOutcomeForRole(int role) {
+            return Hex.getOutcomes(getCursorWinner()).get(role);
+        }
+
+        @Override
+        public List<Double> getOutcomes() {
+            return Hex.getOutcomes(getCursorWinner());
+        }
+
+        @Override
+        public int getRoleToMove() {
+            return roleToMove;
+        }
+
+        @Override
+        protected int getNumPossibleMoves() {
+            return numEmptyCells + (swapAvailable ? 1 : 0);
+        }
+
+        @Override
+        protected Move getPossibleMove(int moveIndex) {
+            int cell = findMove(cells, swapAvailable, moveIndex);
+            return (cell >= 0) ? placeMoves[cell] : swapMove;
+        }
+
+        @Override
+        public void applyMove(int moveIndex) {
+            int cell = findMove(cells, swapAvailable, moveIndex);
+            undoStack[2 * depth] = changeLogLength;
+            undoStack[2 * depth + 1] = swapAvailable ? 1 : 0;
+            depth++;
+            boolean newSwapAvailable = pieRule && roleToMove == 0 && numEmptyCells == numCells;
+            if (cell < 0) {
+                // The swap; clear the only piece and its connections, then place the mirrored one
+                int oldCell = findOnlyPiece();
+                int newCell = getMirroredCell(oldCell);
+                setCell(oldCell, EMPTY, 1 - roleToMove);
+                for (int node = 0; node < parents.length; node++) {
+                    if (parents[node] != node) {
+                        logChange(node, parents[node]);
+                        parents[node] = node;
+                    }
+                    if (setSizes[node] != 1) {
+                        logChange(parents.length + node, setSizes[node]);
+                        setSizes[node] = 1;
+                    }
+                }
+                setCell(newCell, (byte) (roleToMove + 1), roleToMove);
+                connectLoggedPiece(newCell, roleToMove);
+            } else {
+                setCell(cell, (byte) (roleToMove + 1), roleToMove);
+                connectLoggedPiece(cell, roleToMove);
+            }
+            swapAvailable = newSwapAvailable;
+            roleToMove = 1 - roleToMove;
+            stateHash ^= secondPlayerToMoveHashKey;
+        }
+
+        // Cell changes are logged with an index past the union-find arrays
+        private void setCell(int cell, byte contents, int role) {
+            logChange(2 * parents.length + cell, cells[cell]);
+            stateHash ^= hashKeys[role * numCells + cell];
+            numEmptyCells += (contents == EMPTY) ? 1 : -1;
+            cells[cell] = contents;
+        }
+
+        private int findOnlyPiece() {
+            for (int cell = 0; cell < numCells; cell++) {
+                if (cells[cell] != EMPTY) {
+                    return cell;
+                }
+            }
+            throw new IllegalStateException("There is no piece to swap");
+        }
+
+        @Override
+        public void undoMoves() {
+            if (depth == 0) {
+                throw new IllegalStateException("There are no moves to undo");
+            }
+            depth--;
+            int targetLength = undoStack[2 * depth];
+            while (changeLogLength > targetLength) {
+                int oldValue = changeLog[--changeLogLength];
+                int index = changeLog[--changeLogLength];
+                if (index < parents.length) {
+                    parents[index] = oldValue;
+                } else if (index < 2 * parents.length) {
+                    setSizes[index - parents.length] = oldValue;
+                } else {
+                    int cell = index - 2 * parents.length;
+                    byte contents = cells[cell];
+                    // Undo the hash and count changes made by setCell
+                    int role = (contents == EMPTY) ? oldValue - 1 : contents - 1;
+                    stateHash ^= hashKeys[role * numCells + cell];
+                    numEmptyCells += (contents == EMPTY) ? -1 : 1;
+                    cells[cell] = (byte) oldValue;
+                }
+            }
+            swapAvailable = undoStack[2 * depth + 1] != 0;
+            roleToMove = 1 - roleToMove;
+            stateHash ^= secondPlayerToMoveHashKey;
+        }
+
+        /*
+         * Plays out on scratch copies of the board. Empty cells are kept in an array and
+         * chosen uniformly with swap-remove, rather than by their position in the move list.
+         * The game ends as soon as the player who just moved connects their edges.
+         */
+        @Override
+        public List<Double> playoutToTerminal(Random random) {
+            int winner = getCursorWinner();
+            if (winner != NO_WINNER) {
+                return Hex.getOutcomes(winner);
+            }
+            if (swapAvailable || (pieRule && numEmptyCells == numCells)) {
+                // Play the opening through the normal path, so the swap is offered as usual
+                applyMove(random.nextInt(getNumPossibleMoves()));
+                List<Double> outcomes = playoutToTerminal(random);
+                undoMoves();
+                return outcomes;
+            }
+            System.arraycopy(cells, 0, playoutCells, 0, numCells);
+            System.arraycopy(parents, 0, playoutParents, 0, parents.length);
+            int numEmpty = 0;
+            for (int cell = 0; cell < numCells; cell++) {
+                if (cells[cell] == EMPTY) {
+                    playoutEmptyCells[numEmpty++] = cell;
+                }
+            }
+            int role = roleToMove;
+            while (true) {
+                int chosenIndex = random.nextInt(numEmpty);
+                int cell = playoutEmptyCells[chosenIndex];
+                playoutEmptyCells[chosenIndex] = playoutEmptyCells[--numEmpty];
+                playoutCells[cell] = (byte) (role + 1);
+                connectPiece(playoutCells, playoutParents, cell, role);
+                if (find(playoutParents, getEdgeNode(role, false)) == find(playoutParents, getEdgeNode(role, true))) {
+                    return Hex.getOutcomes(role);
+                }
+                role = 1 - role;
+            }
+        }
+
+        @Override
+        public long getStateHash() {
+            return stateHash;
+        }
+
+        @Override
+        public int getDepth() {
+            return depth;
+        }
+
+        @Override
+        public GameState getCurrentState() {
+            byte[] cellsCopy = cells.clone();
+            return new HexGameState(cellsCopy, createUnionFind(cellsCopy), roleToMove, swapAvailable, stateHash);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package net.alloyggp.research.game.impl;
+
+import com.google.common.collect.ImmutableList;
+
+import net.alloyggp.research.Move;
+
+/**
+ * The only move available to the roles that aren't moving in a turn-taking game. The name
+ * matches the GDL versions of our games.
+ */
+/*package-private*/ final class NoopMove extends Move {
+    public static final String NAME = "noop";
+    public static final NoopMove INSTANCE = new NoopMove();
+    public static final ImmutableList<Move> LIST = ImmutableList.of(INSTANCE);
+
+    private NoopMove() {
+        // Use INSTANCE
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int hashCode() {
+        return 490583057;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other == this;
+    }
+
+    @Override
+    public String toString() {
+        return NAME;
+    }
+}
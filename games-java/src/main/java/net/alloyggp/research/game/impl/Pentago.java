@@ -0,0 +1,569 @@
+package net.alloyggp.research.game.impl;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import net.alloyggp.research.GameState;
+import net.alloyggp.research.GameStateCursor;
+import net.alloyggp.research.GameTreeProvider;
+import net.alloyggp.research.Move;
+
+/*
+ * Each player's marbles are a bitboard over the 6x6 board, with cells numbered y * 6 + x.
+ * Quadrants are numbered 1 to 4 across and then down, with y increasing downward, so that
+ * "clockwise" means the same thing as on a printed board.
+ *
+ * Each turn is split into two moves by the same role: placing a marble with
+ * "( place x y )" using 1-based coordinates, then turning a quadrant with
+ * "( rotate q clockwise )" or "( rotate q counterclockwise )". Role 0 moves first.
+ *
+ * A player who gets five in a row, either when placing or after rotating, wins; in the
+ * misère version they lose instead. If a rotation gives both players five in a row, or the
+ * board fills up with no five in a row, it's a draw.
+ *
+ * Rotations use lookup tables from the nine bits of a quadrant to their rotated positions.
+ */
+public class Pentago implements GameTreeProvider {
+    private static final ImmutableList<Double> FIRST_PLAYER_WIN_OUTCOMES = ImmutableList.of(1.0, 0.0);
+    private static final ImmutableList<Double> SECOND_PLAYER_WIN_OUTCOMES = ImmutableList.of(0.0, 1.0);
+    private static final ImmutableList<Double> DRAW_OUTCOMES = ImmutableList.of(0.5, 0.5);
+    private static final int NUM_CELLS = 36;
+    private static final long ALL_CELLS = (1L << NUM_CELLS) - 1;
+    private static final int NUM_ROTATIONS = 8;
+    // Phases of each turn
+    private static final int PLACE = 0;
+    private static final int ROTATE = 1;
+    // Indexed by quadrant; the cell of the quadrant's top-left corner
+    private static final int[] QUADRANT_BASES = {0, 3, 18, 21};
+    private static final long[] QUADRANT_MASKS = new long[4];
+    // Indexed by (clockwise ? 0 : 1) * 512 plus the quadrant's bits in compressed form
+    private static final long[] ROTATION_TABLE = new long[2 * 512];
+    private static final long[] FIVE_IN_A_ROW_MASKS;
+    // Indexed by cell; the masks of the lines of five that include it
+    private static final long[][] FIVE_IN_A_ROW_MASKS_BY_CELL = new long[NUM_CELLS][];
+    // Keyed by role * NUM_CELLS + cell
+    private static final long[] HASH_KEYS = ZobristKeys.create(2 * NUM_CELLS, 0x5E7L);
+    private static final long SECOND_PLAYER_TO_MOVE_HASH_KEY = ZobristKeys.create(1, 0x5E72L)[0];
+    private static final long ROTATE_PHASE_HASH_KEY = ZobristKeys.create(1, 0x5E73L)[0];
+    private static final PentagoMove[] PLACE_MOVES = new PentagoMove[NUM_CELLS];
+    // Indexed by quadrant * 2 + (clockwise ? 0 : 1)
+    private static final PentagoMove[] ROTATE_MOVES = new PentagoMove[NUM_ROTATIONS];
+    static {
+        for (int quadrant = 0; quadrant < 4; quadrant++) {
+            QUADRANT_MASKS[quadrant] = spread(0x1FF) << QUADRANT_BASES[quadrant];
+        }
+        for (int bits = 0; bits < 512; bits++) {
+            for (int localCell = 0; localCell < 9; localCell++) {
+                if ((bits & (1 << localCell)) != 0) {
+                    int row = localCell / 3;
+                    int column = localCell % 3;
+                    ROTATION_TABLE[bits] |= 1L << (column * 6 + (2 - row));
+                    ROTATION_TABLE[512 + bits] |= 1L << ((2 - column) * 6 + row);
+                }
+            }
+        }
+        List<Long> fiveInARowMasks = Lists.newArrayList();
+        int[][] directions = {{1, 0}, {0, 1}, {1, 1}, {-1, 1}};
+        for (int[] direction : directions) {
+            for (int y = 0; y < 6; y++) {
+                for (int x = 0; x < 6; x++) {
+                    int endX = x + 4 * direction[0];
+                    int endY = y + 4 * direction[1];
+                    if (endX >= 0 && endX < 6 && endY < 6) {
+                        long mask = 0L;
+                        for (int i = 0; i < 5; i++) {
+                            mask |= 1L << ((y + i * direction[1]) * 6 + x + i * direction[0]);
+                        }
+                        fiveInARowMasks.add(mask);
+                    }
+                }
+            }
+        }
+        FIVE_IN_A_ROW_MASKS = fiveInARowMasks.stream().mapToLong(l -> l).toArray();
+        for (int cell = 0; cell < NUM_CELLS; cell++) {
+            long cellMask = 1L << cell;
+            FIVE_IN_A_ROW_MASKS_BY_CELL[cell] = fiveInARowMasks.stream()
+                    .filter(mask -> (mask & cellMask) != 0L)
+                    .mapToLong(l -> l)
+                    .toArray();
+            PLACE_MOVES[cell] = new PentagoMove(cell, "( place " + (cell % 6 + 1) + " " + (cell / 6 + 1) + " )");
+        }
+        for (int rotation = 0; rotation < NUM_ROTATIONS; rotation++) {
+            String direction = (rotation % 2 == 0) ? "clockwise" : "counterclockwise";
+            ROTATE_MOVES[rotation] = new PentagoMove(NUM_CELLS + rotation,
+                    "( rotate " + (rotation / 2 + 1) + " " + direction + " )");
+        }
+    }
+
+    private final boolean misere;
+
+    public Pentago(boolean misere) {
+        this.misere = misere;
+    }
+
+    // Spreads nine bits in rows of three into their positions in a quadrant at cell 0
+    private static long spread(int bits) {
+        return (bits & 7) | ((long) ((bits >> 3) & 7) << 6) | ((long) ((bits >> 6) & 7) << 12);
+    }
+
+    private static int compress(long cells, int base) {
+        return (int) (((cells >>> base) & 7) | (((cells >>> (base + 6)) & 7) << 3)
+                | (((cells >>> (base + 12)) & 7) << 6));
+    }
+
+    private static long rotate(long cells, int rotation) {
+        int quadrant = rotation / 2;
+        int base = QUADRANT_BASES[quadrant];
+        long rotated = ROTATION_TABLE[(rotation % 2) * 512 + compress(cells, base)] << base;
+        return (cells & ~QUADRANT_MASKS[quadrant]) | rotated;
+    }
+
+    private static boolean hasFiveInARow(long cells) {
+        for (long mask : FIVE_IN_A_ROW_MASKS) {
+            if ((cells & mask) == mask) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasFiveInARowThrough(long cells, int cell) {
+        for (long mask : FIVE_IN_A_ROW_MASKS_BY_CELL[cell]) {
+            if ((cells & mask) == mask) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long getHashOfCells(long cells, int role) {
+        long hash = 0L;
+        for (long remaining = cells; remaining != 0L; remaining &= remaining - 1) {
+            hash ^= HASH_KEYS[role * NUM_CELLS + Long.numberOfTrailingZeros(remaining)];
+        }
+        return hash;
+    }
+
+    private static long computeStateHash(long firstPlayerCells, long secondPlayerCells, int roleToMove, int phase) {
+        long hash = (roleToMove == 1) ? SECOND_PLAYER_TO_MOVE_HASH_KEY : 0L;
+        if (phase == ROTATE) {
+            hash ^= ROTATE_PHASE_HASH_KEY;
+        }
+        return hash ^ getHashOfCells(firstPlayerCells, 0) ^ getHashOfCells(secondPlayerCells, 1);
+    }
+
+    // Returns the cell of the empty cell with the given index, counting from the lowest
+    private static int findEmptyCell(long emptyCells, int index) {
+        long remaining = emptyCells;
+        for (int i = 0; i < index; i++) {
+            remaining &= remaining - 1;
+        }
+        if (remaining == 0L) {
+            throw new IndexOutOfBoundsException("Move index " + index + " out of bounds");
+        }
+        return Long.numberOfTrailingZeros(remaining);
+    }
+
+    private static PentagoMove findMove(long firstPlayerCells, long secondPlayerCells, int phase, int moveIndex) {
+        if (phase == ROTATE) {
+            return ROTATE_MOVES[moveIndex];
+        }
+        return PLACE_MOVES[findEmptyCell(~(firstPlayerCells | secondPlayerCells) & ALL_CELLS, moveIndex)];
+    }
+
+    private static boolean isTerminal(long firstPlayerCells, long secondPlayerCells, int phase) {
+        // After placing, the board can be full with a rotation still to come
+        return hasFiveInARow(firstPlayerCells) || hasFiveInARow(secondPlayerCells)
+                || (phase == PLACE && (firstPlayerCells | secondPlayerCells) == ALL_CELLS);
+    }
+
+    private List<Double> getOutcomes(long firstPlayerCells, long secondPlayerCells) {
+        boolean firstPlayerFive = hasFiveInARow(firstPlayerCells);
+        boolean secondPlayerFive = hasFiveInARow(secondPlayerCells);
+        if (firstPlayerFive == secondPlayerFive) {
+            return DRAW_OUTCOMES;
+        }
+        return (firstPlayerFive != misere) ? FIRST_PLAYER_WIN_OUTCOMES : SECOND_PLAYER_WIN_OUTCOMES;
+    }
+
+    private static class PentagoMove extends Move {
+        // The cell placed in, or NUM_CELLS plus the rotation
+        private final int index;
+        private final String name;
+        private PentagoMove(int index, String name) {
+            this.index = index;
+            this.name = name;
+        }
+        @Override
+        public int hashCode() {
+            return index;
+        }
+        @Override
+        public boolean equals(Object other) {
+            // These are all interned
+            return other == this;
+        }
+        @Override
+        public String toString() {
+            return "PentagoMove [" + name + "]";
+        }
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static final class PentagoStateKey {
+        private final long firstPlayerCells;
+        private final long secondPlayerCells;
+        private final int roleToMove;
+        private final int phase;
+
+        private PentagoStateKey(long firstPlayerCells, long secondPlayerCells, int roleToMove, int phase) {
+            this.firstPlayerCells = firstPlayerCells;
+            this.secondPlayerCells = secondPlayerCells;
+            this.roleToMove = roleToMove;
+            this.phase = phase;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(firstPlayerCells, secondPlayerCells, roleToMove, phase);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null)
+                return false;
+            if (getClass() != obj.getClass())
+                return false;
+            PentagoStateKey other = (PentagoStateKey) obj;
+            return firstPlayerCells == other.firstPlayerCells
+                    && secondPlayerCells == other.secondPlayerCells
+                    && roleToMove == other.roleToMove
+                    && phase == other.phase;
+        }
+    }
+
+    @Override
+    public GameState getInitialState() {
+        return new PentagoGameState(0L, 0L, 0, PLACE, 0L);
+    }
+
+    // States are encoded as the two bitboards followed by a byte for the role to move and phase.
+    private static final int ENCODING_VERSION = 1;
+
+    @Override
+    public GameState decode(ByteBuffer buffer) {
+        long firstPlayerCells = buffer.getLong();
+        long secondPlayerCells = buffer.getLong();
+        int flags = buffer.get();
+        if ((firstPlayerCells & secondPlayerCells) != 0L
+                || ((firstPlayerCells | secondPlayerCells) & ~ALL_CELLS) != 0L
+                || (flags & ~3) != 0) {
+            throw new IllegalArgumentException("Invalid encoded Pentago state");
+        }
+        int roleToMove = flags & 1;
+        int phase = flags >> 1;
+        return new PentagoGameState(firstPlayerCells, secondPlayerCells, roleToMove, phase,
+                computeStateHash(firstPlayerCells, secondPlayerCells, roleToMove, phase));
+    }
+
+    @Override
+    public int getEncodingVersion() {
+        return ENCODING_VERSION;
+    }
+
+    private class PentagoGameState extends AbstractTurnTakingGameState {
+        private final long firstPlayerCells;
+        private final long secondPlayerCells;
+        private final int roleToMove;
+        private final int phase;
+        private final long stateHash;
+        private final boolean terminal;
+
+        private PentagoGameState(long firstPlayerCells, long secondPlayerCells, int roleToMove, int phase,
+                long stateHash) {
+            this.firstPlayerCells = firstPlayerCells;
+            this.secondPlayerCells = secondPlayerCells;
+            this.roleToMove = roleToMove;
+            this.phase = phase;
+            this.stateHash = stateHash;
+            this.terminal = Pentago.isTerminal(firstPlayerCells, secondPlayerCells, phase);
+        }
+
+        @Override
+        protected Move parseMove(String name) {
+            for (PentagoMove move : (phase == PLACE) ? PLACE_MOVES : ROTATE_MOVES) {
+                if (move.name.equals(name)) {
+                    return move;
+                }
+            }
+            throw new IllegalArgumentException("Not a Pentago move: " + name);
+        }
+
+        @Override
+        public int getRoleToMove() {
+            return roleToMove;
+        }
+
+        @Override
+        public int getNumPossibleMoves() {
+            if (terminal) {
+                return 0;
+            }
+            return (phase == ROTATE) ? NUM_ROTATIONS : NUM_CELLS - Long.bitCount(firstPlayerCells | secondPlayerCells);
+        }
+
+        @Override
+        public Move getPossibleMove(int moveIndex) {
+            return findMove(firstPlayerCells, secondPlayerCells, phase, moveIndex);
+        }
+
+        @Override
+        public PentagoGameState getNextStateFromMoveIndex(int moveIndex) {
+            return getNextState(findMove(firstPlayerCells, secondPlayerCells, phase, moveIndex));
+        }
+
+        @Override
+        public PentagoGameState getNextState(Move moveTaken) {
+            PentagoMove move = (PentagoMove) moveTaken;
+            if (phase == PLACE) {
+                long cell = 1L << move.index;
+                long newStateHash = stateHash ^ ROTATE_PHASE_HASH_KEY ^ HASH_KEYS[roleToMove * NUM_CELLS + move.index];
+                if (roleToMove == 0) {
+                    return new PentagoGameState(firstPlayerCells | cell, secondPlayerCells, 0, ROTATE, newStateHash);
+                } else {
+                    return new PentagoGameState(firstPlayerCells, secondPlayerCells | cell, 1, ROTATE, newStateHash);
+                }
+            }
+            int rotation = move.index - NUM_CELLS;
+            long newFirstPlayerCells = rotate(firstPlayerCells, rotation);
+            long newSecondPlayerCells = rotate(secondPlayerCells, rotation);
+            long newStateHash = stateHash ^ ROTATE_PHASE_HASH_KEY ^ SECOND_PLAYER_TO_MOVE_HASH_KEY
+                    ^ getHashOfCells(firstPlayerCells ^ newFirstPlayerCells, 0)
+                    ^ getHashOfCells(secondPlayerCells ^ newSecondPlayerCells, 1);
+            return new PentagoGameState(newFirstPlayerCells, newSecondPlayerCells, 1 - roleToMove, PLACE,
+                    newStateHash);
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return true;
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return terminal;
+        }
+
+        @Override
+        public double getOutcomeForRole(int role) {
+            return getOutcomes().get(role);
+        }
+
+        @Override
+        public List<Double> getOutcomes() {
+            return Pentago.this.getOutcomes(firstPlayerCells, secondPlayerCells);
+        }
+
+        @Override
+        public GameStateCursor createCursor() {
+            return new PentagoCursor(this);
+        }
+
+        @Override
+        public long getStateHash() {
+            return stateHash;
+        }
+
+        @Override
+        public Object getStateKey() {
+            return new PentagoStateKey(firstPlayerCells, secondPlayerCells, roleToMove, phase);
+        }
+
+        @Override
+        public void encode(ByteBuffer buffer) {
+            buffer.putLong(firstPlayerCells);
+            buffer.putLong(secondPlayerCells);
+            buffer.put((byte) (roleToMove | (phase << 1)));
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("PentagoGameState [roleToMove=").append(roleToMove)
+                    .append(", phase=").append(phase).append('\n');
+            for (int cell = 0; cell < NUM_CELLS; cell++) {
+                long cellMask = 1L << cell;
+                if ((firstPlayerCells & cellMask) != 0L) {
+                    sb.append('X');
+                } else if ((secondPlayerCells & cellMask) != 0L) {
+                    sb.append('O');
+                } else {
+                    sb.append('.');
+                }
+                if (cell % 6 == 5) {
+                    sb.append('\n');
+                }
+            }
+            return sb.append(']').toString();
+        }
+    }
+
+    /**
+     * Applies moves to the same bitboards the states use. Each applied move pushes the
+     * previous bitboards, hash, role to move and phase onto a stack, so undoing one just
+     * pops them back.
+     */
+    private class PentagoCursor extends AbstractTurnTakingCursor {
+        private long firstPlayerCells;
+        private long secondPlayerCells;
+        private int roleToMove;
+        private int phase;
+        private long stateHash;
+        // Four entries per move: the two bitboards, the hash, and the role to move and phase packed together
+        private final long[] undoStack = new long[4 * 2 * NUM_CELLS];
+        private int depth = 0;
+
+        private PentagoCursor(PentagoGameState state) {
+            firstPlayerCells = state.firstPlayerCells;
+            secondPlayerCells = state.secondPlayerCells;
+            roleToMove = state.roleToMove;
+            phase = state.phase;
+            stateHash = state.stateHash;
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return Pentago.isTerminal(firstPlayerCells, secondPlayerCells, phase);
+        }
+
+        @Override
+        public double getOutcomeForRole(int role) {
+            return getOutcomes().get(role);
+        }
+
+        @Override
+        public List<Double> getOutcomes() {
+            return Pentago.this.getOutcomes(firstPlayerCells, secondPlayerCells);
+        }
+
+        @Override
+        public int getRoleToMove() {
+            return roleToMove;
+        }
+
+        @Override
+        protected int getNumPossibleMoves() {
+            if (isTerminal()) {
+                return 0;
+            }
+            return (phase == ROTATE) ? NUM_ROTATIONS : NUM_CELLS - Long.bitCount(firstPlayerCells | secondPlayerCells);
+        }
+
+        @Override
+        protected Move getPossibleMove(int moveIndex) {
+            return findMove(firstPlayerCells, secondPlayerCells, phase, moveIndex);
+        }
+
+        @Override
+        public void applyMove(int moveIndex) {
+            PentagoMove move = findMove(firstPlayerCells, secondPlayerCells, phase, moveIndex);
+            undoStack[4 * depth] = firstPlayerCells;
+            undoStack[4 * depth + 1] = secondPlayerCells;
+            undoStack[4 * depth + 2] = stateHash;
+            undoStack[4 * depth + 3] = roleToMove | (phase << 1);
+            depth++;
+            if (phase == PLACE) {
+                if (roleToMove == 0) {
+                    firstPlayerCells |= 1L << move.index;
+                } else {
+                    secondPlayerCells |= 1L << move.index;
+                }
+                stateHash ^= ROTATE_PHASE_HASH_KEY ^ HASH_KEYS[roleToMove * NUM_CELLS + move.index];
+                phase = ROTATE;
+            } else {
+                int rotation = move.index - NUM_CELLS;
+                long newFirstPlayerCells = rotate(firstPlayerCells, rotation);
+                long newSecondPlayerCells = rotate(secondPlayerCells, rotation);
+                stateHash ^= ROTATE_PHASE_HASH_KEY ^ SECOND_PLAYER_TO_MOVE_HASH_KEY
+                        ^ getHashOfCells(firstPlayerCells ^ newFirstPlayerCells, 0)
+                        ^ getHashOfCells(secondPlayerCells ^ newSecondPlayerCells, 1);
+                firstPlayerCells = newFirstPlayerCells;
+                secondPlayerCells = newSecondPlayerCells;
+                roleToMove = 1 - roleToMove;
+                phase = PLACE;
+            }
+        }
+
+        @Override
+        public void undoMoves() {
+            if (depth == 0) {
+                throw new IllegalStateException("There are no moves to undo");
+            }
+            depth--;
+            firstPlayerCells = undoStack[4 * depth];
+            secondPlayerCells = undoStack[4 * depth + 1];
+            stateHash = undoStack[4 * depth + 2];
+            int packed = (int) undoStack[4 * depth + 3];
+            roleToMove = packed & 1;
+            phase = packed >> 1;
+        }
+
+        /*
+         * Works on local copies of the bitboards, so there's nothing to restore afterwards.
+         * After a placement, only lines through the new marble need checking.
+         */
+        @Override
+        public List<Double> playoutToTerminal(Random random) {
+            if (isTerminal()) {
+                return getOutcomes();
+            }
+            long[] cells = {firstPlayerCells, secondPlayerCells};
+            int role = roleToMove;
+            boolean placing = (phase == PLACE);
+            while (true) {
+                if (placing) {
+                    long emptyCells = ~(cells[0] | cells[1]) & ALL_CELLS;
+                    int numEmptyCells = Long.bitCount(emptyCells);
+                    int cell = findEmptyCell(emptyCells, (numEmptyCells > 1) ? random.nextInt(numEmptyCells) : 0);
+                    cells[role] |= 1L << cell;
+                    if (hasFiveInARowThrough(cells[role], cell)) {
+                        break;
+                    }
+                }
+                int rotation = random.nextInt(NUM_ROTATIONS);
+                cells[0] = rotate(cells[0], rotation);
+                cells[1] = rotate(cells[1], rotation);
+                if (Pentago.isTerminal(cells[0], cells[1], PLACE)) {
+                    break;
+                }
+                role = 1 - role;
+                placing = true;
+            }
+            return Pentago.this.getOutcomes(cells[0], cells[1]);
+        }
+
+        @Override
+        public long getStateHash() {
+            return stateHash;
+        }
+
+        @Override
+        public int getDepth() {
+            return depth;
+        }
+
+        @Override
+        public GameState getCurrentState() {
+            return new PentagoGameState(firstPlayerCells, secondPlayerCells, roleToMove, phase, stateHash);
+        }
+    }
+}
@@ -0,0 +1,549 @@
+package net.alloyggp.research.game.impl;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import com.google.common.collect.ImmutableList;
+
+import net.alloyggp.research.GameState;
+import net.alloyggp.research.GameStateCursor;
+import net.alloyggp.research.GameTreeProvider;
+import net.alloyggp.research.Move;
+
+/*
+ * There are 16 pieces, each a 4-bit number with one bit per attribute. The board is a long
+ * holding each cell's piece in four bits, with cells numbered y * 4 + x, plus a 16-bit mask
+ * of which cells are filled.
+ *
+ * Each turn is split into two moves: one role picks a piece with "( select n )", where n
+ * is the piece's number plus one, and the other role then places it with "( place x y )"
+ * using 1-based coordinates. The role that placed a piece picks the
+ * next one. Role 0 picks first.
+ *
+ * Whoever places a piece that fills a line of four pieces sharing an attribute wins; in the
+ * misère version they lose instead. Four pieces share an attribute when ANDing them, or
+ * ANDing their complements, leaves a bit set. A full board with no such line is a draw.
+ */
+public class Quarto implements GameTreeProvider {
+    private static final ImmutableList<Double> FIRST_PLAYER_WIN_OUTCOMES = ImmutableList.of(1.0, 0.0);
+    private static final ImmutableList<Double> SECOND_PLAYER_WIN_OUTCOMES = ImmutableList.of(0.0, 1.0);
+    private static final ImmutableList<Double> DRAW_OUTCOMES = ImmutableList.of(0.5, 0.5);
+    private static final int NUM_CELLS = 16;
+    private static final int NUM_PIECES = 16;
+    private static final int ALL_CELLS = 0xFFFF;
+    private static final int ALL_PIECES = 0xFFFF;
+    private static final int NO_WINNER = -1;
+    private static final int NO_PIECE = -1;
+    // Indexed by line; the four cells in each row, column and diagonal
+    private static final int[][] LINES = new int[10][];
+    // Indexed by cell; the lines that include it
+    private static final int[][] LINES_BY_CELL = new int[NUM_CELLS][];
+    // Keyed by cell * NUM_PIECES + piece
+    private static final long[] HASH_KEYS = ZobristKeys.create(NUM_CELLS * NUM_PIECES, 0x0A7L);
+    private static final long[] SELECTED_PIECE_HASH_KEYS = ZobristKeys.create(NUM_PIECES, 0x0A72L);
+    private static final long SECOND_PLAYER_TO_MOVE_HASH_KEY = ZobristKeys.create(1, 0x0A73L)[0];
+    private static final QuartoMove[] PLACE_MOVES = new QuartoMove[NUM_CELLS];
+    private static final QuartoMove[] SELECT_MOVES = new QuartoMove[NUM_PIECES];
+    static {
+        for (int i = 0; i < 4; i++) {
+            LINES[i] = new int[] {4 * i, 4 * i + 1, 4 * i + 2, 4 * i + 3};
+            LINES[4 + i] = new int[] {i, i + 4, i + 8, i + 12};
+        }
+        LINES[8] = new int[] {0, 5, 10, 15};
+        LINES[9] = new int[] {3, 6, 9, 12};
+        for (int cell = 0; cell < NUM_CELLS; cell++) {
+            final int cellToFind = cell;
+            LINES_BY_CELL[cell] = IntStream.range(0, LINES.length)
+                    .filter(line -> Arrays.stream(LINES[line]).anyMatch(c -> c == cellToFind))
+                    .toArray();
+            PLACE_MOVES[cell] = new QuartoMove(cell, "( place " + (cell % 4 + 1) + " " + (cell / 4 + 1) + " )");
+        }
+        for (int piece = 0; piece < NUM_PIECES; piece++) {
+            SELECT_MOVES[piece] = new QuartoMove(NUM_CELLS + piece, "( select " + (piece + 1) + " )");
+        }
+    }
+
+    private final boolean misere;
+
+    public Quarto(boolean misere) {
+        this.misere = misere;
+    }
+
+    private static int getPiece(long board, int cell) {
+        return (int) (board >>> (4 * cell)) & 0xF;
+    }
+
+    private static boolean isWinningLine(long board, int filledCells, int[] line) {
+        int commonOnes = 0xF;
+        int commonZeroes = 0xF;
+        for (int cell : line) {
+            if ((filledCells & (1 << cell)) == 0) {
+                return false;
+            }
+            int piece = getPiece(board, cell);
+            commonOnes &= piece;
+            commonZeroes &= ~piece;
+        }
+        return (commonOnes | commonZeroes) != 0;
+    }
+
+    // Returns true if the piece just placed in the given cell completed a line
+    private static boolean completesLine(long board, int filledCells, int cell) {
+        for (int line : LINES_BY_CELL[cell]) {
+            if (isWinningLine(board, filledCells, LINES[line])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasWinningLine(long board, int filledCells) {
+        for (int[] line : LINES) {
+            if (isWinningLine(board, filledCells, line)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Returns the pieces on the board, as a mask over piece numbers
+    private static int getUsedPieces(long board, int filledCells) {
+        int usedPieces = 0;
+        for (int remaining = filledCells; remaining != 0; remaining &= remaining - 1) {
+            usedPieces |= 1 << getPiece(board, Integer.numberOfTrailingZeros(remaining));
+        }
+        return usedPieces;
+    }
+
+    // Returns the index of the set bit with the given index, counting from the lowest
+    private static int selectBit(int bits, int index) {
+        int remaining = bits;
+        for (int i = 0; i < index; i++) {
+            remaining &= remaining - 1;
+        }
+        if (remaining == 0) {
+            throw new IndexOutOfBoundsException("Move index " + index + " out of bounds");
+        }
+        return Integer.numberOfTrailingZeros(remaining);
+    }
+
+    private List<Double> getOutcomes(int winner) {
+        if (winner == NO_WINNER) {
+            return DRAW_OUTCOMES;
+        }
+        return ((winner == 0) != misere) ? FIRST_PLAYER_WIN_OUTCOMES : SECOND_PLAYER_WIN_OUTCOMES;
+    }
+
+    private static long computeStateHash(long board, int filledCells, int selectedPiece, int roleToMove) {
+        long hash = (roleToMove == 1) ? SECOND_PLAYER_TO_MOVE_HASH_KEY : 0L;
+        if (selectedPiece != NO_PIECE) {
+            hash ^= SELECTED_PIECE_HASH_KEYS[selectedPiece];
+        }
+        for (int remaining = filledCells; remaining != 0; remaining &= remaining - 1) {
+            int cell = Integer.numberOfTrailingZeros(remaining);
+            hash ^= HASH_KEYS[cell * NUM_PIECES + getPiece(board, cell)];
+        }
+        return hash;
+    }
+
+    @Override
+    public GameState getInitialState() {
+        return new QuartoGameState(0L, 0, ALL_PIECES, NO_PIECE, 0, NO_WINNER, 0L);
+    }
+
+    /*
+     * States are encoded as the board, then the filled cells as a short, then a byte for the
+     * selected piece plus one (or zero if none is selected) and a byte for the role to move.
+     * The available pieces and any winner are worked out again from those.
+     */
+    private static final int ENCODING_VERSION = 1;
+
+    @Override
+    public GameState decode(ByteBuffer buffer) {
+        long board = buffer.getLong();
+        int filledCells = buffer.getShort() & ALL_CELLS;
+        int selectedPiece = buffer.get() - 1;
+        int roleToMove = buffer.get();
+        int usedPieces = getUsedPieces(board, filledCells);
+        if (Integer.bitCount(usedPieces) != Integer.bitCount(filledCells)
+                || selectedPiece < NO_PIECE || selectedPiece >= NUM_PIECES
+                || (selectedPiece != NO_PIECE && (usedPieces & (1 << selectedPiece)) != 0)
+                || (roleToMove & ~1) != 0) {
+            throw new IllegalArgumentException("Invalid encoded Quarto state");
+        }
+        int availablePieces = ALL_PIECES & ~usedPieces;
+        if (selectedPiece != NO_PIECE) {
+            availablePieces &= ~(1 << selectedPiece);
+        }
+        // A completed line can only be the work of the player who placed last, who picks next
+        int winner = hasWinningLine(board, filledCells) ? roleToMove : NO_WINNER;
+        return new QuartoGameState(board, filledCells, availablePieces, selectedPiece, roleToMove, winner,
+                computeStateHash(board, filledCells, selectedPiece, roleToMove));
+    }
+
+    @Override
+    public int getEncodingVersion() {
+        return ENCODING_VERSION;
+    }
+
+    private static class QuartoMove extends Move {
+        // The cell placed in, or NUM_CELLS plus the piece selected
+        private final int index;
+        private final String name;
+        private QuartoMove(int index, String name) {
+            this.index = index;
+            this.name = name;
+        }
+        @Override
+        public int hashCode() {
+            return index;
+        }
+        @Override
+        public boolean equals(Object other) {
+            // These are all interned
+            return other == this;
+        }
+        @Override
+        public String toString() {
+            return "QuartoMove [" + name + "]";
+        }
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static final class QuartoStateKey {
+        private final long board;
+        private final int filledCells;
+        private final int selectedPiece;
+        private final int roleToMove;
+
+        private QuartoStateKey(long board, int filledCells, int selectedPiece, int roleToMove) {
+            this.board = board;
+            this.filledCells = filledCells;
+            this.selectedPiece = selectedPiece;
+            this.roleToMove = roleToMove;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(board, filledCells, selectedPiece, roleToMove);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null)
+                return false;
+            if (getClass() != obj.getClass())
+                return false;
+            QuartoStateKey other = (QuartoStateKey) obj;
+            return board == other.board
+                    && filledCells == other.filledCells
+                    && selectedPiece == other.selectedPiece
+                    && roleToMove == other.roleToMove;
+        }
+    }
+
+    private class QuartoGameState extends AbstractTurnTakingGameState {
+        private final long board;
+        private final int filledCells;
+        // Pieces neither on the board nor selected, as a mask over piece numbers
+        private final int availablePieces;
+        // The piece to be placed, or NO_PIECE when one is to be selected
+        private final int selectedPiece;
+        private final int roleToMove;
+        private final int winner;
+        private final long stateHash;
+
+        private QuartoGameState(long board, int filledCells, int availablePieces, int selectedPiece, int roleToMove,
+                int winner, long stateHash) {
+            this.board = board;
+            this.filledCells = filledCells;
+            this.availablePieces = availablePieces;
+            this.selectedPiece = selectedPiece;
+            this.roleToMove = roleToMove;
+            this.winner = winner;
+            this.stateHash = stateHash;
+        }
+
+        @Override
+        protected Move parseMove(String name) {
+            for (QuartoMove move : (selectedPiece == NO_PIECE) ? SELECT_MOVES : PLACE_MOVES) {
+                if (move.name.equals(name)) {
+                    return move;
+                }
+            }
+            throw new IllegalArgumentException("Not a Quarto move: " + name);
+        }
+
+        @Override
+        public int getRoleToMove() {
+            return roleToMove;
+        }
+
+        @Override
+        public int getNumPossibleMoves() {
+            if (isTerminal()) {
+                return 0;
+            }
+            return (selectedPiece == NO_PIECE)
+                    ? Integer.bitCount(availablePieces)
+                    : NUM_CELLS - Integer.bitCount(filledCells);
+        }
+
+        @Override
+        public Move getPossibleMove(int moveIndex) {
+            if (selectedPiece == NO_PIECE) {
+                return SELECT_MOVES[selectBit(availablePieces, moveIndex)];
+            }
+            return PLACE_MOVES[selectBit(~filledCells & ALL_CELLS, moveIndex)];
+        }
+
+        @Override
+        public QuartoGameState getNextStateFromMoveIndex(int moveIndex) {
+            return getNextState(getPossibleMove(moveIndex));
+        }
+
+        @Override
+        public QuartoGameState getNextState(Move moveTaken) {
+            QuartoMove move = (QuartoMove) moveTaken;
+            if (selectedPiece == NO_PIECE) {
+                int piece = move.index - NUM_CELLS;
+                return new QuartoGameState(board, filledCells, availablePieces & ~(1 << piece), piece,
+                        1 - roleToMove, NO_WINNER,
+                        stateHash ^ SELECTED_PIECE_HASH_KEYS[piece] ^ SECOND_PLAYER_TO_MOVE_HASH_KEY);
+            }
+            int cell = move.index;
+            long newBoard = board | ((long) selectedPiece << (4 * cell));
+            int newFilledCells = filledCells | (1 << cell);
+            int newWinner = completesLine(newBoard, newFilledCells, cell) ? roleToMove : NO_WINNER;
+            long newStateHash = stateHash ^ SELECTED_PIECE_HASH_KEYS[selectedPiece]
+                    ^ HASH_KEYS[cell * NUM_PIECES + selectedPiece];
+            return new QuartoGameState(newBoard, newFilledCells, availablePieces, NO_PIECE, roleToMove, newWinner,
+                    newStateHash);
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return true;
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return winner != NO_WINNER || filledCells == ALL_CELLS;
+        }
+
+        @Override
+        public double getOutcomeForRole(int role) {
+            return getOutcomes().get(role);
+        }
+
+        @Override
+        public List<Double> getOutcomes() {
+            return Quarto.this.getOutcomes(winner);
+        }
+
+        @Override
+        public GameStateCursor createCursor() {
+            return new QuartoCursor(this);
+        }
+
+        @Override
+        public long getStateHash() {
+            return stateHash;
+        }
+
+        @Override
+        public Object getStateKey() {
+            return new QuartoStateKey(board, filledCells, selectedPiece, roleToMove);
+        }
+
+        @Override
+        public void encode(ByteBuffer buffer) {
+            buffer.putLong(board);
+            buffer.putShort((short) filledCells);
+            buffer.put((byte) (selectedPiece + 1));
+            buffer.put((byte) roleToMove);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("QuartoGameState [roleToMove=").append(roleToMove)
+                    .append(", selectedPiece=").append(selectedPiece).append('\n');
+            for (int cell = 0; cell < NUM_CELLS; cell++) {
+                if ((filledCells & (1 << cell)) != 0) {
+                    sb.append(Integer.toHexString(getPiece(board, cell)));
+                } else {
+                    sb.append('.');
+                }
+                if (cell % 4 == 3) {
+                    sb.append('\n');
+                }
+            }
+            return sb.append(']').toString();
+        }
+    }
+
+    /**
+     * Applies moves to a single board. Each applied move pushes the previous board, hash and
+     * everything else that changes onto a stack, so undoing one just pops them back.
+     */
+    private class QuartoCursor extends AbstractTurnTakingCursor {
+        private long board;
+        private int filledCells;
+        private int availablePieces;
+        private int selectedPiece;
+        private int roleToMove;
+        private int winner;
+        private long stateHash;
+        // Three entries per move: the board, the hash, and the rest packed together
+        private final long[] undoStack = new long[3 * 2 * NUM_CELLS];
+        private int depth = 0;
+
+        private QuartoCursor(QuartoGameState state) {
+            board = state.board;
+            filledCells = state.filledCells;
+            availablePieces = state.availablePieces;
+            selectedPiece = state.selectedPiece;
+            roleToMove = state.roleToMove;
+            winner = state.winner;
+            stateHash = state.stateHash;
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return winner != NO_WINNER || filledCells == ALL_CELLS;
+        }
+
+        @Override
+        public double getOutcomeForRole(int role) {
+            return getOutcomes().get(role);
+        }
+
+        @Override
+        public List<Double> getOutcomes() {
+            return Quarto.this.getOutcomes(winner);
+        }
+
+        @Override
+        public int getRoleToMove() {
+            return roleToMove;
+        }
+
+        @Override
+        protected int getNumPossibleMoves() {
+            if (isTerminal()) {
+                return 0;
+            }
+            return (selectedPiece == NO_PIECE)
+                    ? Integer.bitCount(availablePieces)
+                    : NUM_CELLS - Integer.bitCount(filledCells);
+        }
+
+        @Override
+        protected Move getPossibleMove(int moveIndex) {
+            if (selectedPiece == NO_PIECE) {
+                return SELECT_MOVES[selectBit(availablePieces, moveIndex)];
+            }
+            return PLACE_MOVES[selectBit(~filledCells & ALL_CELLS, moveIndex)];
+        }
+
+        @Override
+        public void applyMove(int moveIndex) {
+            QuartoMove move = (QuartoMove) getPossibleMove(moveIndex);
+            undoStack[3 * depth] = board;
+            undoStack[3 * depth + 1] = stateHash;
+            // Pieces and cells take 16 bits each, and the selected piece plus one takes 5
+            undoStack[3 * depth + 2] = filledCells | ((long) availablePieces << 16)
+                    | ((long) (selectedPiece + 1) << 32) | ((long) roleToMove << 37);
+            depth++;
+            if (selectedPiece == NO_PIECE) {
+                selectedPiece = move.index - NUM_CELLS;
+                availablePieces &= ~(1 << selectedPiece);
+                stateHash ^= SELECTED_PIECE_HASH_KEYS[selectedPiece] ^ SECOND_PLAYER_TO_MOVE_HASH_KEY;
+                roleToMove = 1 - roleToMove;
+            } else {
+                int cell = move.index;
+                board |= (long) selectedPiece << (4 * cell);
+                filledCells |= 1 << cell;
+                stateHash ^= SELECTED_PIECE_HASH_KEYS[selectedPiece] ^ HASH_KEYS[cell * NUM_PIECES + selectedPiece];
+                selectedPiece = NO_PIECE;
+                if (completesLine(board, filledCells, cell)) {
+                    winner = roleToMove;
+                }
+            }
+        }
+
+        @Override
+        public void undoMoves() {
+            if (depth == 0) {
+                throw new IllegalStateException("There are no moves to undo");
+            }
+            depth--;
+            board = undoStack[3 * depth];
+            stateHash = undoStack[3 * depth + 1];
+            long packed = undoStack[3 * depth + 2];
+            filledCells = (int) packed & ALL_CELLS;
+            availablePieces = (int) (packed >>> 16) & ALL_PIECES;
+            selectedPiece = (int) ((packed >>> 32) & 0x1F) - 1;
+            roleToMove = (int) (packed >>> 37);
+            // Nothing can be played after a win, so there was no winner before this move
+            winner = NO_WINNER;
+        }
+
+        // Works on local copies, so there's nothing to restore afterwards. The hash is left alone.
+        @Override
+        public List<Double> playoutToTerminal(Random random) {
+            if (isTerminal()) {
+                return getOutcomes();
+            }
+            long playoutBoard = board;
+            int playoutFilledCells = filledCells;
+            int playoutAvailablePieces = availablePieces;
+            int piece = selectedPiece;
+            int role = roleToMove;
+            while (true) {
+                if (piece == NO_PIECE) {
+                    int numPieces = Integer.bitCount(playoutAvailablePieces);
+                    piece = selectBit(playoutAvailablePieces, (numPieces > 1) ? random.nextInt(numPieces) : 0);
+                    playoutAvailablePieces &= ~(1 << piece);
+                    role = 1 - role;
+                }
+                int emptyCells = ~playoutFilledCells & ALL_CELLS;
+                int numEmptyCells = Integer.bitCount(emptyCells);
+                int cell = selectBit(emptyCells, (numEmptyCells > 1) ? random.nextInt(numEmptyCells) : 0);
+                playoutBoard |= (long) piece << (4 * cell);
+                playoutFilledCells |= 1 << cell;
+                piece = NO_PIECE;
+                if (completesLine(playoutBoard, playoutFilledCells, cell)) {
+                    return Quarto.this.getOutcomes(role);
+                } else if (playoutFilledCells == ALL_CELLS) {
+                    return DRAW_OUTCOMES;
+                }
+            }
+        }
+
+        @Override
+        public long getStateHash() {
+            return stateHash;
+        }
+
+        @Override
+        public int getDepth() {
+            return depth;
+        }
+
+        @Override
+        public GameState getCurrentState() {
+            return new QuartoGameState(board, filledCells, availablePieces, selectedPiece, roleToMove, winner,
+                    stateHash);
+        }
+    }
+}
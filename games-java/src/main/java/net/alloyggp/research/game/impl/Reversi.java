@@ -0,0 +1,548 @@
+package net.alloyggp.research.game.impl;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import com.google.common.collect.ImmutableList;
+
+import net.alloyggp.research.GameState;
+import net.alloyggp.research.GameStateCursor;
+import net.alloyggp.research.GameTreeProvider;
+import net.alloyggp.research.Move;
+
+/*
+ * Each player's discs are a 64-bit bitboard, with squares numbered (y - 1) * 8 + (x - 1)
+ * using the 1-based coordinates from the move names. Role 0 moves first.
+ *
+ * Legal moves and flips are both found by shifting bitboards one step at a time in each of
+ * the eight directions (Kogge-Stone style), which handles every square at once instead of
+ * walking rays from each square. Moves are listed in order of their squares. A player with
+ * no legal moves passes with a noop, and the game ends when neither player can move.
+ *
+ * The player with more discs at the end wins, or with fewer in the misère version.
+ */
+public class Reversi implements GameTreeProvider {
+    private static final ImmutableList<Double> FIRST_PLAYER_WIN_OUTCOMES = ImmutableList.of(1.0, 0.0);
+    private static final ImmutableList<Double> SECOND_PLAYER_WIN_OUTCOMES = ImmutableList.of(0.0, 1.0);
+    private static final ImmutableList<Double> DRAW_OUTCOMES = ImmutableList.of(0.5, 0.5);
+    private static final long NOT_FIRST_COLUMN = ~0x0101010101010101L;
+    private static final long NOT_LAST_COLUMN = ~0x8080808080808080L;
+    private static final int NUM_DIRECTIONS = 8;
+    // Keyed by role * 64 + square
+    private static final long[] HASH_KEYS = ZobristKeys.create(2 * 64, 0x0E110L);
+    private static final long SECOND_PLAYER_TO_MOVE_HASH_KEY = ZobristKeys.create(1, 0x0E111L)[0];
+    private static final ReversiMove[] MOVES = new ReversiMove[64];
+    static {
+        for (int square = 0; square < 64; square++) {
+            MOVES[square] = new ReversiMove(square);
+        }
+    }
+
+    private final boolean misere;
+
+    public Reversi(boolean misere) {
+        this.misere = misere;
+    }
+
+    @Override
+    public GameState getInitialState() {
+        long firstPlayerDiscs = (1L << getSquare(4, 5)) | (1L << getSquare(5, 4));
+        long secondPlayerDiscs = (1L << getSquare(4, 4)) | (1L << getSquare(5, 5));
+        return new ReversiGameState(firstPlayerDiscs, secondPlayerDiscs, 0,
+                computeStateHash(firstPlayerDiscs, secondPlayerDiscs, 0));
+    }
+
+    // States are encoded as the two bitboards followed by a byte for the role to move.
+    private static final int ENCODING_VERSION = 1;
+
+    @Override
+    public GameState decode(ByteBuffer buffer) {
+        long firstPlayerDiscs = buffer.getLong();
+        long secondPlayerDiscs = buffer.getLong();
+        int roleToMove = buffer.get();
+        if ((firstPlayerDiscs & secondPlayerDiscs) != 0L || (roleToMove & ~1) != 0) {
+            throw new IllegalArgumentException("Invalid encoded Reversi state");
+        }
+        return new ReversiGameState(firstPlayerDiscs, secondPlayerDiscs, roleToMove,
+                computeStateHash(firstPlayerDiscs, secondPlayerDiscs, roleToMove));
+    }
+
+    @Override
+    public int getEncodingVersion() {
+        return ENCODING_VERSION;
+    }
+
+    private static long computeStateHash(long firstPlayerDiscs, long secondPlayerDiscs, int roleToMove) {
+        long hash = (roleToMove == 1) ? SECOND_PLAYER_TO_MOVE_HASH_KEY : 0L;
+        hash ^= getHashOfDiscs(firstPlayerDiscs, 0);
+        hash ^= getHashOfDiscs(secondPlayerDiscs, 1);
+        return hash;
+    }
+
+    private static long getHashOfDiscs(long discs, int role) {
+        long hash = 0L;
+        for (long remaining = discs; remaining != 0L; remaining &= remaining - 1) {
+            hash ^= HASH_KEYS[role * 64 + Long.numberOfTrailingZeros(remaining)];
+        }
+        return hash;
+    }
+
+    private static int getSquare(int x, int y) {
+        return (y - 1) * 8 + (x - 1);
+    }
+
+    /*
+     * Moves every square one step in the given direction, dropping any that go off the
+     * board. Directions 0-3 are toward higher x, higher y, and the two diagonals between
+     * them; 4-7 are the reverse of each.
+     */
+    private static long shift(long squares, int direction) {
+        switch (direction) {
+        case 0:
+            return (squares << 1) & NOT_FIRST_COLUMN;
+        case 1:
+            return squares << 8;
+        case 2:
+            return (squares << 9) & NOT_FIRST_COLUMN;
+        case 3:
+            return (squares << 7) & NOT_LAST_COLUMN;
+        case 4:
+            return (squares >>> 1) & NOT_LAST_COLUMN;
+        case 5:
+            return squares >>> 8;
+        case 6:
+            return (squares >>> 9) & NOT_LAST_COLUMN;
+        case 7:
+            return (squares >>> 7) & NOT_FIRST_COLUMN;
+        default:
+            throw new IllegalArgumentException("Invalid direction " + direction);
+        }
+    }
+
+    // Returns the squares where the player with the given discs can move
+    private static long getLegalMoves(long playerDiscs, long opponentDiscs) {
+        long empty = ~(playerDiscs | opponentDiscs);
+        long moves = 0L;
+        for (int direction = 0; direction < NUM_DIRECTIONS; direction++) {
+            // Runs of opponent discs adjacent to the player's, growing one step at a time;
+            // a run can be at most six discs long
+            long run = shift(playerDiscs, direction) & opponentDiscs;
+            for (int i = 0; i < 5; i++) {
+                run |= shift(run, direction) & opponentDiscs;
+            }
+            moves |= shift(run, direction) & empty;
+        }
+        return moves;
+    }
+
+    // Returns the opponent discs flipped by the player moving at the given square
+    private static long getFlips(long moveSquare, long playerDiscs, long opponentDiscs) {
+        long flips = 0L;
+        for (int direction = 0; direction < NUM_DIRECTIONS; direction++) {
+            long run = shift(moveSquare, direction) & opponentDiscs;
+            for (int i = 0; i < 5; i++) {
+                run |= shift(run, direction) & opponentDiscs;
+            }
+            // The run only flips if it ends at one of the player's discs
+            if ((shift(run, direction) & playerDiscs) != 0L) {
+                flips |= run;
+            }
+        }
+        return flips;
+    }
+
+    // Returns the square of the set bit with the given index, counting from the lowest
+    private static int selectSquare(long squares, int index) {
+        long remaining = squares;
+        for (int i = 0; i < index; i++) {
+            remaining &= remaining - 1;
+        }
+        if (remaining == 0L) {
+            throw new IndexOutOfBoundsException("Move index " + index + " out of bounds");
+        }
+        return Long.numberOfTrailingZeros(remaining);
+    }
+
+    private static Move getMoveFromLegalMoves(long legalMoves, int moveIndex) {
+        if (legalMoves == 0L) {
+            if (moveIndex == 0) {
+                return NoopMove.INSTANCE;
+            }
+            throw new IndexOutOfBoundsException("Move index " + moveIndex + " out of bounds");
+        }
+        return MOVES[selectSquare(legalMoves, moveIndex)];
+    }
+
+    private List<Double> getOutcomes(long firstPlayerDiscs, long secondPlayerDiscs) {
+        int discDifference = Long.bitCount(firstPlayerDiscs) - Long.bitCount(secondPlayerDiscs);
+        if (misere) {
+            discDifference = -discDifference;
+        }
+        if (discDifference > 0) {
+            return FIRST_PLAYER_WIN_OUTCOMES;
+        } else if (discDifference < 0) {
+            return SECOND_PLAYER_WIN_OUTCOMES;
+        }
+        return DRAW_OUTCOMES;
+    }
+
+    private static class ReversiMove extends Move {
+        private final int square;
+        private final String name;
+        private ReversiMove(int square) {
+            this.square = square;
+            this.name = "( move " + (square % 8 + 1) + " " + (square / 8 + 1) + " )";
+        }
+        @Override
+        public int hashCode() {
+            return square;
+        }
+        @Override
+        public boolean equals(Object other) {
+            // These are all interned in MOVES
+            return other == this;
+        }
+        @Override
+        public String toString() {
+            return "ReversiMove [" + name + "]";
+        }
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static final class ReversiStateKey {
+        private final long firstPlayerDiscs;
+        private final long secondPlayerDiscs;
+        private final int roleToMove;
+
+        private ReversiStateKey(long firstPlayerDiscs, long secondPlayerDiscs, int roleToMove) {
+            this.firstPlayerDiscs = firstPlayerDiscs;
+            this.secondPlayerDiscs = secondPlayerDiscs;
+            this.roleToMove = roleToMove;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(firstPlayerDiscs, secondPlayerDiscs, roleToMove);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null)
+                return false;
+            if (getClass() != obj.getClass())
+                return false;
+            ReversiStateKey other = (ReversiStateKey) obj;
+            return firstPlayerDiscs == other.firstPlayerDiscs
+                    && secondPlayerDiscs == other.secondPlayerDiscs
+                    && roleToMove == other.roleToMove;
+        }
+    }
+
+    private class ReversiGameState extends AbstractTurnTakingGameState {
+        private final long firstPlayerDiscs;
+        private final long secondPlayerDiscs;
+        private final int roleToMove;
+        private final long stateHash;
+        // Computed up front, since nearly every use of a state needs them
+        private final long legalMoves;
+        private final boolean terminal;
+
+        private ReversiGameState(long firstPlayerDiscs, long secondPlayerDiscs, int roleToMove, long stateHash) {
+            this.firstPlayerDiscs = firstPlayerDiscs;
+            this.secondPlayerDiscs = secondPlayerDiscs;
+            this.roleToMove = roleToMove;
+            this.stateHash = stateHash;
+            this.legalMoves = getLegalMoves(getDiscs(roleToMove), getDiscs(1 - roleToMove));
+            this.terminal = legalMoves == 0L && getLegalMoves(getDiscs(1 - roleToMove), getDiscs(roleToMove)) == 0L;
+        }
+
+        private long getDiscs(int role) {
+            return (role == 0) ? firstPlayerDiscs : secondPlayerDiscs;
+        }
+
+        @Override
+        protected Move parseMove(String name) {
+            for (ReversiMove move : MOVES) {
+                if (move.name.equals(name)) {
+                    return move;
+                }
+            }
+            throw new IllegalArgumentException("Not a Reversi move: " + name);
+        }
+
+        @Override
+        public int getRoleToMove() {
+            return roleToMove;
+        }
+
+        @Override
+        public int getNumPossibleMoves() {
+            // A player with no moves has to pass
+            return (legalMoves == 0L) ? 1 : Long.bitCount(legalMoves);
+        }
+
+        @Override
+        public Move getPossibleMove(int moveIndex) {
+            return getMoveFromLegalMoves(legalMoves, moveIndex);
+        }
+
+        @Override
+        public ReversiGameState getNextStateFromMoveIndex(int moveIndex) {
+            if (legalMoves == 0L) {
+                return getNextState(getMoveFromLegalMoves(legalMoves, moveIndex));
+            }
+            return getNextState(selectSquare(legalMoves, moveIndex));
+        }
+
+        @Override
+        public ReversiGameState getNextState(Move moveTaken) {
+            if (moveTaken == NoopMove.INSTANCE) {
+                return new ReversiGameState(firstPlayerDiscs, secondPlayerDiscs, 1 - roleToMove,
+                        stateHash ^ SECOND_PLAYER_TO_MOVE_HASH_KEY);
+            }
+            return getNextState(((ReversiMove) moveTaken).square);
+        }
+
+        private ReversiGameState getNextState(int square) {
+            long moveSquare = 1L << square;
+            long playerDiscs = getDiscs(roleToMove);
+            long opponentDiscs = getDiscs(1 - roleToMove);
+            long flips = getFlips(moveSquare, playerDiscs, opponentDiscs);
+            long newPlayerDiscs = playerDiscs | moveSquare | flips;
+            long newOpponentDiscs = opponentDiscs & ~flips;
+            long newStateHash = stateHash ^ SECOND_PLAYER_TO_MOVE_HASH_KEY
+                    ^ getHashOfDiscs(moveSquare | flips, roleToMove)
+                    ^ getHashOfDiscs(flips, 1 - roleToMove);
+            if (roleToMove == 0) {
+                return new ReversiGameState(newPlayerDiscs, newOpponentDiscs, 1, newStateHash);
+            } else {
+                return new ReversiGameState(newOpponentDiscs, newPlayerDiscs, 0, newStateHash);
+            }
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return true;
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return terminal;
+        }
+
+        @Override
+        public double getOutcomeForRole(int role) {
+            return getOutcomes().get(role);
+        }
+
+        @Override
+        public List<Double> getOutcomes() {
+            return Reversi.this.getOutcomes(firstPlayerDiscs, secondPlayerDiscs);
+        }
+
+        @Override
+        public GameStateCursor createCursor() {
+            return new ReversiCursor(this);
+        }
+
+        @Override
+        public long getStateHash() {
+            return stateHash;
+        }
+
+        @Override
+        public Object getStateKey() {
+            return new ReversiStateKey(firstPlayerDiscs, secondPlayerDiscs, roleToMove);
+        }
+
+        @Override
+        public void encode(ByteBuffer buffer) {
+            buffer.putLong(firstPlayerDiscs);
+            buffer.putLong(secondPlayerDiscs);
+            buffer.put((byte) roleToMove);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("ReversiGameState [roleToMove=").append(roleToMove).append('\n');
+            for (int y = 8; y >= 1; y--) {
+                for (int x = 1; x <= 8; x++) {
+                    long square = 1L << getSquare(x, y);
+                    if ((firstPlayerDiscs & square) != 0L) {
+                        sb.append('X');
+                    } else if ((secondPlayerDiscs & square) != 0L) {
+                        sb.append('O');
+                    } else {
+                        sb.append('.');
+                    }
+                }
+                sb.append('\n');
+            }
+            return sb.append(']').toString();
+        }
+    }
+
+    /**
+     * Applies moves to the same bitboards the states use. Each applied move pushes the
+     * previous bitboards and hash onto a stack, so undoing one just pops them back.
+     */
+    private class ReversiCursor extends AbstractTurnTakingCursor {
+        private long firstPlayerDiscs;
+        private long secondPlayerDiscs;
+        private int roleToMove;
+        private long stateHash;
+        // Three entries per move: the two bitboards and the hash from before it
+        private long[] undoStack = new long[3 * 64];
+        private int depth = 0;
+
+        private ReversiCursor(ReversiGameState state) {
+            firstPlayerDiscs = state.firstPlayerDiscs;
+            secondPlayerDiscs = state.secondPlayerDiscs;
+            roleToMove = state.roleToMove;
+            stateHash = state.stateHash;
+        }
+
+        private long getDiscs(int role) {
+            return (role == 0) ? firstPlayerDiscs : secondPlayerDiscs;
+        }
+
+        private long getCurrentLegalMoves() {
+            return getLegalMoves(getDiscs(roleToMove), getDiscs(1 - roleToMove));
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return getCurrentLegalMoves() == 0L
+                    && getLegalMoves(getDiscs(1 - roleToMove), getDiscs(roleToMove)) == 0L;
+        }
+
+        @Override
+        public double getOutcomeForRole(int role) {
+            return getOutcomes().get(role);
+        }
+
+        @Override
+        public List<Double> getOutcomes() {
+            return Reversi.this.getOutcomes(firstPlayerDiscs, secondPlayerDiscs);
+        }
+
+        @Override
+        public int getRoleToMove() {
+            return roleToMove;
+        }
+
+        @Override
+        protected int getNumPossibleMoves() {
+            long legalMoves = getCurrentLegalMoves();
+            return (legalMoves == 0L) ? 1 : Long.bitCount(legalMoves);
+        }
+
+        @Override
+        protected Move getPossibleMove(int moveIndex) {
+            long legalMoves = getCurrentLegalMoves();
+            return getMoveFromLegalMoves(legalMoves, moveIndex);
+        }
+
+        @Override
+        public void applyMove(int moveIndex) {
+            long legalMoves = getCurrentLegalMoves();
+            if (legalMoves == 0L && moveIndex != 0) {
+                throw new IndexOutOfBoundsException("Move index " + moveIndex + " out of bounds");
+            }
+            if (3 * depth == undoStack.length) {
+                undoStack = Arrays.copyOf(undoStack, undoStack.length * 2);
+            }
+            undoStack[3 * depth] = firstPlayerDiscs;
+            undoStack[3 * depth + 1] = secondPlayerDiscs;
+            undoStack[3 * depth + 2] = stateHash;
+            depth++;
+            if (legalMoves != 0L) {
+                long moveSquare = 1L << selectSquare(legalMoves, moveIndex);
+                long playerDiscs = getDiscs(roleToMove);
+                long opponentDiscs = getDiscs(1 - roleToMove);
+                long flips = getFlips(moveSquare, playerDiscs, opponentDiscs);
+                stateHash ^= getHashOfDiscs(moveSquare | flips, roleToMove)
+                        ^ getHashOfDiscs(flips, 1 - roleToMove);
+                if (roleToMove == 0) {
+                    firstPlayerDiscs = playerDiscs | moveSquare | flips;
+                    secondPlayerDiscs = opponentDiscs & ~flips;
+                } else {
+                    secondPlayerDiscs = playerDiscs | moveSquare | flips;
+                    firstPlayerDiscs = opponentDiscs & ~flips;
+                }
+            }
+            roleToMove = 1 - roleToMove;
+            stateHash ^= SECOND_PLAYER_TO_MOVE_HASH_KEY;
+        }
+
+        @Override
+        public void undoMoves() {
+            if (depth == 0) {
+                throw new IllegalStateException("There are no moves to undo");
+            }
+            depth--;
+            firstPlayerDiscs = undoStack[3 * depth];
+            secondPlayerDiscs = undoStack[3 * depth + 1];
+            stateHash = undoStack[3 * depth + 2];
+            roleToMove = 1 - roleToMove;
+        }
+
+        /*
+         * Works on local copies of the bitboards, as the player to move and their opponent,
+         * so there's nothing to restore afterwards. The hash is left alone.
+         */
+        @Override
+        public List<Double> playoutToTerminal(Random random) {
+            long playerDiscs = getDiscs(roleToMove);
+            long opponentDiscs = getDiscs(1 - roleToMove);
+            int role = roleToMove;
+            boolean lastMoveWasPass = false;
+            while (true) {
+                long legalMoves = getLegalMoves(playerDiscs, opponentDiscs);
+                if (legalMoves == 0L) {
+                    if (lastMoveWasPass) {
+                        break;
+                    }
+                    lastMoveWasPass = true;
+                } else {
+                    int numMoves = Long.bitCount(legalMoves);
+                    long moveSquare = 1L << selectSquare(legalMoves, (numMoves > 1) ? random.nextInt(numMoves) : 0);
+                    long flips = getFlips(moveSquare, playerDiscs, opponentDiscs);
+                    playerDiscs |= moveSquare | flips;
+                    opponentDiscs &= ~flips;
+                    lastMoveWasPass = false;
+                }
+                long temp = playerDiscs;
+                playerDiscs = opponentDiscs;
+                opponentDiscs = temp;
+                role = 1 - role;
+            }
+            return (role == 0)
+                    ? Reversi.this.getOutcomes(playerDiscs, opponentDiscs)
+                    : Reversi.this.getOutcomes(opponentDiscs, playerDiscs);
+        }
+
+        @Override
+        public long getStateHash() {
+            return stateHash;
+        }
+
+        @Override
+        public int getDepth() {
+            return depth;
+        }
+
+        @Override
+        public GameState getCurrentState() {
+            return new ReversiGameState(firstPlayerDiscs, secondPlayerDiscs, roleToMove, stateHash);
+        }
+    }
+}
@@ -1,286 +1,504 @@
 package net.alloyggp.research.game.impl;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.List;
-
-import javax.annotation.Nullable;
+import java.util.Random;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Lists;
 
 import net.alloyggp.research.GameState;
+import net.alloyggp.research.GameStateCursor;
 import net.alloyggp.research.GameTreeProvider;
 import net.alloyggp.research.Move;
 
+/*
+ * Squares are numbered from 0 to 63 as (y - 1) * 8 + (x - 1), using the 1-based coordinates
+ * from the move names. The sheep are stored as a bitboard of these squares, and the wolf as
+ * a single square. Pieces only ever occupy dark squares, and each pair of squares 2k and
+ * 2k + 1 contains exactly one of those, so a square's dark square index is just square / 2.
+ *
+ * Moves are listed in order of the square moved from, and then by direction; directions
+ * toward lower x come first, and within those, toward lower y. The sheep only ever move
+ * toward higher y, and only one side moves on any given turn.
+ */
 public class SheepAndWolf implements GameTreeProvider {
+    // Pieces only ever occupy the 32 dark squares, so hashes and keys are in terms of those
+    private static final long[] SHEEP_HASH_KEYS = ZobristKeys.create(32, 0x5EE9L);
+    private static final long[] WOLF_HASH_KEYS = ZobristKeys.create(32, 0x3017L);
+    private static final long WOLF_TO_MOVE_HASH_KEY = ZobristKeys.create(1, 0x70EL)[0];
+
+    private static final int[] X_DIFFS = {-1, -1, 1, 1};
+    private static final int[] Y_DIFFS = {-1, 1, -1, 1};
+    private static final int[] SHEEP_DIRECTIONS = {1, 3};
+    private static final long NOT_FIRST_COLUMN = ~0x0101010101010101L;
+    private static final long NOT_LAST_COLUMN = ~0x8080808080808080L;
+
+    /*
+     * A move is identified by its starting square and direction, as square * 4 + direction.
+     * For each of these, DESTINATIONS has the square moved to, or -1 if it's off the board,
+     * and MOVES has the interned move object.
+     */
+    private static final int[] DESTINATIONS = new int[64 * 4];
+    private static final SheepAndWolfMove[] MOVES = new SheepAndWolfMove[64 * 4];
+    // All squares the wolf could reach from each square, ignoring the sheep
+    private static final long[] WOLF_DESTINATION_MASKS = new long[64];
+    static {
+        for (int square = 0; square < 64; square++) {
+            for (int direction = 0; direction < 4; direction++) {
+                int newX = getX(square) + X_DIFFS[direction];
+                int newY = getY(square) + Y_DIFFS[direction];
+                int move = square * 4 + direction;
+                if (newX < 1 || newX > 8 || newY < 1 || newY > 8) {
+                    DESTINATIONS[move] = -1;
+                } else {
+                    int destination = getSquare(newX, newY);
+                    DESTINATIONS[move] = destination;
+                    MOVES[move] = new SheepAndWolfMove(square, destination);
+                    WOLF_DESTINATION_MASKS[square] |= 1L << destination;
+                }
+            }
+        }
+    }
+
+    private static final ImmutableList<Double> WOLF_WIN_OUTCOMES = ImmutableList.of(1.0, 0.0);
+    private static final ImmutableList<Double> SHEEP_WIN_OUTCOMES = ImmutableList.of(0.0, 1.0);
+
     @Override
     public GameState getInitialState() {
-        return new SheepAndWolfGameState(true,
-                ImmutableList.of(
-                        new Position(1, 1),
-                        new Position(3, 1),
-                        new Position(5, 1),
-                        new Position(7, 1)),
-                new Position(4, 8));
+        long sheep = (1L << getSquare(1, 1))
+                | (1L << getSquare(3, 1))
+                | (1L << getSquare(5, 1))
+                | (1L << getSquare(7, 1));
+        int wolf = getSquare(4, 8);
+        return new SheepAndWolfGameState(true, sheep, wolf, computeStateHash(true, sheep, wolf));
     }
 
-    private static class Position {
-        public final int x;
-        public final int y;
-        private Position(int x, int y) {
-            this.x = x;
-            this.y = y;
-        }
-        @Override
-        public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + x;
-            result = prime * result + y;
-            return result;
-        }
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj)
-                return true;
-            if (obj == null)
-                return false;
-            if (getClass() != obj.getClass())
-                return false;
-            Position other = (Position) obj;
-            if (x != other.x)
-                return false;
-            if (y != other.y)
-                return false;
-            return true;
+    /*
+     * States are encoded in 4 bytes: the dark square index of each sheep in 5 bits apiece,
+     * then the wolf's, then whether it's the wolf's turn. The sheep are written in order of
+     * their squares, which is also the order their moves are listed in.
+     */
+    private static final int ENCODING_VERSION = 1;
+
+    @Override
+    public GameState decode(ByteBuffer buffer) {
+        int encoded = buffer.getInt();
+        long sheep = 0L;
+        for (int sheepIndex = 0; sheepIndex < 4; sheepIndex++) {
+            sheep |= 1L << getSquareFromDarkSquareIndex((encoded >> (5 * sheepIndex)) & 0x1F);
         }
-        @Override
-        public String toString() {
-            return "Position [x=" + x + ", y=" + y + "]";
+        int wolf = getSquareFromDarkSquareIndex((encoded >> 20) & 0x1F);
+        boolean wolfToMove = ((encoded >> 25) & 1) != 0;
+        if ((encoded >>> 26) != 0 || Long.bitCount(sheep) != 4 || (sheep & (1L << wolf)) != 0) {
+            throw new IllegalArgumentException("Invalid encoded Sheep and Wolf state: " + Integer.toHexString(encoded));
         }
+        return new SheepAndWolfGameState(wolfToMove, sheep, wolf, computeStateHash(wolfToMove, sheep, wolf));
+    }
 
-        public @Nullable Position adjust(int xDiff, int yDiff) {
-            int newX = x + xDiff;
-            if (newX < 1 || newX > 8) {
-                return null;
-            }
-            int newY = y + yDiff;
-            if (newY < 1 || newY > 8) {
-                return null;
-            }
-            return new Position(newX, newY);
-        }
+    @Override
+    public int getEncodingVersion() {
+        return ENCODING_VERSION;
     }
 
-    private static final Move NOOP_MOVE = new Move() {
-        @Override
-        public String getName() {
-            return "noop";
+    private static long computeStateHash(boolean wolfToMove, long sheep, int wolf) {
+        long hash = wolfToMove ? WOLF_TO_MOVE_HASH_KEY : 0L;
+        for (long remaining = sheep; remaining != 0L; remaining &= remaining - 1) {
+            hash ^= SHEEP_HASH_KEYS[Long.numberOfTrailingZeros(remaining) / 2];
         }
+        hash ^= WOLF_HASH_KEYS[wolf / 2];
+        return hash;
+    }
 
-        @Override
-        public int hashCode() {
-            return 490583057;
+    private static int getSquare(int x, int y) {
+        return (y - 1) * 8 + (x - 1);
+    }
+
+    private static int getX(int square) {
+        return square % 8 + 1;
+    }
+
+    private static int getY(int square) {
+        return square / 8 + 1;
+    }
+
+    private static int getSquareFromDarkSquareIndex(int index) {
+        int y = index / 4 + 1;
+        // Dark squares are those where x + y is even
+        int x = (index % 4) * 2 + ((y % 2 == 1) ? 1 : 2);
+        return getSquare(x, y);
+    }
+
+    private static int getNumWolfMoves(long sheep, int wolf) {
+        return Long.bitCount(WOLF_DESTINATION_MASKS[wolf] & ~sheep);
+    }
+
+    private static int getNumSheepMoves(long sheep, int wolf) {
+        long empty = ~(sheep | (1L << wolf));
+        // Moves off the top of the board are shifted out entirely
+        long lowerXMoves = ((sheep & NOT_FIRST_COLUMN) << 7) & empty;
+        long higherXMoves = ((sheep & NOT_LAST_COLUMN) << 9) & empty;
+        return Long.bitCount(lowerXMoves) + Long.bitCount(higherXMoves);
+    }
+
+    private static boolean isWolfPastSheep(long sheep, int wolf) {
+        int lowestSheepY = getY(Long.numberOfTrailingZeros(sheep));
+        return lowestSheepY >= getY(wolf);
+    }
+
+    /*
+     * These return the move (as square * 4 + direction) with the given index in the list of
+     * legal moves.
+     */
+    private static int findWolfMove(long sheep, int wolf, int moveIndex) {
+        int movesLeft = moveIndex;
+        for (int direction = 0; direction < 4; direction++) {
+            int move = wolf * 4 + direction;
+            int destination = DESTINATIONS[move];
+            if (destination >= 0 && (sheep & (1L << destination)) == 0) {
+                if (movesLeft == 0) {
+                    return move;
+                }
+                movesLeft--;
+            }
         }
+        throw new IndexOutOfBoundsException("Move index " + moveIndex + " out of bounds for the wolf");
+    }
 
-        @Override
-        public boolean equals(Object other) {
-            return other == this;
+    private static int findSheepMove(long sheep, int wolf, int moveIndex) {
+        long empty = ~(sheep | (1L << wolf));
+        int movesLeft = moveIndex;
+        for (long remaining = sheep; remaining != 0L; remaining &= remaining - 1) {
+            int square = Long.numberOfTrailingZeros(remaining);
+            for (int direction : SHEEP_DIRECTIONS) {
+                int move = square * 4 + direction;
+                int destination = DESTINATIONS[move];
+                if (destination >= 0 && (empty & (1L << destination)) != 0) {
+                    if (movesLeft == 0) {
+                        return move;
+                    }
+                    movesLeft--;
+                }
+            }
         }
-    };
+        throw new IndexOutOfBoundsException("Move index " + moveIndex + " out of bounds for the sheep");
+    }
 
     private static class SheepAndWolfMove extends Move {
-        private final Position from;
-        private final Position to;
-        private SheepAndWolfMove(Position from, Position to) {
+        private final int from;
+        private final int to;
+        private final String name;
+        private SheepAndWolfMove(int from, int to) {
             this.from = from;
             this.to = to;
+            this.name = "( move c" + getX(from) + " c" + getY(from) + " c" + getX(to) + " c" + getY(to) + " )";
         }
         @Override
         public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + ((from == null) ? 0 : from.hashCode());
-            result = prime * result + ((to == null) ? 0 : to.hashCode());
-            return result;
+            return from * 64 + to;
         }
         @Override
-        public boolean equals(Object obj) {
-            if (this == obj)
-                return true;
-            if (obj == null)
-                return false;
-            if (getClass() != obj.getClass())
-                return false;
-            SheepAndWolfMove other = (SheepAndWolfMove) obj;
-            if (from == null) {
-                if (other.from != null)
-                    return false;
-            } else if (!from.equals(other.from))
-                return false;
-            if (to == null) {
-                if (other.to != null)
-                    return false;
-            } else if (!to.equals(other.to))
-                return false;
-            return true;
+        public boolean equals(Object other) {
+            // These are all interned in MOVES
+            return other == this;
         }
         @Override
         public String toString() {
-            return "SheepAndWolfMove [from=" + from + ", to=" + to + "]";
+            return "SheepAndWolfMove [" + name + "]";
         }
         @Override
         public String getName() {
-            return "( move c" + from.x + " c" + from.y + " c" + to.x + " c" + to.y + " )";
+            return name;
         }
-
     }
 
-    private static class SheepAndWolfGameState implements GameState {
-        private static final ImmutableList<Integer> DIFFS = ImmutableList.of(-1, 1);
-        private static final ImmutableList<Move> NOOP_MOVE_LIST = ImmutableList.of(NOOP_MOVE);
+    private static class SheepAndWolfGameState extends AbstractTurnTakingGameState {
         private final boolean wolfToMove;
-        private final ImmutableList<Position> sheepPositions;
-        private final Position wolfPosition;
+        private final long sheep;
+        private final int wolf;
+        private final long stateHash;
+        // These are cheap to compute up front, and are needed for most uses of a state
+        private final int numWolfMoves;
+        private final int numSheepMoves;
+        private final boolean terminal;
 
-        private SheepAndWolfGameState(boolean wolfToMove, ImmutableList<Position> sheepPositions,
-                Position wolfPosition) {
+        private SheepAndWolfGameState(boolean wolfToMove, long sheep, int wolf, long stateHash) {
             this.wolfToMove = wolfToMove;
-            this.sheepPositions = sheepPositions;
-            this.wolfPosition = wolfPosition;
+            this.sheep = sheep;
+            this.wolf = wolf;
+            this.stateHash = stateHash;
+            this.numWolfMoves = SheepAndWolf.getNumWolfMoves(sheep, wolf);
+            this.numSheepMoves = SheepAndWolf.getNumSheepMoves(sheep, wolf);
+            this.terminal = numWolfMoves == 0 || isWolfPastSheep(sheep, wolf) || numSheepMoves == 0;
         }
 
         @Override
-        public Move getMoveWithName(int roleIndex, String name) {
-            if (name.equals("noop")) {
-                return NOOP_MOVE;
-            }
-            name.charAt(7);
+        protected Move parseMove(String name) {
             int fromX = Integer.parseInt(name.substring(8, 9));
             int fromY = Integer.parseInt(name.substring(11, 12));
             int toX = Integer.parseInt(name.substring(14, 15));
             int toY = Integer.parseInt(name.substring(17, 18));
-            return new SheepAndWolfMove(new Position(fromX, fromY), new Position(toX, toY));
+            int from = getSquare(fromX, fromY);
+            for (int direction = 0; direction < 4; direction++) {
+                SheepAndWolfMove move = MOVES[from * 4 + direction];
+                if (move != null && move.to == getSquare(toX, toY)) {
+                    return move;
+                }
+            }
+            throw new IllegalArgumentException("Not a Sheep and Wolf move: " + name);
+        }
+
+        @Override
+        public int getRoleToMove() {
+            return wolfToMove ? 0 : 1;
         }
 
         @Override
-        public List<Move> getPossibleMovesForRole(int role) {
-            if (wolfToMove && role == 0) {
-                return getWolfMoves();
-            } else if (!wolfToMove && role == 1) {
-                return getSheepMoves();
+        public int getNumPossibleMoves() {
+            return wolfToMove ? numWolfMoves : numSheepMoves;
+        }
+
+        @Override
+        public Move getPossibleMove(int moveIndex) {
+            return MOVES[findMove(moveIndex)];
+        }
+
+        private int findMove(int moveIndex) {
+            return wolfToMove ? findWolfMove(sheep, wolf, moveIndex) : findSheepMove(sheep, wolf, moveIndex);
+        }
+
+        @Override
+        public SheepAndWolfGameState getNextStateFromMoveIndex(int moveIndex) {
+            return getNextState(MOVES[findMove(moveIndex)]);
+        }
+
+        @Override
+        public SheepAndWolfGameState getNextState(Move moveTaken) {
+            SheepAndWolfMove move = (SheepAndWolfMove) moveTaken;
+            long newStateHash = stateHash ^ WOLF_TO_MOVE_HASH_KEY;
+            if (wolfToMove) {
+                newStateHash ^= WOLF_HASH_KEYS[move.from / 2] ^ WOLF_HASH_KEYS[move.to / 2];
+                return new SheepAndWolfGameState(false, sheep, move.to, newStateHash);
             } else {
-                return NOOP_MOVE_LIST;
+                newStateHash ^= SHEEP_HASH_KEYS[move.from / 2] ^ SHEEP_HASH_KEYS[move.to / 2];
+                long newSheep = sheep ^ (1L << move.from) ^ (1L << move.to);
+                return new SheepAndWolfGameState(true, newSheep, wolf, newStateHash);
             }
         }
 
-        private List<Move> getSheepMoves() {
-            List<Move> moves = Lists.newArrayListWithCapacity(8);
-            for (int sheep = 0; sheep < 4; sheep++) {
-                Position sheepPosition = sheepPositions.get(sheep);
-                for (int xDiff : DIFFS) {
-                    @Nullable Position newSheepPosition = sheepPosition.adjust(xDiff, 1);
-                    if (newSheepPosition != null
-                            && !occupied(newSheepPosition)) {
-                        moves.add(new SheepAndWolfMove(sheepPosition, newSheepPosition));
-                    }
-                }
+        @Override
+        public boolean isThreadSafe() {
+            // States are immutable, and cursors are independent of each other
+            return true;
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return terminal;
+        }
+
+        @Override
+        public double getOutcomeForRole(int role) {
+            boolean won = (role == 1) == (numWolfMoves == 0);
+            if (won) {
+                return 1.0;
+            } else {
+                return 0.0;
             }
-            return moves;
         }
 
-        private List<Move> getWolfMoves() {
-            List<Move> moves = Lists.newArrayListWithCapacity(4);
-            for (int xDiff : DIFFS) {
-                for (int yDiff : DIFFS) {
-                    @Nullable Position newWolfPosition = wolfPosition.adjust(xDiff, yDiff);
-                    if (newWolfPosition != null
-                            && !occupied(newWolfPosition)) {
-                        moves.add(new SheepAndWolfMove(wolfPosition, newWolfPosition));
-                    }
+        @Override
+        public List<Double> getOutcomes() {
+            return (numWolfMoves == 0) ? SHEEP_WIN_OUTCOMES : WOLF_WIN_OUTCOMES;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("SheepAndWolfGameState [wolfToMove=").append(wolfToMove).append(", sheep=[");
+            for (long remaining = sheep; remaining != 0L; remaining &= remaining - 1) {
+                int square = Long.numberOfTrailingZeros(remaining);
+                sb.append('(').append(getX(square)).append(", ").append(getY(square)).append(')');
+                if ((remaining & (remaining - 1)) != 0L) {
+                    sb.append(", ");
                 }
             }
-            return moves;
+            return sb.append("], wolf=(").append(getX(wolf)).append(", ").append(getY(wolf)).append(")]").toString();
+        }
+
+        @Override
+        public GameStateCursor createCursor() {
+            return new SheepAndWolfCursor(this);
         }
 
-        private boolean occupied(Position position) {
-            if (position.equals(wolfPosition)) {
-                return true;
+        @Override
+        public long getStateHash() {
+            return stateHash;
+        }
+
+        @Override
+        public Object getStateKey() {
+            // Sheep are interchangeable, so they are recorded as a set of dark squares
+            long key = 0L;
+            for (long remaining = sheep; remaining != 0L; remaining &= remaining - 1) {
+                key |= 1L << (Long.numberOfTrailingZeros(remaining) / 2);
             }
-            for (Position sheepPosition : sheepPositions) {
-                if (position.equals(sheepPosition)) {
-                    return true;
-                }
+            key |= ((long) wolf / 2) << 32;
+            if (wolfToMove) {
+                key |= 1L << 37;
             }
-            return false;
+            return key;
         }
 
         @Override
-        public GameState getNextState(List<Move> movesTaken) {
-            final ImmutableList<Position> newSheepPositions;
-            final Position newWolfPosition;
+        public void encode(ByteBuffer buffer) {
+            int encoded = 0;
+            int sheepIndex = 0;
+            for (long remaining = sheep; remaining != 0L; remaining &= remaining - 1) {
+                encoded |= (Long.numberOfTrailingZeros(remaining) / 2) << (5 * sheepIndex);
+                sheepIndex++;
+            }
+            encoded |= (wolf / 2) << 20;
             if (wolfToMove) {
-                SheepAndWolfMove move = (SheepAndWolfMove) movesTaken.get(0);
-                newSheepPositions = sheepPositions;
-                newWolfPosition = move.to;
-            } else {
-                SheepAndWolfMove move = (SheepAndWolfMove) movesTaken.get(1);
-                newWolfPosition = wolfPosition;
-                ImmutableList.Builder<Position> newSheepPositionsBuilder = ImmutableList.builder();
-                for (Position sheepPosition : sheepPositions) {
-                    if (sheepPosition.equals(move.from)) {
-                        newSheepPositionsBuilder.add(move.to);
-                    } else {
-                        newSheepPositionsBuilder.add(sheepPosition);
-                    }
-                }
-                newSheepPositions = newSheepPositionsBuilder.build();
+                encoded |= 1 << 25;
             }
-            boolean newWolfToMove = !wolfToMove;
-            return new SheepAndWolfGameState(newWolfToMove, newSheepPositions, newWolfPosition);
+            buffer.putInt(encoded);
+        }
+    }
+
+    /**
+     * Applies and undoes moves on the same bitboards the states use, keeping a stack of the
+     * moves applied, so neither allocates.
+     */
+    private static class SheepAndWolfCursor extends AbstractTurnTakingCursor {
+        private long sheep;
+        private int wolf;
+        private boolean wolfToMove;
+        private long stateHash;
+        // Moves applied so far, as square * 4 + direction
+        private int[] undoStack = new int[64];
+        private int depth = 0;
+
+        private SheepAndWolfCursor(SheepAndWolfGameState state) {
+            sheep = state.sheep;
+            wolf = state.wolf;
+            wolfToMove = state.wolfToMove;
+            stateHash = state.stateHash;
         }
 
         @Override
         public boolean isTerminal() {
-            return wolfHasNoMoves() || isWolfPastSheep() || sheepHaveNoMoves();
+            return getNumWolfMoves(sheep, wolf) == 0 || isWolfPastSheep(sheep, wolf) || getNumSheepMoves(sheep, wolf) == 0;
         }
 
-        private boolean sheepHaveNoMoves() {
-            return getSheepMoves().isEmpty();
+        @Override
+        public double getOutcomeForRole(int role) {
+            boolean won = (role == 1) == (getNumWolfMoves(sheep, wolf) == 0);
+            if (won) {
+                return 1.0;
+            } else {
+                return 0.0;
+            }
+        }
+
+        @Override
+        public List<Double> getOutcomes() {
+            return (getNumWolfMoves(sheep, wolf) == 0) ? SHEEP_WIN_OUTCOMES : WOLF_WIN_OUTCOMES;
+        }
+
+        @Override
+        public int getRoleToMove() {
+            return wolfToMove ? 0 : 1;
+        }
+
+        @Override
+        protected int getNumPossibleMoves() {
+            return wolfToMove ? getNumWolfMoves(sheep, wolf) : getNumSheepMoves(sheep, wolf);
+        }
+
+        @Override
+        protected Move getPossibleMove(int moveIndex) {
+            return MOVES[findMove(moveIndex)];
         }
 
-        private boolean wolfHasNoMoves() {
-            return getWolfMoves().isEmpty();
+        private int findMove(int moveIndex) {
+            return wolfToMove ? findWolfMove(sheep, wolf, moveIndex) : findSheepMove(sheep, wolf, moveIndex);
         }
 
-        private boolean isWolfPastSheep() {
-            int wolfY = wolfPosition.y;
-            for (Position sheepPosition : sheepPositions) {
-                if (sheepPosition.y < wolfY) {
-                    return false;
+        /*
+         * Works on local copies of the position, so there's nothing to restore afterwards, and
+         * leaves the hash alone.
+         */
+        @Override
+        public List<Double> playoutToTerminal(Random random) {
+            long sheep = this.sheep;
+            int wolf = this.wolf;
+            boolean wolfToMove = this.wolfToMove;
+            while (true) {
+                int numWolfMoves = getNumWolfMoves(sheep, wolf);
+                if (numWolfMoves == 0) {
+                    return SHEEP_WIN_OUTCOMES;
+                }
+                int numSheepMoves = getNumSheepMoves(sheep, wolf);
+                if (numSheepMoves == 0 || isWolfPastSheep(sheep, wolf)) {
+                    return WOLF_WIN_OUTCOMES;
+                }
+                if (wolfToMove) {
+                    int move = findWolfMove(sheep, wolf, (numWolfMoves > 1) ? random.nextInt(numWolfMoves) : 0);
+                    wolf = DESTINATIONS[move];
+                } else {
+                    int move = findSheepMove(sheep, wolf, (numSheepMoves > 1) ? random.nextInt(numSheepMoves) : 0);
+                    sheep ^= (1L << (move / 4)) ^ (1L << DESTINATIONS[move]);
                 }
+                wolfToMove = !wolfToMove;
             }
-            return true;
         }
 
         @Override
-        public double getOutcomeForRole(int role) {
-            boolean won = (role == 1) == wolfHasNoMoves();
-            if (won) {
-                return 1.0;
+        public void applyMove(int moveIndex) {
+            int move = findMove(moveIndex);
+            if (depth == undoStack.length) {
+                undoStack = Arrays.copyOf(undoStack, depth * 2);
+            }
+            undoStack[depth] = move;
+            depth++;
+            movePiece(move / 4, DESTINATIONS[move]);
+        }
+
+        @Override
+        public void undoMoves() {
+            if (depth == 0) {
+                throw new IllegalStateException("There are no moves to undo");
+            }
+            depth--;
+            int move = undoStack[depth];
+            movePiece(DESTINATIONS[move], move / 4);
+        }
+
+        private void movePiece(int from, int to) {
+            if (from == wolf) {
+                wolf = to;
+                stateHash ^= WOLF_HASH_KEYS[from / 2] ^ WOLF_HASH_KEYS[to / 2];
             } else {
-                return 0.0;
+                sheep ^= (1L << from) ^ (1L << to);
+                stateHash ^= SHEEP_HASH_KEYS[from / 2] ^ SHEEP_HASH_KEYS[to / 2];
             }
+            wolfToMove = !wolfToMove;
+            stateHash ^= WOLF_TO_MOVE_HASH_KEY;
         }
 
         @Override
-        public String toString() {
-            return "SheepAndWolfGameState [wolfToMove=" + wolfToMove + ", sheepPositions=" + sheepPositions
-                    + ", wolfPosition=" + wolfPosition + "]";
+        public long getStateHash() {
+            return stateHash;
+        }
+
+        @Override
+        public int getDepth() {
+            return depth;
         }
 
         @Override
-        public int getNumRoles() {
-            return 2;
+        public GameState getCurrentState() {
+            return new SheepAndWolfGameState(wolfToMove, sheep, wolf, stateHash);
         }
     }
 }
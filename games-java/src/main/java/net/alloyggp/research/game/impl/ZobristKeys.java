@@ -0,0 +1,27 @@
+package net.alloyggp.research.game.impl;
+
+import java.util.SplittableRandom;
+
+/**
+ * Creates tables of random keys for Zobrist hashing. A position's hash is the XOR of
+ * the keys for its features (e.g. a piece on a square), so it can be updated
+ * incrementally as features change.
+ */
+/*package-private*/ final class ZobristKeys {
+    private ZobristKeys() {
+        // Not instantiable
+    }
+
+    /**
+     * Returns the given number of keys. The seed should be fixed per game so hashes are
+     * reproducible from run to run.
+     */
+    public static long[] create(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = random.nextLong();
+        }
+        return keys;
+    }
+}
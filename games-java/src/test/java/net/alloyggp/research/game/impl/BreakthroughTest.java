@@ -0,0 +1,116 @@
+package net.alloyggp.research.game.impl;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class BreakthroughTest {
+    @Test
+    public void testMatchesReference() {
+        ReferenceGameChecker.checkAgainstReference(new Breakthrough(8), () -> new ReferenceBreakthrough(8), 1000);
+    }
+
+    @Test
+    public void testSmallBoardMatchesReference() {
+        ReferenceGameChecker.checkAgainstReference(new Breakthrough(6), () -> new ReferenceBreakthrough(6), 1000);
+    }
+
+    // Scans the whole board for moves on a board indexed by 1-based [x][y]; role 0 moves up
+    private static class ReferenceBreakthrough implements ReferenceGame {
+        private final int size;
+        private final int[][] board;
+        private int roleToMove = 0;
+
+        private ReferenceBreakthrough(int size) {
+            this.size = size;
+            this.board = new int[size + 1][size + 1];
+            for (int[] column : board) {
+                Arrays.fill(column, -1);
+            }
+            for (int x = 1; x <= size; x++) {
+                board[x][1] = 0;
+                board[x][2] = 0;
+                board[x][size - 1] = 1;
+                board[x][size] = 1;
+            }
+        }
+
+        @Override
+        public List<String> getPossibleMoveNames(int role) {
+            if (role != roleToMove) {
+                return ImmutableList.of("noop");
+            }
+            List<String> moveNames = Lists.newArrayList();
+            int dy = role == 0 ? 1 : -1;
+            for (int x = 1; x <= size; x++) {
+                for (int y = 1; y <= size; y++) {
+                    if (board[x][y] != role) {
+                        continue;
+                    }
+                    for (int dx = -1; dx <= 1; dx++) {
+                        int newX = x + dx;
+                        int newY = y + dy;
+                        if (newX < 1 || newX > size || newY < 1 || newY > size) {
+                            continue;
+                        }
+                        // Pieces move straight only onto empty squares, but may capture diagonally
+                        boolean legal = (dx == 0) ? board[newX][newY] == -1 : board[newX][newY] != role;
+                        if (legal) {
+                            moveNames.add("( move " + x + " " + y + " " + newX + " " + newY + " )");
+                        }
+                    }
+                }
+            }
+            return moveNames;
+        }
+
+        @Override
+        public void applyMoves(List<String> moveNames) {
+            String[] parts = moveNames.get(roleToMove).split(" ");
+            board[Integer.parseInt(parts[2])][Integer.parseInt(parts[3])] = -1;
+            board[Integer.parseInt(parts[4])][Integer.parseInt(parts[5])] = roleToMove;
+            roleToMove = 1 - roleToMove;
+        }
+
+        private int getWinner() {
+            int[] pieceCounts = new int[2];
+            for (int x = 1; x <= size; x++) {
+                if (board[x][size] == 0) {
+                    return 0;
+                } else if (board[x][1] == 1) {
+                    return 1;
+                }
+                for (int y = 1; y <= size; y++) {
+                    if (board[x][y] >= 0) {
+                        pieceCounts[board[x][y]]++;
+                    }
+                }
+            }
+            if (pieceCounts[1] == 0) {
+                return 0;
+            } else if (pieceCounts[0] == 0) {
+                return 1;
+            }
+            return -1;
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return getWinner() >= 0;
+        }
+
+        @Override
+        public List<Double> getOutcomes() {
+            return getWinner() == 0 ? ImmutableList.of(1.0, 0.0) : ImmutableList.of(0.0, 1.0);
+        }
+
+        @Override
+        public String getPositionKey() {
+            return Arrays.deepToString(board) + roleToMove;
+        }
+    }
+}
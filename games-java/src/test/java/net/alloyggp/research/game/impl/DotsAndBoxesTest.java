@@ -0,0 +1,121 @@
+package net.alloyggp.research.game.impl;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class DotsAndBoxesTest {
+    @Test
+    public void testMatchesReference() {
+        ReferenceGameChecker.checkAgainstReference(new DotsAndBoxes(6, false), () -> new ReferenceDotsAndBoxes(6, false), 300);
+    }
+
+    @Test
+    public void testMisereMatchesReference() {
+        ReferenceGameChecker.checkAgainstReference(new DotsAndBoxes(6, true), () -> new ReferenceDotsAndBoxes(6, true), 300);
+    }
+
+    @Test
+    public void testSmallBoardMatchesReference() {
+        ReferenceGameChecker.checkAgainstReference(new DotsAndBoxes(3, false), () -> new ReferenceDotsAndBoxes(3, false), 1000);
+    }
+
+    // Keeps the drawn lines as a set of move names, and looks up all four sides of every box
+    private static class ReferenceDotsAndBoxes implements ReferenceGame {
+        private final int dotsPerSide;
+        private final boolean misere;
+        private final Set<String> drawnLines = Sets.newTreeSet();
+        private final int[] boxCounts = new int[2];
+        private int roleToMove = 0;
+
+        private ReferenceDotsAndBoxes(int dotsPerSide, boolean misere) {
+            this.dotsPerSide = dotsPerSide;
+            this.misere = misere;
+        }
+
+        private static String getLineName(int x1, int y1, int x2, int y2) {
+            return "( mark " + x1 + " " + y1 + " " + x2 + " " + y2 + " )";
+        }
+
+        private List<String> getAllLines() {
+            List<String> lines = Lists.newArrayList();
+            for (int x = 1; x <= dotsPerSide; x++) {
+                for (int y = 1; y <= dotsPerSide; y++) {
+                    if (x < dotsPerSide) {
+                        lines.add(getLineName(x, y, x + 1, y));
+                    }
+                    if (y < dotsPerSide) {
+                        lines.add(getLineName(x, y, x, y + 1));
+                    }
+                }
+            }
+            return lines;
+        }
+
+        private int countCompletedBoxes() {
+            int count = 0;
+            for (int x = 1; x < dotsPerSide; x++) {
+                for (int y = 1; y < dotsPerSide; y++) {
+                    if (drawnLines.contains(getLineName(x, y, x + 1, y))
+                            && drawnLines.contains(getLineName(x, y + 1, x + 1, y + 1))
+                            && drawnLines.contains(getLineName(x, y, x, y + 1))
+                            && drawnLines.contains(getLineName(x + 1, y, x + 1, y + 1))) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public List<String> getPossibleMoveNames(int role) {
+            if (role != roleToMove) {
+                return ImmutableList.of("noop");
+            }
+            List<String> lines = getAllLines();
+            lines.removeAll(drawnLines);
+            return lines;
+        }
+
+        @Override
+        public void applyMoves(List<String> moveNames) {
+            int boxesBefore = countCompletedBoxes();
+            drawnLines.add(moveNames.get(roleToMove));
+            int newBoxes = countCompletedBoxes() - boxesBefore;
+            if (newBoxes > 0) {
+                boxCounts[roleToMove] += newBoxes;
+            } else {
+                roleToMove = 1 - roleToMove;
+            }
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return drawnLines.size() == getAllLines().size();
+        }
+
+        @Override
+        public List<Double> getOutcomes() {
+            int boxDifference = boxCounts[0] - boxCounts[1];
+            if (misere) {
+                boxDifference = -boxDifference;
+            }
+            if (boxDifference > 0) {
+                return ImmutableList.of(1.0, 0.0);
+            } else if (boxDifference < 0) {
+                return ImmutableList.of(0.0, 1.0);
+            }
+            return ImmutableList.of(0.5, 0.5);
+        }
+
+        @Override
+        public String getPositionKey() {
+            return drawnLines + " " + roleToMove + " " + boxCounts[0];
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package net.alloyggp.research.game.impl;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class GomokuTest {
+    @Test
+    public void testSmallBoardMatchesReference() {
+        ReferenceGameChecker.checkAgainstReference(new Gomoku(5, false), () -> new ReferenceGomoku(5, false), 1000);
+    }
+
+    @Test
+    public void testSmallBoardSwap2MatchesReference() {
+        ReferenceGameChecker.checkAgainstReference(new Gomoku(6, true), () -> new ReferenceGomoku(6, true), 1000);
+    }
+
+    @Test
+    public void testMatchesReference() {
+        ReferenceGameChecker.checkAgainstReference(new Gomoku(11, false), () -> new ReferenceGomoku(11, false), 100);
+    }
+
+    @Test
+    public void testSwap2MatchesReference() {
+        ReferenceGameChecker.checkAgainstReference(new Gomoku(11, true), () -> new ReferenceGomoku(11, true), 100);
+    }
+
+    /*
+     * Tracks the Swap2 opening as a named phase:
+     * - "open": the first player places two black stones and a white one
+     * - "c1": the second player picks black, picks white by placing a white stone, or places two more
+     * - "ext": the second player places a black stone and a white one
+     * - "c2": the first player picks black, or picks white by placing a white stone
+     * - "play": the players alternate, black first
+     */
+    private static class ReferenceGomoku implements ReferenceGame {
+        private static final int EMPTY = 0;
+        private static final int BLACK = 1;
+        private static final int WHITE = 2;
+
+        private final int size;
+        private final int[][] board;
+        private String phase;
+        private int blackRole = 0;
+        private int numStones = 0;
+        private int winner = -1;
+
+        private ReferenceGomoku(int size, boolean swap2) {
+            this.size = size;
+            this.board = new int[size][size];
+            this.phase = swap2 ? "open" : "play";
+        }
+
+        private int getColorToPlace() {
+            switch (phase) {
+            case "open":
+                return numStones == 1 ? WHITE : BLACK;
+            case "c1":
+            case "c2":
+                return WHITE;
+            case "ext":
+                return numStones == 3 ? BLACK : WHITE;
+            default:
+                return numStones % 2 == 0 ? BLACK : WHITE;
+            }
+        }
+
+        private int getRoleToMove() {
+            switch (phase) {
+            case "open":
+            case "c2":
+                return 0;
+            case "c1":
+            case "ext":
+                return 1;
+            default:
+                return getColorToPlace() == BLACK ? blackRole : 1 - blackRole;
+            }
+        }
+
+        @Override
+        public List<String> getPossibleMoveNames(int role) {
+            if (role != getRoleToMove()) {
+                return ImmutableList.of("noop");
+            }
+            List<String> moveNames = Lists.newArrayList();
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    if (board[x][y] == EMPTY) {
+                        moveNames.add("( mark " + (x + 1) + " " + (y + 1) + " )");
+                    }
+                }
+            }
+            if (phase.equals("c1") || phase.equals("c2")) {
+                moveNames.add("chooseBlack");
+            }
+            if (phase.equals("c1")) {
+                moveNames.add("placeTwo");
+            }
+            return moveNames;
+        }
+
+        @Override
+        public void applyMoves(List<String> moveNames) {
+            int role = getRoleToMove();
+            String moveName = moveNames.get(role);
+            if (moveName.equals("chooseBlack")) {
+                blackRole = phase.equals("c1") ? 1 : 0;
+                phase = "play";
+                return;
+            } else if (moveName.equals("placeTwo")) {
+                phase = "ext";
+                return;
+            }
+            String[] parts = moveName.split(" ");
+            int x = Integer.parseInt(parts[2]) - 1;
+            int y = Integer.parseInt(parts[3]) - 1;
+            int color = getColorToPlace();
+            board[x][y] = color;
+            numStones++;
+            if (phase.equals("c1")) {
+                blackRole = 0;
+                phase = "play";
+            } else if (phase.equals("c2")) {
+                blackRole = 1;
+                phase = "play";
+            } else if (phase.equals("open") && numStones == 3) {
+                phase = "c1";
+            } else if (phase.equals("ext") && numStones == 5) {
+                phase = "c2";
+            }
+            if (hasFiveInARow(color)) {
+                winner = role;
+            }
+        }
+
+        private boolean hasFiveInARow(int color) {
+            int[][] directions = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    for (int[] direction : directions) {
+                        int length = 0;
+                        while (length < 5 && isColor(x + direction[0] * length, y + direction[1] * length, color)) {
+                            length++;
+                        }
+                        if (length == 5) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean isColor(int x, int y, int color) {
+            return x >= 0 && y >= 0 && x < size && y < size && board[x][y] == color;
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return winner >= 0 || numStones == size * size;
+        }
+
+        @Override
+        public List<Double> getOutcomes() {
+            if (winner == 0) {
+                return ImmutableList.of(1.0, 0.0);
+            } else if (winner == 1) {
+                return ImmutableList.of(0.0, 1.0);
+            }
+            return ImmutableList.of(0.5, 0.5);
+        }
+
+        @Override
+        public String getPositionKey() {
+            // Which role has black only matters once it's been chosen
+            return Arrays.deepToString(board) + phase + (phase.equals("play") ? blackRole : 0);
+        }
+    }
+}
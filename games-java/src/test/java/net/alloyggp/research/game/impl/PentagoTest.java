@@ -0,0 +1,143 @@
+package net.alloyggp.research.game.impl;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class PentagoTest {
+    @Test
+    public void testMatchesReference() {
+        ReferenceGameChecker.checkAgainstReference(new Pentago(false), () -> new ReferencePentago(false), 500);
+    }
+
+    @Test
+    public void testMisereMatchesReference() {
+        ReferenceGameChecker.checkAgainstReference(new Pentago(true), () -> new ReferencePentago(true), 500);
+    }
+
+    // Copies each quadrant out and back in to rotate it, on a board indexed by 0-based [y][x]
+    private static class ReferencePentago implements ReferenceGame {
+        private final boolean misere;
+        private final int[][] board = new int[6][6];
+        private int roleToMove = 0;
+        private boolean rotating = false;
+
+        private ReferencePentago(boolean misere) {
+            this.misere = misere;
+            for (int[] row : board) {
+                Arrays.fill(row, -1);
+            }
+        }
+
+        private boolean hasFiveInARow(int role) {
+            int[][] directions = {{1, 0}, {0, 1}, {1, 1}, {-1, 1}};
+            for (int y = 0; y < 6; y++) {
+                for (int x = 0; x < 6; x++) {
+                    for (int[] direction : directions) {
+                        int length = 0;
+                        while (length < 5 && isRole(x + direction[0] * length, y + direction[1] * length, role)) {
+                            length++;
+                        }
+                        if (length == 5) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean isRole(int x, int y, int role) {
+            return x >= 0 && y >= 0 && x < 6 && y < 6 && board[y][x] == role;
+        }
+
+        private boolean isFull() {
+            for (int[] row : board) {
+                for (int square : row) {
+                    if (square < 0) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public List<String> getPossibleMoveNames(int role) {
+            if (role != roleToMove) {
+                return ImmutableList.of("noop");
+            }
+            List<String> moveNames = Lists.newArrayList();
+            if (rotating) {
+                for (int quadrant = 1; quadrant <= 4; quadrant++) {
+                    moveNames.add("( rotate " + quadrant + " clockwise )");
+                    moveNames.add("( rotate " + quadrant + " counterclockwise )");
+                }
+            } else {
+                for (int y = 0; y < 6; y++) {
+                    for (int x = 0; x < 6; x++) {
+                        if (board[y][x] < 0) {
+                            moveNames.add("( place " + (x + 1) + " " + (y + 1) + " )");
+                        }
+                    }
+                }
+            }
+            return moveNames;
+        }
+
+        @Override
+        public void applyMoves(List<String> moveNames) {
+            String[] parts = moveNames.get(roleToMove).split(" ");
+            if (!rotating) {
+                board[Integer.parseInt(parts[3]) - 1][Integer.parseInt(parts[2]) - 1] = roleToMove;
+                rotating = true;
+                return;
+            }
+            int quadrant = Integer.parseInt(parts[2]) - 1;
+            int firstRow = (quadrant / 2) * 3;
+            int firstColumn = (quadrant % 2) * 3;
+            int[][] oldQuadrant = new int[3][3];
+            for (int r = 0; r < 3; r++) {
+                for (int c = 0; c < 3; c++) {
+                    oldQuadrant[r][c] = board[firstRow + r][firstColumn + c];
+                }
+            }
+            boolean clockwise = parts[3].equals("clockwise");
+            for (int r = 0; r < 3; r++) {
+                for (int c = 0; c < 3; c++) {
+                    if (clockwise) {
+                        board[firstRow + c][firstColumn + 2 - r] = oldQuadrant[r][c];
+                    } else {
+                        board[firstRow + 2 - c][firstColumn + r] = oldQuadrant[r][c];
+                    }
+                }
+            }
+            rotating = false;
+            roleToMove = 1 - roleToMove;
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return hasFiveInARow(0) || hasFiveInARow(1) || (!rotating && isFull());
+        }
+
+        @Override
+        public List<Double> getOutcomes() {
+            boolean firstPlayerHasFive = hasFiveInARow(0);
+            // A rotation can give both players five in a row at once, which is a draw
+            if (firstPlayerHasFive == hasFiveInARow(1)) {
+                return ImmutableList.of(0.5, 0.5);
+            }
+            return (firstPlayerHasFive != misere) ? ImmutableList.of(1.0, 0.0) : ImmutableList.of(0.0, 1.0);
+        }
+
+        @Override
+        public String getPositionKey() {
+            return Arrays.deepToString(board) + roleToMove + rotating;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package net.alloyggp.research.game.impl;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class QuartoTest {
+    @Test
+    public void testMatchesReference() {
+        ReferenceGameChecker.checkAgainstReference(new Quarto(false), () -> new ReferenceQuarto(false), 1000);
+    }
+
+    @Test
+    public void testMisereMatchesReference() {
+        ReferenceGameChecker.checkAgainstReference(new Quarto(true), () -> new ReferenceQuarto(true), 1000);
+    }
+
+    /*
+     * Checks every attribute of every line of the board, indexed by cell (y * 4 + x). Pieces
+     * are numbered 0-15, and their bits are the four attributes.
+     */
+    private static class ReferenceQuarto implements ReferenceGame {
+        private static final int[][] LINES = {
+                {0, 1, 2, 3}, {4, 5, 6, 7}, {8, 9, 10, 11}, {12, 13, 14, 15},
+                {0, 4, 8, 12}, {1, 5, 9, 13}, {2, 6, 10, 14}, {3, 7, 11, 15},
+                {0, 5, 10, 15}, {3, 6, 9, 12},
+        };
+
+        private final boolean misere;
+        private final int[] board = new int[16];
+        private final Set<Integer> usedPieces = Sets.newHashSet();
+        private int roleToMove = 0;
+        private int selectedPiece = -1;
+        private int winner = -1;
+
+        private ReferenceQuarto(boolean misere) {
+            this.misere = misere;
+            Arrays.fill(board, -1);
+        }
+
+        @Override
+        public List<String> getPossibleMoveNames(int role) {
+            if (role != roleToMove) {
+                return ImmutableList.of("noop");
+            }
+            List<String> moveNames = Lists.newArrayList();
+            if (selectedPiece < 0) {
+                for (int piece = 0; piece < 16; piece++) {
+                    if (!usedPieces.contains(piece)) {
+                        moveNames.add("( select " + (piece + 1) + " )");
+                    }
+                }
+            } else {
+                for (int cell = 0; cell < 16; cell++) {
+                    if (board[cell] < 0) {
+                        moveNames.add("( place " + (cell % 4 + 1) + " " + (cell / 4 + 1) + " )");
+                    }
+                }
+            }
+            return moveNames;
+        }
+
+        private boolean hasSharedAttribute(int[] line) {
+            for (int attribute = 0; attribute < 4; attribute++) {
+                for (int value = 0; value < 2; value++) {
+                    boolean allShare = true;
+                    for (int cell : line) {
+                        if (board[cell] < 0 || ((board[cell] >> attribute) & 1) != value) {
+                            allShare = false;
+                        }
+                    }
+                    if (allShare) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void applyMoves(List<String> moveNames) {
+            String[] parts = moveNames.get(roleToMove).split(" ");
+            if (selectedPiece < 0) {
+                // The player who selects a piece hands it to the other player to place
+                selectedPiece = Integer.parseInt(parts[2]) - 1;
+                usedPieces.add(selectedPiece);
+                roleToMove = 1 - roleToMove;
+                return;
+            }
+            int cell = (Integer.parseInt(parts[3]) - 1) * 4 + Integer.parseInt(parts[2]) - 1;
+            board[cell] = selectedPiece;
+            selectedPiece = -1;
+            for (int[] line : LINES) {
+                if (hasSharedAttribute(line)) {
+                    winner = roleToMove;
+                }
+            }
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return winner >= 0 || usedPieces.size() == 16 && selectedPiece < 0;
+        }
+
+        @Override
+        public List<Double> getOutcomes() {
+            if (winner < 0) {
+                return ImmutableList.of(0.5, 0.5);
+            }
+            return ((winner == 0) != misere) ? ImmutableList.of(1.0, 0.0) : ImmutableList.of(0.0, 1.0);
+        }
+
+        @Override
+        public String getPositionKey() {
+            return Arrays.toString(board) + roleToMove + " " + selectedPiece;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package net.alloyggp.research.game.impl;
+
+import java.util.List;
+
+/**
+ * A deliberately simple, slow implementation of a game's rules, written independently of
+ * the native implementation so the two can be checked against each other. Moves are
+ * identified by their names, which should match the GDL versions of our games, and roles
+ * without a choice of moves have just "noop".
+ */
+interface ReferenceGame {
+    List<String> getPossibleMoveNames(int role);
+
+    /**
+     * Advances the game, with each role r taking the move named moveNames.get(r).
+     */
+    void applyMoves(List<String> moveNames);
+
+    boolean isTerminal();
+
+    List<Double> getOutcomes();
+
+    /**
+     * Returns a string that is equal for two positions exactly when the rules treat them
+     * as the same position.
+     */
+    String getPositionKey();
+}
@@ -0,0 +1,87 @@
+package net.alloyggp.research.game.impl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import net.alloyggp.research.GameState;
+import net.alloyggp.research.GameTreeProvider;
+import net.alloyggp.research.Move;
+
+/**
+ * Plays random games of a native game alongside a {@link ReferenceGame}, and checks that
+ * they agree on the legal moves, terminal positions, and outcomes along the way.
+ *
+ * <p>This also checks the native states' keys and hashes against the reference positions:
+ * positions reached by different move orders must get the same key and hash, and
+ * different positions must get different keys.
+ */
+final class ReferenceGameChecker {
+    private ReferenceGameChecker() {
+        // Not instantiable
+    }
+
+    static void checkAgainstReference(GameTreeProvider game, Supplier<ReferenceGame> referenceSupplier, int numGames) {
+        Map<Object, String> positionKeysByStateKey = Maps.newHashMap();
+        Map<String, Object> stateKeysByPositionKey = Maps.newHashMap();
+        Map<String, Long> stateHashesByPositionKey = Maps.newHashMap();
+        for (int i = 0; i < numGames; i++) {
+            Random random = new Random(i);
+            GameState state = game.getInitialState();
+            ReferenceGame reference = referenceSupplier.get();
+            while (true) {
+                String positionKey = reference.getPositionKey();
+                Object stateKey = state.getStateKey();
+                String previousPositionKey = positionKeysByStateKey.putIfAbsent(stateKey, positionKey);
+                if (previousPositionKey != null) {
+                    Assert.assertEquals("Different positions have the same state key", previousPositionKey, positionKey);
+                }
+                Object previousStateKey = stateKeysByPositionKey.putIfAbsent(positionKey, stateKey);
+                if (previousStateKey != null) {
+                    Assert.assertEquals("The same position has different state keys", previousStateKey, stateKey);
+                }
+                Long previousStateHash = stateHashesByPositionKey.putIfAbsent(positionKey, state.getStateHash());
+                if (previousStateHash != null) {
+                    Assert.assertEquals("The same position has different state hashes", previousStateHash.longValue(), state.getStateHash());
+                }
+
+                Assert.assertEquals(reference.isTerminal(), state.isTerminal());
+                if (state.isTerminal()) {
+                    Assert.assertEquals(reference.getOutcomes(), state.getOutcomes());
+                    break;
+                }
+
+                int[] moveIndices = new int[state.getNumRoles()];
+                for (int r = 0; r < state.getNumRoles(); r++) {
+                    Set<String> moveNames = getMoveNames(state, r);
+                    Assert.assertEquals("Duplicate move names", state.getNumPossibleMovesForRole(r), moveNames.size());
+                    Assert.assertEquals(Sets.newHashSet(reference.getPossibleMoveNames(r)), moveNames);
+                    for (Move move : state.getPossibleMovesForRole(r)) {
+                        Assert.assertEquals(move, state.getMoveWithName(r, move.getName()));
+                    }
+                    moveIndices[r] = random.nextInt(state.getNumPossibleMovesForRole(r));
+                }
+                List<String> moveNames = Lists.newArrayList();
+                for (int r = 0; r < state.getNumRoles(); r++) {
+                    moveNames.add(state.getPossibleMoveForRole(r, moveIndices[r]).getName());
+                }
+                reference.applyMoves(moveNames);
+                state = state.getNextStateFromMoveIndices(moveIndices);
+            }
+        }
+    }
+
+    private static Set<String> getMoveNames(GameState state, int role) {
+        List<Move> moves = state.getPossibleMovesForRole(role);
+        return moves.stream().map(Move::getName).collect(Collectors.toSet());
+    }
+}
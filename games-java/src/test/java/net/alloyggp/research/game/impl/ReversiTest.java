@@ -0,0 +1,140 @@
+package net.alloyggp.research.game.impl;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class ReversiTest {
+    @Test
+    public void testMatchesReference() {
+        ReferenceGameChecker.checkAgainstReference(new Reversi(false), () -> new ReferenceReversi(false), 300);
+    }
+
+    @Test
+    public void testMisereMatchesReference() {
+        ReferenceGameChecker.checkAgainstReference(new Reversi(true), () -> new ReferenceReversi(true), 300);
+    }
+
+    // Walks rays from each square on a board indexed by 1-based [x][y]
+    private static class ReferenceReversi implements ReferenceGame {
+        private final boolean misere;
+        private final int[][] board = new int[9][9];
+        private int roleToMove = 0;
+
+        private ReferenceReversi(boolean misere) {
+            this.misere = misere;
+            for (int[] column : board) {
+                Arrays.fill(column, -1);
+            }
+            board[4][5] = 0;
+            board[5][4] = 0;
+            board[4][4] = 1;
+            board[5][5] = 1;
+        }
+
+        private boolean isOnBoard(int x, int y) {
+            return x >= 1 && x <= 8 && y >= 1 && y <= 8;
+        }
+
+        // Returns the squares flipped by the role playing at (x, y), as {x, y} pairs
+        private List<int[]> getFlips(int x, int y, int role) {
+            List<int[]> flips = Lists.newArrayList();
+            if (board[x][y] != -1) {
+                return flips;
+            }
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    if (dx == 0 && dy == 0) {
+                        continue;
+                    }
+                    List<int[]> ray = Lists.newArrayList();
+                    int rayX = x + dx;
+                    int rayY = y + dy;
+                    while (isOnBoard(rayX, rayY) && board[rayX][rayY] == 1 - role) {
+                        ray.add(new int[] {rayX, rayY});
+                        rayX += dx;
+                        rayY += dy;
+                    }
+                    if (!ray.isEmpty() && isOnBoard(rayX, rayY) && board[rayX][rayY] == role) {
+                        flips.addAll(ray);
+                    }
+                }
+            }
+            return flips;
+        }
+
+        private List<String> getPlacements(int role) {
+            List<String> placements = Lists.newArrayList();
+            for (int x = 1; x <= 8; x++) {
+                for (int y = 1; y <= 8; y++) {
+                    if (!getFlips(x, y, role).isEmpty()) {
+                        placements.add("( move " + x + " " + y + " )");
+                    }
+                }
+            }
+            return placements;
+        }
+
+        @Override
+        public List<String> getPossibleMoveNames(int role) {
+            if (role != roleToMove) {
+                return ImmutableList.of("noop");
+            }
+            List<String> placements = getPlacements(role);
+            return placements.isEmpty() ? ImmutableList.of("noop") : placements;
+        }
+
+        @Override
+        public void applyMoves(List<String> moveNames) {
+            int role = roleToMove;
+            String moveName = moveNames.get(role);
+            if (!moveName.equals("noop")) {
+                String[] parts = moveName.split(" ");
+                int x = Integer.parseInt(parts[2]);
+                int y = Integer.parseInt(parts[3]);
+                for (int[] flip : getFlips(x, y, role)) {
+                    board[flip[0]][flip[1]] = role;
+                }
+                board[x][y] = role;
+            }
+            roleToMove = 1 - roleToMove;
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return getPlacements(0).isEmpty() && getPlacements(1).isEmpty();
+        }
+
+        @Override
+        public List<Double> getOutcomes() {
+            int discDifference = 0;
+            for (int[] column : board) {
+                for (int square : column) {
+                    if (square == 0) {
+                        discDifference++;
+                    } else if (square == 1) {
+                        discDifference--;
+                    }
+                }
+            }
+            if (misere) {
+                discDifference = -discDifference;
+            }
+            if (discDifference > 0) {
+                return ImmutableList.of(1.0, 0.0);
+            } else if (discDifference < 0) {
+                return ImmutableList.of(0.0, 1.0);
+            }
+            return ImmutableList.of(0.5, 0.5);
+        }
+
+        @Override
+        public String getPositionKey() {
+            return Arrays.deepToString(board) + roleToMove;
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package net.alloyggp.research;
 
+import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import com.google.common.collect.Lists;
+
 // TODO: Consider parameterizing in terms of Move?
-// TODO: Add something in the framework to allow transposition tables
 public interface GameState {
     Move getMoveWithName(int roleIndex, String name);
     List<Move> getPossibleMovesForRole(int role);
@@ -14,10 +17,93 @@ public interface GameState {
     double getOutcomeForRole(int role);
     int getNumRoles();
 
+    /**
+     * Returns a 64-bit hash of the position, suitable for indexing transposition tables.
+     * States representing the same position must have the same hash, including states
+     * reached by different move sequences. Hashes are stable within a single process.
+     */
+    long getStateHash();
+
+    /**
+     * Returns a compact object identifying the position, with equals() and hashCode()
+     * implemented. Two states have equal keys if and only if they represent the same
+     * position. This can be used to verify transposition table hits.
+     */
+    Object getStateKey();
+
+    /**
+     * Writes a compact binary encoding of the state to the buffer, which can be read back
+     * with {@link GameTreeProvider#decode(ByteBuffer)}. The format is identified by
+     * {@link GameTreeProvider#getEncodingVersion()}.
+     */
+    void encode(ByteBuffer buffer);
+
+    /**
+     * Returns true if this state, and the states and cursors reached from it, can safely be
+     * used from several threads at once. Players can only search in the background, such as
+     * when pondering, on thread-safe states. By default, states are assumed not to be.
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
+
     default List<Double> getOutcomes() {
         return IntStream.range(0, getNumRoles())
                 .mapToDouble(this::getOutcomeForRole)
                 .boxed()
                 .collect(Collectors.toList());
     }
+
+    /*
+     * Index-based access to moves. A move index for a role is a position in the list
+     * returned by getPossibleMovesForRole(role). Implementations are encouraged to
+     * override these to avoid allocating move lists in search-heavy code.
+     */
+
+    default int getNumPossibleMovesForRole(int role) {
+        return getPossibleMovesForRole(role).size();
+    }
+
+    default Move getPossibleMoveForRole(int role, int moveIndex) {
+        return getPossibleMovesForRole(role).get(moveIndex);
+    }
+
+    /**
+     * Equivalent to calling {@link #getNextState(List)} with the moves at the given
+     * indices, where moveIndices[r] is the index of the move taken by role r.
+     */
+    default GameState getNextStateFromMoveIndices(int[] moveIndices) {
+        List<Move> movesTaken = Lists.newArrayListWithCapacity(moveIndices.length);
+        for (int role = 0; role < moveIndices.length; role++) {
+            movesTaken.add(getPossibleMoveForRole(role, moveIndices[role]));
+        }
+        return getNextState(movesTaken);
+    }
+
+    /**
+     * Returns a new mutable cursor starting at this state. Games that can apply and undo
+     * moves in place should override this; the default keeps a stack of immutable states.
+     */
+    default GameStateCursor createCursor() {
+        return GameStateCursor.wrap(this);
+    }
+
+    /**
+     * Returns a view of this state as a turn-taking game state. Games that know whose turn
+     * it is from the state itself should implement {@link TurnTakingGameState} directly and
+     * return this; the default adapter works out the role to move from the legal moves.
+     */
+    default TurnTakingGameState asTurnTakingGameState() {
+        return TurnTakingGameState.wrap(this);
+    }
+
+    /**
+     * Plays uniformly random moves from this state until the game ends, and returns the
+     * outcomes of the terminal state reached. This is the inner loop of Monte Carlo
+     * strategies, so games should override it if they can run it faster than the
+     * default, which plays out on a cursor.
+     */
+    default List<Double> playoutToTerminal(Random random) {
+        return createCursor().playoutToTerminal(random);
+    }
 }
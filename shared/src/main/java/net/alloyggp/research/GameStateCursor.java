@@ -0,0 +1,193 @@
+package net.alloyggp.research;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.google.common.collect.Lists;
+
+/**
+ * A mutable position in a game that can be advanced by applying moves and rewound by
+ * undoing them. This lets depth-first searches and random playouts walk the game tree
+ * without creating a new state object at each step.
+ *
+ * Moves are identified by move indices, as in {@link GameState#getNextStateFromMoveIndices(int[])}.
+ * A cursor is not thread-safe.
+ */
+public interface GameStateCursor {
+    int getNumRoles();
+    boolean isTerminal();
+    double getOutcomeForRole(int role);
+    int getNumPossibleMovesForRole(int role);
+    Move getPossibleMoveForRole(int role, int moveIndex);
+
+    /**
+     * Advances the cursor, with each role r taking the move with index moveIndices[r].
+     */
+    void applyMoves(int[] moveIndices);
+
+    /**
+     * Reverts the most recent call to {@link #applyMoves(int[])} or {@link #applyMove(int)}
+     * that has not already been undone.
+     */
+    void undoMoves();
+
+    /**
+     * Returns the number of moves that have been applied and not undone.
+     */
+    int getDepth();
+
+    /**
+     * Returns an immutable copy of the current position.
+     */
+    GameState getCurrentState();
+
+    /**
+     * Returns the same value as {@link GameState#getStateHash()} for the current position.
+     */
+    default long getStateHash() {
+        return getCurrentState().getStateHash();
+    }
+
+    default List<Double> getOutcomes() {
+        return IntStream.range(0, getNumRoles())
+                .mapToDouble(this::getOutcomeForRole)
+                .boxed()
+                .collect(Collectors.toList());
+    }
+
+    default boolean isLegalMove(int role, Move move) {
+        int numPossibleMoves = getNumPossibleMovesForRole(role);
+        for (int moveIndex = 0; moveIndex < numPossibleMoves; moveIndex++) {
+            if (getPossibleMoveForRole(role, moveIndex).equals(move)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * For turn-taking games, returns the role with a choice of moves. This follows the
+     * same conventions as {@link TurnTakingGameState#getRoleToMove()}.
+     */
+    default int getRoleToMove() {
+        int roleToMove = -1;
+        for (int roleIndex : new int[] {0, 1}) {
+            if (getNumPossibleMovesForRole(roleIndex) > 1) {
+                if (roleToMove != -1) {
+                    throw new RuntimeException("Multiple roles have legal moves, but we are using a turn-taking strategy!");
+                }
+                roleToMove = roleIndex;
+            }
+        }
+        if (roleToMove == -1) {
+            // By convention, if no one has a choice of moves, say it's the first player
+            roleToMove = 0;
+        }
+        return roleToMove;
+    }
+
+    /**
+     * For turn-taking games, applies the move with the given index for the role to move.
+     * Every other role takes its only available move.
+     */
+    default void applyMove(int moveIndex) {
+        int[] moveIndices = new int[getNumRoles()];
+        moveIndices[getRoleToMove()] = moveIndex;
+        applyMoves(moveIndices);
+    }
+
+    /**
+     * Plays uniformly random moves from the current position until the game ends, and
+     * returns the outcomes of the terminal position reached. Roles with only one legal
+     * move don't consume random numbers. Afterwards, the cursor is back at the position
+     * it started from.
+     */
+    default List<Double> playoutToTerminal(Random random) {
+        int startingDepth = getDepth();
+        int[] moveIndices = new int[getNumRoles()];
+        while (!isTerminal()) {
+            for (int role = 0; role < moveIndices.length; role++) {
+                int numPossibleMoves = getNumPossibleMovesForRole(role);
+                moveIndices[role] = (numPossibleMoves > 1) ? random.nextInt(numPossibleMoves) : 0;
+            }
+            applyMoves(moveIndices);
+        }
+        List<Double> outcomes = getOutcomes();
+        while (getDepth() > startingDepth) {
+            undoMoves();
+        }
+        return outcomes;
+    }
+
+    /**
+     * Returns a cursor that works by keeping a stack of immutable states. This is
+     * suitable for games that have no more efficient implementation.
+     */
+    public static GameStateCursor wrap(GameState initialState) {
+        return new GameStateCursor() {
+            private final List<GameState> states = Lists.newArrayList(initialState);
+            private GameState currentState = initialState;
+            private final int[] turnTakingMoveIndices = new int[initialState.getNumRoles()];
+
+            @Override
+            public int getNumRoles() {
+                return currentState.getNumRoles();
+            }
+
+            @Override
+            public boolean isTerminal() {
+                return currentState.isTerminal();
+            }
+
+            @Override
+            public double getOutcomeForRole(int role) {
+                return currentState.getOutcomeForRole(role);
+            }
+
+            @Override
+            public int getNumPossibleMovesForRole(int role) {
+                return currentState.getNumPossibleMovesForRole(role);
+            }
+
+            @Override
+            public Move getPossibleMoveForRole(int role, int moveIndex) {
+                return currentState.getPossibleMoveForRole(role, moveIndex);
+            }
+
+            @Override
+            public void applyMoves(int[] moveIndices) {
+                currentState = currentState.getNextStateFromMoveIndices(moveIndices);
+                states.add(currentState);
+            }
+
+            @Override
+            public void applyMove(int moveIndex) {
+                int roleToMove = getRoleToMove();
+                turnTakingMoveIndices[roleToMove] = moveIndex;
+                applyMoves(turnTakingMoveIndices);
+                turnTakingMoveIndices[roleToMove] = 0;
+            }
+
+            @Override
+            public void undoMoves() {
+                if (states.size() == 1) {
+                    throw new IllegalStateException("There are no moves to undo");
+                }
+                states.remove(states.size() - 1);
+                currentState = states.get(states.size() - 1);
+            }
+
+            @Override
+            public int getDepth() {
+                return states.size() - 1;
+            }
+
+            @Override
+            public GameState getCurrentState() {
+                return currentState;
+            }
+        };
+    }
+}
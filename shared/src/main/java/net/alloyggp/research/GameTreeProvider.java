@@ -1,5 +1,20 @@
 package net.alloyggp.research;
 
+import java.nio.ByteBuffer;
+
 public interface GameTreeProvider {
     GameState getInitialState();
+
+    /**
+     * Reads a state written by {@link GameState#encode(ByteBuffer)}, advancing the buffer's
+     * position past it.
+     */
+    GameState decode(ByteBuffer buffer);
+
+    /**
+     * Identifies the format used by {@link GameState#encode(ByteBuffer)}. This changes
+     * whenever previously written encodings can no longer be decoded, so stored states
+     * should be kept alongside the version they were written with.
+     */
+    int getEncodingVersion();
 }
@@ -21,4 +21,9 @@ public interface MatchResult {
     Optional<ImmutableList<Double>> getOutcomes();
     ImmutableList<ImmutableList<String>> getMoveHistory();
     long getMillisecondsElapsed();
+    // Time spent choosing moves, for each role; empty for older results
+    ImmutableList<Long> getMillisecondsUsedByRole();
+    // Number of moves returned after their deadline, for each role; empty for older results
+    // and for matches without a time control
+    ImmutableList<Integer> getDeadlineOverrunsByRole();
 }
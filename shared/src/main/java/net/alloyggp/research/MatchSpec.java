@@ -1,5 +1,7 @@
 package net.alloyggp.research;
 
+import java.util.Optional;
+
 import org.immutables.value.Value;
 
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
@@ -13,4 +15,12 @@ public interface MatchSpec {
     String getExperimentName();
     String getGameId();
     ImmutableList<String> getStrategyIds();
+    // Absent for matches where strategies are limited only by their own parameters
+    Optional<TimeControl> getTimeControl();
+
+    // Whether players may search during other players' turns; see Player#setPonderingEnabled
+    @Value.Default
+    default boolean ponderingEnabled() {
+        return false;
+    }
 }
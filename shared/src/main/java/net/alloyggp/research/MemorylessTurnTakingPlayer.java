@@ -2,4 +2,9 @@ package net.alloyggp.research;
 
 public interface MemorylessTurnTakingPlayer {
     Move getMove(TurnTakingGameState currentState);
+
+    // See Player.getMove(long)
+    default Move getMove(TurnTakingGameState currentState, long deadline) {
+        return getMove(currentState);
+    }
 }
@@ -6,4 +6,32 @@ public interface Player {
     void initializeGameState(GameState initialState);
     void advanceGameState(List<Move> moves, GameState newGameState);
     Move getMove();
+
+    /**
+     * Returns a move, aiming to finish by the given deadline (in terms of
+     * {@link System#currentTimeMillis()}). This is used for matches with a time control.
+     * By default, the deadline is ignored.
+     */
+    default Move getMove(long deadline) {
+        return getMove();
+    }
+
+    /**
+     * Lets the player keep searching in the background while it is not being asked for a
+     * move, such as during other players' turns. This is called before
+     * {@link #initializeGameState(GameState)}, and only for matches that allow pondering.
+     * Players should only ponder on states that are {@link GameState#isThreadSafe() thread-safe}.
+     * By default, players don't ponder.
+     */
+    default void setPonderingEnabled(boolean ponderingEnabled) {
+        // Do nothing
+    }
+
+    /**
+     * Called when the match is over, whether it finished normally or not. Players that
+     * start background threads should stop them here.
+     */
+    default void finishMatch() {
+        // Do nothing
+    }
 }
@@ -27,13 +27,28 @@ public interface Strategy {
 
                     @Override
                     public Move getMove() {
-                        List<Move> ourPossibleMoves = currentGameState.getPossibleMovesForRole(roleIndex);
-                        if (ourPossibleMoves.size() > 1) {
-                            return delegate.getMove(TurnTakingGameState.wrap(this.currentGameState));
+                        TurnTakingGameState turnTakingGameState = currentGameState.asTurnTakingGameState();
+                        if (hasChoiceOfMoves(turnTakingGameState)) {
+                            return delegate.getMove(turnTakingGameState);
                         } else {
-                            return ourPossibleMoves.get(0);
+                            return currentGameState.getPossibleMoveForRole(roleIndex, 0);
                         }
                     }
+
+                    @Override
+                    public Move getMove(long deadline) {
+                        TurnTakingGameState turnTakingGameState = currentGameState.asTurnTakingGameState();
+                        if (hasChoiceOfMoves(turnTakingGameState)) {
+                            return delegate.getMove(turnTakingGameState, deadline);
+                        } else {
+                            return currentGameState.getPossibleMoveForRole(roleIndex, 0);
+                        }
+                    }
+
+                    private boolean hasChoiceOfMoves(TurnTakingGameState turnTakingGameState) {
+                        return turnTakingGameState.getRoleToMove() == roleIndex
+                                && turnTakingGameState.getNumPossibleMoves() > 1;
+                    }
                 };
             }
         };
@@ -1,6 +1,7 @@
 package net.alloyggp.research;
 
 import java.util.List;
+import java.util.OptionalLong;
 
 import net.alloyggp.research.strategy.parameter.StrategyParameterDescription;
 import net.alloyggp.research.strategy.parameter.StrategyParameters;
@@ -9,4 +10,13 @@ public interface StrategyProvider {
     String getName();
     List<StrategyParameterDescription<?>> getParameters();
     Strategy get(StrategyParameters parameters);
+
+    /**
+     * Returns a rough upper bound on the heap a player with these parameters keeps reachable
+     * during a match, in bytes, or an empty OptionalLong if that isn't known. The match
+     * runner uses this to avoid running too many memory-hungry matches at once.
+     */
+    default OptionalLong getMemoryEstimate(StrategyParameters parameters) {
+        return OptionalLong.empty();
+    }
 }
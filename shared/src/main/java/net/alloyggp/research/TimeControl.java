@@ -0,0 +1,59 @@
+package net.alloyggp.research;
+
+import java.util.Optional;
+
+import org.immutables.value.Value;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * Limits on how long each player may think during a match. Players are given a deadline for
+ * each move; strategies that run a fixed number of iterations are free to ignore it.
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableTimeControl.class)
+@JsonDeserialize(builder = ImmutableTimeControl.Builder.class)
+public interface TimeControl {
+    /**
+     * With a game clock, each move is budgeted this fraction of the player's remaining time.
+     */
+    int MOVES_TO_BUDGET_FOR = 20;
+
+    Optional<Long> getMillisecondsPerMove();
+    Optional<Long> getMillisecondsPerGame();
+
+    @Value.Check
+    default void checkLimits() {
+        if (!getMillisecondsPerMove().isPresent() && !getMillisecondsPerGame().isPresent()) {
+            throw new IllegalStateException("A time control needs a per-move limit, a per-game limit, or both");
+        }
+        if (getMillisecondsPerMove().orElse(1L) <= 0 || getMillisecondsPerGame().orElse(1L) <= 0) {
+            throw new IllegalStateException("Time limits must be positive, but were " + this);
+        }
+    }
+
+    /**
+     * Returns how long a player may take over its next move, given how much time it has
+     * left on its game clock (ignored if there is no game clock).
+     */
+    default long getMillisecondsForMove(long millisecondsLeftInGame) {
+        long budget = getMillisecondsPerMove().orElse(Long.MAX_VALUE);
+        if (getMillisecondsPerGame().isPresent()) {
+            budget = Math.min(budget, Math.max(0L, millisecondsLeftInGame) / MOVES_TO_BUDGET_FOR);
+        }
+        return budget;
+    }
+
+    public static TimeControl perMove(long millisecondsPerMove) {
+        return ImmutableTimeControl.builder()
+                .millisecondsPerMove(millisecondsPerMove)
+                .build();
+    }
+
+    public static TimeControl perGame(long millisecondsPerGame) {
+        return ImmutableTimeControl.builder()
+                .millisecondsPerGame(millisecondsPerGame)
+                .build();
+    }
+}
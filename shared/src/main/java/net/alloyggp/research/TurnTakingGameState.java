@@ -17,6 +17,10 @@ public interface TurnTakingGameState {
     boolean isTerminal();
     double getOutcomeForRole(int role);
     int getNumRoles();
+    GameStateCursor createCursor();
+    // See the corresponding methods in GameState
+    long getStateHash();
+    Object getStateKey();
 
     default List<TurnTakingGameState> getPossibleNextStates() {
         return getPossibleMoves().stream()
@@ -31,11 +35,27 @@ public interface TurnTakingGameState {
                 .collect(Collectors.toList());
     }
 
+    // Index-based equivalents of the above; see the corresponding methods in GameState.
+    default int getNumPossibleMoves() {
+        return getPossibleMoves().size();
+    }
+
+    default Move getPossibleMove(int moveIndex) {
+        return getPossibleMoves().get(moveIndex);
+    }
+
+    default TurnTakingGameState getNextStateFromMoveIndex(int moveIndex) {
+        return getNextState(getPossibleMove(moveIndex));
+    }
+
     default TurnTakingGameState getRandomNextState(Random random) {
-        List<Move> possibleMoves = getPossibleMoves();
-        int index = random.nextInt(possibleMoves.size());
-        Move chosenMove = possibleMoves.get(index);
-        return getNextState(chosenMove);
+        int index = random.nextInt(getNumPossibleMoves());
+        return getNextStateFromMoveIndex(index);
+    }
+
+    // See GameState.playoutToTerminal()
+    default List<Double> playoutToTerminal(Random random) {
+        return createCursor().playoutToTerminal(random);
     }
 
     public static TurnTakingGameState wrap(GameState delegate) {
@@ -51,8 +71,7 @@ public interface TurnTakingGameState {
                 if (this.cachedRoleToMove == -1) {
                     int roleToMove = -1;
                     for (int roleIndex : new int[] {0, 1}) {
-                        List<Move> possibleMoves = delegate.getPossibleMovesForRole(roleIndex);
-                        if (possibleMoves.size() > 1) {
+                        if (delegate.getNumPossibleMovesForRole(roleIndex) > 1) {
                             if (roleToMove != -1) {
                                 throw new RuntimeException("Multiple roles have legal moves, but we are using a turn-taking strategy!");
                             }
@@ -74,6 +93,16 @@ public interface TurnTakingGameState {
                 return delegate.getPossibleMovesForRole(roleToMove);
             }
 
+            @Override
+            public int getNumPossibleMoves() {
+                return delegate.getNumPossibleMovesForRole(getRoleToMove());
+            }
+
+            @Override
+            public Move getPossibleMove(int moveIndex) {
+                return delegate.getPossibleMoveForRole(getRoleToMove(), moveIndex);
+            }
+
             @Override
             public double getOutcomeForRole(int role) {
                 return delegate.getOutcomeForRole(role);
@@ -96,6 +125,14 @@ public interface TurnTakingGameState {
                 return TurnTakingGameState.wrap(delegate.getNextState(movesTaken));
             }
 
+            @Override
+            public TurnTakingGameState getNextStateFromMoveIndex(int moveIndex) {
+                // Roles other than the one to move have exactly one move, at index 0
+                int[] moveIndices = new int[delegate.getNumRoles()];
+                moveIndices[getRoleToMove()] = moveIndex;
+                return TurnTakingGameState.wrap(delegate.getNextStateFromMoveIndices(moveIndices));
+            }
+
             @Override
             public Move getMoveWithName(int role, String name) {
                 return delegate.getMoveWithName(role, name);
@@ -105,6 +142,26 @@ public interface TurnTakingGameState {
             public int getNumRoles() {
                 return delegate.getNumRoles();
             }
+
+            @Override
+            public GameStateCursor createCursor() {
+                return delegate.createCursor();
+            }
+
+            @Override
+            public List<Double> playoutToTerminal(Random random) {
+                return delegate.playoutToTerminal(random);
+            }
+
+            @Override
+            public long getStateHash() {
+                return delegate.getStateHash();
+            }
+
+            @Override
+            public Object getStateKey() {
+                return delegate.getStateKey();
+            }
         };
     }
 
@@ -0,0 +1,86 @@
+package net.alloyggp.research.strategy;
+
+import java.util.Random;
+
+import net.alloyggp.research.GameStateCursor;
+import net.alloyggp.research.MemorylessTurnTakingPlayer;
+import net.alloyggp.research.MemorylessTurnTakingStrategy;
+import net.alloyggp.research.Move;
+import net.alloyggp.research.TurnTakingGameState;
+
+/**
+ * An iterative deepening version of {@link NPlyLookaheadStrategy}: it runs a 1-ply lookahead,
+ * then a 2-ply lookahead, and so on until the deadline for the move, and plays the choice of
+ * the deepest search that finished. This needs a match with a time control.
+ */
+public class AnytimeNPlyLookaheadStrategy implements MemorylessTurnTakingStrategy {
+    // How many nodes to visit between checks of the clock
+    private static final int NODES_PER_CLOCK_CHECK = 256;
+
+    /**
+     * The score we assign to non-terminal game states at the horizon of our search.
+     */
+    private final double defaultOutcome;
+
+    public AnytimeNPlyLookaheadStrategy(double defaultOutcome) {
+        this.defaultOutcome = defaultOutcome;
+    }
+
+    public class AnytimeNPlyLookaheadPlayer implements MemorylessTurnTakingPlayer {
+        private final NPlySearch search;
+        private final Random random;
+        // Search state for the current call to getMove
+        private long deadline;
+        private int nodesUntilClockCheck;
+        private boolean outOfTime;
+
+        private AnytimeNPlyLookaheadPlayer(int myRole, Random random) {
+            this.search = new NPlySearch(myRole, defaultOutcome, this::isOutOfTime);
+            this.random = random;
+        }
+
+        @Override
+        public Move getMove(TurnTakingGameState currentState) {
+            throw new IllegalStateException("This player searches until a deadline, so it needs a match with a time control");
+        }
+
+        @Override
+        public Move getMove(TurnTakingGameState currentState, long deadline) {
+            this.deadline = deadline;
+            this.nodesUntilClockCheck = NODES_PER_CLOCK_CHECK;
+            this.outOfTime = false;
+
+            GameStateCursor cursor = currentState.createCursor();
+            int chosenIndex = -1;
+            for (int pliesToLookAhead = 1; ; pliesToLookAhead++) {
+                int indexAtThisDepth = search.pickMoveIndex(cursor, pliesToLookAhead, random);
+                // Always finish the 1-ply search, so we have something to play
+                if (outOfTime && chosenIndex != -1) {
+                    break;
+                }
+                chosenIndex = indexAtThisDepth;
+                // If the search didn't cut anything off, searching deeper won't change the result
+                if (outOfTime || !search.reachedHorizon()) {
+                    break;
+                }
+            }
+            return currentState.getPossibleMove(chosenIndex);
+        }
+
+        private boolean isOutOfTime() {
+            if (!outOfTime) {
+                nodesUntilClockCheck--;
+                if (nodesUntilClockCheck == 0) {
+                    nodesUntilClockCheck = NODES_PER_CLOCK_CHECK;
+                    outOfTime = System.currentTimeMillis() >= deadline;
+                }
+            }
+            return outOfTime;
+        }
+    }
+
+    @Override
+    public MemorylessTurnTakingPlayer getPlayer(int roleIndex, Random random) {
+        return new AnytimeNPlyLookaheadPlayer(roleIndex, random);
+    }
+}
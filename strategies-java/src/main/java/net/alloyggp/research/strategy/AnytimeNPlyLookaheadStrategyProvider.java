@@ -0,0 +1,41 @@
+package net.alloyggp.research.strategy;
+
+import java.util.List;
+import java.util.OptionalLong;
+
+import com.google.common.collect.ImmutableList;
+
+import net.alloyggp.research.Strategy;
+import net.alloyggp.research.StrategyProvider;
+import net.alloyggp.research.strategy.parameter.StrategyParameterDescription;
+import net.alloyggp.research.strategy.parameter.StrategyParameters;
+
+public class AnytimeNPlyLookaheadStrategyProvider implements StrategyProvider {
+    @Override
+    public String getName() {
+        return "AnytimeNPlyLookahead";
+    }
+
+    public static final StrategyParameterDescription<Double> DEFAULT_OUTCOME =
+            StrategyParameterDescription.forDouble("defaultOutcome")
+                .min(0.0)
+                .max(1.0)
+                .build();
+
+    @Override
+    public List<StrategyParameterDescription<?>> getParameters() {
+        return ImmutableList.of(DEFAULT_OUTCOME);
+    }
+
+    // The search is depth-first, so it only holds the states along one line at a time
+    @Override
+    public OptionalLong getMemoryEstimate(StrategyParameters parameters) {
+        return OptionalLong.of(0);
+    }
+
+    @Override
+    public Strategy get(StrategyParameters parameters) {
+        double defaultOutcome = parameters.get(DEFAULT_OUTCOME);
+        return Strategy.wrap(new AnytimeNPlyLookaheadStrategy(defaultOutcome));
+    }
+}
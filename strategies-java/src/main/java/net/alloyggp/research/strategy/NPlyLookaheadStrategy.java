@@ -29,39 +29,18 @@ public class NPlyLookaheadStrategy implements MemorylessTurnTakingStrategy {
     }
 
     public class NPlyLookaheadPlayer implements MemorylessTurnTakingPlayer {
-        private final int myRole;
+        private final NPlySearch search;
         private final Random random;
 
         private NPlyLookaheadPlayer(int myRole, Random random) {
-            this.myRole = myRole;
+            this.search = new NPlySearch(myRole, defaultOutcome, () -> false);
             this.random = random;
         }
 
         @Override
         public Move getMove(TurnTakingGameState currentState) {
-            return MoveUtils.pickMoveWithHighestScore(currentState,
-                    state -> getScore(state, pliesToLookAhead - 1),
-                    random);
-        }
-
-        private double getScore(TurnTakingGameState state, int pliesLeft) {
-            if (state.isTerminal()) {
-                return state.getOutcomeForRole(myRole);
-            }
-            if (pliesLeft == 0) {
-                return defaultOutcome;
-            }
-
-            // Assume zero-sumness for minimax
-            if (state.getRoleToMove() == myRole) {
-                return state.getPossibleNextStates().stream()
-                        .mapToDouble(nextState -> getScore(nextState, pliesLeft - 1))
-                        .max().getAsDouble();
-            } else {
-                return state.getPossibleNextStates().stream()
-                        .mapToDouble(nextState -> getScore(nextState, pliesLeft - 1))
-                        .min().getAsDouble();
-            }
+            int chosenIndex = search.pickMoveIndex(currentState.createCursor(), pliesToLookAhead, random);
+            return currentState.getPossibleMove(chosenIndex);
         }
     }
 
@@ -1,6 +1,7 @@
 package net.alloyggp.research.strategy;
 
 import java.util.List;
+import java.util.OptionalLong;
 
 import com.google.common.collect.ImmutableList;
 
@@ -30,6 +31,12 @@ public class NPlyLookaheadStrategyProvider implements StrategyProvider {
         return ImmutableList.of(PLIES_TO_LOOK_AHEAD, DEFAULT_OUTCOME);
     }
 
+    // The search is depth-first, so it only holds the states along one line at a time
+    @Override
+    public OptionalLong getMemoryEstimate(StrategyParameters parameters) {
+        return OptionalLong.of(0);
+    }
+
     @Override
     public Strategy get(StrategyParameters parameters) {
         int pliesToLookAhead = parameters.get(PLIES_TO_LOOK_AHEAD);
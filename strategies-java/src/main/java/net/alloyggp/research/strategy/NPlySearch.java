@@ -0,0 +1,92 @@
+package net.alloyggp.research.strategy;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import net.alloyggp.research.GameStateCursor;
+
+/**
+ * A depth-limited minimax search, walking the tree in place with a cursor rather than
+ * creating a state per node. This is shared by {@link NPlyLookaheadStrategy}, which searches
+ * to a fixed depth, and {@link AnytimeNPlyLookaheadStrategy}, which searches deeper and
+ * deeper until a deadline.
+ */
+class NPlySearch {
+    private final int myRole;
+    /**
+     * The score we assign to non-terminal game states at the horizon of our search.
+     */
+    private final double defaultOutcome;
+    /**
+     * Checked at each node inside the horizon; once this returns true, the rest of the
+     * search is cut off, and its result should be discarded.
+     */
+    private final BooleanSupplier shouldStop;
+    private boolean reachedHorizon;
+
+    NPlySearch(int myRole, double defaultOutcome, BooleanSupplier shouldStop) {
+        this.myRole = myRole;
+        this.defaultOutcome = defaultOutcome;
+        this.shouldStop = shouldStop;
+    }
+
+    /**
+     * Returns the index of the best move for the role to move at the cursor, looking
+     * pliesToLookAhead game state transitions ahead. The cursor is left where it started.
+     */
+    int pickMoveIndex(GameStateCursor cursor, int pliesToLookAhead, Random random) {
+        reachedHorizon = false;
+        List<Integer> moveIndices = IntStream.range(0, cursor.getNumPossibleMovesForRole(cursor.getRoleToMove()))
+                .boxed()
+                .collect(Collectors.toList());
+        return MoveUtils.pickThingWithHighestScore(moveIndices,
+                moveIndex -> {
+                    cursor.applyMove(moveIndex);
+                    double score = getScore(cursor, pliesToLookAhead - 1);
+                    cursor.undoMoves();
+                    return score;
+                },
+                random);
+    }
+
+    /**
+     * Returns true if the last search reached a non-terminal state at its horizon, so a
+     * deeper search could give a different result.
+     */
+    boolean reachedHorizon() {
+        return reachedHorizon;
+    }
+
+    private double getScore(GameStateCursor cursor, int pliesLeft) {
+        if (cursor.isTerminal()) {
+            return cursor.getOutcomeForRole(myRole);
+        }
+        if (pliesLeft == 0) {
+            reachedHorizon = true;
+            return defaultOutcome;
+        }
+        if (shouldStop.getAsBoolean()) {
+            return defaultOutcome;
+        }
+
+        // Assume zero-sumness for minimax
+        int roleToMove = cursor.getRoleToMove();
+        boolean maximizing = (roleToMove == myRole);
+        double bestScore = maximizing ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        int numPossibleMoves = cursor.getNumPossibleMovesForRole(roleToMove);
+        for (int moveIndex = 0; moveIndex < numPossibleMoves; moveIndex++) {
+            cursor.applyMove(moveIndex);
+            double score = getScore(cursor, pliesLeft - 1);
+            cursor.undoMoves();
+            if (maximizing) {
+                bestScore = Math.max(bestScore, score);
+            } else {
+                bestScore = Math.min(bestScore, score);
+            }
+        }
+        return bestScore;
+    }
+}
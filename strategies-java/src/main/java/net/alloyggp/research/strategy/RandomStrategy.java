@@ -38,9 +38,9 @@ public final class RandomStrategy implements Strategy {
             if (this.currentState == null) {
                 throw new IllegalStateException("The current state wasn't set!");
             }
-            List<Move> possibleMoves = this.currentState.getPossibleMovesForRole(roleIndex);
-            int chosenIndex = random.nextInt(possibleMoves.size());
-            return possibleMoves.get(chosenIndex);
+            int numPossibleMoves = this.currentState.getNumPossibleMovesForRole(roleIndex);
+            int chosenIndex = random.nextInt(numPossibleMoves);
+            return this.currentState.getPossibleMoveForRole(roleIndex, chosenIndex);
         }
     }
 
@@ -1,6 +1,7 @@
 package net.alloyggp.research.strategy;
 
 import java.util.List;
+import java.util.OptionalLong;
 
 import com.google.common.collect.ImmutableList;
 
@@ -21,6 +22,12 @@ public class RandomStrategyProvider implements StrategyProvider {
         return ImmutableList.of();
     }
 
+    // This keeps no state besides its source of randomness
+    @Override
+    public OptionalLong getMemoryEstimate(StrategyParameters parameters) {
+        return OptionalLong.of(0);
+    }
+
     @Override
     public Strategy get(StrategyParameters parameters) {
         return new RandomStrategy();
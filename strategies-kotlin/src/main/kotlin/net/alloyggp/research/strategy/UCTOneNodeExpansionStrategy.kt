@@ -8,10 +8,13 @@ import net.alloyggp.research.StrategyProvider
 import net.alloyggp.research.TurnTakingGameState
 import net.alloyggp.research.strategy.parameter.StrategyParameterDescription
 import net.alloyggp.research.strategy.parameter.StrategyParameters
+import net.alloyggp.research.strategy.util.ANYTIME_MAX_NODES_PER_MOVE
+import net.alloyggp.research.strategy.util.APPROXIMATE_NODE_SIZE_BYTES
 import net.alloyggp.research.strategy.util.StateNode
 import net.alloyggp.research.strategy.util.SumAndCountArray
 import java.util.ArrayList
 import java.util.LinkedHashMap
+import java.util.OptionalLong
 import java.util.Random
 
 /**
@@ -43,6 +46,11 @@ class MemorylessUCTOneNodeExpansionStrategyProvider: StrategyProvider {
         return listOf(C_P, ITERATION_COUNT)
     }
 
+    // The tree is discarded after each move and gains at most one node per iteration
+    override fun getMemoryEstimate(parameters: StrategyParameters): OptionalLong {
+        return OptionalLong.of(parameters[ITERATION_COUNT] * APPROXIMATE_NODE_SIZE_BYTES)
+    }
+
     override fun get(parameters: StrategyParameters): Strategy {
         return Strategy.wrap(object: MemorylessTurnTakingStrategy {
             override fun getPlayer(roleIndex: Int, random: Random): MemorylessTurnTakingPlayer {
@@ -55,15 +63,68 @@ class MemorylessUCTOneNodeExpansionStrategyProvider: StrategyProvider {
     }
 }
 
-class MemorylessUCTOneNodeExpansionPlayer(val iterationsPerTurn: Int, val c_p: Double, val roleIndex: Int, val random: Random): MemorylessTurnTakingPlayer {
+/**
+ * The same as [MemorylessUCTOneNodeExpansionStrategyProvider], except that it runs iterations until the deadline for each
+ * move instead of running a fixed number of them, or until it has added [ANYTIME_MAX_NODES_PER_MOVE] nodes to
+ * its tree. This needs a match with a time control.
+ */
+class AnytimeUCTOneNodeExpansionStrategyProvider: StrategyProvider {
+    companion object {
+        @JvmStatic
+        val C_P: StrategyParameterDescription<Double> = StrategyParameterDescription.forDouble("c_p").min(0.0).defaultValue(Math.sqrt(2.0)).build()
+    }
+
+    override fun getName(): String {
+        return "AnytimeUCTOneNodeExpansion"
+    }
+
+    override fun getParameters(): List<StrategyParameterDescription<*>> {
+        return listOf(C_P)
+    }
+
+    // The tree is discarded after each move and gains at most one node per iteration
+    override fun getMemoryEstimate(parameters: StrategyParameters): OptionalLong {
+        return OptionalLong.of(ANYTIME_MAX_NODES_PER_MOVE * APPROXIMATE_NODE_SIZE_BYTES)
+    }
+
+    override fun get(parameters: StrategyParameters): Strategy {
+        return Strategy.wrap(object: MemorylessTurnTakingStrategy {
+            override fun getPlayer(roleIndex: Int, random: Random): MemorylessTurnTakingPlayer {
+                val c_p = parameters[C_P]
+
+                return MemorylessUCTOneNodeExpansionPlayer(null, c_p, roleIndex, random)
+            }
+        })
+    }
+}
+
+/**
+ * If iterationsPerTurn is null, this instead runs iterations until the deadline for each move.
+ */
+class MemorylessUCTOneNodeExpansionPlayer(val iterationsPerTurn: Int?, val c_p: Double, val roleIndex: Int, val random: Random): MemorylessTurnTakingPlayer {
     override fun getMove(currentState: TurnTakingGameState): Move {
+        val iterations = iterationsPerTurn ?: error("This player runs until a deadline, so it needs a match with a time control")
         val rootNode = makeNode(currentState) as? StateNode.NonTerminalNode ?: error("Did not expect to ask for moves to make in a terminal state")
-        for (i in 1..iterationsPerTurn) {
+        for (i in 1..iterations) {
             doRollout(rootNode, currentState)
         }
         return rootNode.getBestMove(roleIndex, random)
     }
 
+    override fun getMove(currentState: TurnTakingGameState, deadline: Long): Move {
+        if (iterationsPerTurn != null) {
+            return getMove(currentState)
+        }
+        val rootNode = makeNode(currentState) as? StateNode.NonTerminalNode ?: error("Did not expect to ask for moves to make in a terminal state")
+        // Run at least one iteration, even if the deadline has already passed; each one adds at most one node
+        var iterations = 0L
+        do {
+            doRollout(rootNode, currentState)
+            iterations++
+        } while (System.currentTimeMillis() < deadline && iterations < ANYTIME_MAX_NODES_PER_MOVE)
+        return rootNode.getBestMove(roleIndex, random)
+    }
+
     private fun doRollout(rootNode: StateNode.NonTerminalNode, rootState: TurnTakingGameState) {
         var curNode = rootNode
         var curState = rootState
@@ -108,11 +169,7 @@ class MemorylessUCTOneNodeExpansionPlayer(val iterationsPerTurn: Int, val c_p: D
     }
     
     private fun getNodeAtEndOfRandomSelections(initialState: TurnTakingGameState): StateNode.TerminalNode {
-        var curState = initialState
-        while (!curState.isTerminal) {
-            curState = curState.getRandomNextState(random)
-        }
-        return StateNode.TerminalNode(curState.getOutcomes())
+        return StateNode.TerminalNode(initialState.playoutToTerminal(random))
     }
 
     private fun chooseMoveToExplore(curNode: StateNode.NonTerminalNode, random: Random): Move {
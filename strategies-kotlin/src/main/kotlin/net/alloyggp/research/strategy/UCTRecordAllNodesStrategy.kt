@@ -8,12 +8,18 @@ import net.alloyggp.research.StrategyProvider
 import net.alloyggp.research.TurnTakingGameState
 import net.alloyggp.research.strategy.parameter.StrategyParameterDescription
 import net.alloyggp.research.strategy.parameter.StrategyParameters
+import net.alloyggp.research.strategy.util.ANYTIME_MAX_NODES_PER_MOVE
+import net.alloyggp.research.strategy.util.APPROXIMATE_NODE_SIZE_BYTES
 import net.alloyggp.research.strategy.util.StateNode
 import net.alloyggp.research.strategy.util.SumAndCountArray
 import java.util.ArrayList
 import java.util.LinkedHashMap
+import java.util.OptionalLong
 import java.util.Random
 
+// Used for memory estimates; rollouts in long games may visit more states than this
+private const val ASSUMED_ROLLOUT_LENGTH = 60L
+
 /**
  * An implementation of the well-known UCT algorithm.
  *
@@ -43,6 +49,11 @@ class MemorylessUCTRecordAllNodesStrategyProvider: StrategyProvider {
         return listOf(C_P, ITERATION_COUNT)
     }
 
+    // The tree is discarded after each move, but gains a node for every state a rollout visits
+    override fun getMemoryEstimate(parameters: StrategyParameters): OptionalLong {
+        return OptionalLong.of(parameters[ITERATION_COUNT] * ASSUMED_ROLLOUT_LENGTH * APPROXIMATE_NODE_SIZE_BYTES)
+    }
+
     override fun get(parameters: StrategyParameters): Strategy {
         return Strategy.wrap(object: MemorylessTurnTakingStrategy {
             override fun getPlayer(roleIndex: Int, random: Random): MemorylessTurnTakingPlayer {
@@ -55,18 +66,72 @@ class MemorylessUCTRecordAllNodesStrategyProvider: StrategyProvider {
     }
 }
 
-class MemorylessUCTPlayer(val iterationsPerTurn: Int, val c_p: Double, val roleIndex: Int, val random: Random): MemorylessTurnTakingPlayer {
+/**
+ * The same as [MemorylessUCTRecordAllNodesStrategyProvider], except that it runs iterations until the deadline for each
+ * move instead of running a fixed number of them, or until it has added [ANYTIME_MAX_NODES_PER_MOVE] nodes to
+ * its tree. This needs a match with a time control.
+ */
+class AnytimeUCTRecordAllNodesStrategyProvider: StrategyProvider {
+    companion object {
+        @JvmStatic
+        val C_P: StrategyParameterDescription<Double> = StrategyParameterDescription.forDouble("c_p").min(0.0).defaultValue(Math.sqrt(2.0)).build()
+    }
+
+    override fun getName(): String {
+        return "AnytimeUCTRecordAllNodes"
+    }
+
+    override fun getParameters(): List<StrategyParameterDescription<*>> {
+        return listOf(C_P)
+    }
+
+    // The tree is discarded after each move
+    override fun getMemoryEstimate(parameters: StrategyParameters): OptionalLong {
+        return OptionalLong.of(ANYTIME_MAX_NODES_PER_MOVE * APPROXIMATE_NODE_SIZE_BYTES)
+    }
+
+    override fun get(parameters: StrategyParameters): Strategy {
+        return Strategy.wrap(object: MemorylessTurnTakingStrategy {
+            override fun getPlayer(roleIndex: Int, random: Random): MemorylessTurnTakingPlayer {
+                val c_p = parameters[C_P]
+
+                return MemorylessUCTPlayer(null, c_p, roleIndex, random)
+            }
+        })
+    }
+}
+
+/**
+ * If iterationsPerTurn is null, this instead runs iterations until the deadline for each move.
+ */
+class MemorylessUCTPlayer(val iterationsPerTurn: Int?, val c_p: Double, val roleIndex: Int, val random: Random): MemorylessTurnTakingPlayer {
     override fun getMove(currentState: TurnTakingGameState): Move {
+        val iterations = iterationsPerTurn ?: error("This player runs until a deadline, so it needs a match with a time control")
         val rootNode = makeNode(currentState) as? StateNode.NonTerminalNode ?: error("Did not expect to ask for moves to make in a terminal state")
-        for (i in 1..iterationsPerTurn) {
+        for (i in 1..iterations) {
             doRollout(rootNode, currentState)
         }
         return rootNode.getBestMove(roleIndex, random)
     }
 
-    private fun doRollout(rootNode: StateNode.NonTerminalNode, rootState: TurnTakingGameState) {
+    override fun getMove(currentState: TurnTakingGameState, deadline: Long): Move {
+        if (iterationsPerTurn != null) {
+            return getMove(currentState)
+        }
+        val rootNode = makeNode(currentState) as? StateNode.NonTerminalNode ?: error("Did not expect to ask for moves to make in a terminal state")
+        // Run at least one iteration, even if the deadline has already passed
+        var nodesAdded = 0L
+        do {
+            nodesAdded += doRollout(rootNode, currentState)
+        } while (System.currentTimeMillis() < deadline && nodesAdded < ANYTIME_MAX_NODES_PER_MOVE)
+        return rootNode.getBestMove(roleIndex, random)
+    }
+
+    // Returns the number of nodes added to the tree
+    private fun doRollout(rootNode: StateNode.NonTerminalNode, rootState: TurnTakingGameState): Int {
         var curNode = rootNode
         var curState = rootState
+        var nodesAdded = 0
 
         val nodesVisited = ArrayList<StateNode.NonTerminalNode>()
         val movesChosen = ArrayList<Move>()
@@ -80,6 +145,7 @@ class MemorylessUCTPlayer(val iterationsPerTurn: Int, val c_p: Double, val roleI
             val nextNode: StateNode = curNode.children[moveChosen] ?: {
                 val newNode = makeNode(curState)
                 curNode.children[moveChosen] = newNode
+                nodesAdded++
                 newNode
             }() // silly Kotlin
             when (nextNode) {
@@ -96,6 +162,7 @@ class MemorylessUCTPlayer(val iterationsPerTurn: Int, val c_p: Double, val roleI
                 }
             }
         }
+        return nodesAdded
     }
 
     private fun chooseMoveToExplore(curNode: StateNode.NonTerminalNode, random: Random): Move {
@@ -0,0 +1,319 @@
+package net.alloyggp.research.strategy
+
+import net.alloyggp.research.GameState
+import net.alloyggp.research.Move
+import net.alloyggp.research.Player
+import net.alloyggp.research.Strategy
+import net.alloyggp.research.StrategyProvider
+import net.alloyggp.research.TurnTakingGameState
+import net.alloyggp.research.strategy.parameter.StrategyParameterDescription
+import net.alloyggp.research.strategy.parameter.StrategyParameters
+import net.alloyggp.research.strategy.util.ANYTIME_MAX_NODES_PER_MOVE
+import net.alloyggp.research.strategy.util.APPROXIMATE_NODE_SIZE_BYTES
+import net.alloyggp.research.strategy.util.StateNode
+import net.alloyggp.research.strategy.util.SumAndCountArray
+import java.util.ArrayList
+import java.util.LinkedHashMap
+import java.util.OptionalLong
+import java.util.Random
+
+/**
+ * An implementation of the well-known UCT algorithm.
+ *
+ * This version runs a fixed number of iterations of the algorithm ("rollouts") per move.
+ * Unlike the memoryless versions, it keeps its game tree between moves: once the moves for
+ * a turn are played, the subtree they lead to becomes the new root and the rest of the tree
+ * is discarded. It does not use transposition tables. It adds at most one node to its game
+ * tree per rollout.
+ *
+ * In matches that allow pondering, it also keeps running rollouts on a background thread
+ * between moves, so the time spent waiting for other players goes into its tree.
+ *
+ * Original publication:
+ * Kocsis, Levente, and Csaba Szepesvári. "Bandit based monte-carlo planning." ECML. Vol. 6. 2006.
+ * Available from:
+ * http://ggp.stanford.edu/readings/uct.pdf
+ * https://pdfs.semanticscholar.org/a441/488e8fe40370b7f5f99eb5a1659d93fb7091.pdf
+ */
+class UCTTreeReuseStrategyProvider: StrategyProvider {
+    companion object {
+        @JvmStatic
+        val C_P: StrategyParameterDescription<Double> = StrategyParameterDescription.forDouble("c_p").min(0.0).defaultValue(Math.sqrt(2.0)).build()
+        @JvmStatic
+        val ITERATION_COUNT: StrategyParameterDescription<Int> = StrategyParameterDescription.forInt("iterationCount").min(0).build()
+    }
+
+    override fun getName(): String {
+        return "UCTTreeReuse"
+    }
+
+    override fun getParameters(): List<StrategyParameterDescription<*>> {
+        return listOf(C_P, ITERATION_COUNT)
+    }
+
+    /*
+     * The subtree for the move played is kept, so the tree can hold a few moves' worth of
+     * iterations: roughly one move's worth carried over, one from pondering, and one from
+     * the search for the next move.
+     */
+    override fun getMemoryEstimate(parameters: StrategyParameters): OptionalLong {
+        return OptionalLong.of(3L * parameters[ITERATION_COUNT] * APPROXIMATE_NODE_SIZE_BYTES)
+    }
+
+    override fun get(parameters: StrategyParameters): Strategy {
+        return object: Strategy {
+            override fun getPlayer(roleIndex: Int, random: Random): Player {
+                val iterationsPerTurn = parameters[ITERATION_COUNT]
+                val c_p = parameters[C_P]
+
+                return UCTTreeReusePlayer(iterationsPerTurn, c_p, roleIndex, random)
+            }
+        }
+    }
+}
+
+/**
+ * The same as [UCTTreeReuseStrategyProvider], except that it runs iterations until the
+ * deadline for each move instead of running a fixed number of them, or until it has added
+ * [ANYTIME_MAX_NODES_PER_MOVE] nodes to its tree. This needs a match with a time control.
+ */
+class AnytimeUCTTreeReuseStrategyProvider: StrategyProvider {
+    companion object {
+        @JvmStatic
+        val C_P: StrategyParameterDescription<Double> = StrategyParameterDescription.forDouble("c_p").min(0.0).defaultValue(Math.sqrt(2.0)).build()
+    }
+
+    override fun getName(): String {
+        return "AnytimeUCTTreeReuse"
+    }
+
+    override fun getParameters(): List<StrategyParameterDescription<*>> {
+        return listOf(C_P)
+    }
+
+    // See UCTTreeReuseStrategyProvider.getMemoryEstimate
+    override fun getMemoryEstimate(parameters: StrategyParameters): OptionalLong {
+        return OptionalLong.of(3L * ANYTIME_MAX_NODES_PER_MOVE * APPROXIMATE_NODE_SIZE_BYTES)
+    }
+
+    override fun get(parameters: StrategyParameters): Strategy {
+        return object: Strategy {
+            override fun getPlayer(roleIndex: Int, random: Random): Player {
+                val c_p = parameters[C_P]
+
+                return UCTTreeReusePlayer(null, c_p, roleIndex, random)
+            }
+        }
+    }
+}
+
+/**
+ * If iterationsPerTurn is null, this instead runs iterations until the deadline for each move.
+ *
+ * When pondering, the background thread only ever touches the tree while the player isn't
+ * using it: it is stopped and joined before the tree is used or replaced. Each stretch of
+ * pondering runs at most as many iterations as a move's search, so it can't grow the tree
+ * without bound while other players think.
+ */
+class UCTTreeReusePlayer(val iterationsPerTurn: Int?, val c_p: Double, val roleIndex: Int, val random: Random): Player {
+    private lateinit var currentGameState: GameState
+    private lateinit var currentState: TurnTakingGameState
+    // The search tree for the current state, if we have one; this is kept between moves
+    private var rootNode: StateNode.NonTerminalNode? = null
+    // Used by the pondering thread, so the two threads don't share a source of randomness;
+    // this is null unless pondering is enabled
+    private var ponderingRandom: Random? = null
+    private var ponderingThread: Thread? = null
+    @Volatile private var stopPonderingRequested = false
+    private var ponderingError: Throwable? = null
+
+    override fun setPonderingEnabled(ponderingEnabled: Boolean) {
+        ponderingRandom = if (ponderingEnabled) Random(random.nextLong()) else null
+    }
+
+    override fun initializeGameState(initialState: GameState) {
+        stopPondering()
+        currentGameState = initialState
+        currentState = initialState.asTurnTakingGameState()
+        rootNode = null
+        startPondering()
+    }
+
+    override fun advanceGameState(moves: List<Move>, newGameState: GameState) {
+        stopPondering()
+        // Promote the subtree for the move played; the rest of the tree is no longer reachable
+        rootNode = rootNode?.let { it.children[moves[it.activeRole]] as? StateNode.NonTerminalNode }
+        currentGameState = newGameState
+        currentState = newGameState.asTurnTakingGameState()
+        startPondering()
+    }
+
+    override fun finishMatch() {
+        stopPondering()
+        rootNode = null
+    }
+
+    override fun getMove(): Move {
+        if (!hasChoiceOfMoves()) {
+            // This doesn't need the tree, so let any pondering continue through the other players' turns
+            return currentGameState.getPossibleMoveForRole(roleIndex, 0)
+        }
+        stopPonderingAndCheckForErrors()
+        val iterations = iterationsPerTurn ?: error("This player runs until a deadline, so it needs a match with a time control")
+        val rootNode = getRootNode()
+        for (i in 1..iterations) {
+            doRollout(rootNode, currentState, random)
+        }
+        return rootNode.getBestMove(roleIndex, random)
+    }
+
+    override fun getMove(deadline: Long): Move {
+        if (iterationsPerTurn != null || !hasChoiceOfMoves()) {
+            return getMove()
+        }
+        stopPonderingAndCheckForErrors()
+        val rootNode = getRootNode()
+        // Run at least one iteration, even if the deadline has already passed; each one adds at most one node
+        var iterations = 0L
+        do {
+            doRollout(rootNode, currentState, random)
+            iterations++
+        } while (System.currentTimeMillis() < deadline && iterations < ANYTIME_MAX_NODES_PER_MOVE)
+        return rootNode.getBestMove(roleIndex, random)
+    }
+
+    private fun hasChoiceOfMoves(): Boolean {
+        return currentState.roleToMove == roleIndex && currentState.numPossibleMoves > 1
+    }
+
+    private fun getRootNode(): StateNode.NonTerminalNode {
+        val existingRootNode = rootNode
+        if (existingRootNode != null) {
+            return existingRootNode
+        }
+        val newRootNode = makeNode(currentState) as? StateNode.NonTerminalNode ?: error("Did not expect to ask for moves to make in a terminal state")
+        rootNode = newRootNode
+        return newRootNode
+    }
+
+    private fun startPondering() {
+        val ponderingRandom = ponderingRandom ?: return
+        if (currentState.isTerminal || !currentGameState.isThreadSafe) {
+            return
+        }
+        val rootNode = getRootNode()
+        val rootState = currentState
+        val maxIterations = iterationsPerTurn?.toLong() ?: ANYTIME_MAX_NODES_PER_MOVE
+        stopPonderingRequested = false
+        val thread = Thread({
+            try {
+                var iterations = 0L
+                while (!stopPonderingRequested && iterations < maxIterations) {
+                    doRollout(rootNode, rootState, ponderingRandom)
+                    iterations++
+                }
+            } catch (e: Throwable) {
+                // Errors such as running out of memory also need to reach the match runner
+                ponderingError = e
+            }
+        }, "UCTTreeReuse pondering, role " + roleIndex)
+        // Don't keep the JVM alive if a match is abandoned
+        thread.isDaemon = true
+        thread.start()
+        ponderingThread = thread
+    }
+
+    private fun stopPondering() {
+        val thread = ponderingThread ?: return
+        stopPonderingRequested = true
+        thread.join()
+        ponderingThread = null
+    }
+
+    private fun stopPonderingAndCheckForErrors() {
+        stopPondering()
+        val error = ponderingError
+        if (error != null) {
+            throw RuntimeException("Error while pondering", error)
+        }
+    }
+
+    private fun doRollout(rootNode: StateNode.NonTerminalNode, rootState: TurnTakingGameState, random: Random) {
+        var curNode = rootNode
+        var curState = rootState
+
+        val nodesVisited = ArrayList<StateNode.NonTerminalNode>()
+        val movesChosen = ArrayList<Move>()
+
+        var hasExpanded = false
+
+        loop@ while (true) {
+            nodesVisited.add(curNode)
+            val moveChosen = chooseMoveToExplore(curNode, random)
+            movesChosen.add(moveChosen)
+
+            curState = curState.getNextState(moveChosen)
+            val nextNode: StateNode = if (curNode.children.containsKey(moveChosen)) {
+                curNode.children[moveChosen]!!
+            } else if (!hasExpanded) {
+                val newNode = makeNode(curState)
+                curNode.children[moveChosen] = newNode
+                hasExpanded = true
+                newNode
+            } else {
+                // Fast-forward to the end of the rollout
+                StateNode.TerminalNode(curState.playoutToTerminal(random))
+            }
+
+            when (nextNode) {
+                is StateNode.NonTerminalNode -> {
+                    curNode = nextNode
+                }
+                is StateNode.TerminalNode -> {
+                    val outcomes = nextNode.outcomes
+                    for ((nodeVisited, moveChosen) in nodesVisited.zip(movesChosen)) {
+                        nodeVisited.childStats[moveChosen]!!.addValues(outcomes)
+                    }
+                    break@loop
+                }
+            }
+        }
+    }
+
+    private fun chooseMoveToExplore(curNode: StateNode.NonTerminalNode, random: Random): Move {
+        // Start with exploring unvisited states
+        val untriedMoves = ArrayList<Move>()
+        for ((move, stats) in curNode.childStats.entries) {
+            if (stats.getCount() == 0L) {
+                untriedMoves.add(move)
+            }
+        }
+        if (untriedMoves.isNotEmpty()) {
+            return MoveUtils.pickAtRandom(untriedMoves, random)
+        }
+
+        val timesAnythingChosen = curNode.childStats.values.map(SumAndCountArray::getCount).sum().toDouble()
+
+        return MoveUtils.pickThingWithHighestScore(curNode.childStats.keys, { move ->
+            val stats = curNode.childStats[move]!!
+            // Compute the UCT score of the move; see MemorylessUCTOneNodeExpansionPlayer
+            val averageScore = stats.getAverage(curNode.activeRole)
+            val timesThisChosen = stats.getCount().toDouble()
+            averageScore + c_p * Math.sqrt(Math.log(timesAnythingChosen) / timesThisChosen)
+        }, random)
+    }
+}
+
+private fun makeNode(currentState: TurnTakingGameState): StateNode {
+    if (currentState.isTerminal) {
+        return StateNode.TerminalNode(currentState.getOutcomes())
+    }
+
+    val initialChildStats = LinkedHashMap<Move, SumAndCountArray>()
+    for (move in currentState.possibleMoves) {
+        initialChildStats[move] = SumAndCountArray.create(currentState.numRoles)
+    }
+    return StateNode.NonTerminalNode(childStats = initialChildStats,
+            children = LinkedHashMap<Move, StateNode>(),
+            activeRole = currentState.roleToMove)
+}
@@ -4,6 +4,19 @@ import net.alloyggp.research.Move
 import net.alloyggp.research.strategy.MoveUtils
 import java.util.Random
 
+/**
+ * A rough size in bytes of a [StateNode.NonTerminalNode] with a handful of legal moves,
+ * including its maps and statistics. This is used for the strategies' memory estimates.
+ */
+const val APPROXIMATE_NODE_SIZE_BYTES = 1024L
+
+/**
+ * Anytime players stop searching for a move once they've added this many nodes to their
+ * tree, even if the deadline hasn't passed yet. This keeps their memory use bounded, so they
+ * can declare memory estimates like the players with fixed iteration counts.
+ */
+const val ANYTIME_MAX_NODES_PER_MOVE = 500_000L
+
 sealed class StateNode {
     data class TerminalNode(val outcomes: List<Double>): StateNode()
     data class NonTerminalNode(val childStats: Map<Move, SumAndCountArray>,